@@ -8,11 +8,10 @@ import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
-import java.security.spec.KeySpec;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
@@ -28,6 +27,7 @@ public class CryptoService {
     private static final int GCM_TAG_LENGTH = 128;
     private static final int KEY_LENGTH = 256;
     private static final int ITERATION_COUNT = 65536;
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
      * Генерирует случайный master key (256 бит).
@@ -36,7 +36,7 @@ public class CryptoService {
      */
     public String generateMasterKey() {
         byte[] key = new byte[32]; // 256 bits
-        new SecureRandom().nextBytes(key);
+        RANDOM.nextBytes(key);
         return Base64.getEncoder().encodeToString(key);
     }
 
@@ -47,7 +47,7 @@ public class CryptoService {
      */
     public String generateSalt() {
         byte[] salt = new byte[16];
-        new SecureRandom().nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 
@@ -60,9 +60,8 @@ public class CryptoService {
      * @return Base64-encoded зашифрованный master key
      */
     public String encryptMasterKey(String masterKey, String password, String salt) {
-        try {
-            SecretKey derivedKey = deriveKey(password, salt);
-            byte[] encrypted = encrypt(masterKey.getBytes(StandardCharsets.UTF_8), derivedKey);
+        try (OffHeapSecureMemoryContainer derivedKey = deriveKey(password, salt)) {
+            byte[] encrypted = derivedKey.withKey("AES", key -> encrypt(masterKey.getBytes(StandardCharsets.UTF_8), key));
             return Base64.getEncoder().encodeToString(encrypted);
         } catch (Exception e) {
             log.error("Failed to encrypt master key", e);
@@ -79,11 +78,14 @@ public class CryptoService {
      * @return расшифрованный master key
      */
     public String decryptMasterKey(String encryptedMasterKey, String password, String salt) {
-        try {
-            SecretKey derivedKey = deriveKey(password, salt);
+        try (OffHeapSecureMemoryContainer derivedKey = deriveKey(password, salt)) {
             byte[] encrypted = Base64.getDecoder().decode(encryptedMasterKey);
-            byte[] decrypted = decrypt(encrypted, derivedKey);
-            return new String(decrypted, StandardCharsets.UTF_8);
+            byte[] decrypted = derivedKey.withKey("AES", key -> decrypt(encrypted, key));
+            try {
+                return new String(decrypted, StandardCharsets.UTF_8);
+            } finally {
+                Arrays.fill(decrypted, (byte) 0);
+            }
         } catch (Exception e) {
             log.error("Failed to decrypt master key", e);
             throw new RuntimeException("Failed to decrypt master key", e);
@@ -95,7 +97,7 @@ public class CryptoService {
      */
     private byte[] encrypt(byte[] data, SecretKey key) throws Exception {
         byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
+        RANDOM.nextBytes(iv);
 
         Cipher cipher = Cipher.getInstance(ALGORITHM);
         GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
@@ -131,13 +133,22 @@ public class CryptoService {
     }
 
     /**
-     * Генерирует ключ из пароля с использованием PBKDF2.
+     * Генерирует ключ из пароля с использованием PBKDF2. Ключ живёт вне кучи до закрытия контейнера,
+     * промежуточные копии в куче затираются.
      */
-    private SecretKey deriveKey(String password, String salt) throws Exception {
+    private OffHeapSecureMemoryContainer deriveKey(String password, String salt) throws Exception {
         byte[] saltBytes = Base64.getDecoder().decode(salt);
         SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATION_COUNT, KEY_LENGTH);
-        SecretKey tmp = factory.generateSecret(spec);
-        return new SecretKeySpec(tmp.getEncoded(), "AES");
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATION_COUNT, KEY_LENGTH);
+        byte[] key = null;
+        try {
+            key = factory.generateSecret(spec).getEncoded();
+            return new OffHeapSecureMemoryContainer(key);
+        } finally {
+            spec.clearPassword();
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
     }
 }
@@ -0,0 +1,12 @@
+package by.nexus.core.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Заполняет {@code @CreatedDate}/{@code @LastModifiedDate} у сущностей с {@code AuditingEntityListener}.
+ */
+@Configuration
+@EnableJpaAuditing
+public class JpaConfig {
+}
@@ -0,0 +1,47 @@
+package by.nexus.core.config;
+
+import by.nexus.core.service.security.CryptoService;
+import by.nexus.core.service.storage.BlobStore;
+import by.nexus.core.service.storage.EncryptingBlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Slf4j
+@Configuration
+public class StorageConfig {
+
+    /**
+     * Выбранный бэкенд хранилища оборачивается шифрованием, если задан {@code nexus.encryption.master-key}.
+     * Незашифрованные объекты читаются только с {@code nexus.encryption.allow-plaintext}.
+     */
+    @Bean
+    public static BeanPostProcessor blobStoreEncryption(ObjectProvider<CryptoService> cryptoService,
+                                                        Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof BlobStore blobStore) || bean instanceof EncryptingBlobStore) {
+                    return bean;
+                }
+                CryptoService crypto = cryptoService.getObject();
+                if (!crypto.isStorageEncryptionEnabled()) {
+                    log.warn("Storage encryption is disabled or nexus.encryption.master-key is not set, "
+                            + "content is stored unencrypted");
+                    return bean;
+                }
+                boolean allowPlaintext = environment.getProperty(
+                        "nexus.encryption.allow-plaintext", Boolean.class, false
+                );
+                if (allowPlaintext) {
+                    log.warn("nexus.encryption.allow-plaintext is set, unencrypted objects are read without "
+                            + "integrity checks; disable it once existing content is re-encrypted");
+                }
+                return new EncryptingBlobStore(blobStore, crypto, allowPlaintext);
+            }
+        };
+    }
+}
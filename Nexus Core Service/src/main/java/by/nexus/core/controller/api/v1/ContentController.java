@@ -1,14 +1,16 @@
 package by.nexus.core.controller.api.v1;
 
+import by.nexus.core.controller.DownloadResponseWriter;
+import by.nexus.core.exception.FileNodeNotExistsException;
 import by.nexus.core.model.entity.FileNode;
 import by.nexus.core.model.entity.FileVersion;
 import by.nexus.core.service.FileSystemService;
+import by.nexus.core.service.storage.ContentStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,12 +20,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -34,74 +33,58 @@ public class ContentController {
 
     private final FileSystemService fileSystemService;
 
+    /**
+     * Текущая версия файла. Поддерживает Range (в том числе несколько диапазонов) и условные запросы:
+     * ETag — хэш содержимого, так что уже скачанный файл не скачивается повторно.
+     */
     @GetMapping("/{fileNodeId}")
-    public ResponseEntity<Resource> downloadFile(
+    public void downloadFile(
             @PathVariable String fileNodeId,
-            @RequestParam String userId) {
-        
-        try {
-            FileNode node = getFileNode(UUID.fromString(fileNodeId), userId);
-            FileVersion version = node.getCurrentVersion();
-            
-            if (version == null || version.getStoragePath() == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            File file = new File(version.getStoragePath());
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Resource resource = new FileSystemResource(file);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + node.getName() + "\"")
-                    .body(resource);
-            
-        } catch (Exception e) {
-            log.error("Error downloading file: {}", fileNodeId, e);
-            return ResponseEntity.internalServerError().build();
-        }
+            @RequestParam String userId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        FileNode node = fileSystemService.getNode(UUID.fromString(fileNodeId), userId);
+        FileVersion version = node.getCurrentVersion();
+
+        write(request, response, version, node.getName(), fileNodeId);
     }
 
     @GetMapping("/{fileNodeId}/version/{version}")
-    public ResponseEntity<Resource> downloadFileVersion(
+    public void downloadFileVersion(
             @PathVariable String fileNodeId,
             @PathVariable Integer version,
-            @RequestParam String userId) {
-        
-        try {
-            FileNode node = getFileNode(UUID.fromString(fileNodeId), userId);
-            
-            List<FileVersion> versions = fileSystemService.getHistory(UUID.fromString(fileNodeId));
-            FileVersion targetVersion = versions.stream()
-                    .filter(v -> v.getVersion().equals(version))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (targetVersion == null || targetVersion.getStoragePath() == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            File file = new File(targetVersion.getStoragePath());
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Resource resource = new FileSystemResource(file);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + node.getName() + "_v" + version + "\"")
-                    .body(resource);
-            
-        } catch (Exception e) {
-            log.error("Error downloading file version: {} v{}", fileNodeId, version, e);
-            return ResponseEntity.internalServerError().build();
+            @RequestParam String userId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        FileNode node = fileSystemService.getNode(UUID.fromString(fileNodeId), userId);
+        FileVersion targetVersion = fileSystemService.getVersion(node.getId(), version).orElse(null);
+
+        write(request, response, targetVersion, node.getName() + "_v" + version, fileNodeId);
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, FileVersion version,
+                       String filename, String fileNodeId) throws IOException {
+        if (version == null || version.getStorageKey() == null) {
+            throw new FileNodeNotExistsException("Content of FileNode " + fileNodeId + " not exists");
         }
+
+        Resource resource = fileSystemService.readContent(version);
+        if (!resource.exists()) {
+            throw new FileNodeNotExistsException("Content of FileNode " + fileNodeId + " not exists");
+        }
+
+        DownloadResponseWriter.write(request, response, resource, etag(version), version.getCreatedAt(), filename);
+    }
+
+    /**
+     * Одинаковые байты — один ETag, даже в разных версиях. У содержимого, записанного до адресации
+     * по хэшу, ETag — id версии: объект версии не изменяется.
+     */
+    private static String etag(FileVersion version) {
+        String key = version.getStorageKey();
+        return ContentStore.isContentAddressed(key) ? ContentStore.hashOf(key) : version.getId().toString();
     }
 
     @PostMapping("/upload")
@@ -111,31 +94,38 @@ public class ContentController {
             @RequestParam String parentId,
             @RequestParam String userId) {
         
+        Path staged = null;
         try {
-            FileNode node = fileSystemService.createNode(
+            staged = fileSystemService.createStagingFile();
+            file.transferTo(staged);
+
+            fileSystemService.createNode(
                     UUID.fromString(projectId),
                     parentId != null ? UUID.fromString(parentId) : null,
                     file.getOriginalFilename(),
                     FileNode.FileType.DATASET,
-                    userId
+                    userId,
+                    staged
             );
             
-            Path targetPath = Path.of(node.getCurrentVersion().getStoragePath());
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            fileSystemService.updateVersionSize(node.getId(), file.getSize(), userId);
-            
             return ResponseEntity.ok().build();
             
         } catch (IOException e) {
             log.error("Error uploading file", e);
             return ResponseEntity.internalServerError().build();
+        } finally {
+            deleteQuietly(staged);
         }
     }
 
-    private FileNode getFileNode(UUID fileNodeId, String userId) {
-        // This is a simplified version - in production, you'd want to check permissions
-        // and return the actual FileNode
-        return null; // Placeholder - needs proper implementation
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged upload {}", file, e);
+        }
     }
 }
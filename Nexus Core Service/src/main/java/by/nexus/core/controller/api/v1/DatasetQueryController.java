@@ -0,0 +1,63 @@
+package by.nexus.core.controller.api.v1;
+
+import by.nexus.core.model.dto.api.DatasetPreviewDto;
+import by.nexus.core.service.query.DatasetQuery;
+import by.nexus.core.service.query.DatasetQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/datasets")
+@RequiredArgsConstructor
+public class DatasetQueryController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final DatasetQueryService datasetQueryService;
+
+    /**
+     * Строки датасета потоком NDJSON. Ошибки в колонках и фильтре возвращаются 400 до начала ответа.
+     *
+     * @param columns колонки через запятую, по умолчанию все
+     * @param filter  например {@code amount >= 100 AND region = 'EU'}
+     */
+    @GetMapping(value = "/{fileNodeId}/query", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> query(
+            @PathVariable String fileNodeId,
+            @RequestParam String userId,
+            @RequestParam(required = false) List<String> columns,
+            @RequestParam(required = false) String filter,
+            @RequestParam(required = false) Integer limit) throws IOException {
+
+        DatasetQuery query = datasetQueryService.prepare(
+                UUID.fromString(fileNodeId),
+                userId,
+                columns != null ? columns.stream().map(String::trim).toList() : List.of(),
+                filter,
+                limit
+        );
+
+        StreamingResponseBody body = query::writeNdjson;
+        return ResponseEntity.ok().body(body);
+    }
+
+    /**
+     * Схема, число строк, статистика колонок и первые строки текущей версии датасета.
+     */
+    @GetMapping("/{fileNodeId}/preview")
+    public ResponseEntity<DatasetPreviewDto> preview(
+            @PathVariable String fileNodeId,
+            @RequestParam String userId) {
+        return ResponseEntity.ok(datasetQueryService.preview(UUID.fromString(fileNodeId), userId));
+    }
+}
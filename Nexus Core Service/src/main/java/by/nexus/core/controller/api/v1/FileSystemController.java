@@ -1,12 +1,17 @@
 package by.nexus.core.controller.api.v1;
 
+import by.nexus.core.model.dto.api.BulkOperationsRequest;
+import by.nexus.core.model.dto.api.BulkOperationsResponse;
 import by.nexus.core.model.dto.api.CreateNodeRequest;
 import by.nexus.core.model.dto.api.FileNodeDto;
+import by.nexus.core.model.dto.api.FileNodePage;
 import by.nexus.core.model.dto.api.MoveNodeRequest;
 import by.nexus.core.model.dto.api.RenameNodeRequest;
 import by.nexus.core.model.entity.FileNode;
 import by.nexus.core.service.FileSystemService;
+import by.nexus.core.service.tree.BulkOperation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -33,15 +38,66 @@ public class FileSystemController {
             @PathVariable String projectId,
             @RequestParam(defaultValue = "tree") String view) {
         
-        List<FileNode> files = fileSystemService.listFiles(UUID.fromString(projectId));
-        
-        List<FileNodeDto> dtos = files.stream()
+        return ResponseEntity.ok(fileSystemService.listFiles(UUID.fromString(projectId)));
+    }
+
+    /**
+     * Содержимое одной папки страницами: клиент раскрывает дерево лениво, передавая {@code nextCursor}
+     * предыдущей страницы.
+     */
+    @GetMapping("/{id}/children")
+    public ResponseEntity<FileNodePage> listChildren(
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam String userId) {
+
+        return ResponseEntity.ok(fileSystemService.listChildren(
+                UUID.fromString(id),
+                cursor,
+                limit,
+                Sort.Direction.fromString(direction),
+                userId
+        ));
+    }
+
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<List<FileNodeDto>> listSubtree(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer depth,
+            @RequestParam String userId) {
+
+        List<FileNodeDto> dtos = fileSystemService.listSubtree(UUID.fromString(id), depth, userId).stream()
                 .map(this::mapToDto)
                 .toList();
-        
+
+        return ResponseEntity.ok(dtos);
+    }
+
+    @GetMapping("/{id}/ancestors")
+    public ResponseEntity<List<FileNodeDto>> getAncestors(
+            @PathVariable String id,
+            @RequestParam String userId) {
+
+        List<FileNodeDto> dtos = fileSystemService.getAncestors(UUID.fromString(id), userId).stream()
+                .map(this::mapToDto)
+                .toList();
+
         return ResponseEntity.ok(dtos);
     }
 
+    @GetMapping("/project/{projectId}/by-path")
+    public ResponseEntity<FileNodeDto> findByPath(
+            @PathVariable String projectId,
+            @RequestParam String path,
+            @RequestParam String userId) {
+
+        FileNode node = fileSystemService.findByPath(UUID.fromString(projectId), path, userId);
+
+        return ResponseEntity.ok(mapToDto(node));
+    }
+
     @PostMapping
     public ResponseEntity<FileNodeDto> createNode(@RequestBody CreateNodeRequest request) {
         FileNode node = fileSystemService.createNode(
@@ -55,6 +111,25 @@ public class FileSystemController {
         return ResponseEntity.ok(mapToDto(node));
     }
 
+    /**
+     * Пакет операций CREATE/MOVE/RENAME/DELETE в одной транзакции: применяются по порядку,
+     * при ошибке любой из них не применяется ни одна.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkOperationsResponse> applyBulk(@RequestBody BulkOperationsRequest request) {
+        List<BulkOperation> operations = request.operations().stream()
+                .map(this::mapToOperation)
+                .toList();
+
+        List<UUID> nodeIds = fileSystemService.applyBulk(
+                UUID.fromString(request.projectId()),
+                request.userId(),
+                operations
+        );
+
+        return ResponseEntity.ok(new BulkOperationsResponse(nodeIds));
+    }
+
     @PutMapping("/{id}/move")
     public ResponseEntity<Void> moveNode(
             @PathVariable String id,
@@ -93,6 +168,16 @@ public class FileSystemController {
         return ResponseEntity.noContent().build();
     }
 
+    private BulkOperation mapToOperation(BulkOperationsRequest.Operation operation) {
+        return new BulkOperation(
+                BulkOperation.Action.valueOf(operation.action()),
+                operation.nodeId() != null ? UUID.fromString(operation.nodeId()) : null,
+                operation.parentId() != null ? UUID.fromString(operation.parentId()) : null,
+                operation.name(),
+                operation.type() != null ? FileNode.FileType.valueOf(operation.type()) : null
+        );
+    }
+
     private FileNodeDto mapToDto(FileNode node) {
         return new FileNodeDto(
                 node.getId(),
@@ -100,6 +185,8 @@ public class FileSystemController {
                 node.getType().name(),
                 node.getParent() != null ? node.getParent().getId() : null,
                 node.getProject().getId(),
+                node.getNamePath(),
+                node.getDepth(),
                 node.getCurrentVersion() != null ? node.getCurrentVersion().getId() : null,
                 node.isDeleted(),
                 node.getCreatedAt(),
@@ -1,6 +1,7 @@
 package by.nexus.core.controller.api.v1;
 
 import by.nexus.core.model.dto.DatabaseConnectionDetails;
+import by.nexus.core.model.dto.ImportOptions;
 import by.nexus.core.model.dto.api.SqlImportRequest;
 import by.nexus.core.service.ImportOrchestrator;
 import lombok.RequiredArgsConstructor;
@@ -31,7 +32,16 @@ public class ImportController {
                         request.connection().user(),
                         request.connection().password()
                 ),
-                request.query()
+                request.query(),
+                new ImportOptions(
+                        request.partitioning() != null ? request.partitioning().column() : null,
+                        request.partitioning() != null ? request.partitioning().count() : null,
+                        request.priority(),
+                        request.incremental() != null ? request.incremental().column() : null,
+                        request.incremental() != null && request.incremental().targetNodeId() != null
+                                ? UUID.fromString(request.incremental().targetNodeId())
+                                : null
+                )
         );
         
         return ResponseEntity.accepted().body(Map.of("jobId", jobId));
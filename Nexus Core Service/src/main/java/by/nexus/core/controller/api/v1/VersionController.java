@@ -2,7 +2,6 @@ package by.nexus.core.controller.api.v1;
 
 import by.nexus.core.model.dto.api.FileVersionDto;
 import by.nexus.core.model.dto.api.RollbackRequest;
-import by.nexus.core.model.entity.FileVersion;
 import by.nexus.core.service.FileSystemService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -25,13 +24,7 @@ public class VersionController {
 
     @GetMapping("/file/{fileNodeId}")
     public ResponseEntity<List<FileVersionDto>> getFileHistory(@PathVariable String fileNodeId) {
-        List<FileVersion> versions = fileSystemService.getHistory(UUID.fromString(fileNodeId));
-        
-        List<FileVersionDto> dtos = versions.stream()
-                .map(this::mapToDto)
-                .toList();
-        
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(fileSystemService.getHistory(UUID.fromString(fileNodeId)));
     }
 
     @PostMapping("/{fileNodeId}/rollback")
@@ -53,15 +46,4 @@ public class VersionController {
         
         return ResponseEntity.ok().build();
     }
-
-    private FileVersionDto mapToDto(FileVersion version) {
-        return new FileVersionDto(
-                version.getId(),
-                version.getVersion(),
-                version.getStoragePath(),
-                version.getSizeBytes(),
-                version.getCreatedBy(),
-                version.getCreatedAt()
-        );
-    }
 }
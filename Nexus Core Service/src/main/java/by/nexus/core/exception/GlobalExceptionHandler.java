@@ -41,6 +41,13 @@ public class GlobalExceptionHandler {
                 .body(createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage()));
     }
 
+    @ExceptionHandler(ImportInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleImportInProgress(ImportInProgressException ex) {
+        log.error("Import in progress: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(createErrorResponse(HttpStatus.CONFLICT, ex.getMessage()));
+    }
+
     @ExceptionHandler(FailedToCreateStorageFolderException.class)
     public ResponseEntity<Map<String, Object>> handleFailedToCreateStorageFolder(FailedToCreateStorageFolderException ex) {
         log.error("Failed to create storage folder: {}", ex.getMessage());
@@ -55,6 +62,13 @@ public class GlobalExceptionHandler {
                 .body(createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to move file"));
     }
 
+    @ExceptionHandler(FailedToWriteContentException.class)
+    public ResponseEntity<Map<String, Object>> handleFailedToWriteContent(FailedToWriteContentException ex) {
+        log.error("Failed to write content: {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write file content"));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
         log.error("Unexpected error: {}", ex.getMessage(), ex);
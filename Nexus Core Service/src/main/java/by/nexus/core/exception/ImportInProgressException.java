@@ -0,0 +1,7 @@
+package by.nexus.core.exception;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public class ImportInProgressException extends RuntimeException {
+}
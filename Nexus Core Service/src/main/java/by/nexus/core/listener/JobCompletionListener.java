@@ -19,6 +19,7 @@ public class JobCompletionListener {
     public void listenForJobCompletion(ImportCompletedEvent event) {
         switch (event.status()) {
             case "SUCCESS" -> importOrchestrator.handleSuccess(event);
+            case "RUNNING" -> importOrchestrator.handleProgress(event);
             case "FAILED" -> importOrchestrator.handleFailure(event);
             default -> importOrchestrator.handleFailure(event);
         }
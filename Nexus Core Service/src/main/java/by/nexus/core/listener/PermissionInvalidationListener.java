@@ -0,0 +1,26 @@
+package by.nexus.core.listener;
+
+import by.nexus.core.service.security.PermissionCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сбросы кэша прав от всех реплик Core. У каждой реплики своя группа потребителей,
+ * чтобы сообщение получили все, и чтение только новых сообщений: старые сбросы уже неактуальны.
+ */
+@Component
+@RequiredArgsConstructor
+public class PermissionInvalidationListener {
+
+    private final PermissionCache permissionCache;
+
+    @KafkaListener(
+            topics = "${spring.kafka.topics.permission-invalidation}",
+            groupId = "${spring.kafka.consumer.group-id}-permissions-${random.uuid}",
+            properties = "auto.offset.reset=latest"
+    )
+    public void listenForInvalidation(String message) {
+        permissionCache.apply(permissionCache.parse(message));
+    }
+}
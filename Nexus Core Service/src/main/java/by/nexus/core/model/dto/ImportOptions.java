@@ -0,0 +1,37 @@
+package by.nexus.core.model.dto;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * @param priority полоса в Data Processor: {@code INTERACTIVE} или {@code BULK}, без учёта регистра;
+ *                 {@code null} — выбор по числу партиций
+ */
+public record ImportOptions(
+        String partitionColumn,
+        Integer partitionCount,
+        String priority,
+        String watermarkColumn,
+        UUID targetNodeId
+) {
+    public static final List<String> PRIORITIES = List.of("INTERACTIVE", "BULK");
+
+    public ImportOptions {
+        if (priority != null && !priority.isBlank()) {
+            String normalized = priority.trim().toUpperCase(Locale.ROOT);
+            if (!PRIORITIES.contains(normalized)) {
+                throw new IllegalArgumentException(
+                        "Unknown import priority " + priority + ", expected one of " + PRIORITIES
+                );
+            }
+            priority = normalized;
+        } else {
+            priority = null;
+        }
+    }
+
+    public static ImportOptions defaults() {
+        return new ImportOptions(null, null, null, null, null);
+    }
+}
@@ -0,0 +1,13 @@
+package by.nexus.core.model.dto;
+
+import java.util.UUID;
+
+/**
+ * Самые длинные пути в поддереве узла {@code rootId}, включая сам узел.
+ */
+public record SubtreeExtent(
+        UUID rootId,
+        Integer treePathLength,
+        Integer namePathLength
+) {
+}
@@ -0,0 +1,21 @@
+package by.nexus.core.model.dto;
+
+import by.nexus.core.model.entity.FileNode;
+
+import java.util.UUID;
+
+/**
+ * Положение узла в дереве без загрузки сущности.
+ */
+public record TreeNodeRef(
+        UUID id,
+        UUID projectId,
+        UUID parentId,
+        String name,
+        FileNode.FileType type,
+        String treePath,
+        String namePath,
+        Integer depth,
+        boolean deleted
+) {
+}
@@ -0,0 +1,22 @@
+package by.nexus.core.model.dto.api;
+
+import java.util.List;
+
+public record BulkOperationsRequest(
+        String projectId,
+        String userId,
+        List<Operation> operations
+) {
+
+    /**
+     * CREATE: parentId, name, type. MOVE: nodeId, parentId (новая папка). RENAME: nodeId, name. DELETE: nodeId.
+     */
+    public record Operation(
+            String action,
+            String nodeId,
+            String parentId,
+            String name,
+            String type
+    ) {
+    }
+}
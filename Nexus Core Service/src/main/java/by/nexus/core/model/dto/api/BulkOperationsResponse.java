@@ -0,0 +1,12 @@
+package by.nexus.core.model.dto.api;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * id узла каждой операции в порядке запроса; для CREATE — id созданного узла.
+ */
+public record BulkOperationsResponse(
+        List<UUID> nodeIds
+) {
+}
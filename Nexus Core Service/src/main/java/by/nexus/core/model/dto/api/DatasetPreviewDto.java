@@ -0,0 +1,24 @@
+package by.nexus.core.model.dto.api;
+
+import java.util.List;
+import java.util.Map;
+
+public record DatasetPreviewDto(
+        long rowCount,
+        List<Column> columns,
+        List<Map<String, Object>> rows
+) {
+
+    /**
+     * Колонка верхнего уровня. Статистика собрана по footer'у всего файла; null — в файле её нет.
+     */
+    public record Column(
+            String name,
+            String type,
+            boolean nullable,
+            Long nullCount,
+            String min,
+            String max
+    ) {
+    }
+}
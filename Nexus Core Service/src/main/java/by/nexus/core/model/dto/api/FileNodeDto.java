@@ -1,5 +1,7 @@
 package by.nexus.core.model.dto.api;
 
+import by.nexus.core.model.entity.FileNode;
+
 import java.time.Instant;
 import java.util.UUID;
 
@@ -9,9 +11,20 @@ public record FileNodeDto(
         String type,
         UUID parentId,
         UUID projectId,
+        String path,
+        Integer depth,
         UUID currentVersionId,
         boolean deleted,
         Instant createdAt,
         Instant updatedAt
 ) {
+
+    /**
+     * Для проекций в JPQL ({@code SELECT new ...}): тип узла приходит из запроса как enum.
+     */
+    public FileNodeDto(UUID id, String name, FileNode.FileType type, UUID parentId, UUID projectId, String path,
+                       Integer depth, UUID currentVersionId, boolean deleted, Instant createdAt, Instant updatedAt) {
+        this(id, name, type.name(), parentId, projectId, path, depth, currentVersionId, deleted, createdAt,
+                updatedAt);
+    }
 }
@@ -0,0 +1,13 @@
+package by.nexus.core.model.dto.api;
+
+import java.util.List;
+
+/**
+ * Страница содержимого папки. {@code nextCursor} — непрозрачный курсор следующей страницы,
+ * {@code null} на последней.
+ */
+public record FileNodePage(
+        List<FileNodeDto> items,
+        String nextCursor
+) {
+}
@@ -6,7 +6,7 @@ import java.util.UUID;
 public record FileVersionDto(
         UUID id,
         Integer version,
-        String storagePath,
+        String storageKey,
         Long sizeBytes,
         String createdBy,
         Instant createdAt
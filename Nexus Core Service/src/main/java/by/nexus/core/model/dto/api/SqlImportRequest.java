@@ -5,7 +5,10 @@ public record SqlImportRequest(
         String projectId,
         String targetFolderId,
         ConnectionDto connection,
-        String query
+        String query,
+        PartitioningDto partitioning,
+        String priority,
+        IncrementalDto incremental
 ) {
     public record ConnectionDto(
             String url,
@@ -13,4 +16,20 @@ public record SqlImportRequest(
             String password
     ) {
     }
+
+    public record PartitioningDto(
+            String column,
+            Integer count
+    ) {
+    }
+
+    /**
+     * Без targetNodeId создаётся новый датасет и запоминается отметка по column,
+     * с targetNodeId в существующий датасет дописываются только новые строки.
+     */
+    public record IncrementalDto(
+            String column,
+            String targetNodeId
+    ) {
+    }
 }
@@ -0,0 +1,181 @@
+package by.nexus.core.model.dto.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Бинарный формат событий импорта в Kafka: Avro single-object encoding — {@code C3 01}, 8 байт fingerprint
+ * схемы писателя и тело в бинарном Avro. Реестр схем не нужен: все версии схем лежат в {@code resources/avro}
+ * у каждого сервиса, и по fingerprint сообщение читается в текущую версию по правилам эволюции Avro.
+ * <p>
+ * Схемы в Core, Data Processor и Sync совпадают побайтно. Новая версия кладётся рядом со старыми и добавляется
+ * в историю, новые поля — только со значением по умолчанию. Потребители обновляются раньше производителей:
+ * неизвестный fingerprint отклоняется.
+ */
+public final class ImportEventCodec {
+
+    private static final byte[] MAGIC = {(byte) 0xC3, 0x01};
+    private static final int HEADER_SIZE = MAGIC.length + Long.BYTES;
+
+    static final Schema IMPORT_REQUEST = schema("avro/import-request-v1.avsc");
+    static final Schema IMPORT_COMPLETED = schema("avro/import-completed-v1.avsc");
+
+    // Все версии, которыми могли быть записаны сообщения в топиках; последняя — текущая
+    private static final List<Schema> IMPORT_REQUEST_HISTORY = List.of(IMPORT_REQUEST);
+    private static final List<Schema> IMPORT_COMPLETED_HISTORY = List.of(IMPORT_COMPLETED);
+
+    private static final BinaryMessageEncoder<GenericRecord> requestEncoder =
+            new BinaryMessageEncoder<>(GenericData.get(), IMPORT_REQUEST);
+    private static final BinaryMessageEncoder<GenericRecord> completedEncoder =
+            new BinaryMessageEncoder<>(GenericData.get(), IMPORT_COMPLETED);
+
+    private static final Map<Long, Function<byte[], Object>> readers = new HashMap<>();
+
+    static {
+        register(IMPORT_REQUEST, IMPORT_REQUEST_HISTORY, ImportEventCodec::toRequest);
+        register(IMPORT_COMPLETED, IMPORT_COMPLETED_HISTORY, ImportEventCodec::toCompleted);
+    }
+
+    private ImportEventCodec() {
+    }
+
+    /**
+     * Начинается ли сообщение с заголовка single-object encoding. JSON и обычные строки с {@code 0xC3} не начинаются.
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC[0] && data[1] == MAGIC[1];
+    }
+
+    public static byte[] encode(ImportRequestEvent event) {
+        GenericRecord record = new GenericData.Record(IMPORT_REQUEST);
+        record.put("jobId", event.jobId());
+        record.put("projectId", event.projectId());
+        record.put("connectionUrl", event.connectionUrl());
+        record.put("username", event.username());
+        record.put("password", event.password());
+        record.put("sqlQuery", event.sqlQuery());
+        record.put("partitionColumn", event.partitionColumn());
+        record.put("partitionCount", event.partitionCount());
+        record.put("priority", event.priority());
+        record.put("watermarkColumn", event.watermarkColumn());
+        record.put("watermark", event.watermark());
+        return encode(requestEncoder, record);
+    }
+
+    public static byte[] encode(ImportCompletedEvent event) {
+        GenericRecord record = new GenericData.Record(IMPORT_COMPLETED);
+        record.put("jobId", event.jobId());
+        record.put("status", event.status());
+        record.put("storagePath", event.storagePath());
+        record.put("fileSize", event.fileSize());
+        record.put("checksum", event.checksum());
+        record.put("errorMessage", event.errorMessage());
+        record.put("watermarkColumn", event.watermarkColumn());
+        record.put("watermark", event.watermark());
+        return encode(completedEncoder, record);
+    }
+
+    /**
+     * Читает событие любой известной версии схемы.
+     *
+     * @return {@link ImportRequestEvent} или {@link ImportCompletedEvent}
+     * @throws IllegalArgumentException если это не single-object encoding или схема писателя неизвестна
+     */
+    public static Object decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an Avro single-object encoded message");
+        }
+        long fingerprint = ByteBuffer.wrap(data, MAGIC.length, Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        Function<byte[], Object> reader = readers.get(fingerprint);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unknown event schema fingerprint " + Long.toHexString(fingerprint));
+        }
+        return reader.apply(data);
+    }
+
+    private static ImportRequestEvent toRequest(GenericRecord record) {
+        Integer partitionCount = (Integer) record.get("partitionCount");
+        return new ImportRequestEvent(
+                string(record, "jobId"),
+                string(record, "projectId"),
+                string(record, "connectionUrl"),
+                string(record, "username"),
+                string(record, "password"),
+                string(record, "sqlQuery"),
+                string(record, "partitionColumn"),
+                partitionCount,
+                string(record, "priority"),
+                string(record, "watermarkColumn"),
+                string(record, "watermark")
+        );
+    }
+
+    private static ImportCompletedEvent toCompleted(GenericRecord record) {
+        return new ImportCompletedEvent(
+                string(record, "jobId"),
+                string(record, "status"),
+                string(record, "storagePath"),
+                (Long) record.get("fileSize"),
+                string(record, "checksum"),
+                string(record, "errorMessage"),
+                string(record, "watermarkColumn"),
+                string(record, "watermark")
+        );
+    }
+
+    private static void register(Schema current, List<Schema> history, Function<GenericRecord, Object> mapper) {
+        BinaryMessageDecoder<GenericRecord> decoder = new BinaryMessageDecoder<>(GenericData.get(), current);
+        for (Schema writer : history) {
+            decoder.addSchema(writer);
+            readers.put(SchemaNormalization.parsingFingerprint64(writer), data -> {
+                try {
+                    return mapper.apply(decoder.decode(data));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Malformed " + current.getName() + " event", e);
+                }
+            });
+        }
+    }
+
+    private static byte[] encode(BinaryMessageEncoder<GenericRecord> encoder, GenericRecord record) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            encoder.encode(record, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Avro отдаёт строки как Utf8
+    private static String string(GenericRecord record, String field) {
+        return Objects.toString(record.get(field), null);
+    }
+
+    private static Schema schema(String resource) {
+        try (InputStream in = ImportEventCodec.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema " + resource + " not found on classpath");
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package by.nexus.core.model.dto.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Значения Kafka: события импорта — в {@link ImportEventCodec}, строки (JSON остальных топиков) — как UTF-8.
+ */
+public class ImportEventSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return switch (data) {
+            case null -> null;
+            case ImportRequestEvent event -> ImportEventCodec.encode(event);
+            case ImportCompletedEvent event -> ImportEventCodec.encode(event);
+            case String value -> value.getBytes(StandardCharsets.UTF_8);
+            case byte[] value -> value;
+            default -> throw new SerializationException(
+                    "Unsupported value type " + data.getClass().getName() + " for topic " + topic);
+        };
+    }
+}
@@ -6,6 +6,11 @@ public record ImportRequestEvent (
         String connectionUrl,
         String username,
         String password,
-        String sqlQuery
+        String sqlQuery,
+        String partitionColumn,
+        Integer partitionCount,
+        String priority,
+        String watermarkColumn,
+        String watermark
 ) {}
 
@@ -0,0 +1,9 @@
+package by.nexus.core.model.dto.event;
+
+import java.util.UUID;
+
+public record PermissionInvalidatedEvent(
+        UUID projectId,
+        String userId           // null - все права проекта
+) {
+}
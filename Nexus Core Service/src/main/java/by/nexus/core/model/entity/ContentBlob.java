@@ -0,0 +1,70 @@
+package by.nexus.core.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Содержимое, сохранённое в BlobStore под своим SHA-256. Одинаковые байты хранятся один раз,
+ * {@code refCount} — число ссылок на них: версий файлов, а для чанков — манифестов.
+ */
+@Entity
+@Table(name = "content_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    /**
+     * null у записей, созданных до появления чанков, означает {@link Kind#BLOB}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind")
+    private Kind kind;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    /**
+     * Момент, когда на содержимое перестали ссылаться. Сборщик удаляет его не раньше, чем через grace-период.
+     */
+    @Column(name = "released_at")
+    private Instant releasedAt;
+
+    public boolean isManifest() {
+        return kind == Kind.MANIFEST;
+    }
+
+    public enum Kind {
+        /**
+         * Байты целиком одним объектом (файл или чанк).
+         */
+        BLOB,
+        /**
+         * Список чанков, из которых собирается файл.
+         */
+        MANIFEST
+    }
+}
@@ -1,5 +1,6 @@
 package by.nexus.core.model.entity;
 
+import by.nexus.core.service.tree.TreePath;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -10,6 +11,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -30,7 +32,13 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "file_nodes")
+@Table(name = "file_nodes", indexes = {
+        @Index(name = "idx_file_nodes_tree_path", columnList = "tree_path"),
+        @Index(name = "idx_file_nodes_project_name_path", columnList = "project_id, name_path"),
+        @Index(name = "idx_file_nodes_parent_name", columnList = "parent_id, name"),
+        @Index(name = "idx_file_nodes_parent_type_name", columnList = "parent_id, type, name, id"),
+        @Index(name = "idx_file_nodes_deleted_at", columnList = "deleted_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -54,9 +62,24 @@ public class FileNode {
     @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL)
     private List<FileNode> children = new ArrayList<>();
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = TreePath.MAX_NAME_LENGTH)
     private String name;
 
+    /**
+     * Материализованный путь по id, см. {@link TreePath}.
+     */
+    @Column(name = "tree_path", length = TreePath.MAX_PATH_LENGTH)
+    private String treePath;
+
+    /**
+     * Путь по именам от корня проекта, {@code /a/b}. У корня — пустая строка.
+     */
+    @Column(name = "name_path", length = TreePath.MAX_PATH_LENGTH)
+    private String namePath;
+
+    @Column(name = "depth")
+    private Integer depth;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private FileType type;
@@ -67,6 +90,13 @@ public class FileNode {
     @Column(name = "is_deleted")
     private boolean isDeleted = false;
 
+    /**
+     * Момент удаления. Узел с версиями удаляет {@link by.nexus.core.service.storage.TreeGarbageCollector}
+     * по истечении retention.
+     */
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -42,8 +42,12 @@ public class FileVersion {
     @Column(nullable = false)
     private Integer version = 1;
 
+    /**
+     * Ключ содержимого версии в BlobStore. Колонка сохранила старое имя: у версий,
+     * записанных до BlobStore, здесь лежит путь на локальном диске.
+     */
     @Column(name = "storage_path", nullable = false)
-    private String storagePath;
+    private String storageKey;
 
     @Column(name = "size_bytes")
     private Long sizeBytes;
@@ -57,8 +61,8 @@ public class FileVersion {
     public synchronized FileVersion increment() {
         return FileVersion.builder()
                 .fileNode(fileNode)
-                .version(version++)
-                .storagePath(storagePath)
+                .version(version + 1)
+                .storageKey(storageKey)
                 .createdBy(createdBy)
                 .sizeBytes(sizeBytes)
                 .build();
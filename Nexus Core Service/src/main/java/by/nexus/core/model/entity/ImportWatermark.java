@@ -0,0 +1,76 @@
+package by.nexus.core.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Отметка инкрементального импорта датасета: колонка и значение, до которого строки уже загружены.
+ * Значение непрозрачно для Core, его формирует и разбирает Data Processor.
+ * <p>
+ * Пока дельта выгружается, запись занята задачей {@code pendingJobId}: вторая задача для датасета не запускается,
+ * а дельта принимается только от этой задачи и только если отметка не менялась с её запуска ({@code pendingFrom}).
+ */
+@Entity
+@Table(name = "import_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EntityListeners(AuditingEntityListener.class)
+public class ImportWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "file_node_id", nullable = false, unique = true)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private FileNode fileNode;
+
+    @Column(name = "watermark_column", nullable = false)
+    private String watermarkColumn;
+
+    @Column(name = "watermark")
+    private String watermark;
+
+    @Column(name = "pending_job_id")
+    private String pendingJobId;
+
+    @Column(name = "pending_from")
+    private String pendingFrom;
+
+    @Column(name = "pending_since")
+    private Instant pendingSince;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public void releasePending() {
+        pendingJobId = null;
+        pendingFrom = null;
+        pendingSince = null;
+    }
+}
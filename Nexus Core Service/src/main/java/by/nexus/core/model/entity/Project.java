@@ -56,6 +56,13 @@ public class Project {
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    /**
+     * Проект удалён и недоступен; его дерево и содержимое удаляет в фоне
+     * {@link by.nexus.core.service.storage.TreeGarbageCollector}.
+     */
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<FileNode> fileNodes = new ArrayList<>();
 
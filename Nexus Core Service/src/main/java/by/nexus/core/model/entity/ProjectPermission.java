@@ -60,8 +60,11 @@ public class ProjectPermission {
             this.accessLevel = level;
         }
 
+        /**
+         * Разрешает ли этот уровень действие, требующее уровня {@code accessLevel}.
+         */
         public boolean hasAccess(AccessLevel accessLevel) {
-            return accessLevel.accessLevel >= this.accessLevel;
+            return this.accessLevel >= accessLevel.accessLevel;
         }
     }
 }
@@ -0,0 +1,86 @@
+package by.nexus.core.repository;
+
+import by.nexus.core.model.entity.ContentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ContentBlobRepository extends CrudRepository<ContentBlob, String> {
+
+    /**
+     * Добавляет {@code count} ссылок на содержимое, создавая запись при первой ссылке. Строка остаётся
+     * заблокированной до конца транзакции, так что сборщик не удалит объект, пока он дозаписывается.
+     * Вид содержимого задаётся только при создании записи.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO content_blobs (hash, size_bytes, ref_count, kind, created_at)
+            VALUES (:hash, :size, :count, :kind, :now)
+            ON CONFLICT (hash) DO UPDATE SET ref_count = content_blobs.ref_count + :count, released_at = NULL
+            """, nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size, @Param("kind") String kind,
+                 @Param("count") long count, @Param("now") Instant now);
+
+    /**
+     * Создаёт запись с {@code count} ссылками, если её ещё нет.
+     *
+     * @return 1, если запись создана этим вызовом
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO content_blobs (hash, size_bytes, ref_count, kind, created_at)
+            VALUES (:hash, :size, :count, :kind, :now)
+            ON CONFLICT (hash) DO NOTHING
+            """, nativeQuery = true)
+    int create(@Param("hash") String hash, @Param("size") long size, @Param("kind") String kind,
+               @Param("count") long count, @Param("now") Instant now);
+
+    /**
+     * Запись без ссылок для объекта, записанного откаченной транзакцией: сборщик удалит его по истечении
+     * grace-периода, если содержимое к тому времени никто не сохранит заново.
+     *
+     * @return 1, если запись создана этим вызовом
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO content_blobs (hash, size_bytes, ref_count, kind, created_at, released_at)
+            VALUES (:hash, :size, 0, :kind, :now, :now)
+            ON CONFLICT (hash) DO NOTHING
+            """, nativeQuery = true)
+    int reserve(@Param("hash") String hash, @Param("size") long size, @Param("kind") String kind,
+                @Param("now") Instant now);
+
+    @Query("SELECT b.kind FROM ContentBlob b WHERE b.hash = :hash")
+    Optional<ContentBlob.Kind> findKindByHash(@Param("hash") String hash);
+
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + 1, b.releasedAt = NULL WHERE b.hash = :hash")
+    int retain(@Param("hash") String hash);
+
+    @Modifying
+    @Query("""
+            UPDATE ContentBlob b
+            SET b.refCount = b.refCount - :count,
+                b.releasedAt = CASE WHEN b.refCount - :count <= 0 THEN :now ELSE b.releasedAt END
+            WHERE b.hash = :hash
+            """)
+    int release(@Param("hash") String hash, @Param("count") long count, @Param("now") Instant now);
+
+    @Query("SELECT b.hash FROM ContentBlob b WHERE b.refCount <= 0 AND b.releasedAt < :before ORDER BY b.releasedAt")
+    List<String> findReleasedBefore(@Param("before") Instant before, Pageable pageable);
+
+    @Query("SELECT COUNT(b) FROM ContentBlob b WHERE b.refCount <= 0")
+    long countReleased();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ContentBlob b WHERE b.hash = :hash")
+    Optional<ContentBlob> lockByHash(@Param("hash") String hash);
+}
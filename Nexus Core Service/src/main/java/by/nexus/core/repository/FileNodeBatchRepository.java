@@ -0,0 +1,63 @@
+package by.nexus.core.repository;
+
+import by.nexus.core.service.tree.SubtreeRewrite;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Изменения поддеревьев пакетом JDBC: один и тот же UPDATE с разными параметрами уходит в БД пачками,
+ * а не отдельным запросом на каждую операцию. Порядок операций сохраняется.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileNodeBatchRepository {
+
+    private static final String REWRITE_SUBTREE = """
+            UPDATE file_nodes SET
+                parent_id = CASE WHEN id = ? THEN ? ELSE parent_id END,
+                name = CASE WHEN id = ? THEN ? ELSE name END,
+                tree_path = CONCAT(?, SUBSTRING(tree_path, ?)),
+                name_path = CONCAT(?, SUBSTRING(name_path, ?)),
+                depth = depth + ?,
+                is_deleted = (is_deleted OR ?),
+                deleted_at = CASE WHEN ? AND deleted_at IS NULL THEN ? ELSE deleted_at END
+            WHERE tree_path >= ? AND tree_path < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    /**
+     * @param now момент удаления для узлов, которые удаляет пакет
+     */
+    public void rewriteSubtrees(List<SubtreeRewrite> rewrites, Instant now) {
+        if (rewrites.isEmpty()) {
+            return;
+        }
+        Timestamp deletedAt = Timestamp.from(now);
+        jdbcTemplate.batchUpdate(REWRITE_SUBTREE, rewrites, batchSize, (ps, rewrite) -> {
+            ps.setObject(1, rewrite.nodeId());
+            ps.setObject(2, rewrite.parentId());
+            ps.setObject(3, rewrite.nodeId());
+            ps.setString(4, rewrite.name());
+            ps.setString(5, rewrite.newTreePath());
+            ps.setInt(6, rewrite.oldTreePathLength() + 1);
+            ps.setString(7, rewrite.newNamePath());
+            ps.setInt(8, rewrite.oldNamePathLength() + 1);
+            ps.setInt(9, rewrite.depthDelta());
+            ps.setBoolean(10, rewrite.delete());
+            ps.setBoolean(11, rewrite.delete());
+            ps.setTimestamp(12, deletedAt);
+            ps.setString(13, rewrite.from());
+            ps.setString(14, rewrite.to());
+        });
+    }
+}
@@ -1,17 +1,221 @@
 package by.nexus.core.repository;
 
+import by.nexus.core.model.dto.SubtreeExtent;
+import by.nexus.core.model.dto.TreeNodeRef;
+import by.nexus.core.model.dto.api.FileNodeDto;
 import by.nexus.core.model.entity.FileNode;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface FileNodeRepository extends CrudRepository<FileNode, UUID> {
+/**
+ * Запросы по дереву идут по материализованному пути {@code treePath}: поддерево — диапазон
+ * {@code [from, to)} по индексу, см. {@link by.nexus.core.service.tree.TreePath}.
+ */
+public interface FileNodeRepository extends JpaRepository<FileNode, UUID> {
 
     @Query("SELECT f FROM FileNode f WHERE f.project.id = :projectId ORDER BY f.type ASC, f.name ASC")
     List<FileNode> findAllByProjectSorted(@Param("projectId") UUID projectId);
 
     boolean existsByParentIdAndName(UUID parentId, String name);
+
+    @EntityGraph(attributePaths = "currentVersion")
+    Optional<FileNode> findWithCurrentVersionById(UUID id);
+
+    @Query("""
+            SELECT v.storageKey FROM FileNode f JOIN f.currentVersion v
+            WHERE f.project.id = :projectId AND f.parent IS NULL
+            """)
+    List<String> findRootStorageKeys(@Param("projectId") UUID projectId);
+
+    String DTO_PROJECTION = """
+            SELECT new by.nexus.core.model.dto.api.FileNodeDto(
+                f.id, f.name, f.type, p.id, f.project.id, f.namePath, f.depth, v.id, f.isDeleted,
+                f.createdAt, f.updatedAt
+            )
+            FROM FileNode f LEFT JOIN f.parent p LEFT JOIN f.currentVersion v
+            """;
+
+    @Query(DTO_PROJECTION + "WHERE f.project.id = :projectId ORDER BY f.type ASC, f.name ASC")
+    List<FileNodeDto> findAllDtosByProject(@Param("projectId") UUID projectId);
+
+    /**
+     * Содержимое папки страницами по индексу {@code (parent_id, type, name, id)} в порядке списка файлов проекта:
+     * первая страница и страницы после курсора {@code (type, name, id)} в обоих направлениях сортировки.
+     */
+    @Query(DTO_PROJECTION + """
+            WHERE p.id = :parentId AND f.isDeleted = false
+            ORDER BY f.type ASC, f.name ASC, f.id ASC
+            """)
+    List<FileNodeDto> findChildrenAsc(@Param("parentId") UUID parentId, Limit limit);
+
+    @Query(DTO_PROJECTION + """
+            WHERE p.id = :parentId AND f.isDeleted = false
+              AND (f.type > :type OR (f.type = :type AND (f.name > :name OR (f.name = :name AND f.id > :id))))
+            ORDER BY f.type ASC, f.name ASC, f.id ASC
+            """)
+    List<FileNodeDto> findChildrenAscAfter(@Param("parentId") UUID parentId, @Param("type") FileNode.FileType type,
+                                           @Param("name") String name, @Param("id") UUID id, Limit limit);
+
+    @Query(DTO_PROJECTION + """
+            WHERE p.id = :parentId AND f.isDeleted = false
+            ORDER BY f.type DESC, f.name DESC, f.id DESC
+            """)
+    List<FileNodeDto> findChildrenDesc(@Param("parentId") UUID parentId, Limit limit);
+
+    @Query(DTO_PROJECTION + """
+            WHERE p.id = :parentId AND f.isDeleted = false
+              AND (f.type < :type OR (f.type = :type AND (f.name < :name OR (f.name = :name AND f.id < :id))))
+            ORDER BY f.type DESC, f.name DESC, f.id DESC
+            """)
+    List<FileNodeDto> findChildrenDescAfter(@Param("parentId") UUID parentId, @Param("type") FileNode.FileType type,
+                                            @Param("name") String name, @Param("id") UUID id, Limit limit);
+
+    @Query("""
+            SELECT f FROM FileNode f
+            WHERE f.treePath >= :from AND f.treePath < :to AND f.isDeleted = false
+            ORDER BY f.treePath
+            """)
+    List<FileNode> findSubtree(@Param("from") String from, @Param("to") String to);
+
+    @Query("""
+            SELECT f FROM FileNode f
+            WHERE f.treePath >= :from AND f.treePath < :to AND f.depth <= :maxDepth AND f.isDeleted = false
+            ORDER BY f.treePath
+            """)
+    List<FileNode> findSubtree(@Param("from") String from, @Param("to") String to,
+                               @Param("maxDepth") int maxDepth);
+
+    @Query("SELECT f FROM FileNode f WHERE f.id IN :ids ORDER BY f.depth")
+    List<FileNode> findAllByIdOrderByDepth(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+            SELECT f FROM FileNode f
+            WHERE f.project.id = :projectId AND f.namePath = :namePath AND f.isDeleted = false
+            """)
+    Optional<FileNode> findByProjectIdAndNamePath(@Param("projectId") UUID projectId,
+                                                  @Param("namePath") String namePath);
+
+    String TREE_REF_PROJECTION = """
+            SELECT new by.nexus.core.model.dto.TreeNodeRef(
+                f.id, f.project.id, p.id, f.name, f.type, f.treePath, f.namePath, f.depth, f.isDeleted
+            )
+            FROM FileNode f LEFT JOIN f.parent p
+            """;
+
+    @Query(TREE_REF_PROJECTION + "WHERE f.id IN :ids")
+    List<TreeNodeRef> findTreeRefs(@Param("ids") Collection<UUID> ids);
+
+    @Query(TREE_REF_PROJECTION + "WHERE p.id IN :parentIds")
+    List<TreeNodeRef> findChildRefs(@Param("parentIds") Collection<UUID> parentIds);
+
+    /**
+     * Самые длинные пути поддеревьев узлов: по ним перемещение и переименование проверяются до UPDATE.
+     * Верхняя граница поддерева — {@link by.nexus.core.service.tree.TreePath#subtreeEnd}.
+     */
+    @Query("""
+            SELECT new by.nexus.core.model.dto.SubtreeExtent(r.id, MAX(LENGTH(d.treePath)), MAX(LENGTH(d.namePath)))
+            FROM FileNode r, FileNode d
+            WHERE r.id IN :ids AND d.treePath >= r.treePath AND d.treePath < CONCAT(r.treePath, 'g')
+            GROUP BY r.id
+            """)
+    List<SubtreeExtent> findSubtreeExtents(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT DISTINCT f.project.id FROM FileNode f WHERE f.treePath IS NULL")
+    List<UUID> findProjectIdsWithoutTreePath();
+
+    boolean existsByProjectIdAndTreePathIsNull(UUID projectId);
+
+    /**
+     * Удалённые до {@code before} узлы, у которых не осталось других детей, от самых глубоких:
+     * пачка не оставляет детей без родителя.
+     */
+    @Query("""
+            SELECT f.id FROM FileNode f
+            WHERE f.isDeleted = true AND f.deletedAt < :before
+              AND NOT EXISTS (
+                  SELECT c.id FROM FileNode c
+                  WHERE c.parent = f AND (c.isDeleted = false OR c.deletedAt IS NULL OR c.deletedAt >= :before)
+              )
+            ORDER BY f.depth DESC
+            """)
+    List<UUID> findExpiredDeleted(@Param("before") Instant before, Limit limit);
+
+    @Query("SELECT f.id FROM FileNode f WHERE f.project.id = :projectId ORDER BY f.depth DESC")
+    List<UUID> findIdsByProjectDeepestFirst(@Param("projectId") UUID projectId, Limit limit);
+
+    /**
+     * Блокирует узлы пачки перед удалением ({@code FOR UPDATE SKIP LOCKED}): узлы, которые уже удаляет
+     * другая реплика, пропускаются, а уже удалённые не возвращаются.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT f FROM FileNode f WHERE f.id IN :ids")
+    List<FileNode> lockForPurge(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT COUNT(f) FROM FileNode f WHERE f.isDeleted = true")
+    long countDeleted();
+
+    /**
+     * Узлам, удалённым до появления {@code deletedAt}, отсчёт retention начинается сейчас.
+     */
+    @Modifying
+    @Query("UPDATE FileNode f SET f.deletedAt = :now WHERE f.isDeleted = true AND f.deletedAt IS NULL")
+    int backfillDeletedAt(@Param("now") Instant now);
+
+    /**
+     * Снимает ссылки на родителя и текущую версию, чтобы версии и узлы пачки удалялись в любом порядке.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE FileNode f SET f.parent = null, f.currentVersion = null WHERE f.id IN :ids")
+    int detach(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM FileNode f WHERE f.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Переносит поддерево: заменяет префиксы путей и сдвигает глубину одним UPDATE.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE FileNode f
+            SET f.treePath = CONCAT(:newTreePath, SUBSTRING(f.treePath, :oldTreePathLength + 1)),
+                f.namePath = CONCAT(:newNamePath, SUBSTRING(f.namePath, :oldNamePathLength + 1)),
+                f.depth = f.depth + :depthDelta
+            WHERE f.treePath >= :from AND f.treePath < :to
+            """)
+    int moveSubtree(@Param("from") String from, @Param("to") String to,
+                    @Param("oldTreePathLength") int oldTreePathLength, @Param("newTreePath") String newTreePath,
+                    @Param("oldNamePathLength") int oldNamePathLength, @Param("newNamePath") String newNamePath,
+                    @Param("depthDelta") int depthDelta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE FileNode f
+            SET f.namePath = CONCAT(:newNamePath, SUBSTRING(f.namePath, :oldNamePathLength + 1))
+            WHERE f.treePath >= :from AND f.treePath < :to
+            """)
+    int renameSubtree(@Param("from") String from, @Param("to") String to,
+                      @Param("oldNamePathLength") int oldNamePathLength, @Param("newNamePath") String newNamePath);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE FileNode f SET f.isDeleted = true, f.deletedAt = COALESCE(f.deletedAt, :now)
+            WHERE f.treePath >= :from AND f.treePath < :to
+            """)
+    int markSubtreeDeleted(@Param("from") String from, @Param("to") String to, @Param("now") Instant now);
 }
@@ -1,11 +1,48 @@
 package by.nexus.core.repository;
 
+import by.nexus.core.model.dto.api.FileVersionDto;
 import by.nexus.core.model.entity.FileVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface FileVersionRepository extends CrudRepository<FileVersion, UUID> {
     List<FileVersion> findAllByFileNodeId(UUID id);
+
+    Optional<FileVersion> findByFileNodeIdAndVersion(UUID fileNodeId, Integer version);
+
+    @Query("""
+            SELECT new by.nexus.core.model.dto.api.FileVersionDto(
+                v.id, v.version, v.storageKey, v.sizeBytes, v.createdBy, v.createdAt
+            )
+            FROM FileVersion v WHERE v.fileNode.id = :fileNodeId ORDER BY v.version
+            """)
+    List<FileVersionDto> findHistory(@Param("fileNodeId") UUID fileNodeId);
+
+    @Query("SELECT v.storageKey FROM FileVersion v WHERE v.fileNode.project.id = :projectId")
+    List<String> findStorageKeysByProjectId(@Param("projectId") UUID projectId);
+
+    /**
+     * Версии файлов под блокировкой; у папок содержимого нет. Ссылки на содержимое снимаются ровно за те
+     * строки, которые затем удалит эта же транзакция.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT v FROM FileVersion v
+            WHERE v.fileNode.id IN :fileNodeIds
+              AND v.fileNode.type <> by.nexus.core.model.entity.FileNode.FileType.FOLDER
+            """)
+    List<FileVersion> lockContentVersionsByFileNodeIds(@Param("fileNodeIds") Collection<UUID> fileNodeIds);
+
+    @Modifying
+    @Query("DELETE FROM FileVersion v WHERE v.fileNode.id IN :fileNodeIds")
+    int deleteAllByFileNodeIds(@Param("fileNodeIds") Collection<UUID> fileNodeIds);
 }
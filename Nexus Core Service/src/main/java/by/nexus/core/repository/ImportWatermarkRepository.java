@@ -0,0 +1,55 @@
+package by.nexus.core.repository;
+
+import by.nexus.core.model.entity.ImportWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ImportWatermarkRepository extends CrudRepository<ImportWatermark, UUID> {
+    Optional<ImportWatermark> findByFileNodeId(UUID fileNodeId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM ImportWatermark w WHERE w.fileNode.id = :fileNodeId")
+    Optional<ImportWatermark> lockByFileNodeId(@Param("fileNodeId") UUID fileNodeId);
+
+    /**
+     * Занимает запись за задачей, если датасет не выгружается другой задачей или та не отвечает дольше
+     * {@code staleBefore}. Строка остаётся заблокированной до конца транзакции.
+     *
+     * @return 1, если запись занята этим вызовом
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            UPDATE ImportWatermark w
+            SET w.pendingJobId = :jobId, w.pendingFrom = w.watermark, w.pendingSince = :now
+            WHERE w.fileNode.id = :fileNodeId AND (w.pendingJobId IS NULL OR w.pendingSince < :staleBefore)
+            """)
+    int claim(@Param("fileNodeId") UUID fileNodeId, @Param("jobId") String jobId, @Param("now") Instant now,
+              @Param("staleBefore") Instant staleBefore);
+
+    /**
+     * Продлевает захват: задача сообщила, что ещё выполняется.
+     *
+     * @return 1, если запись всё ещё занята этой задачей
+     */
+    @Modifying
+    @Query("""
+            UPDATE ImportWatermark w SET w.pendingSince = :now
+            WHERE w.fileNode.id = :fileNodeId AND w.pendingJobId = :jobId
+            """)
+    int touch(@Param("fileNodeId") UUID fileNodeId, @Param("jobId") String jobId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE ImportWatermark w SET w.pendingJobId = NULL, w.pendingFrom = NULL, w.pendingSince = NULL
+            WHERE w.fileNode.id = :fileNodeId AND w.pendingJobId = :jobId
+            """)
+    int release(@Param("fileNodeId") UUID fileNodeId, @Param("jobId") String jobId);
+}
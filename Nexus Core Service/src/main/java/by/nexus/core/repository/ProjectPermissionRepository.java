@@ -1,8 +1,28 @@
 package by.nexus.core.repository;
 
 import by.nexus.core.model.entity.ProjectPermission;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+import java.util.UUID;
 
 public interface ProjectPermissionRepository
         extends CrudRepository<ProjectPermission, ProjectPermission.ProjectPermissionId> {
+
+    /**
+     * Только уровень доступа: проверка прав не загружает сущность в контекст персистентности.
+     */
+    @Query("""
+            SELECT p.accessLevel FROM ProjectPermission p
+            WHERE p.id.projectId = :projectId AND p.id.userId = :userId
+            """)
+    Optional<ProjectPermission.AccessLevel> findAccessLevel(@Param("projectId") UUID projectId,
+                                                            @Param("userId") String userId);
+
+    @Modifying
+    @Query("DELETE FROM ProjectPermission p WHERE p.id.projectId = :projectId")
+    int deleteAllByProjectId(@Param("projectId") UUID projectId);
 }
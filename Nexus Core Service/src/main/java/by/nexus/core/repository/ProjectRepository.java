@@ -1,14 +1,30 @@
 package by.nexus.core.repository;
 
 import by.nexus.core.model.entity.Project;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface ProjectRepository extends CrudRepository<Project, UUID> {
-    boolean existsByNameAndOwnerId(String name, String ownerId);
-    Optional<Project> findByNameAndOwnerId(String name, String ownerId);
-    List<Project> findAllByOwnerId(String userId);
+public interface ProjectRepository extends JpaRepository<Project, UUID> {
+    boolean existsByNameAndOwnerIdAndDeletedAtIsNull(String name, String ownerId);
+    Optional<Project> findByNameAndOwnerIdAndDeletedAtIsNull(String name, String ownerId);
+    List<Project> findAllByOwnerIdAndDeletedAtIsNull(String userId);
+
+    @Query("SELECT p.id FROM Project p WHERE p.deletedAt IS NOT NULL ORDER BY p.deletedAt")
+    List<UUID> findPendingDeletion(Limit limit);
+
+    long countByDeletedAtIsNotNull();
+
+    /**
+     * Удаляет строку проекта без каскада по коллекциям: дерево к этому моменту уже удалено сборщиком.
+     */
+    @Modifying
+    @Query("DELETE FROM Project p WHERE p.id = :id AND p.deletedAt IS NOT NULL")
+    int deletePending(@Param("id") UUID id);
 }
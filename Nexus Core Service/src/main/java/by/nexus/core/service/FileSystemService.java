@@ -1,11 +1,21 @@
 package by.nexus.core.service;
 
+import by.nexus.core.model.dto.api.FileNodeDto;
+import by.nexus.core.model.dto.api.FileNodePage;
+import by.nexus.core.model.dto.api.FileVersionDto;
 import by.nexus.core.model.entity.FileNode;
 import by.nexus.core.model.entity.FileVersion;
 import by.nexus.core.model.entity.Project;
 import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.service.tree.BulkOperation;
 
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface FileSystemService {
@@ -13,12 +23,23 @@ public interface FileSystemService {
     void deleteProject(String userId, String projectName);
     void deleteProject(String userId, UUID projectId);
     FileNode createNode(UUID projectId, UUID parentId, String name, FileNode.FileType type, String userId);
+    FileNode createNode(UUID projectId, UUID parentId, String name, FileNode.FileType type, String userId, Path content);
+    FileVersion writeContent(UUID nodeId, Path content, String userId);
+    Resource readContent(FileVersion version);
+    Path createStagingFile() throws IOException;
+    FileNode getNode(UUID nodeId, String userId);
     void deleteNode(UUID nodeId, String userId);
     void moveNode(UUID nodeId, UUID targetParentId, String userId);
     void renameNode(UUID nodeId, String newName, String userId);
-    List<FileNode> listFiles(UUID projectId);
+    List<UUID> applyBulk(UUID projectId, String userId, List<BulkOperation> operations);
+    List<FileNodeDto> listFiles(UUID projectId);
+    FileNodePage listChildren(UUID folderId, String cursor, int limit, Sort.Direction direction, String userId);
+    List<FileNode> listSubtree(UUID nodeId, Integer maxDepth, String userId);
+    List<FileNode> getAncestors(UUID nodeId, String userId);
+    FileNode findByPath(UUID projectId, String path, String userId);
     void commitVersion(UUID nodeId);
-    List<FileVersion> getHistory(UUID nodeId);
+    List<FileVersionDto> getHistory(UUID nodeId);
+    Optional<FileVersion> getVersion(UUID nodeId, Integer version);
     void rollbackToVersion(UUID nodeId, Integer version);
     void rollbackToVersion(UUID nodeId, UUID versionId);
     void checkPermission(String userId, UUID projectId, ProjectPermission.AccessLevel level);
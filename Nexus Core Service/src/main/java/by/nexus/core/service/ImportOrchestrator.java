@@ -1,13 +1,16 @@
 package by.nexus.core.service;
 
 import by.nexus.core.model.dto.DatabaseConnectionDetails;
+import by.nexus.core.model.dto.ImportOptions;
 import by.nexus.core.model.dto.event.ImportCompletedEvent;
 
 import java.util.UUID;
 
 public interface ImportOrchestrator {
     String startImportJob(String userId, UUID projectId, UUID targetFolderId,
-                        DatabaseConnectionDetails dbConnectionDetails, String sqlQuery);
+                        DatabaseConnectionDetails dbConnectionDetails, String sqlQuery,
+                        ImportOptions options);
+    void handleProgress(ImportCompletedEvent event);
     void handleSuccess(ImportCompletedEvent event);
     void handleFailure(ImportCompletedEvent event);
 }
@@ -30,7 +30,7 @@ public class ProjectService {
 
 
     public List<ProjectDto> getUserProjects(String userId) {
-        return projectRepository.findAllByOwnerId(userId).parallelStream()
+        return projectRepository.findAllByOwnerIdAndDeletedAtIsNull(userId).parallelStream()
                 .map(this::mapToDto)
                 .toList();
     }
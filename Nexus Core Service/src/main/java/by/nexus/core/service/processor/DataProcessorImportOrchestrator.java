@@ -1,26 +1,35 @@
 package by.nexus.core.service.processor;
 
+import by.nexus.core.exception.ImportInProgressException;
 import by.nexus.core.model.dto.DatabaseConnectionDetails;
+import by.nexus.core.model.dto.ImportOptions;
 import by.nexus.core.model.dto.event.ImportCompletedEvent;
 import by.nexus.core.model.dto.event.ImportRequestEvent;
 import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.model.entity.ImportWatermark;
+import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.repository.ImportWatermarkRepository;
 import by.nexus.core.service.FileSystemService;
 import by.nexus.core.service.ImportOrchestrator;
+import by.nexus.core.service.transfer.ImportTransfer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpMethod;
+import org.springframework.core.io.Resource;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
 import java.util.UUID;
 
 @Slf4j
@@ -30,7 +39,10 @@ public class DataProcessorImportOrchestrator implements ImportOrchestrator {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final FileSystemService fileSystemService;
-    private final RestTemplate restTemplate;
+    private final ImportTransfer importTransfer;
+    private final ImportWatermarkRepository importWatermarkRepository;
+    private final NxdtDatasetAppender datasetAppender;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${spring.kafka.topics.import-request}")
     private String importRequestTopic;
@@ -41,26 +53,98 @@ public class DataProcessorImportOrchestrator implements ImportOrchestrator {
     @Value("${nexus.storage.download-base-url}")
     private String baseUrl;
 
+    @Value("${nexus.import.incremental.lock-timeout:15m}")
+    private Duration lockTimeout;
+
+    /**
+     * Для инкрементального импорта в существующий датасет id датасета дописывается
+     * пятым сегментом jobId, а отметка берётся из сохранённой для датасета. Датасет занимается за задачей
+     * до её завершения: пока дельта выгружается, новая задача для него отклоняется, если прежняя
+     * не молчит дольше {@code nexus.import.incremental.lock-timeout}. Data Processor, пока задача стоит в очереди
+     * или выполняется, шлёт события {@code RUNNING}, и каждое продлевает захват. Если задачу не удалось
+     * отправить в Kafka, датасет освобождается сразу.
+     *
+     * @throws ImportInProgressException если датасет уже выгружается другой задачей
+     */
     @Override
+    @Transactional
     public String startImportJob(String userId, UUID projectId, UUID targetFolderId,
-                               DatabaseConnectionDetails dbConnectionDetails, String sqlQuery) {
+                               DatabaseConnectionDetails dbConnectionDetails, String sqlQuery,
+                               ImportOptions options) {
         String jobId = String.format("%s:%s:%s:%s", userId, projectId, targetFolderId, UUID.randomUUID());
 
+        String watermarkColumn = options.watermarkColumn();
+        String watermark = null;
+        if (options.targetNodeId() != null) {
+            fileSystemService.checkPermission(userId, projectId, ProjectPermission.AccessLevel.EDITOR);
+
+            jobId += ":" + options.targetNodeId();
+            ImportWatermark stored = findWatermark(options.targetNodeId());
+            if (!stored.getFileNode().getProject().getId().equals(projectId)) {
+                throw new IllegalArgumentException(
+                        "Dataset " + options.targetNodeId() + " does not belong to project " + projectId
+                );
+            }
+            if (watermarkColumn != null && !watermarkColumn.equals(stored.getWatermarkColumn())) {
+                throw new IllegalArgumentException(
+                        "Dataset " + options.targetNodeId() + " is imported by column " + stored.getWatermarkColumn()
+                );
+            }
+
+            Instant now = Instant.now();
+            if (importWatermarkRepository.claim(options.targetNodeId(), jobId, now, now.minus(lockTimeout)) == 0) {
+                throw new ImportInProgressException(
+                        "Dataset " + options.targetNodeId() + " is already being imported"
+                );
+            }
+            // Отметку читаем после захвата: завершившаяся до него задача могла её сдвинуть
+            stored = findWatermark(options.targetNodeId());
+            watermarkColumn = stored.getWatermarkColumn();
+            watermark = stored.getWatermark();
+        }
+
         ImportRequestEvent event = new ImportRequestEvent(
                 jobId,
                 projectId.toString(),
                 dbConnectionDetails.url(),
                 dbConnectionDetails.user(),
                 dbConnectionDetails.password(),
-                sqlQuery
+                sqlQuery,
+                options.partitionColumn(),
+                options.partitionCount(),
+                options.priority(),
+                watermarkColumn,
+                watermark
         );
 
-        kafkaTemplate.send(importRequestTopic, event);
+        String sentJobId = jobId;
+        kafkaTemplate.send(importRequestTopic, event).whenComplete((result, e) -> {
+            if (e != null && options.targetNodeId() != null) {
+                // Обновление ждёт блокировку строки до фиксации захвата, а если захват откатился, ничего не меняет
+                log.error("Failed to send import request {}, releasing dataset {}", sentJobId, options.targetNodeId(), e);
+                transactionTemplate.executeWithoutResult(
+                        status -> importWatermarkRepository.release(options.targetNodeId(), sentJobId)
+                );
+            }
+        });
         return jobId;
     }
 
     @Override
     @Transactional
+    public void handleProgress(ImportCompletedEvent event) {
+        String[] parts = event.jobId().split(":");
+        if (parts.length > 4
+                && importWatermarkRepository.touch(UUID.fromString(parts[4]), event.jobId(), Instant.now()) == 0) {
+            log.debug("Job {} no longer holds dataset {}", event.jobId(), parts[4]);
+        }
+    }
+
+    /**
+     * Результат скачивается и склеивается вне транзакции: транзакции короткие и охватывают только
+     * запись метаданных.
+     */
+    @Override
     public void handleSuccess(ImportCompletedEvent event) {
         log.info("Processing successful import for job: {}", event.jobId());
 
@@ -75,46 +159,172 @@ public class DataProcessorImportOrchestrator implements ImportOrchestrator {
             UUID folderId = UUID.fromString(parts[2]);
             String importName = "Imported_" + parts[3].substring(0, 8);
 
-            Path tempFile = downloadFile(event.storagePath());
+            if (parts.length > 4) {
+                appendDelta(UUID.fromString(parts[4]), userId, event);
+                return;
+            }
 
-            FileNode node = fileSystemService.createNode(
-                    projectId,
-                    folderId,
-                    importName + ".nxdt",
-                    FileNode.FileType.DATASET,
-                    userId
-            );
+            Path staged = fileSystemService.createStagingFile();
+            try {
+                importTransfer.transfer(event, staged);
 
-            Path finalPath = Path.of(node.getCurrentVersion().getStoragePath());
-            Files.move(tempFile, finalPath, StandardCopyOption.REPLACE_EXISTING);
+                FileNode node = transactionTemplate.execute(status -> {
+                    FileNode created = fileSystemService.createNode(
+                            projectId,
+                            folderId,
+                            importName + ".nxdt",
+                            FileNode.FileType.DATASET,
+                            userId,
+                            staged
+                    );
 
-            fileSystemService.updateVersionSize(node.getId(), Files.size(finalPath), userId);
+                    if (event.watermarkColumn() != null) {
+                        importWatermarkRepository.save(ImportWatermark.builder()
+                                .fileNode(created)
+                                .watermarkColumn(event.watermarkColumn())
+                                .watermark(event.watermark())
+                                .build());
+                    }
+                    return created;
+                });
 
-            // kafkaTemplate.send(syncEventsTopic, new SyncEvent("JOB_SUCCESS", node.getId()));
+                // kafkaTemplate.send(syncEventsTopic, new SyncEvent("JOB_SUCCESS", node.getId()));
 
-            log.info("Successfully imported dataset: {}", finalPath);
+                log.info("Successfully imported dataset: {}", node.getCurrentVersion().getStorageKey());
+            } finally {
+                Files.deleteIfExists(staged);
+            }
 
         } catch (Exception e) {
             log.error("Failed to process import result", e);
         }
     }
 
-    private Path downloadFile(String url) throws IOException {
-        Path tempFile = Files.createTempFile("import_", ".nxdt");
-
-        restTemplate.execute(URI.create(url), HttpMethod.GET, null, clientHttpResponse -> {
-            try (InputStream is = clientHttpResponse.getBody()) {
-                Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Дописывает дельту в датасет новыми row group'ами и фиксирует результат новой версией.
+     * Дельта принимается только от задачи, за которой занят датасет, и только если отметка не менялась
+     * с её запуска; иначе строки дельты могли бы попасть в датасет дважды.
+     * <p>
+     * Parquet не дописывается на месте, поэтому каждая дельта переписывает датасет целиком: если хранилище
+     * не локальное, текущая версия сначала скачивается во временный файл, а результат загружается обратно
+     * полностью. Скачивание и склейка идут без блокировки отметки: строка блокируется до них, чтобы проверить
+     * задачу и запомнить версию, с которой склеивается дельта, и после — чтобы проверить всё ещё раз
+     * и зафиксировать версию. Если за это время у датасета появилась другая версия, результат отбрасывается,
+     * а датасет освобождается: строки выше отметки заберёт следующий импорт.
+     */
+    private void appendDelta(UUID nodeId, String userId, ImportCompletedEvent event) throws IOException {
+        MergeBase base = transactionTemplate.execute(status -> {
+            ImportWatermark watermark = lockWatermark(nodeId);
+            if (!isHeldBy(watermark, event)) {
+                return null;
             }
-            return tempFile;
+            if (Objects.equals(watermark.getWatermark(), event.watermark())) {
+                log.info("No new rows for dataset {} above watermark {}", nodeId, event.watermark());
+                watermark.releasePending();
+                return null;
+            }
+            FileVersion version = watermark.getFileNode().getCurrentVersion();
+            return new MergeBase(version.getId(), fileSystemService.readContent(version));
         });
+        if (base == null) {
+            return;
+        }
 
-        return tempFile;
+        Resource current = base.content();
+        Path delta = fileSystemService.createStagingFile();
+        Path merged = fileSystemService.createStagingFile();
+        Path downloaded = null;
+        try {
+            importTransfer.transfer(event, delta);
+
+            Path dataset;
+            if (current.isFile()) {
+                dataset = current.getFile().toPath();
+            } else {
+                downloaded = fileSystemService.createStagingFile();
+                try (InputStream in = current.getInputStream()) {
+                    Files.copy(in, downloaded, StandardCopyOption.REPLACE_EXISTING);
+                }
+                dataset = downloaded;
+            }
+
+            datasetAppender.append(dataset, delta, merged);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                ImportWatermark watermark = lockWatermark(nodeId);
+                if (!isHeldBy(watermark, event)) {
+                    return;
+                }
+                // Датасет освобождается при любом исходе; запись сохранится вместе с транзакцией
+                watermark.releasePending();
+
+                if (!base.versionId().equals(watermark.getFileNode().getCurrentVersion().getId())) {
+                    log.warn("Discarding delta of job {}: dataset {} got a new version while the delta was merged",
+                            event.jobId(), nodeId);
+                    return;
+                }
+                fileSystemService.writeContent(nodeId, merged, userId);
+                watermark.setWatermark(event.watermark());
+
+                log.info("Appended delta to dataset {}, watermark {}", nodeId, event.watermark());
+            });
+        } finally {
+            Files.deleteIfExists(delta);
+            Files.deleteIfExists(merged);
+            if (downloaded != null) {
+                Files.deleteIfExists(downloaded);
+            }
+        }
+    }
+
+    /**
+     * Версия датасета, с которой склеивается дельта.
+     */
+    private record MergeBase(UUID versionId, Resource content) {
+    }
+
+    private ImportWatermark lockWatermark(UUID nodeId) {
+        return importWatermarkRepository.lockByFileNodeId(nodeId)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Dataset " + nodeId + " was not imported incrementally"
+                ));
+    }
+
+    /**
+     * Датасет занят задачей события, и отметка не менялась с её запуска. Задача с устаревшей отметкой
+     * освобождает датасет.
+     */
+    private boolean isHeldBy(ImportWatermark watermark, ImportCompletedEvent event) {
+        UUID nodeId = watermark.getFileNode().getId();
+        if (!event.jobId().equals(watermark.getPendingJobId())) {
+            log.warn("Discarding delta of job {}: dataset {} is held by job {}",
+                    event.jobId(), nodeId, watermark.getPendingJobId());
+            return false;
+        }
+        if (!Objects.equals(watermark.getWatermark(), watermark.getPendingFrom())) {
+            log.warn("Discarding delta of job {}: extracted above {}, dataset {} is at {}",
+                    event.jobId(), watermark.getPendingFrom(), nodeId, watermark.getWatermark());
+            watermark.releasePending();
+            return false;
+        }
+        return true;
+    }
+
+    private ImportWatermark findWatermark(UUID nodeId) {
+        return importWatermarkRepository.findByFileNodeId(nodeId)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Dataset " + nodeId + " was not imported incrementally"
+                ));
     }
 
     @Override
+    @Transactional
     public void handleFailure(ImportCompletedEvent event) {
         log.info("Import failed for job: {}, error: {}", event.jobId(), event.errorMessage());
+        String[] parts = event.jobId().split(":");
+        if (parts.length > 4) {
+            importWatermarkRepository.release(UUID.fromString(parts[4]), event.jobId());
+        }
         // kafkaTemplate.send(syncEventsTopic, new SyncEvent("JOB_FAILED", node.getId()));
     }
 }
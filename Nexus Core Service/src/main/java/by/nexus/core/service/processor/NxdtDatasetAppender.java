@@ -0,0 +1,63 @@
+package by.nexus.core.service.processor;
+
+import com.github.baibeicha.nexus.io.parquet.ParquetIo;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.io.LocalOutputFile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Дописывает дельту инкрементального импорта в датасет новыми row group'ами.
+ * Row group'ы обоих файлов копируются байт-в-байт, без повторного декодирования и сжатия.
+ */
+@Component
+public class NxdtDatasetAppender {
+
+    /**
+     * Собирает датасет + дельту в {@code target}. Сам датасет не меняется: результат
+     * публикуется новой версией файла. Если сборка не удалась, {@code target} удаляется.
+     */
+    public void append(Path dataset, Path delta, Path target) throws IOException {
+        FileMetaData datasetMeta = readMetaData(dataset);
+        FileMetaData deltaMeta = readMetaData(delta);
+
+        if (!datasetMeta.getSchema().equals(deltaMeta.getSchema())) {
+            throw new IllegalStateException(
+                    "Delta schema does not match dataset " + dataset.getFileName()
+                            + ": " + deltaMeta.getSchema() + " vs " + datasetMeta.getSchema()
+            );
+        }
+
+        try (ParquetFileWriter writer = new ParquetFileWriter(
+                new LocalOutputFile(target),
+                datasetMeta.getSchema(),
+                ParquetFileWriter.Mode.OVERWRITE,
+                ParquetWriter.DEFAULT_BLOCK_SIZE,
+                ParquetWriter.MAX_PADDING_SIZE_DEFAULT,
+                null,
+                ParquetProperties.builder().build()
+        )) {
+            writer.start();
+            writer.appendFile(new ParquetIo.NioInputFile(dataset));
+            writer.appendFile(new ParquetIo.NioInputFile(delta));
+            writer.end(datasetMeta.getKeyValueMetaData());
+        } catch (IOException | RuntimeException e) {
+            // Недописанный файл без footer'а не читается, оставлять его нельзя
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private FileMetaData readMetaData(Path file) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(new ParquetIo.NioInputFile(file))) {
+            return reader.getFooter().getFileMetaData();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package by.nexus.core.service.query;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Значения Avro для записи через Jackson.
+ */
+final class AvroValues {
+
+    private AvroValues() {
+    }
+
+    /**
+     * Значение Avro в виде, который Jackson пишет как обычный JSON: строки вместо Utf8,
+     * decimal — числом, вложенные записи — объектами.
+     */
+    static Object toJson(Object value, Schema schema) {
+        if (value == null) {
+            return null;
+        }
+        if (schema.getType() == Schema.Type.UNION) {
+            return toJson(value, schema.getTypes().get(GenericData.get().resolveUnion(schema, value)));
+        }
+        LogicalType logicalType = schema.getLogicalType();
+        if (logicalType instanceof LogicalTypes.Decimal decimal) {
+            byte[] bytes = value instanceof ByteBuffer buffer ? bytes(buffer) : ((GenericFixed) value).bytes();
+            return new BigDecimal(new BigInteger(bytes), decimal.getScale());
+        }
+        return switch (value) {
+            case CharSequence text -> text.toString();
+            case GenericEnumSymbol<?> symbol -> symbol.toString();
+            case ByteBuffer buffer -> bytes(buffer);
+            case GenericFixed fixed -> fixed.bytes();
+            case GenericRecord record -> toJson(record);
+            case List<?> list -> {
+                List<Object> items = new ArrayList<>(list.size());
+                for (Object item : list) {
+                    items.add(toJson(item, schema.getElementType()));
+                }
+                yield items;
+            }
+            case Map<?, ?> map -> {
+                Map<String, Object> entries = new LinkedHashMap<>();
+                map.forEach((key, item) -> entries.put(key.toString(), toJson(item, schema.getValueType())));
+                yield entries;
+            }
+            default -> value;
+        };
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Запись целиком: колонка — значение, в порядке схемы.
+     */
+    static Map<String, Object> toJson(GenericRecord record) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (Schema.Field field : record.getSchema().getFields()) {
+            row.put(field.name(), toJson(record.get(field.pos()), field.schema()));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,216 @@
+package by.nexus.core.service.query;
+
+import by.nexus.core.service.storage.ContentResource;
+import com.github.baibeicha.nexus.io.parquet.ParquetIo;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.springframework.core.io.Resource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Parquet-файл из {@link by.nexus.core.service.storage.ContentStore} без скачивания целиком: footer
+ * и column chunk'и читаются ranged-запросами ровно нужной длины. Мелкие чтения берут окно
+ * {@link #READ_AHEAD}, чтобы не открывать запрос на каждые несколько байт.
+ */
+public class ContentInputFile implements InputFile {
+
+    static final int READ_AHEAD = 64 * 1024;
+
+    private final ContentResource resource;
+    private final long length;
+
+    public ContentInputFile(ContentResource resource) throws IOException {
+        this.resource = resource;
+        this.length = resource.contentLength();
+    }
+
+    /**
+     * Файл на локальном диске читается напрямую, содержимое из хранилища — диапазонами.
+     */
+    static InputFile of(Resource resource) throws IOException {
+        if (resource.isFile()) {
+            return new ParquetIo.NioInputFile(resource.getFile().toPath());
+        }
+        if (resource instanceof ContentResource content) {
+            return new ContentInputFile(content);
+        }
+        throw new IllegalStateException("Unsupported dataset content: " + resource.getDescription());
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public SeekableInputStream newStream() {
+        return new RangeInputStream();
+    }
+
+    @Override
+    public String toString() {
+        return resource.getDescription();
+    }
+
+    /**
+     * Позиция меняется без обращения к хранилищу; диапазон открывается при первом чтении после seek.
+     */
+    private class RangeInputStream extends SeekableInputStream {
+
+        private long position;
+        private InputStream window;
+        private long windowEnd;
+
+        @Override
+        public long getPos() {
+            return position;
+        }
+
+        @Override
+        public void seek(long newPosition) throws IOException {
+            if (newPosition < 0 || newPosition > length) {
+                throw new EOFException("Seek to " + newPosition + " outside of " + resource.getDescription());
+            }
+            if (newPosition != position) {
+                closeWindow();
+                position = newPosition;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureWindow(1)) {
+                return -1;
+            }
+            int b = window.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of " + resource.getDescription());
+            }
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureWindow(len)) {
+                return -1;
+            }
+            int n = window.read(bytes, offset, (int) Math.min(len, windowEnd - position));
+            if (n < 0) {
+                throw new EOFException("Unexpected end of " + resource.getDescription());
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void readFully(byte[] bytes) throws IOException {
+            readFully(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void readFully(byte[] bytes, int offset, int len) throws IOException {
+            if (position + len > length) {
+                throw new EOFException("Reading " + len + " bytes at " + position + " past the end of "
+                        + resource.getDescription());
+            }
+            // Окно точно под запрошенный диапазон: column chunk'и читаются одним запросом без read-ahead
+            if (window == null) {
+                openWindow(len);
+            }
+            int done = 0;
+            while (done < len) {
+                int n = read(bytes, offset + done, len - done);
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of " + resource.getDescription());
+                }
+                done += n;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return 0;
+            }
+            if (buffer.hasArray()) {
+                int n = read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (n > 0) {
+                    buffer.position(buffer.position() + n);
+                }
+                return n;
+            }
+            byte[] chunk = new byte[Math.min(buffer.remaining(), READ_AHEAD)];
+            int n = read(chunk, 0, chunk.length);
+            if (n > 0) {
+                buffer.put(chunk, 0, n);
+            }
+            return n;
+        }
+
+        @Override
+        public void readFully(ByteBuffer buffer) throws IOException {
+            if (buffer.hasArray()) {
+                int len = buffer.remaining();
+                readFully(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+                buffer.position(buffer.position() + len);
+                return;
+            }
+            if (position + buffer.remaining() > length) {
+                throw new EOFException("Reading " + buffer.remaining() + " bytes at " + position
+                        + " past the end of " + resource.getDescription());
+            }
+            if (window == null) {
+                openWindow(buffer.remaining());
+            }
+            byte[] chunk = new byte[Math.min(buffer.remaining(), READ_AHEAD)];
+            while (buffer.hasRemaining()) {
+                int n = read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of " + resource.getDescription());
+                }
+                buffer.put(chunk, 0, n);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeWindow();
+        }
+
+        /**
+         * @return false в конце файла
+         */
+        private boolean ensureWindow(int wanted) throws IOException {
+            if (position >= length) {
+                return false;
+            }
+            if (window == null || position >= windowEnd) {
+                closeWindow();
+                openWindow(Math.max(wanted, READ_AHEAD));
+            }
+            return true;
+        }
+
+        private void openWindow(long wanted) throws IOException {
+            long count = Math.min(wanted, length - position);
+            window = resource.getInputStream(position, count);
+            windowEnd = position + count;
+        }
+
+        private void closeWindow() throws IOException {
+            if (window != null) {
+                InputStream current = window;
+                window = null;
+                current.close();
+            }
+        }
+    }
+}
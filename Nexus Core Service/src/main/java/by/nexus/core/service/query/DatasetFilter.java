@@ -0,0 +1,308 @@
+package by.nexus.core.service.query;
+
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Фильтр запроса к датасету, переведённый в предикат Parquet. Синтаксис:
+ * <pre>
+ * amount &gt;= 100 AND region = 'EU' OR id = 7
+ * </pre>
+ * Сравнения {@code = != <> < <= > >=} колонки верхнего уровня с литералом (число, {@code 'строка'},
+ * {@code true}/{@code false}, {@code null}), объединённые {@code AND} и {@code OR}; {@code AND} связывает
+ * сильнее. Предикат проверяется по min/max статистике row group'ов и страниц, так что неподходящие
+ * части файла не читаются.
+ */
+public final class DatasetFilter {
+
+    private final FilterPredicate predicate;
+    private final Set<String> columns;
+
+    private DatasetFilter(FilterPredicate predicate, Set<String> columns) {
+        this.predicate = predicate;
+        this.columns = columns;
+    }
+
+    /**
+     * @throws IllegalArgumentException выражение не разбирается или не подходит к схеме
+     */
+    public static DatasetFilter parse(String expression, MessageType schema) {
+        Parser parser = new Parser(tokenize(expression), schema);
+        FilterPredicate predicate = parser.or();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.position).text
+                    + "' in filter: " + expression);
+        }
+        return new DatasetFilter(predicate, parser.columns);
+    }
+
+    public FilterPredicate predicate() {
+        return predicate;
+    }
+
+    /**
+     * Колонки, которые нужно прочитать для проверки фильтра.
+     */
+    public Set<String> columns() {
+        return columns;
+    }
+
+    private enum TokenType {
+        IDENTIFIER, STRING, NUMBER, OPERATOR
+    }
+
+    private record Token(TokenType type, String text) {
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static List<Token> tokenize(String expression) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                // 'строка' — литерал, "имя" — колонка; кавычка внутри удваивается
+                StringBuilder text = new StringBuilder();
+                int j = i + 1;
+                while (true) {
+                    if (j >= length) {
+                        throw new IllegalArgumentException("Unterminated quote in filter: " + expression);
+                    }
+                    char d = expression.charAt(j);
+                    if (d == c) {
+                        if (j + 1 < length && expression.charAt(j + 1) == c) {
+                            text.append(c);
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    text.append(d);
+                    j++;
+                }
+                tokens.add(new Token(c == '\'' ? TokenType.STRING : TokenType.IDENTIFIER, text.toString()));
+                i = j + 1;
+            } else if (c == '=' || c == '<' || c == '>' || c == '!') {
+                int j = i + 1;
+                if (j < length && (expression.charAt(j) == '=' || (c == '<' && expression.charAt(j) == '>'))) {
+                    j++;
+                }
+                String operator = expression.substring(i, j);
+                if (operator.equals("!")) {
+                    throw new IllegalArgumentException("Unknown operator '!' in filter: " + expression);
+                }
+                tokens.add(new Token(TokenType.OPERATOR, operator.equals("<>") ? "!=" : operator));
+                i = j;
+            } else if (Character.isDigit(c) || c == '-' || c == '+' || c == '.') {
+                int j = i + 1;
+                while (j < length && (Character.isLetterOrDigit(expression.charAt(j))
+                        || expression.charAt(j) == '.' || isExponentSign(expression, j))) {
+                    j++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, expression.substring(i, j)));
+                i = j;
+            } else if (Character.isLetter(c) || c == '_') {
+                int j = i + 1;
+                while (j < length && (Character.isLetterOrDigit(expression.charAt(j)) || expression.charAt(j) == '_')) {
+                    j++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(i, j)));
+                i = j;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in filter: " + expression);
+            }
+        }
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Filter is empty");
+        }
+        return tokens;
+    }
+
+    private static boolean isExponentSign(String expression, int i) {
+        char c = expression.charAt(i);
+        char previous = expression.charAt(i - 1);
+        return (c == '-' || c == '+') && (previous == 'e' || previous == 'E');
+    }
+
+    private static final class Parser {
+
+        private final List<Token> tokens;
+        private final MessageType schema;
+        private final Set<String> columns = new LinkedHashSet<>();
+        private int position;
+
+        Parser(List<Token> tokens, MessageType schema) {
+            this.tokens = tokens;
+            this.schema = schema;
+        }
+
+        FilterPredicate or() {
+            FilterPredicate left = and();
+            while (acceptKeyword("OR")) {
+                left = FilterApi.or(left, and());
+            }
+            return left;
+        }
+
+        FilterPredicate and() {
+            FilterPredicate left = comparison();
+            while (acceptKeyword("AND")) {
+                left = FilterApi.and(left, comparison());
+            }
+            return left;
+        }
+
+        FilterPredicate comparison() {
+            Token column = next();
+            if (column.type != TokenType.IDENTIFIER) {
+                throw new IllegalArgumentException("Expected column name, got '" + column.text + "'");
+            }
+            Token operator = next();
+            if (operator.type != TokenType.OPERATOR) {
+                throw new IllegalArgumentException("Expected comparison after " + column.text
+                        + ", got '" + operator.text + "'");
+            }
+            Token literal = next();
+            if (literal.type == TokenType.OPERATOR) {
+                throw new IllegalArgumentException("Expected value after " + column.text + " " + operator.text);
+            }
+            columns.add(column.text);
+            return predicate(column.text, operator.text, literal);
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (position < tokens.size() && tokens.get(position).isKeyword(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private Token next() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of filter");
+            }
+            return tokens.get(position++);
+        }
+
+        private FilterPredicate predicate(String name, String operator, Token literal) {
+            PrimitiveType type = filterableColumn(name);
+            if (literal.isKeyword("null") && literal.type == TokenType.IDENTIFIER) {
+                return nullPredicate(name, type, operator);
+            }
+            try {
+                return switch (type.getPrimitiveTypeName()) {
+                    case INT32 -> compare(FilterApi.intColumn(name), operator,
+                            Integer.valueOf(number(literal, name)));
+                    case INT64 -> compare(FilterApi.longColumn(name), operator,
+                            Long.valueOf(number(literal, name)));
+                    case FLOAT -> compare(FilterApi.floatColumn(name), operator,
+                            Float.valueOf(number(literal, name)));
+                    case DOUBLE -> compare(FilterApi.doubleColumn(name), operator,
+                            Double.valueOf(number(literal, name)));
+                    case BOOLEAN -> equality(FilterApi.booleanColumn(name), operator, bool(literal, name));
+                    case BINARY -> compare(FilterApi.binaryColumn(name), operator, string(literal, name));
+                    default -> throw new IllegalArgumentException("Column " + name + " can't be filtered");
+                };
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Value '" + literal.text + "' doesn't match column " + name
+                        + " of type " + type.getPrimitiveTypeName());
+            }
+        }
+
+        private PrimitiveType filterableColumn(String name) {
+            if (!schema.containsField(name)) {
+                throw new IllegalArgumentException("Unknown column " + name);
+            }
+            Type type = schema.getType(name);
+            if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) {
+                throw new IllegalArgumentException("Column " + name + " can't be filtered");
+            }
+            PrimitiveType primitive = type.asPrimitiveType();
+            if (primitive.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.BINARY
+                    && !(primitive.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation)
+                    && !(primitive.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation)) {
+                throw new IllegalArgumentException("Column " + name + " can't be filtered");
+            }
+            return primitive;
+        }
+
+        private FilterPredicate nullPredicate(String name, PrimitiveType type, String operator) {
+            if (!operator.equals("=") && !operator.equals("!=")) {
+                throw new IllegalArgumentException("null can be compared only with = and !=");
+            }
+            return switch (type.getPrimitiveTypeName()) {
+                case INT32 -> equality(FilterApi.intColumn(name), operator, null);
+                case INT64 -> equality(FilterApi.longColumn(name), operator, null);
+                case FLOAT -> equality(FilterApi.floatColumn(name), operator, null);
+                case DOUBLE -> equality(FilterApi.doubleColumn(name), operator, null);
+                case BOOLEAN -> equality(FilterApi.booleanColumn(name), operator, null);
+                case BINARY -> equality(FilterApi.binaryColumn(name), operator, null);
+                default -> throw new IllegalArgumentException("Column " + name + " can't be filtered");
+            };
+        }
+
+        private static String number(Token literal, String column) {
+            if (literal.type != TokenType.NUMBER) {
+                throw new IllegalArgumentException("Column " + column + " is compared with a number, got '"
+                        + literal.text + "'");
+            }
+            return literal.text.startsWith("+") ? literal.text.substring(1) : literal.text;
+        }
+
+        private static Boolean bool(Token literal, String column) {
+            if (literal.isKeyword("true") || literal.isKeyword("false")) {
+                return Boolean.valueOf(literal.text.toLowerCase(Locale.ROOT));
+            }
+            throw new IllegalArgumentException("Column " + column + " is compared with true or false, got '"
+                    + literal.text + "'");
+        }
+
+        private static Binary string(Token literal, String column) {
+            if (literal.type != TokenType.STRING) {
+                throw new IllegalArgumentException("Column " + column + " is compared with a 'string', got "
+                        + literal.text);
+            }
+            return Binary.fromString(literal.text);
+        }
+
+        private static <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+        FilterPredicate compare(C column, String operator, T value) {
+            return switch (operator) {
+                case "<" -> FilterApi.lt(column, value);
+                case "<=" -> FilterApi.ltEq(column, value);
+                case ">" -> FilterApi.gt(column, value);
+                case ">=" -> FilterApi.gtEq(column, value);
+                default -> equality(column, operator, value);
+            };
+        }
+
+        private static <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsEqNotEq>
+        FilterPredicate equality(C column, String operator, T value) {
+            return switch (operator) {
+                case "=" -> FilterApi.eq(column, value);
+                case "!=" -> FilterApi.notEq(column, value);
+                default -> throw new IllegalArgumentException("Column " + column.getColumnPath().toDotString()
+                        + " supports only = and !=");
+            };
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package by.nexus.core.service.query;
+
+import by.nexus.core.model.dto.api.DatasetPreviewDto;
+import by.nexus.core.service.storage.BlobStore;
+import by.nexus.core.service.storage.ContentStore;
+import com.github.baibeicha.nexus.io.parquet.ParquetIo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Превью датасета для открытия в клиенте без скачивания файла: схема, число строк, статистика колонок
+ * из footer'а и первые строки. Превью собирается при загрузке и импорте, пока файл ещё лежит локально,
+ * и хранится рядом с содержимым под ключом {@code preview/<xx>/<hash>} — одинаковое содержимое
+ * имеет одно превью. Сам артефакт — Avro-контейнер со сжатыми строками, число строк и статистика
+ * лежат в его метаданных. Разобранные превью держит кэш, ограниченный по размеру артефактов.
+ */
+@Slf4j
+@Service
+public class DatasetPreviewService {
+
+    public static final String CACHE_NAME = "nexus.dataset.previews";
+
+    private static final String ROW_COUNT = "nexus.preview.row-count";
+    private static final String COLUMNS = "nexus.preview.columns";
+    private static final TypeReference<List<DatasetPreviewDto.Column>> COLUMN_LIST = new TypeReference<>() {
+    };
+
+    private final BlobStore blobStore;
+    private final ContentStore contentStore;
+    private final int previewRows;
+    private final Cache<String, Preview> cache;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    public DatasetPreviewService(BlobStore blobStore,
+                                 ContentStore contentStore,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${nexus.query.preview.rows:100}") int previewRows,
+                                 @Value("${nexus.query.preview.cache-size:64MB}") DataSize cacheSize) {
+        this.blobStore = blobStore;
+        this.contentStore = contentStore;
+        this.previewRows = previewRows;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheSize.toBytes())
+                .weigher((String key, Preview preview) -> preview.size())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    private record Preview(DatasetPreviewDto dto, int size) {
+    }
+
+    /**
+     * Превью содержимого: из кэша, из сохранённого артефакта или, если артефакта нет (содержимое
+     * записано до появления превью), собранное по footer'у и первому row group'у.
+     *
+     * @throws IllegalArgumentException содержимое — не Parquet
+     */
+    public DatasetPreviewDto get(String contentKey) {
+        return cache.get(contentKey, key -> {
+            try {
+                return load(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read preview of " + key, e);
+            }
+        }).dto();
+    }
+
+    /**
+     * Артефакт превью локального файла. Вызывается до сохранения содержимого.
+     *
+     * @return null, если файл — не Parquet
+     */
+    public byte[] build(Path file) {
+        try {
+            return build(new ParquetIo.NioInputFile(file));
+        } catch (IllegalArgumentException | IOException e) {
+            log.debug("No preview for {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет артефакт рядом с содержимым. Ошибка не мешает загрузке: превью соберётся при первом открытии.
+     */
+    public void save(String contentKey, byte[] artifact) {
+        if (!ContentStore.isContentAddressed(contentKey)) {
+            return;
+        }
+        String key = ContentStore.previewKeyOf(ContentStore.hashOf(contentKey));
+        Path staged = null;
+        try {
+            if (blobStore.exists(key)) {
+                return;
+            }
+            staged = blobStore.createStagingFile();
+            Files.write(staged, artifact);
+            blobStore.putFile(key, staged);
+            staged = null;
+        } catch (IOException e) {
+            log.warn("Failed to store preview of {}", contentKey, e);
+        } finally {
+            deleteQuietly(staged);
+        }
+    }
+
+    private Preview load(String contentKey) throws IOException {
+        boolean addressed = ContentStore.isContentAddressed(contentKey);
+        String previewKey = addressed ? ContentStore.previewKeyOf(ContentStore.hashOf(contentKey)) : null;
+
+        byte[] artifact;
+        if (addressed && blobStore.exists(previewKey)) {
+            try (InputStream in = blobStore.get(previewKey)) {
+                artifact = in.readAllBytes();
+            }
+        } else {
+            artifact = build(ContentInputFile.of(contentStore.resource(contentKey)));
+            save(contentKey, artifact);
+        }
+        return new Preview(decode(artifact), artifact.length);
+    }
+
+    byte[] build(InputFile file) throws IOException {
+        ParquetMetadata footer;
+        try (ParquetFileReader reader = ParquetFileReader.open(file)) {
+            footer = reader.getFooter();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Content is not a Parquet dataset: " + e.getMessage(), e);
+        }
+
+        MessageType parquetSchema = footer.getFileMetaData().getSchema();
+        Configuration conf = new Configuration(false);
+        Schema schema;
+        try {
+            schema = new AvroSchemaConverter(conf).convert(parquetSchema);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Dataset schema has no Avro form: " + e.getMessage(), e);
+        }
+        AvroReadSupport.setAvroReadSchema(conf, schema);
+
+        long rowCount = footer.getBlocks().stream().mapToLong(BlockMetaData::getRowCount).sum();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+            writer.setCodec(CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL));
+            writer.setMeta(ROW_COUNT, rowCount);
+            writer.setMeta(COLUMNS, jsonMapper.writeValueAsString(columns(parquetSchema, footer)));
+            writer.create(schema, out);
+
+            try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(file)
+                    .withConf(conf)
+                    .build()) {
+                GenericRecord record;
+                int rows = 0;
+                while (rows < previewRows && (record = reader.read()) != null) {
+                    writer.append(record);
+                    rows++;
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private DatasetPreviewDto decode(byte[] artifact) throws IOException {
+        try (DataFileStream<GenericRecord> stream = new DataFileStream<>(
+                new ByteArrayInputStream(artifact), new GenericDatumReader<>())) {
+            long rowCount = stream.getMetaLong(ROW_COUNT);
+            List<DatasetPreviewDto.Column> columns = jsonMapper.readValue(
+                    new String(stream.getMeta(COLUMNS), StandardCharsets.UTF_8), COLUMN_LIST);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (GenericRecord record : stream) {
+                rows.add(AvroValues.toJson(record));
+            }
+            return new DatasetPreviewDto(rowCount, columns, rows);
+        }
+    }
+
+    /**
+     * Колонки верхнего уровня; статистика примитивных колонок сливается по всем row group'ам.
+     */
+    private static List<DatasetPreviewDto.Column> columns(MessageType schema, ParquetMetadata footer) {
+        Map<String, List<ColumnChunkMetaData>> chunks = new HashMap<>();
+        for (BlockMetaData block : footer.getBlocks()) {
+            for (ColumnChunkMetaData chunk : block.getColumns()) {
+                chunks.computeIfAbsent(chunk.getPath().toDotString(), path -> new ArrayList<>()).add(chunk);
+            }
+        }
+
+        List<DatasetPreviewDto.Column> columns = new ArrayList<>();
+        for (Type field : schema.getFields()) {
+            boolean nullable = field.isRepetition(Type.Repetition.OPTIONAL);
+            Statistics<?> stats = field.isPrimitive() && !field.isRepetition(Type.Repetition.REPEATED)
+                    ? merge(field.asPrimitiveType(), chunks.getOrDefault(field.getName(), List.of()))
+                    : null;
+            columns.add(new DatasetPreviewDto.Column(
+                    field.getName(),
+                    typeName(field),
+                    nullable,
+                    stats != null && stats.isNumNullsSet() ? stats.getNumNulls() : null,
+                    stats != null && stats.hasNonNullValue() ? stats.minAsString() : null,
+                    stats != null && stats.hasNonNullValue() ? stats.maxAsString() : null
+            ));
+        }
+        return columns;
+    }
+
+    /**
+     * @return null, если хотя бы у одного row group'а нет статистики
+     */
+    private static Statistics<?> merge(PrimitiveType type, List<ColumnChunkMetaData> chunks) {
+        Statistics<?> merged = Statistics.createStats(type);
+        for (ColumnChunkMetaData chunk : chunks) {
+            Statistics<?> stats = chunk.getStatistics();
+            if (stats == null || stats.isEmpty()) {
+                return null;
+            }
+            merged.mergeStatistics(stats);
+        }
+        return merged;
+    }
+
+    private static String typeName(Type field) {
+        LogicalTypeAnnotation logical = field.getLogicalTypeAnnotation();
+        if (!field.isPrimitive()) {
+            return logical != null ? logical.toString() : "GROUP";
+        }
+        String primitive = field.asPrimitiveType().getPrimitiveTypeName().name();
+        return logical != null ? primitive + " (" + logical + ")" : primitive;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged preview {}", file, e);
+        }
+    }
+}
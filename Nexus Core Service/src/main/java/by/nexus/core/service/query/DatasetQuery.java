@@ -0,0 +1,82 @@
+package by.nexus.core.service.query;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.schema.MessageType;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подготовленный {@link DatasetQueryService} запрос. Parquet читает только колонки проекции, row group'ы
+ * и страницы отсекаются по статистике, оставшиеся строки проверяются фильтром построчно.
+ */
+public class DatasetQuery {
+
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputFile file;
+    private final MessageType projection;
+    private final List<String> columns;
+    private final DatasetFilter filter;
+    private final int limit;
+
+    DatasetQuery(InputFile file, MessageType projection, List<String> columns, DatasetFilter filter, int limit) {
+        this.file = file;
+        this.projection = projection;
+        this.columns = columns;
+        this.filter = filter;
+        this.limit = limit;
+    }
+
+    /**
+     * Пишет строки в NDJSON: JSON-объект с выбранными колонками на строку.
+     *
+     * @return число записанных строк
+     */
+    public long writeNdjson(OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        long written = 0;
+        try (ParquetReader<GenericRecord> reader = reader()) {
+            GenericRecord record;
+            while (written < limit && (record = reader.read()) != null) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (String column : columns) {
+                    Schema.Field field = record.getSchema().getField(column);
+                    row.put(column, AvroValues.toJson(record.get(column), field.schema()));
+                }
+                buffered.write(JSON_MAPPER.writeValueAsBytes(row));
+                buffered.write('\n');
+                written++;
+            }
+        }
+        buffered.flush();
+        return written;
+    }
+
+    private ParquetReader<GenericRecord> reader() throws IOException {
+        Configuration conf = new Configuration(false);
+        Schema avroProjection = new AvroSchemaConverter(conf).convert(projection);
+        AvroReadSupport.setRequestedProjection(conf, avroProjection);
+        AvroReadSupport.setAvroReadSchema(conf, avroProjection);
+
+        ParquetReader.Builder<GenericRecord> builder = AvroParquetReader.<GenericRecord>builder(file).withConf(conf);
+        if (filter != null) {
+            builder.withFilter(FilterCompat.get(filter.predicate()));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,115 @@
+package by.nexus.core.service.query;
+
+import by.nexus.core.exception.FileNodeNotExistsException;
+import by.nexus.core.model.dto.api.DatasetPreviewDto;
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.service.FileSystemService;
+import lombok.RequiredArgsConstructor;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Запросы к датасетам (.nxdt) на стороне сервера: клиент получает только нужные колонки и строки,
+ * а Core читает из хранилища footer, column chunk'и выбранных колонок и только те row group'ы,
+ * которые по min/max статистике могут содержать подходящие строки.
+ */
+@Service
+@RequiredArgsConstructor
+public class DatasetQueryService {
+
+    @Value("${nexus.query.default-limit:1000}")
+    private int defaultLimit = 1000;
+
+    @Value("${nexus.query.max-limit:100000}")
+    private int maxLimit = 100_000;
+
+    private final FileSystemService fileSystemService;
+    private final DatasetPreviewService datasetPreviewService;
+
+    /**
+     * Проверяет доступ, колонки и фильтр по схеме файла. Строки читаются при записи результата.
+     *
+     * @param columns колонки верхнего уровня в порядке вывода, пустой список — все
+     * @param filter  выражение {@link DatasetFilter}, может быть null
+     * @param limit   максимум строк, null — {@code nexus.query.default-limit}
+     * @throws IllegalArgumentException узел не датасет, неизвестная колонка, ошибка в фильтре или лимите
+     */
+    public DatasetQuery prepare(UUID fileNodeId, String userId, List<String> columns, String filter,
+                                Integer limit) throws IOException {
+        int rows = limit != null ? limit : defaultLimit;
+        if (rows <= 0 || rows > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+
+        FileVersion version = datasetVersion(fileNodeId, userId);
+        InputFile file = ContentInputFile.of(fileSystemService.readContent(version));
+        MessageType schema;
+        try (ParquetFileReader reader = ParquetFileReader.open(file)) {
+            schema = reader.getFooter().getFileMetaData().getSchema();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Content is not a Parquet dataset: " + e.getMessage(), e);
+        }
+
+        List<String> output = outputColumns(columns, schema);
+        DatasetFilter datasetFilter = filter != null && !filter.isBlank() ? DatasetFilter.parse(filter, schema) : null;
+
+        // Колонки фильтра читаются, даже если не выводятся: без них строки нельзя проверить
+        Set<String> read = new LinkedHashSet<>(output);
+        if (datasetFilter != null) {
+            read.addAll(datasetFilter.columns());
+        }
+        List<Type> fields = schema.getFields().stream()
+                .filter(field -> read.contains(field.getName()))
+                .toList();
+        MessageType projection = new MessageType(schema.getName(), fields);
+
+        return new DatasetQuery(file, projection, output, datasetFilter, rows);
+    }
+
+    /**
+     * Схема, статистика и первые строки текущей версии датасета, см. {@link DatasetPreviewService}.
+     */
+    public DatasetPreviewDto preview(UUID fileNodeId, String userId) {
+        return datasetPreviewService.get(datasetVersion(fileNodeId, userId).getStorageKey());
+    }
+
+    private FileVersion datasetVersion(UUID fileNodeId, String userId) {
+        FileNode node = fileSystemService.getNode(fileNodeId, userId);
+        if (node.getType() != FileNode.FileType.DATASET) {
+            throw new IllegalArgumentException("FileNode " + fileNodeId + " is not a dataset");
+        }
+        FileVersion version = node.getCurrentVersion();
+        if (version == null || version.getStorageKey() == null) {
+            throw new FileNodeNotExistsException("Content of FileNode " + fileNodeId + " not exists");
+        }
+        return version;
+    }
+
+    private static List<String> outputColumns(List<String> columns, MessageType schema) {
+        if (columns == null || columns.isEmpty()) {
+            return schema.getFields().stream().map(Type::getName).toList();
+        }
+        List<String> output = new ArrayList<>();
+        for (String column : columns) {
+            if (!schema.containsField(column)) {
+                throw new IllegalArgumentException("Unknown column " + column);
+            }
+            if (!output.contains(column)) {
+                output.add(column);
+            }
+        }
+        return output;
+    }
+}
@@ -0,0 +1,40 @@
+package by.nexus.core.service.security;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+
+/**
+ * Экземпляры {@link Cipher} и {@link Mac} на поток: {@code getInstance} ищет провайдера на каждом вызове.
+ * Каждое использование начинается с {@code init}, так что состояние от предыдущего вызова не переносится.
+ */
+final class Ciphers {
+
+    private static final ThreadLocal<Cipher> AES_GCM = ThreadLocal.withInitial(() -> newInstance("AES/GCM/NoPadding"));
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private Ciphers() {
+    }
+
+    static Cipher aesGcm() {
+        return AES_GCM.get();
+    }
+
+    static Mac hmacSha256() {
+        return HMAC_SHA256.get();
+    }
+
+    private static Cipher newInstance(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
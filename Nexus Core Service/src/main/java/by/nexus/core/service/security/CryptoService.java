@@ -1,40 +1,134 @@
 package by.nexus.core.service.security;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.spec.KeySpec;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Service
 public class CryptoService {
 
-    private static final String ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 128;
     private static final int KEY_LENGTH = 256;
     private static final int ITERATION_COUNT = 65536;
-    
+    /**
+     * Сегментов в работе на один поток шифрования независимо от размера пула: каждый держит открытый текст
+     * и шифротекст, так что на больших машинах окно по числу ядер раздувало бы память каждого запроса.
+     */
+    private static final int MAX_SEGMENT_WINDOW = 4;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     @Value("${nexus.encryption.master-key:}")
     private String masterKey;
 
+    @Value("${nexus.encryption.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${nexus.encryption.segment-size:64KB}")
+    private DataSize segmentSize = DataSize.ofKilobytes(64);
+
+    private final DerivedKeyCache derivedKeys;
+    private final ExecutorService segmentPool;
+    private final int segmentWindow;
+
+    public CryptoService() {
+        this(1000, Duration.ofMinutes(10), 0);
+    }
+
+    /**
+     * @param keyCacheSize сколько выведенных ключей держать в памяти
+     * @param keyCacheTtl  сколько держать выведенный ключ, после этого он затирается и выводится заново
+     * @param threads      потоки шифрования сегментов, 0 — по числу ядер, 1 — в вызывающем потоке
+     */
+    @Autowired
+    public CryptoService(@Value("${nexus.encryption.key-cache.max-size:1000}") long keyCacheSize,
+                         @Value("${nexus.encryption.key-cache.ttl:10m}") Duration keyCacheTtl,
+                         @Value("${nexus.encryption.threads:0}") int threads) {
+        this.derivedKeys = new DerivedKeyCache(keyCacheSize, keyCacheTtl, CryptoService::deriveKeyBytes);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.segmentPool = poolSize > 1
+                ? Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("nexus-crypto-", 0).daemon().factory())
+                : null;
+        // Пока один сегмент пишется или читается, следующие уже шифруются; окно ограничено на поток
+        this.segmentWindow = Math.min(2 * poolSize, MAX_SEGMENT_WINDOW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (segmentPool != null) {
+            segmentPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Содержимое в хранилище шифруется, если шифрование включено и задан мастер-ключ.
+     */
+    public boolean isStorageEncryptionEnabled() {
+        return enabled && masterKey != null && !masterKey.isBlank();
+    }
+
+    /**
+     * Шифрует поток сегментами {@link SegmentedGcm} ключом хранилища. Сегменты шифруются параллельно
+     * на пуле {@code nexus.encryption.threads}, память — не больше {@link #MAX_SEGMENT_WINDOW} + 1 сегментов
+     * на поток.
+     *
+     * @param aad данные, к которым привязывается шифротекст (ключ объекта в хранилище)
+     */
+    public void encrypt(InputStream plaintext, OutputStream target, byte[] aad) throws IOException {
+        SegmentedGcm.Header header = SegmentedGcm.Header.random((int) segmentSize.toBytes());
+        try (OffHeapSecureMemoryContainer key = objectKey(header)) {
+            SegmentedGcm.encrypt(plaintext, target, header, key, aad, segmentPool, segmentWindow);
+        }
+    }
+
+    /**
+     * Расшифровывает объект целиком: поток {@code segments} стоит сразу за заголовком.
+     */
+    public InputStream decrypt(InputStream segments, SegmentedGcm.Header header, byte[] aad) {
+        return decrypt(segments, header, 0, -1, -1, aad);
+    }
+
+    /**
+     * Расшифровывает сегменты {@code [firstSegment, endSegment)}: поток {@code segments} стоит на начале первого.
+     * Ключ объекта затирается при закрытии возвращённого потока.
+     *
+     * @param lastSegment номер последнего сегмента объекта
+     */
+    public InputStream decrypt(InputStream segments, SegmentedGcm.Header header, long firstSegment,
+                               long endSegment, long lastSegment, byte[] aad) {
+        return SegmentedGcm.decrypt(segments, header, objectKey(header), firstSegment, endSegment, lastSegment, aad,
+                segmentPool, segmentWindow);
+    }
+
     /**
      * Генерирует случайный ключ для шифрования файла
      */
     public String generateFileKey() {
         byte[] key = new byte[32]; // 256 bits
-        new SecureRandom().nextBytes(key);
+        RANDOM.nextBytes(key);
         return Base64.getEncoder().encodeToString(key);
     }
 
@@ -43,41 +137,31 @@ public class CryptoService {
      */
     public byte[] encrypt(byte[] data, String key) throws Exception {
         byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
-        
-        SecretKey secretKey = deriveKey(key);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
-        
-        byte[] encryptedData = cipher.doFinal(data);
-        
-        // Combine IV + encrypted data
-        ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedData.length);
-        byteBuffer.put(iv);
-        byteBuffer.put(encryptedData);
-        
-        return byteBuffer.array();
+        RANDOM.nextBytes(iv);
+
+        return derivedKeys.withKey(key, secretKey -> {
+            Cipher cipher = Ciphers.aesGcm();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+            // IV + encrypted data, без промежуточной копии шифротекста
+            byte[] result = new byte[GCM_IV_LENGTH + cipher.getOutputSize(data.length)];
+            System.arraycopy(iv, 0, result, 0, GCM_IV_LENGTH);
+            int length = cipher.doFinal(data, 0, data.length, result, GCM_IV_LENGTH);
+            return length == result.length - GCM_IV_LENGTH ? result : Arrays.copyOf(result, GCM_IV_LENGTH + length);
+        });
     }
 
     /**
      * Расшифровывает данные с использованием ключа
      */
     public byte[] decrypt(byte[] encryptedData, String key) throws Exception {
-        ByteBuffer byteBuffer = ByteBuffer.wrap(encryptedData);
-        
-        byte[] iv = new byte[GCM_IV_LENGTH];
-        byteBuffer.get(iv);
-        
-        byte[] cipherText = new byte[byteBuffer.remaining()];
-        byteBuffer.get(cipherText);
-        
-        SecretKey secretKey = deriveKey(key);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
-        
-        return cipher.doFinal(cipherText);
+        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, encryptedData, 0, GCM_IV_LENGTH);
+
+        return derivedKeys.withKey(key, secretKey -> {
+            Cipher cipher = Ciphers.aesGcm();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
+            return cipher.doFinal(encryptedData, GCM_IV_LENGTH, encryptedData.length - GCM_IV_LENGTH);
+        });
     }
 
     /**
@@ -112,18 +196,38 @@ public class CryptoService {
     }
 
     /**
-     * Генерирует ключ из строки с использованием PBKDF2
+     * Ключ хранилища выводится из мастер-ключа и остаётся вне кучи, ключ объекта — из него и salt объекта,
+     * тоже вне кучи; закрывает его вызывающий.
+     */
+    private OffHeapSecureMemoryContainer objectKey(SegmentedGcm.Header header) {
+        if (!isStorageEncryptionEnabled()) {
+            throw new IllegalStateException("Storage encryption is not configured");
+        }
+        try {
+            return derivedKeys.withKey(masterKey, storageKey -> SegmentedGcm.objectKey(storageKey, header.salt()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive object key", e);
+        }
+    }
+
+    /**
+     * Генерирует ключ из строки с использованием PBKDF2. Результат кэшируется в {@link DerivedKeyCache}
      */
-    private SecretKey deriveKey(String password) throws Exception {
+    private static byte[] deriveKeyBytes(String password) {
         byte[] salt = new byte[16];
         // Use first 16 bytes of password as salt for simplicity
         // In production, use a proper salt storage mechanism
         System.arraycopy(password.getBytes(StandardCharsets.UTF_8), 0, salt, 0, Math.min(16, password.length()));
-        
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH);
-        SecretKey tmp = factory.generateSecret(spec);
-        return new SecretKeySpec(tmp.getEncoded(), "AES");
+
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return factory.generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive key", e);
+        } finally {
+            spec.clearPassword();
+        }
     }
 
     /**
@@ -141,7 +245,7 @@ public class CryptoService {
      */
     public String generateSalt() {
         byte[] salt = new byte[16];
-        new SecureRandom().nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 }
@@ -0,0 +1,99 @@
+package by.nexus.core.service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+/**
+ * Ключи AES, выведенные PBKDF2 из ключей шифрования. Вывод стоит десятки миллисекунд CPU, поэтому ключ
+ * держится до {@code ttl} вне кучи в {@link OffHeapSecureMemoryContainer} и затирается при вытеснении.
+ * Сам пароль в кэше не хранится: запись адресуется его HMAC на случайном ключе процесса.
+ */
+class DerivedKeyCache {
+
+    private final Cache<String, OffHeapSecureMemoryContainer> cache;
+    private final Function<String, byte[]> derivation;
+    private final SecretKeySpec idKey;
+
+    DerivedKeyCache(long maxSize, Duration ttl, Function<String, byte[]> derivation) {
+        this.derivation = derivation;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                // Истёкшие ключи затираются по таймеру, а не при следующем обращении к кэшу
+                .scheduler(Scheduler.systemScheduler())
+                .executor(Runnable::run)
+                .removalListener((String id, OffHeapSecureMemoryContainer key, RemovalCause cause) -> {
+                    if (key != null) {
+                        key.close();
+                    }
+                })
+                .build();
+
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        this.idKey = new SecretKeySpec(random, "HmacSHA256");
+        Arrays.fill(random, (byte) 0);
+    }
+
+    /**
+     * Выполняет операцию с ключом, выведенным из {@code password}. Пока операция идёт, ключ не затирается.
+     */
+    <T, E extends Exception> T withKey(String password, OffHeapSecureMemoryContainer.KeyReader<T, E> reader) throws E {
+        OffHeapSecureMemoryContainer container = container(password);
+        try {
+            return container.withKey("AES", reader);
+        } catch (OffHeapSecureMemoryContainer.ClosedException closed) {
+            // Ключ вытеснили между чтением записи и операцией: выводим ещё раз, мимо кэша
+            try (OffHeapSecureMemoryContainer fresh = derive(password)) {
+                return fresh.withKey("AES", reader);
+            }
+        }
+    }
+
+    /**
+     * Контейнер с ключом, как он лежит в кэше.
+     */
+    OffHeapSecureMemoryContainer container(String password) {
+        return cache.get(id(password), ignored -> derive(password));
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private OffHeapSecureMemoryContainer derive(String password) {
+        byte[] key = derivation.apply(password);
+        try {
+            return new OffHeapSecureMemoryContainer(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private String id(String password) {
+        try {
+            Mac mac = Ciphers.hmacSha256();
+            mac.init(idKey);
+            return HexFormat.of().formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
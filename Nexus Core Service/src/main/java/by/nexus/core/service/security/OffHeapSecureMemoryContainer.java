@@ -0,0 +1,139 @@
+package by.nexus.core.service.security;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Секрет вне кучи: байты лежат в direct-буфере, который GC не перемещает и не копирует, и затираются
+ * при закрытии или сборке контейнера. В отличие от {@link SecureMemoryContainer} данные не копируются
+ * на каждое обращение: колбэк {@link #read} получает read-only представление того же буфера.
+ * Закрытие ждёт завершения колбэков, поэтому секрет не затирается посреди операции.
+ * <p>
+ * Страницы буфера от подкачки не закрепляются: mlock доступен только через FFM API, который в Java 21
+ * ещё preview.
+ */
+@Slf4j
+public class OffHeapSecureMemoryContainer implements AutoCloseable {
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private final ByteBuffer buffer;
+    private final Cleaner.Cleanable cleanable;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean closed = false;
+
+    @FunctionalInterface
+    public interface Reader<T, E extends Exception> {
+        T read(ByteBuffer data) throws E;
+    }
+
+    @FunctionalInterface
+    public interface KeyReader<T, E extends Exception> {
+        T read(SecretKey key) throws E;
+    }
+
+    /**
+     * Контейнер уже закрыт; колбэк не вызывался.
+     */
+    public static class ClosedException extends IllegalStateException {
+        ClosedException() {
+            super("Container has been closed");
+        }
+    }
+
+    /**
+     * Копирует данные вне кучи; исходный массив вызывающий затирает сам.
+     */
+    public OffHeapSecureMemoryContainer(byte[] data) {
+        this.buffer = ByteBuffer.allocateDirect(data.length);
+        this.buffer.put(0, data);
+        this.cleanable = cleaner.register(this, new CleaningAction(buffer));
+    }
+
+    /**
+     * Даёт колбэку read-only представление данных без копии. Представление действительно только внутри колбэка.
+     */
+    public <T, E extends Exception> T read(Reader<T, E> reader) throws E {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                throw new ClosedException();
+            }
+            return reader.read(buffer.asReadOnlyBuffer());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Даёт колбэку ключ поверх данных. Байты ключа попадают в кучу только на время {@code Cipher.init}/{@code Mac.init}:
+     * провайдер JCE берёт их через {@link SecretKey#getEncoded()} и затирает после разворачивания ключа.
+     */
+    public <T, E extends Exception> T withKey(String algorithm, KeyReader<T, E> reader) throws E {
+        return read(data -> reader.read(new BufferKey(data, algorithm)));
+    }
+
+    public int size() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                cleanable.clean();
+                log.debug("OffHeapSecureMemoryContainer closed and data zeroed out");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Ключ, байты которого читаются из буфера контейнера при каждом {@link #getEncoded()}.
+     */
+    private record BufferKey(ByteBuffer data, String algorithm) implements SecretKey {
+
+        @Override
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            byte[] encoded = new byte[data.capacity()];
+            data.get(0, encoded);
+            return encoded;
+        }
+    }
+
+    private static class CleaningAction implements Runnable {
+        private final ByteBuffer buffer;
+
+        CleaningAction(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            byte[] zeros = new byte[buffer.capacity()];
+            buffer.put(0, zeros);
+            log.debug("OffHeapSecureMemoryContainer data zeroed out by cleaner");
+        }
+    }
+}
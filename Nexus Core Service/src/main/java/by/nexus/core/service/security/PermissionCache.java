@@ -0,0 +1,117 @@
+package by.nexus.core.service.security;
+
+import by.nexus.core.model.dto.event.PermissionInvalidatedEvent;
+import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.repository.ProjectPermissionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Уровни доступа пользователей к проектам в памяти процесса, перед {@link ProjectPermissionRepository}.
+ * Отсутствие права тоже кэшируется. Изменение прав сбрасывает запись после фиксации транзакции — локально
+ * и через Kafka во всех репликах Core; TTL ограничивает устаревание, если сообщение потерялось.
+ */
+@Slf4j
+@Component
+public class PermissionCache {
+
+    public static final String CACHE_NAME = "nexus.permissions";
+
+    private final ProjectPermissionRepository projectPermissionRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Cache<ProjectPermission.ProjectPermissionId, Optional<ProjectPermission.AccessLevel>> cache;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Value("${spring.kafka.topics.permission-invalidation}")
+    private String invalidationTopic;
+
+    public PermissionCache(ProjectPermissionRepository projectPermissionRepository,
+                           KafkaTemplate<String, Object> kafkaTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${nexus.security.permission-cache.max-size:100000}") long maxSize,
+                           @Value("${nexus.security.permission-cache.ttl:5m}") Duration ttl) {
+        this.projectPermissionRepository = projectPermissionRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Доля проверок прав без обращения к БД")
+                .register(meterRegistry);
+    }
+
+    public Optional<ProjectPermission.AccessLevel> getAccessLevel(UUID projectId, String userId) {
+        return cache.get(
+                new ProjectPermission.ProjectPermissionId(projectId, userId),
+                id -> projectPermissionRepository.findAccessLevel(id.getProjectId(), id.getUserId())
+        );
+    }
+
+    /**
+     * Сбрасывает право пользователя на проект после фиксации текущей транзакции:
+     * раньше конкурентная проверка успела бы снова закэшировать старое значение.
+     */
+    public void evict(UUID projectId, String userId) {
+        afterCommit(new PermissionInvalidatedEvent(projectId, userId));
+    }
+
+    public void evictProject(UUID projectId) {
+        afterCommit(new PermissionInvalidatedEvent(projectId, null));
+    }
+
+    /**
+     * Применяет сброс, пришедший из другой реплики (или из этой же — повторный сброс безвреден).
+     */
+    public void apply(PermissionInvalidatedEvent event) {
+        if (event.userId() != null) {
+            cache.invalidate(new ProjectPermission.ProjectPermissionId(event.projectId(), event.userId()));
+        } else {
+            cache.asMap().keySet().removeIf(id -> id.getProjectId().equals(event.projectId()));
+        }
+    }
+
+    public PermissionInvalidatedEvent parse(String message) {
+        return jsonMapper.readValue(message, PermissionInvalidatedEvent.class);
+    }
+
+    private void afterCommit(PermissionInvalidatedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(event);
+            }
+        });
+    }
+
+    private void invalidate(PermissionInvalidatedEvent event) {
+        apply(event);
+        try {
+            kafkaTemplate.send(invalidationTopic, event.projectId().toString(), jsonMapper.writeValueAsString(event));
+        } catch (RuntimeException e) {
+            // Другие реплики увидят изменение не позже чем через TTL
+            log.error("Failed to publish permission invalidation for project {}", event.projectId(), e);
+        }
+    }
+}
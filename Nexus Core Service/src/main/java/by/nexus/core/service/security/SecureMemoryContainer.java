@@ -8,6 +8,7 @@ import java.util.Arrays;
 /**
  * Контейнер для безопасного хранения расшифрованных данных в памяти.
  * Автоматически очищает память при закрытии или сборке мусора.
+ * Потокобезопасен: контейнер может закрыть другой поток, например при вытеснении из {@link DerivedKeyCache}.
  */
 @Slf4j
 public class SecureMemoryContainer implements AutoCloseable {
@@ -25,7 +26,7 @@ public class SecureMemoryContainer implements AutoCloseable {
     /**
      * Возвращает копию данных
      */
-    public byte[] getData() {
+    public synchronized byte[] getData() {
         if (closed) {
             throw new IllegalStateException("Container has been closed");
         }
@@ -35,7 +36,7 @@ public class SecureMemoryContainer implements AutoCloseable {
     /**
      * Возвращает размер данных
      */
-    public int size() {
+    public synchronized int size() {
         if (closed) {
             throw new IllegalStateException("Container has been closed");
         }
@@ -43,7 +44,7 @@ public class SecureMemoryContainer implements AutoCloseable {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         if (!closed) {
             closed = true;
             // Zero out the data
@@ -53,7 +54,7 @@ public class SecureMemoryContainer implements AutoCloseable {
         }
     }
 
-    public boolean isClosed() {
+    public synchronized boolean isClosed() {
         return closed;
     }
 
@@ -0,0 +1,420 @@
+package by.nexus.core.service.security;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Потоковый формат AES-GCM: содержимое режется на сегменты фиксированного размера, у каждого свой nonce
+ * и тег. В памяти держится один сегмент, любой сегмент расшифровывается отдельно от остальных.
+ * <pre>
+ * заголовок: "NXGC" | версия (1) | размер сегмента (4) | salt (16) | префикс nonce (7) — 32 байта
+ * сегмент:   AES-GCM(до segmentSize байт) | тег (16)
+ * </pre>
+ * Ключ объекта — HMAC-SHA256(ключ хранилища, salt), nonce сегмента — префикс | номер (4) | признак
+ * последнего (1). Признак входит в nonce, поэтому объект, обрезанный по границе сегмента, не расшифруется.
+ * Пустое содержимое — один пустой сегмент с тегом. Сегменты независимы, поэтому большие объекты шифруются
+ * и расшифровываются на нескольких ядрах, а в поток пишутся по порядку.
+ */
+public final class SegmentedGcm {
+
+    public static final int HEADER_LENGTH = 32;
+    public static final int TAG_LENGTH = 16;
+
+    private static final byte[] MAGIC = {'N', 'X', 'G', 'C'};
+    private static final byte VERSION = 1;
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int NONCE_LENGTH = 12;
+    private static final long MAX_SEGMENTS = 1L << 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private SegmentedGcm() {
+    }
+
+    public record Header(int segmentSize, byte[] salt, byte[] noncePrefix) {
+
+        static Header random(int segmentSize) {
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+            RANDOM.nextBytes(salt);
+            RANDOM.nextBytes(prefix);
+            return new Header(segmentSize, salt, prefix);
+        }
+
+        /**
+         * @return null, если байты не начинаются с заголовка формата (содержимое записано без шифрования)
+         */
+        public static Header parse(byte[] bytes, int length) throws IOException {
+            if (length < HEADER_LENGTH || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_LENGTH - MAGIC.length);
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported encrypted content version " + version);
+            }
+            int segmentSize = buffer.getInt();
+            if (segmentSize <= 0) {
+                throw new IOException("Corrupted encrypted content header");
+            }
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+            buffer.get(salt).get(prefix);
+            return new Header(segmentSize, salt, prefix);
+        }
+
+        byte[] toBytes() {
+            return ByteBuffer.allocate(HEADER_LENGTH)
+                    .put(MAGIC)
+                    .put(VERSION)
+                    .putInt(segmentSize)
+                    .put(salt)
+                    .put(noncePrefix)
+                    .array();
+        }
+
+        /**
+         * Смещение сегмента {@code index} в зашифрованном объекте.
+         */
+        public long segmentOffset(long index) {
+            return HEADER_LENGTH + index * (segmentSize + (long) TAG_LENGTH);
+        }
+
+        public long segmentCount(long ciphertextSize) {
+            long body = ciphertextSize - HEADER_LENGTH;
+            long sealed = segmentSize + (long) TAG_LENGTH;
+            return Math.max(1, (body + sealed - 1) / sealed);
+        }
+
+        public long plaintextSize(long ciphertextSize) {
+            return ciphertextSize - HEADER_LENGTH - segmentCount(ciphertextSize) * TAG_LENGTH;
+        }
+    }
+
+    /**
+     * Шифрует поток целиком, вместе с заголовком, ключом объекта {@link #objectKey}. Поток читается и пишется
+     * в вызывающем потоке, сегменты шифруются на {@code executor} не больше {@code window} одновременно
+     * и пишутся по порядку. Ключ закрывает вызывающий.
+     *
+     * @param executor пул шифрования или null, чтобы шифровать в вызывающем потоке
+     */
+    static void encrypt(InputStream plaintext, OutputStream target, Header header, OffHeapSecureMemoryContainer key,
+                        byte[] aad, ExecutorService executor, int window) throws IOException {
+        int segmentSize = header.segmentSize();
+        Pipeline pipeline = new Pipeline(segmentSize, executor, window);
+
+        target.write(header.toBytes());
+        try {
+            Segment segment = pipeline.acquire();
+            segment.length = plaintext.readNBytes(segment.plain, 0, segmentSize);
+            for (long index = 0; ; index++) {
+                if (index >= MAX_SEGMENTS) {
+                    throw new IOException("Content is too large for segment size " + segmentSize);
+                }
+                // Следующий байт решает, последний ли это сегмент; он же открывает следующий сегмент
+                int next = segment.length == segmentSize ? plaintext.read() : -1;
+                boolean last = next < 0;
+                segment.index = index;
+                segment.last = last;
+                pipeline.submit(segment, s -> seal(s, header, key, aad));
+                while (pipeline.full() || (last && !pipeline.isEmpty())) {
+                    Segment sealed = pipeline.next();
+                    target.write(sealed.sealed, 0, sealed.sealedLength);
+                    pipeline.release(sealed);
+                }
+                if (last) {
+                    return;
+                }
+                segment = pipeline.acquire();
+                segment.plain[0] = (byte) next;
+                segment.length = 1 + plaintext.readNBytes(segment.plain, 1, segmentSize - 1);
+            }
+        } finally {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * Расшифровывает сегменты {@code [firstSegment, endSegment)}; поток {@code segments} стоит на начале первого.
+     * Следующие сегменты читаются заранее и расшифровываются на {@code executor}, пока читатель разбирает текущий.
+     * Ключ переходит к потоку и затирается при его закрытии.
+     *
+     * @param endSegment  номер сегмента после последнего в потоке или -1, если поток доходит до конца объекта
+     * @param lastSegment номер последнего сегмента объекта или -1, если поток доходит до конца объекта
+     * @param executor    пул расшифровки или null, чтобы расшифровывать в читающем потоке
+     */
+    static InputStream decrypt(InputStream segments, Header header, OffHeapSecureMemoryContainer key, long firstSegment,
+                               long endSegment, long lastSegment, byte[] aad, ExecutorService executor, int window) {
+        return new DecryptingInputStream(segments, header, key,
+                firstSegment, endSegment, lastSegment, aad, new Pipeline(header.segmentSize(), executor, window));
+    }
+
+    /**
+     * Ключ объекта из ключа хранилища и salt из заголовка объекта. Ключ лежит вне кучи, пока его не закроют.
+     */
+    static OffHeapSecureMemoryContainer objectKey(SecretKey storageKey, byte[] salt) throws GeneralSecurityException {
+        Mac mac = Ciphers.hmacSha256();
+        // HMAC принимает ключ любого алгоритма; байты ключа хранилища провайдер затирает после init
+        mac.init(storageKey);
+        byte[] key = mac.doFinal(salt);
+        try {
+            return new OffHeapSecureMemoryContainer(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private static Segment seal(Segment segment, Header header, OffHeapSecureMemoryContainer key,
+                                byte[] aad) throws IOException {
+        try {
+            Cipher cipher = Ciphers.aesGcm();
+            key.withKey("AES", secretKey -> {
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, nonce(header, segment.index, segment.last));
+                return null;
+            });
+            cipher.updateAAD(aad);
+            segment.sealedLength = cipher.doFinal(segment.plain, 0, segment.length, segment.sealed, 0);
+            return segment;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to encrypt segment " + segment.index, e);
+        }
+    }
+
+    private static Segment open(Segment segment, Header header, OffHeapSecureMemoryContainer key,
+                                byte[] aad) throws IOException {
+        try {
+            Cipher cipher = Ciphers.aesGcm();
+            key.withKey("AES", secretKey -> {
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, nonce(header, segment.index, segment.last));
+                return null;
+            });
+            cipher.updateAAD(aad);
+            segment.length = cipher.doFinal(segment.sealed, 0, segment.sealedLength, segment.plain, 0);
+            return segment;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Encrypted segment " + segment.index + " failed authentication", e);
+        }
+    }
+
+    private static GCMParameterSpec nonce(Header header, long index, boolean last) {
+        byte[] nonce = ByteBuffer.allocate(NONCE_LENGTH)
+                .put(header.noncePrefix())
+                .putInt((int) index)
+                .put((byte) (last ? 1 : 0))
+                .array();
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    /**
+     * Сегмент с буферами под открытый текст и шифротекст; буферы переиспользуются внутри одного потока.
+     */
+    private static final class Segment {
+
+        final byte[] plain;
+        final byte[] sealed;
+        int length;
+        int sealedLength;
+        long index;
+        boolean last;
+
+        Segment(int segmentSize) {
+            this.plain = new byte[segmentSize];
+            this.sealed = new byte[segmentSize + TAG_LENGTH];
+        }
+    }
+
+    private interface SegmentTask {
+        Segment apply(Segment segment) throws IOException;
+    }
+
+    /**
+     * Сегменты в работе в порядке отправки. Без пула сегмент обрабатывается сразу при отправке.
+     * Память — не больше {@code window + 1} сегментов на поток.
+     */
+    private static final class Pipeline {
+
+        private final int segmentSize;
+        private final ExecutorService executor;
+        private final int window;
+        private final ArrayDeque<Future<Segment>> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<Segment> free = new ArrayDeque<>();
+
+        Pipeline(int segmentSize, ExecutorService executor, int window) {
+            this.segmentSize = segmentSize;
+            this.executor = executor;
+            this.window = executor != null ? Math.max(1, window) : 1;
+        }
+
+        Segment acquire() {
+            Segment segment = free.poll();
+            return segment != null ? segment : new Segment(segmentSize);
+        }
+
+        void release(Segment segment) {
+            free.push(segment);
+        }
+
+        void submit(Segment segment, SegmentTask task) throws IOException {
+            if (executor == null) {
+                inFlight.add(CompletableFuture.completedFuture(task.apply(segment)));
+                return;
+            }
+            inFlight.add(executor.submit(() -> task.apply(segment)));
+        }
+
+        boolean full() {
+            return inFlight.size() >= window;
+        }
+
+        boolean isEmpty() {
+            return inFlight.isEmpty();
+        }
+
+        Segment next() throws IOException {
+            Future<Segment> future = inFlight.poll();
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Segment processing failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for segment");
+            }
+        }
+
+        void cancel() {
+            Future<Segment> future;
+            while ((future = inFlight.poll()) != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static class DecryptingInputStream extends InputStream {
+
+        private final PushbackInputStream in;
+        private final Header header;
+        private final OffHeapSecureMemoryContainer key;
+        private final long endSegment;
+        private final long lastSegment;
+        private final byte[] aad;
+        private final Pipeline pipeline;
+
+        private long index;
+        private boolean submittedLast;
+        private Segment current;
+        private int position;
+
+        DecryptingInputStream(InputStream in, Header header, OffHeapSecureMemoryContainer key, long firstSegment,
+                              long endSegment, long lastSegment, byte[] aad, Pipeline pipeline) {
+            this.in = new PushbackInputStream(in, 1);
+            this.header = header;
+            this.key = key;
+            this.index = firstSegment;
+            this.endSegment = endSegment;
+            this.lastSegment = lastSegment;
+            this.aad = aad;
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current.plain[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current.plain, position, bytes, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current != null ? current.length - position : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipeline.cancel();
+            try {
+                in.close();
+            } finally {
+                key.close();
+            }
+        }
+
+        private boolean fill() throws IOException {
+            while (current == null || position == current.length) {
+                if (current != null) {
+                    pipeline.release(current);
+                    current = null;
+                }
+                while (!submittedLast && index != endSegment && !pipeline.full()) {
+                    readSegment();
+                }
+                if (pipeline.isEmpty()) {
+                    return false;
+                }
+                current = pipeline.next();
+                position = 0;
+            }
+            return true;
+        }
+
+        private void readSegment() throws IOException {
+            Segment segment = pipeline.acquire();
+            int length = in.readNBytes(segment.sealed, 0, segment.sealed.length);
+            boolean last;
+            if (lastSegment >= 0) {
+                last = index == lastSegment;
+            } else if (length < segment.sealed.length) {
+                last = true;
+            } else {
+                int next = in.read();
+                last = next < 0;
+                if (!last) {
+                    in.unread(next);
+                }
+            }
+            if (length < TAG_LENGTH || (!last && length < segment.sealed.length)) {
+                throw new EOFException("Encrypted content is truncated at segment " + index);
+            }
+            segment.sealedLength = length;
+            segment.index = index++;
+            segment.last = last;
+            submittedLast = last;
+            pipeline.submit(segment, s -> open(s, header, key, aad));
+        }
+    }
+}
@@ -0,0 +1,661 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.exception.FailedToWriteContentException;
+import by.nexus.core.exception.FileNodeNotExistsException;
+import by.nexus.core.exception.PermissionException;
+import by.nexus.core.exception.ProjectNotExistsException;
+import by.nexus.core.model.dto.SubtreeExtent;
+import by.nexus.core.model.dto.TreeNodeRef;
+import by.nexus.core.model.dto.api.FileNodeDto;
+import by.nexus.core.model.dto.api.FileNodePage;
+import by.nexus.core.model.dto.api.FileVersionDto;
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.model.entity.Project;
+import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.repository.FileNodeBatchRepository;
+import by.nexus.core.repository.FileNodeRepository;
+import by.nexus.core.repository.FileVersionRepository;
+import by.nexus.core.repository.ProjectPermissionRepository;
+import by.nexus.core.repository.ProjectRepository;
+import by.nexus.core.service.FileSystemService;
+import by.nexus.core.service.query.DatasetPreviewService;
+import by.nexus.core.service.security.PermissionCache;
+import by.nexus.core.service.tree.BulkOperation;
+import by.nexus.core.service.tree.BulkTreePlan;
+import by.nexus.core.service.tree.ChildrenCursor;
+import by.nexus.core.service.tree.FileTreeIndexer;
+import by.nexus.core.service.tree.TreePath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Метаданные дерева файлов хранятся в БД, содержимое — в {@link ContentStore} под ключом его SHA-256.
+ * Версии только ссылаются на содержимое, поэтому перемещение, переименование, фиксация версии и откат
+ * затрагивают только метаданные, а новое содержимое всегда пишется новой версией.
+ * У папок содержимого нет, их ключ — префикс {@code <projectId>/<nodeId>/}.
+ * Дерево дополнительно хранит материализованные пути ({@link TreePath}): поддерево, предки и поиск по пути —
+ * один индексный запрос, а перемещение, переименование и удаление папки — один UPDATE по диапазону путей.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class BlobStorageFileSystemService implements FileSystemService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final FileNodeRepository fileNodeRepository;
+    private final FileNodeBatchRepository fileNodeBatchRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectPermissionRepository projectPermissionRepository;
+    private final BlobStore blobStore;
+    private final ContentStore contentStore;
+    private final FileTreeIndexer treeIndexer;
+    private final PermissionCache permissionCache;
+    private final DatasetPreviewService datasetPreviewService;
+
+    @Value("${nexus.files.bulk.max-operations:10000}")
+    private int maxBulkOperations = 10000;
+
+    @Override
+    public Project createProject(String userId, String projectName, String description) {
+        if (projectName == null || projectName.isEmpty()) {
+            throw new IllegalArgumentException("Project name cannot be null or empty");
+        }
+
+        if (projectRepository.existsByNameAndOwnerIdAndDeletedAtIsNull(projectName, userId)) {
+            throw new IllegalArgumentException("Project with name " + projectName + " already exists");
+        }
+
+        Project project = Project.builder()
+                .name(projectName)
+                .ownerId(userId)
+                .description(description)
+                .build();
+        project = projectRepository.save(project);
+
+        FileNode root = FileNode.builder()
+                .name("root")
+                .type(FileNode.FileType.FOLDER)
+                .project(project)
+                .build();
+
+        ProjectPermission ownerPermission = ProjectPermission.builder()
+                .id(new ProjectPermission.ProjectPermissionId(project.getId(), userId))
+                .project(project)
+                .accessLevel(ProjectPermission.AccessLevel.OWNER)
+                .build();
+        projectPermissionRepository.save(ownerPermission);
+
+        root = fileNodeRepository.save(root);
+        root.setTreePath(TreePath.segment(root.getId()));
+        root.setNamePath("");
+        root.setDepth(0);
+        appendVersion(root, folderKey(project.getId(), root.getId()), 0L, userId);
+
+        return project;
+    }
+
+    private static String projectPrefix(UUID projectId) {
+        return projectId + "/";
+    }
+
+    private static String folderKey(UUID projectId, UUID nodeId) {
+        return projectPrefix(projectId) + nodeId + "/";
+    }
+
+    @Override
+    public void deleteProject(String userId, String projectName) {
+        projectRepository.findByNameAndOwnerIdAndDeletedAtIsNull(projectName, userId)
+                .ifPresent(project -> deleteProject(project, userId));
+    }
+
+    @Override
+    public void deleteProject(String userId, UUID projectId) {
+        projectRepository.findById(projectId)
+                .ifPresent(project -> deleteProject(project, userId));
+    }
+
+    /**
+     * Проект помечается удалённым и сразу становится недоступен: права снимаются одним запросом.
+     * Дерево, версии и содержимое удаляет в фоне {@link TreeGarbageCollector}, так что запрос
+     * не зависит от размера проекта.
+     */
+    private void deleteProject(Project project, String userId) {
+        checkPermission(userId, project.getId(), ProjectPermission.AccessLevel.ADMIN);
+
+        project.setDeletedAt(Instant.now());
+        projectRepository.save(project);
+        projectPermissionRepository.deleteAllByProjectId(project.getId());
+        permissionCache.evictProject(project.getId());
+    }
+
+    @Override
+    public FileNode createNode(UUID projectId, UUID parentId, String name, FileNode.FileType type, String userId) {
+        return createNode(projectId, parentId, name, type, userId, null);
+    }
+
+    @Override
+    public FileNode createNode(UUID projectId, UUID parentId, String name, FileNode.FileType type, String userId,
+                               Path content) {
+        TreePath.requireValidName(name);
+        checkPermission(userId, projectId, ProjectPermission.AccessLevel.EDITOR);
+
+        FileNode parent = getFileNode(parentId);
+        // Проект берётся у родителя: id прокси известен без запроса, а право на проект уже проверено
+        if (!parent.getProject().getId().equals(projectId)) {
+            throw new IllegalArgumentException("Parent " + parentId + " does not belong to project " + projectId);
+        }
+        checkFileNodeName(parent, name);
+        indexed(parent);
+        TreePath.requireFits(parent.getTreePath().length() + TreePath.SEGMENT_LENGTH,
+                TreePath.childNamePath(parent.getNamePath(), name).length());
+
+        FileNode node = FileNode.builder()
+                .name(name)
+                .type(type)
+                .project(parent.getProject())
+                .parent(parent)
+                .build();
+        node = fileNodeRepository.save(node);
+        FileTreeIndexer.assignChildPaths(parent, node);
+
+        if (type == FileNode.FileType.FOLDER) {
+            return appendVersion(node, folderKey(projectId, node.getId()), 0L, userId);
+        }
+
+        long size = sizeOf(content);
+        return appendVersion(node, storeContent(content, type), size, userId);
+    }
+
+    /**
+     * Добавляет узлу версию, ссылающуюся на уже сохранённое содержимое, и делает её текущей.
+     */
+    private FileNode appendVersion(FileNode node, String key, long size, String userId) {
+        FileVersion current = node.getCurrentVersion();
+        FileVersion version = FileVersion.builder()
+                .fileNode(node)
+                .version(current != null ? current.getVersion() + 1 : 1)
+                .storageKey(key)
+                .sizeBytes(size)
+                .createdBy(userId)
+                .build();
+        version = fileVersionRepository.save(version);
+
+        node.setCurrentVersion(version);
+        return fileNodeRepository.save(node);
+    }
+
+    /**
+     * Удаляет узел вместе со всем поддеревом одним UPDATE. Версии и содержимое удалённых узлов
+     * освобождает {@link TreeGarbageCollector} по истечении retention.
+     */
+    @Override
+    public void deleteNode(UUID nodeId, String userId) {
+        FileNode node = getFileNode(nodeId);
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.EDITOR);
+
+        String path = indexed(node).getTreePath();
+        fileNodeRepository.markSubtreeDeleted(path, TreePath.subtreeEnd(path), Instant.now());
+    }
+
+    /**
+     * Сохраняет содержимое и возвращает его ключ. Без содержимого сохраняется пустой объект.
+     * Превью датасета собирается до сохранения, пока файл лежит локально.
+     */
+    private String storeContent(Path content, FileNode.FileType type) {
+        byte[] preview = type == FileNode.FileType.DATASET && content != null
+                ? datasetPreviewService.build(content)
+                : null;
+        String key;
+        try {
+            key = contentStore.store(content != null ? content : blobStore.createStagingFile());
+        } catch (IOException e) {
+            throw new FailedToWriteContentException("Failed to write content: " + content, e);
+        }
+        if (preview != null) {
+            datasetPreviewService.save(key, preview);
+        }
+        return key;
+    }
+
+    private long sizeOf(Path content) {
+        try {
+            return content != null ? Files.size(content) : 0L;
+        } catch (IOException e) {
+            throw new FailedToWriteContentException("Failed to read content: " + content, e);
+        }
+    }
+
+    @Override
+    public FileVersion writeContent(UUID nodeId, Path content, String userId) {
+        FileNode node = getFileNodeWithCurrentVersion(nodeId);
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.EDITOR);
+
+        if (node.getType() == FileNode.FileType.FOLDER) {
+            throw new IllegalArgumentException("Folder " + nodeId + " has no content");
+        }
+
+        long size = sizeOf(content);
+        return appendVersion(node, storeContent(content, node.getType()), size, userId).getCurrentVersion();
+    }
+
+    /**
+     * Узел с текущей версией для чтения: проверяется право на просмотр проекта.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public FileNode getNode(UUID nodeId, String userId) {
+        FileNode node = getFileNodeWithCurrentVersion(nodeId);
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.VIEWER);
+        if (node.isDeleted()) {
+            throw new FileNodeNotExistsException("FileNode with id " + nodeId + " not exists");
+        }
+        return node;
+    }
+
+    @Override
+    public Resource readContent(FileVersion version) {
+        return contentStore.resource(version.getStorageKey());
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        return blobStore.createStagingFile();
+    }
+
+    @Override
+    public void moveNode(UUID nodeId, UUID targetParentId, String userId) {
+        FileNode node = getFileNode(nodeId);
+        Project project = node.getProject();
+        checkPermission(userId, project.getId(), ProjectPermission.AccessLevel.EDITOR);
+
+        FileNode targetParent = getFileNode(targetParentId);
+
+        // Право проверено только на проект узла: перенос в чужой проект сломал бы и пути, и доступ
+        if (!targetParent.getProject().getId().equals(project.getId())) {
+            throw new IllegalArgumentException(
+                    "Target " + targetParentId + " does not belong to project " + project.getId());
+        }
+        if (node.isDeleted()) {
+            throw new IllegalArgumentException("FileNode " + nodeId + " is deleted");
+        }
+        if (targetParent.isDeleted()) {
+            throw new IllegalArgumentException("Target " + targetParentId + " is deleted");
+        }
+        if (targetParent.getType() != FileNode.FileType.FOLDER) {
+            throw new IllegalArgumentException("Target is not a folder");
+        }
+        checkFileNodeName(targetParent, node.getName());
+
+        String oldTreePath = indexed(node).getTreePath();
+        String oldNamePath = node.getNamePath();
+        int oldDepth = node.getDepth();
+        indexed(targetParent);
+        if (TreePath.isInSubtree(targetParent.getTreePath(), oldTreePath)) {
+            throw new IllegalArgumentException("Cannot move a folder into itself");
+        }
+        String newTreePath = TreePath.child(targetParent.getTreePath(), nodeId);
+        String newNamePath = TreePath.childNamePath(targetParent.getNamePath(), node.getName());
+        requireSubtreeFits(node, newTreePath, newNamePath);
+
+        node.setParent(targetParent);
+        fileNodeRepository.save(node);
+
+        fileNodeRepository.moveSubtree(
+                oldTreePath, TreePath.subtreeEnd(oldTreePath),
+                oldTreePath.length(), newTreePath,
+                oldNamePath.length(), newNamePath,
+                targetParent.getDepth() + 1 - oldDepth
+        );
+    }
+
+    private FileVersion incrementVersion(FileNode node) {
+        FileVersion version = node.getCurrentVersion().increment();
+        contentStore.retain(version.getStorageKey());
+        node.setCurrentVersion(version);
+        return version;
+    }
+
+    private FileNode getFileNode(UUID nodeId) {
+        return fileNodeRepository.findById(nodeId)
+                .orElseThrow(() -> new FileNodeNotExistsException(
+                        "FileNode with id " + nodeId + " not exists"
+                ));
+    }
+
+    /**
+     * Узел вместе с текущей версией одним запросом — для операций, которые добавляют версию.
+     */
+    private FileNode getFileNodeWithCurrentVersion(UUID nodeId) {
+        return fileNodeRepository.findWithCurrentVersionById(nodeId)
+                .orElseThrow(() -> new FileNodeNotExistsException(
+                        "FileNode with id " + nodeId + " not exists"
+                ));
+    }
+
+    @Override
+    public void renameNode(UUID nodeId, String newName, String userId) {
+        TreePath.requireValidName(newName);
+        FileNode node = getFileNode(nodeId);
+        Project project = node.getProject();
+
+        checkPermission(userId, project.getId(), ProjectPermission.AccessLevel.EDITOR);
+        checkFileNodeName(node.getParent(), newName);
+
+        String treePath = indexed(node).getTreePath();
+        int oldNamePathLength = node.getNamePath().length();
+        String newNamePath = TreePath.childNamePath(indexed(node.getParent()).getNamePath(), newName);
+        requireSubtreeFits(node, treePath, newNamePath);
+
+        node.setName(newName);
+        fileNodeRepository.save(node);
+
+        fileNodeRepository.renameSubtree(
+                treePath, TreePath.subtreeEnd(treePath), oldNamePathLength, newNamePath
+        );
+    }
+
+    /**
+     * Пути поддерева узла должны поместиться в колонки после замены префиксов на новые,
+     * иначе UPDATE поддерева упал бы на усечении строки.
+     */
+    private void requireSubtreeFits(FileNode node, String newTreePath, String newNamePath) {
+        SubtreeExtent extent = fileNodeRepository.findSubtreeExtents(List.of(node.getId())).getFirst();
+        TreePath.requireFits(
+                newTreePath.length() + extent.treePathLength() - node.getTreePath().length(),
+                newNamePath.length() + extent.namePathLength() - node.getNamePath().length()
+        );
+    }
+
+    /**
+     * Пакет операций над деревом в одной транзакции: узлы и имена детей затронутых папок читаются двумя
+     * запросами, операции проверяются по модели дерева в памяти ({@link BulkTreePlan}), перемещения,
+     * переименования и удаления уходят одним JDBC-пакетом UPDATE по диапазонам путей, новые узлы —
+     * пачками вставок Hibernate. Ошибка любой операции откатывает весь пакет.
+     *
+     * @return id узла каждой операции в порядке запроса
+     */
+    @Override
+    public List<UUID> applyBulk(UUID projectId, String userId, List<BulkOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return List.of();
+        }
+        if (operations.size() > maxBulkOperations) {
+            throw new IllegalArgumentException("Bulk request exceeds " + maxBulkOperations + " operations");
+        }
+        checkPermission(userId, projectId, ProjectPermission.AccessLevel.EDITOR);
+
+        Set<UUID> ids = BulkTreePlan.referencedIds(operations);
+        List<TreeNodeRef> referenced = fileNodeRepository.findTreeRefs(ids);
+        if (referenced.stream().anyMatch(ref -> ref.treePath() == null)) {
+            treeIndexer.indexProject(projectId);
+            referenced = fileNodeRepository.findTreeRefs(ids);
+        }
+        List<TreeNodeRef> children = fileNodeRepository.findChildRefs(
+                BulkTreePlan.affectedParents(referenced, operations)
+        );
+
+        Set<UUID> rewritten = BulkTreePlan.rewrittenIds(operations);
+        List<SubtreeExtent> extents = rewritten.isEmpty()
+                ? List.of()
+                : fileNodeRepository.findSubtreeExtents(rewritten);
+
+        BulkTreePlan plan = new BulkTreePlan(projectId, referenced, children, extents);
+        operations.forEach(plan::apply);
+
+        // Пути в БД меняются в обход контекста Hibernate: сначала сбрасываются его изменения
+        fileNodeRepository.flush();
+        Instant now = Instant.now();
+        fileNodeBatchRepository.rewriteSubtrees(plan.rewrites(), now);
+
+        Project project = projectRepository.getReferenceById(projectId);
+        for (BulkTreePlan.PendingCreate create : plan.creates()) {
+            BulkTreePlan.PlanNode parent = create.getParent();
+            FileNode node = fileNodeRepository.save(FileNode.builder()
+                    .name(create.getName())
+                    .type(create.getType())
+                    .project(project)
+                    .parent(fileNodeRepository.getReferenceById(parent.getId()))
+                    .build());
+            node.setTreePath(TreePath.child(parent.getTreePath(), node.getId()));
+            node.setNamePath(TreePath.childNamePath(parent.getNamePath(), node.getName()));
+            node.setDepth(parent.getDepth() + 1);
+            if (parent.isDeleted()) {
+                node.setDeleted(true);
+                node.setDeletedAt(now);
+            }
+
+            String key = create.getType() == FileNode.FileType.FOLDER
+                    ? folderKey(projectId, node.getId())
+                    : storeContent(null, create.getType());
+            appendVersion(node, key, 0L, userId);
+            create.setId(node.getId());
+        }
+
+        return plan.resultIds();
+    }
+
+    private void checkFileNodeName(FileNode parent, String name) {
+        if (fileNodeRepository.existsByParentIdAndName(parent.getId(), name)) {
+            throw new IllegalArgumentException("File with name '" + name + "' already exists");
+        }
+    }
+
+    @Override
+    public List<FileNodeDto> listFiles(UUID projectId) {
+        return fileNodeRepository.findAllDtosByProject(projectId);
+    }
+
+    /**
+     * Одна страница — один запрос-проекция по индексу {@code (parent_id, type, name, id)}, без OFFSET:
+     * стоимость страницы не зависит ни от её номера, ни от размера проекта. Проект для проверки прав
+     * берётся из самой страницы: дети всегда в проекте папки. Саму папку читает только пустая страница.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public FileNodePage listChildren(UUID folderId, String cursor, int limit, Sort.Direction direction,
+                                     String userId) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Лишняя строка показывает, есть ли следующая страница
+        Limit fetch = Limit.of(limit + 1);
+        ChildrenCursor after = cursor != null && !cursor.isEmpty() ? ChildrenCursor.decode(cursor) : null;
+        List<FileNodeDto> items;
+        if (direction.isAscending()) {
+            items = after == null
+                    ? fileNodeRepository.findChildrenAsc(folderId, fetch)
+                    : fileNodeRepository.findChildrenAscAfter(folderId, after.type(), after.name(), after.id(), fetch);
+        } else {
+            items = after == null
+                    ? fileNodeRepository.findChildrenDesc(folderId, fetch)
+                    : fileNodeRepository.findChildrenDescAfter(folderId, after.type(), after.name(), after.id(), fetch);
+        }
+
+        UUID projectId = items.isEmpty()
+                ? getFileNode(folderId).getProject().getId()
+                : items.getFirst().projectId();
+        checkPermission(userId, projectId, ProjectPermission.AccessLevel.VIEWER);
+
+        if (items.size() <= limit) {
+            return new FileNodePage(items, null);
+        }
+        items = items.subList(0, limit);
+        FileNodeDto last = items.getLast();
+        return new FileNodePage(items, new ChildrenCursor(FileNode.FileType.valueOf(last.type()), last.name(), last.id()).encode());
+    }
+
+    @Override
+    public List<FileNode> listSubtree(UUID nodeId, Integer maxDepth, String userId) {
+        FileNode node = getFileNode(nodeId);
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.VIEWER);
+        indexed(node);
+        String path = node.getTreePath();
+        if (maxDepth == null) {
+            return fileNodeRepository.findSubtree(path, TreePath.subtreeEnd(path));
+        }
+        return fileNodeRepository.findSubtree(path, TreePath.subtreeEnd(path), node.getDepth() + maxDepth);
+    }
+
+    @Override
+    public List<FileNode> getAncestors(UUID nodeId, String userId) {
+        FileNode node = getFileNode(nodeId);
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.VIEWER);
+        List<UUID> ids = TreePath.ancestors(indexed(node).getTreePath());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return fileNodeRepository.findAllByIdOrderByDepth(ids);
+    }
+
+    @Override
+    public FileNode findByPath(UUID projectId, String path, String userId) {
+        checkPermission(userId, projectId, ProjectPermission.AccessLevel.VIEWER);
+        return fileNodeRepository.findByProjectIdAndNamePath(projectId, TreePath.normalizeNamePath(path))
+                .orElseThrow(() -> new FileNodeNotExistsException(
+                        "FileNode with path " + path + " not exists in project " + projectId
+                ));
+    }
+
+    /**
+     * Узлы, созданные до материализованных путей, индексируются вместе со всем проектом при первом обращении.
+     */
+    private FileNode indexed(FileNode node) {
+        if (node.getTreePath() == null) {
+            treeIndexer.indexProject(node.getProject().getId());
+        }
+        return node;
+    }
+
+    @Override
+    public void commitVersion(UUID nodeId) {
+        fileVersionRepository.save(
+                incrementVersion(getFileNodeWithCurrentVersion(nodeId))
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileVersionDto> getHistory(UUID nodeId) {
+        return fileVersionRepository.findHistory(nodeId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<FileVersion> getVersion(UUID nodeId, Integer version) {
+        return fileVersionRepository.findByFileNodeIdAndVersion(nodeId, version);
+    }
+
+    @Override
+    public void rollbackToVersion(UUID nodeId, Integer version) {
+        FileNode node = getFileNodeWithCurrentVersion(nodeId);
+        FileVersion target = fileVersionRepository.findByFileNodeIdAndVersion(nodeId, version)
+                .orElseThrow(
+                        () -> new IllegalArgumentException(
+                                "Version " + version + " does not exist for the node " + nodeId
+                        )
+                );
+        rollbackTo(node, target);
+    }
+
+    @Override
+    public void rollbackToVersion(UUID nodeId, UUID versionId) {
+        FileNode node = getFileNodeWithCurrentVersion(nodeId);
+        FileVersion target = fileVersionRepository.findById(versionId).orElseThrow(
+                () -> new IllegalArgumentException(
+                        "Version " + versionId + " does not exist"
+                )
+        );
+
+        if (!target.getFileNode().getId().equals(nodeId)) {
+            throw new IllegalArgumentException(
+                    "Version " + versionId + " does not exist for the node " + nodeId
+            );
+        }
+        rollbackTo(node, target);
+    }
+
+    /**
+     * Откат — новая версия, ссылающаяся на содержимое старой. Байты не копируются.
+     */
+    private void rollbackTo(FileNode node, FileVersion target) {
+        contentStore.retain(target.getStorageKey());
+        appendVersion(node, target.getStorageKey(), target.getSizeBytes(), target.getCreatedBy());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void checkPermission(String userId, UUID projectId, ProjectPermission.AccessLevel level) {
+        ProjectPermission.AccessLevel accessLevel = permissionCache.getAccessLevel(projectId, userId)
+                .orElseThrow(
+                        () -> new IllegalArgumentException(
+                                "Permission for project " + projectId +
+                                        " and user " + userId + " does not exist"
+                        )
+                );
+
+        if (!accessLevel.hasAccess(level)) {
+            throw new PermissionException(
+                    "You do not have permission to edit this project"
+            );
+        }
+    }
+
+    @Override
+    public void shareProject(UUID projectId, String userId, ProjectPermission.AccessLevel level) {
+        ProjectPermission.ProjectPermissionId id = new ProjectPermission.ProjectPermissionId(
+                projectId, userId
+        );
+
+        Optional<ProjectPermission> permissionOptional = projectPermissionRepository.findById(id);
+        ProjectPermission permission;
+        if (permissionOptional.isPresent()) {
+            permission = permissionOptional.get();
+            permission.setAccessLevel(level);
+        } else {
+            permission = ProjectPermission.builder()
+                    .id(id)
+                    .project(projectRepository.findById(projectId).orElseThrow(
+                            () -> new ProjectNotExistsException(
+                                    "Project " + projectId + " does not exist"
+                            )
+                    ))
+                    .accessLevel(level)
+                    .build();
+        }
+
+        projectPermissionRepository.save(permission);
+        permissionCache.evict(projectId, userId);
+    }
+
+    @Override
+    public void updateVersionSize(UUID nodeId, long size, String userId) {
+        FileNode node = getFileNodeWithCurrentVersion(nodeId);
+
+        checkPermission(userId, node.getProject().getId(), ProjectPermission.AccessLevel.EDITOR);
+
+        FileVersion version = node.getCurrentVersion();
+        version.setSizeBytes(size);
+        fileVersionRepository.save(version);
+    }
+}
@@ -0,0 +1,50 @@
+package by.nexus.core.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Хранилище содержимого файлов. Объекты адресуются ключами вида {@code <projectId>/<nodeId>/<id>}
+ * и после записи не изменяются: новая версия файла — новый ключ.
+ */
+public interface BlobStore {
+
+    /**
+     * Кладёт файл под ключ. Файл-источник после вызова больше не принадлежит вызывающему:
+     * локальное хранилище забирает его переименованием, удалённое удаляет после загрузки.
+     */
+    void putFile(String key, Path file) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Диапазон байт [offset, offset + length).
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    long size(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Удаляет все объекты, ключи которых начинаются с {@code prefix}.
+     */
+    void deletePrefix(String prefix) throws IOException;
+
+    /**
+     * Временный файл для подготовки содержимого перед {@link #putFile}.
+     * Для локального хранилища он лежит на том же томе, так что {@code putFile} сводится к переименованию.
+     */
+    Path createStagingFile() throws IOException;
+
+    /**
+     * Путь к объекту на локальном диске, если хранилище локальное.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
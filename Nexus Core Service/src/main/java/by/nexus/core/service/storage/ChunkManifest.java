@@ -0,0 +1,87 @@
+package by.nexus.core.service.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Манифест файла, сохранённого чанками: хеши и длины чанков по порядку.
+ * <pre>
+ * "NXCM" | version:1 | size:8 | count:4 | count * (sha256:32 | length:4)
+ * </pre>
+ */
+public record ChunkManifest(long size, List<Entry> chunks) {
+
+    private static final int MAGIC = 0x4E58434D;
+    private static final byte VERSION = 1;
+    private static final HexFormat HEX = HexFormat.of();
+
+    public static ChunkManifest of(ContentChunker.ChunkedFile file) {
+        return new ChunkManifest(
+                file.size(),
+                file.chunks().stream().map(c -> new Entry(c.hash(), c.length())).toList()
+        );
+    }
+
+    /**
+     * Смещение начала каждого чанка в файле; последний элемент — размер файла.
+     */
+    public long[] offsets() {
+        long[] offsets = new long[chunks.size() + 1];
+        for (int i = 0; i < chunks.size(); i++) {
+            offsets[i + 1] = offsets[i] + chunks.get(i).length();
+        }
+        return offsets;
+    }
+
+    /**
+     * Индекс чанка, содержащего байт {@code position}.
+     */
+    public static int chunkAt(long[] offsets, long position) {
+        int index = Arrays.binarySearch(offsets, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(size);
+        data.writeInt(chunks.size());
+        for (Entry chunk : chunks) {
+            data.write(HEX.parseHex(chunk.hash()));
+            data.writeInt(chunk.length());
+        }
+        data.flush();
+    }
+
+    public static ChunkManifest read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a chunk manifest");
+        }
+        byte version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported chunk manifest version " + version);
+        }
+
+        long size = data.readLong();
+        int count = data.readInt();
+        List<Entry> chunks = new ArrayList<>(count);
+        byte[] hash = new byte[32];
+        for (int i = 0; i < count; i++) {
+            data.readFully(hash);
+            chunks.add(new Entry(HEX.formatHex(hash), data.readInt()));
+        }
+        return new ChunkManifest(size, chunks);
+    }
+
+    public record Entry(String hash, int length) {
+    }
+}
@@ -0,0 +1,80 @@
+package by.nexus.core.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Собирает файл из чанков потоком: следующий чанк открывается, только когда дочитан предыдущий.
+ */
+class ChunkedInputStream extends InputStream {
+
+    private final BlobStore blobStore;
+    private final ChunkManifest manifest;
+
+    private int next;
+    private long skipInNext;
+    private long remaining;
+    private InputStream current;
+
+    /**
+     * Байты [offset, offset + length) файла.
+     */
+    ChunkedInputStream(BlobStore blobStore, ChunkManifest manifest, long offset, long length) {
+        this.blobStore = blobStore;
+        this.manifest = manifest;
+
+        long[] offsets = manifest.offsets();
+        long start = Math.min(offset, manifest.size());
+        this.next = start == manifest.size() ? manifest.chunks().size() : ChunkManifest.chunkAt(offsets, start);
+        this.skipInNext = next < manifest.chunks().size() ? start - offsets[next] : 0;
+        this.remaining = Math.min(length, manifest.size() - start);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (remaining > 0) {
+            if (current == null) {
+                openNext();
+            }
+            int read = current.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+                return read;
+            }
+            current.close();
+            current = null;
+        }
+        return -1;
+    }
+
+    private void openNext() throws IOException {
+        if (next >= manifest.chunks().size()) {
+            throw new IOException("Chunk manifest is shorter than its declared size");
+        }
+        ChunkManifest.Entry chunk = manifest.chunks().get(next++);
+        String key = ContentStore.keyOf(chunk.hash());
+
+        current = skipInNext > 0
+                ? blobStore.get(key, skipInNext, chunk.length() - skipInNext)
+                : blobStore.get(key);
+        skipInNext = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        remaining = 0;
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package by.nexus.core.service.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Нарезка файла на чанки по содержимому (FastCDC: gear-хеш с нормализованной маской).
+ * Граница чанка зависит только от последних байт перед ней, поэтому вставка или изменение в середине файла
+ * меняет один-два соседних чанка, а остальные совпадают с предыдущей версией и не записываются повторно.
+ */
+@Component
+public class ContentChunker {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Таблица должна быть одинаковой во всех версиях сервиса, иначе границы чанков поплывут
+        SplittableRandom random = new SplittableRandom(0x4E58444154L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskSmall;
+    private final long maskLarge;
+
+    @Autowired
+    public ContentChunker(@Value("${nexus.storage.chunking.min-chunk-size:256KB}") DataSize minSize,
+                          @Value("${nexus.storage.chunking.avg-chunk-size:1MB}") DataSize avgSize,
+                          @Value("${nexus.storage.chunking.max-chunk-size:4MB}") DataSize maxSize) {
+        this((int) minSize.toBytes(), (int) avgSize.toBytes(), (int) maxSize.toBytes());
+    }
+
+    ContentChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Chunk sizes must satisfy 0 < min <= avg <= max: " + minSize + ", " + avgSize + ", " + maxSize
+            );
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+
+        // До среднего размера граница ставится реже, после — чаще: размеры чанков жмутся к среднему
+        int bits = 63 - Long.numberOfLeadingZeros(avgSize);
+        this.maskSmall = topBits(bits + 2);
+        this.maskLarge = topBits(Math.max(1, bits - 2));
+    }
+
+    private static long topBits(int count) {
+        return -1L << (64 - count);
+    }
+
+    public int maxChunkSize() {
+        return maxSize;
+    }
+
+    /**
+     * Один проход по файлу: границы чанков, SHA-256 каждого чанка и всего файла.
+     */
+    public ChunkedFile chunk(Path file) throws IOException {
+        MessageDigest fileDigest = sha256();
+        MessageDigest chunkDigest = sha256();
+        List<Chunk> chunks = new ArrayList<>();
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long chunkOffset = 0;
+        int length = 0;
+        long hash = 0;
+
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                fileDigest.update(buffer, 0, read);
+
+                int segmentStart = 0;
+                for (int i = 0; i < read; i++) {
+                    hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+                    length++;
+
+                    if (length < minSize) {
+                        continue;
+                    }
+                    long mask = length < avgSize ? maskSmall : maskLarge;
+                    if ((hash & mask) == 0 || length >= maxSize) {
+                        chunkDigest.update(buffer, segmentStart, i + 1 - segmentStart);
+                        chunks.add(new Chunk(chunkOffset, length, hex(chunkDigest)));
+
+                        chunkOffset += length;
+                        segmentStart = i + 1;
+                        length = 0;
+                        hash = 0;
+                    }
+                }
+                chunkDigest.update(buffer, segmentStart, read - segmentStart);
+            }
+        }
+
+        if (length > 0) {
+            chunks.add(new Chunk(chunkOffset, length, hex(chunkDigest)));
+        }
+        return new ChunkedFile(hex(fileDigest), chunkOffset + length, chunks);
+    }
+
+    private static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Chunk(long offset, int length, String hash) {
+    }
+
+    public record ChunkedFile(String hash, long size, List<Chunk> chunks) {
+    }
+}
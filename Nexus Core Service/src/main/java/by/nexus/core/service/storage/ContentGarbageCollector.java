@@ -0,0 +1,117 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.model.entity.ContentBlob;
+import by.nexus.core.repository.ContentBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Удаляет из BlobStore содержимое, на которое больше не ссылается ни одна версия.
+ * Удаление манифеста снимает ссылки с его чанков, и они удаляются следующими проходами.
+ * Вместе с содержимым удаляется его превью.
+ * Объект удаляется под блокировкой строки {@code content_blobs}: параллельная загрузка того же содержимого
+ * дождётся конца удаления и запишет объект заново.
+ */
+@Slf4j
+@Component
+public class ContentGarbageCollector {
+
+    private final BlobStore blobStore;
+    private final ContentStore contentStore;
+    private final ContentBlobRepository contentBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gracePeriod;
+    private final int batchSize;
+
+    private final Counter reclaimedBytes;
+    private final AtomicLong releasedBacklog = new AtomicLong();
+
+    public ContentGarbageCollector(BlobStore blobStore,
+                                   ContentStore contentStore,
+                                   ContentBlobRepository contentBlobRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${nexus.storage.gc.grace-period:1h}") Duration gracePeriod,
+                                   @Value("${nexus.storage.gc.batch-size:500}") int batchSize) {
+        this.blobStore = blobStore;
+        this.contentStore = contentStore;
+        this.contentBlobRepository = contentBlobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+
+        this.reclaimedBytes = Counter.builder("nexus.gc.reclaimed.bytes")
+                .description("Освобождённые в хранилище байты")
+                .baseUnit("bytes")
+                .tag("source", "content")
+                .register(meterRegistry);
+        Gauge.builder("nexus.gc.backlog", releasedBacklog, AtomicLong::get)
+                .description("Содержимое без ссылок, ожидающее сборщика")
+                .tag("type", "blobs")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${nexus.storage.gc.interval:10m}")
+    public void collect() {
+        List<String> hashes = contentBlobRepository.findReleasedBefore(
+                Instant.now().minus(gracePeriod), PageRequest.of(0, batchSize)
+        );
+
+        int deleted = 0;
+        for (String hash : hashes) {
+            try {
+                Long bytes = transactionTemplate.execute(status -> delete(hash));
+                if (bytes != null && bytes >= 0) {
+                    reclaimedBytes.increment(bytes);
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to collect content {}", hash, e);
+            }
+        }
+
+        if (deleted > 0) {
+            log.info("Collected {} unreferenced content objects", deleted);
+        }
+        releasedBacklog.set(contentBlobRepository.countReleased());
+    }
+
+    /**
+     * @return освобождённые байты или -1, если содержимое снова используется. Байты файла, хранящегося чанками,
+     * учитываются при удалении чанков, а не манифеста.
+     */
+    private long delete(String hash) {
+        Optional<ContentBlob> blob = contentBlobRepository.lockByHash(hash);
+        if (blob.isEmpty() || blob.get().getRefCount() > 0) {
+            return -1L;
+        }
+
+        boolean manifest = blob.get().isManifest();
+        String key = ContentStore.keyOf(hash, manifest ? ContentBlob.Kind.MANIFEST : ContentBlob.Kind.BLOB);
+        try {
+            if (manifest && blobStore.exists(key)) {
+                contentStore.releaseChunks(contentStore.readManifest(key));
+            }
+            blobStore.delete(key);
+            blobStore.delete(ContentStore.previewKeyOf(hash));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to delete content " + hash, e);
+        }
+        contentBlobRepository.delete(blob.get());
+        return manifest ? 0L : blob.get().getSizeBytes();
+    }
+}
@@ -0,0 +1,58 @@
+package by.nexus.core.service.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Содержимое из {@link ContentStore} как Spring {@link org.springframework.core.io.Resource}: отдаётся
+ * из контроллеров потоком, без промежуточной копии на диске Core. Файлы, сохранённые чанками,
+ * собираются на лету.
+ */
+public class ContentResource extends AbstractResource {
+
+    private final ContentStore contentStore;
+    private final String key;
+
+    public ContentResource(ContentStore contentStore, String key) {
+        this.contentStore = contentStore;
+        this.key = key;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return contentStore.open(key);
+    }
+
+    /**
+     * Байты [offset, offset + length): из хранилища читается только диапазон.
+     */
+    public InputStream getInputStream(long offset, long length) throws IOException {
+        return contentStore.open(key, offset, length);
+    }
+
+    @Override
+    public boolean exists() {
+        try {
+            return contentStore.exists(key);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return contentStore.size(key);
+    }
+
+    @Override
+    public String getFilename() {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Content [" + key + "]";
+    }
+}
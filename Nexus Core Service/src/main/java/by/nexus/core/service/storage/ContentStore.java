@@ -0,0 +1,346 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.model.entity.ContentBlob;
+import by.nexus.core.repository.ContentBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Адресация содержимого по SHA-256 поверх {@link BlobStore}. Одинаковое содержимое (откат, повторный импорт,
+ * повторная загрузка) хранится один раз, версии ссылаются на него по ключу, число ссылок ведётся
+ * в {@code content_blobs}. Объекты без ссылок удаляет {@link ContentGarbageCollector}.
+ * <ul>
+ *     <li>{@code sha256/<xx>/<hash>} — байты целиком: небольшие файлы и чанки;</li>
+ *     <li>{@code manifest/<xx>/<hash>} — большой файл, нарезанный {@link ContentChunker}. Новая версия
+ *     такого файла записывает только изменившиеся чанки, остальные берутся по ссылке.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentStore {
+
+    private static final String BLOB_PREFIX = "sha256/";
+    private static final String MANIFEST_PREFIX = "manifest/";
+    private static final String PREVIEW_PREFIX = "preview/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${nexus.storage.chunking.enabled:true}")
+    private boolean chunkingEnabled = true;
+
+    @Value("${nexus.storage.chunking.min-file-size:16MB}")
+    private DataSize chunkingThreshold = DataSize.ofMegabytes(16);
+
+    private final BlobStore blobStore;
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentChunker chunker;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Сохраняет содержимое файла и добавляет на него ссылку. Файл-источник забирается:
+     * переносится в хранилище или удаляется, если такое содержимое уже есть. Если транзакция вызывающего
+     * откатится, записанные объекты отдаются сборщику, см. {@link RollbackReclaimer}.
+     *
+     * @return ключ содержимого
+     */
+    @Transactional
+    public String store(Path file) throws IOException {
+        long size = Files.size(file);
+
+        ContentChunker.ChunkedFile chunked = null;
+        String hash;
+        ContentBlob.Kind preferred;
+        if (chunkingEnabled && size >= chunkingThreshold.toBytes()) {
+            chunked = chunker.chunk(file);
+            hash = chunked.hash();
+            preferred = ContentBlob.Kind.MANIFEST;
+        } else {
+            hash = sha256(file);
+            preferred = ContentBlob.Kind.BLOB;
+        }
+
+        // Сначала ссылка, потом объект: строка content_blobs заблокирована до конца транзакции
+        Instant now = Instant.now();
+        boolean created = contentBlobRepository.create(hash, size, preferred.name(), 1, now) == 1;
+        if (!created) {
+            contentBlobRepository.acquire(hash, size, preferred.name(), 1, now);
+        }
+
+        // Содержимое остаётся в том виде, в каком было записано впервые, даже если порог нарезки изменился
+        ContentBlob.Kind kind = created ? preferred : contentBlobRepository.findKindByHash(hash).orElse(preferred);
+        String key = keyOf(hash, kind);
+
+        // Объект без записи остался от откаченной транзакции и записывается заново: манифесту нужны ссылки на чанки
+        if (!created && blobStore.exists(key)) {
+            log.debug("Content {} is already stored", hash);
+            Files.deleteIfExists(file);
+            return key;
+        }
+
+        RollbackReclaimer reclaimer = new RollbackReclaimer();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(reclaimer);
+        }
+        if (kind == ContentBlob.Kind.MANIFEST) {
+            storeChunked(file, key, chunked != null ? chunked : chunker.chunk(file), reclaimer);
+        } else {
+            blobStore.putFile(key, file);
+            reclaimer.blobs.put(hash, size);
+        }
+        return key;
+    }
+
+    /**
+     * Записывает недостающие чанки и манифест. Ссылки на чанки берутся в порядке хешей:
+     * параллельные загрузки версий с общими чанками блокируют строки в одном порядке.
+     */
+    private void storeChunked(Path file, String manifestKey, ContentChunker.ChunkedFile chunked,
+                              RollbackReclaimer reclaimer) throws IOException {
+        acquireChunks(chunked, Instant.now());
+
+        int written = 0;
+        Set<String> seen = new HashSet<>();
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (ContentChunker.Chunk chunk : chunked.chunks()) {
+                String key = keyOf(chunk.hash());
+                if (!seen.add(chunk.hash()) || blobStore.exists(key)) {
+                    continue;
+                }
+                putRange(source, chunk.offset(), chunk.length(), key);
+                reclaimer.blobs.put(chunk.hash(), (long) chunk.length());
+                written++;
+            }
+        }
+
+        Path manifestFile = blobStore.createStagingFile();
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(manifestFile))) {
+                ChunkManifest.of(chunked).write(out);
+            }
+            blobStore.putFile(manifestKey, manifestFile);
+            reclaimer.manifest = chunked;
+        } finally {
+            Files.deleteIfExists(manifestFile);
+        }
+        Files.deleteIfExists(file);
+
+        log.debug("Stored {} as {} chunks, {} of them new", chunked.hash(), chunked.chunks().size(), written);
+    }
+
+    private void acquireChunks(ContentChunker.ChunkedFile chunked, Instant now) {
+        Map<String, Long> references = new TreeMap<>();
+        Map<String, Integer> lengths = new HashMap<>();
+        for (ContentChunker.Chunk chunk : chunked.chunks()) {
+            references.merge(chunk.hash(), 1L, Long::sum);
+            lengths.put(chunk.hash(), chunk.length());
+        }
+        references.forEach((hash, count) ->
+                contentBlobRepository.acquire(hash, lengths.get(hash), ContentBlob.Kind.BLOB.name(), count, now));
+    }
+
+    /**
+     * Объекты, записанные одним {@link #store}. При откате транзакции вместе с ней пропадают их записи
+     * в {@code content_blobs}, и сборщик их бы не увидел. Удалять объекты сразу нельзя: параллельная загрузка
+     * того же содержимого, ждавшая блокировку строки, могла уже на них сослаться. Поэтому после отката
+     * в отдельной транзакции заводятся записи без ссылок, если их никто не создал заново, и объекты удаляет
+     * {@link ContentGarbageCollector} по истечении grace-периода. Манифест при этом снова берёт ссылки
+     * на свои чанки: сборщик снимет их, удаляя манифест. Строки блокируются в том же порядке, что и в
+     * {@link #store}: манифест, затем чанки по хешу.
+     */
+    final class RollbackReclaimer implements TransactionSynchronization {
+
+        private final Map<String, Long> blobs = new TreeMap<>();
+        private ContentChunker.ChunkedFile manifest;
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_ROLLED_BACK || (manifest == null && blobs.isEmpty())) {
+                return;
+            }
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            try {
+                transaction.executeWithoutResult(ignored -> reserve());
+            } catch (RuntimeException e) {
+                log.error("Failed to hand {} objects of a rolled back write over to the collector",
+                        blobs.size() + (manifest != null ? 1 : 0), e);
+            }
+        }
+
+        private void reserve() {
+            Instant now = Instant.now();
+            if (manifest != null && contentBlobRepository.reserve(
+                    manifest.hash(), manifest.size(), ContentBlob.Kind.MANIFEST.name(), now) == 1) {
+                acquireChunks(manifest, now);
+            }
+            blobs.forEach((hash, size) -> contentBlobRepository.reserve(hash, size, ContentBlob.Kind.BLOB.name(), now));
+            log.info("Rolled back write left {} objects, handed over to the collector",
+                    blobs.size() + (manifest != null ? 1 : 0));
+        }
+    }
+
+    private void putRange(FileChannel source, long offset, int length, String key) throws IOException {
+        Path staged = blobStore.createStagingFile();
+        try {
+            try (FileChannel out = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                long done = 0;
+                while (done < length) {
+                    done += source.transferTo(offset + done, length - done, out);
+                }
+            }
+            blobStore.putFile(key, staged);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    /**
+     * Ещё одна версия ссылается на то же содержимое.
+     */
+    @Transactional
+    public void retain(String key) {
+        if (isContentAddressed(key)) {
+            contentBlobRepository.retain(hashOf(key));
+        }
+    }
+
+    @Transactional
+    public void release(String key, long count) {
+        if (isContentAddressed(key)) {
+            contentBlobRepository.release(hashOf(key), count, Instant.now());
+        }
+    }
+
+    /**
+     * Снимает ссылки манифеста на его чанки. Вызывается сборщиком перед удалением манифеста.
+     */
+    void releaseChunks(ChunkManifest manifest) {
+        Map<String, Long> references = new TreeMap<>();
+        manifest.chunks().forEach(chunk -> references.merge(chunk.hash(), 1L, Long::sum));
+
+        Instant now = Instant.now();
+        references.forEach((hash, count) -> contentBlobRepository.release(hash, count, now));
+    }
+
+    public InputStream open(String key) throws IOException {
+        if (isManifest(key)) {
+            return new ChunkedInputStream(blobStore, readManifest(key), 0, Long.MAX_VALUE);
+        }
+        return blobStore.get(key);
+    }
+
+    /**
+     * Байты [offset, offset + length) содержимого.
+     */
+    public InputStream open(String key, long offset, long length) throws IOException {
+        if (isManifest(key)) {
+            return new ChunkedInputStream(blobStore, readManifest(key), offset, length);
+        }
+        return blobStore.get(key, offset, length);
+    }
+
+    public long size(String key) throws IOException {
+        return isManifest(key) ? readManifest(key).size() : blobStore.size(key);
+    }
+
+    public boolean exists(String key) throws IOException {
+        return blobStore.exists(key);
+    }
+
+    /**
+     * Локальное содержимое целиком отдаётся файлом, остальное — потоком из хранилища.
+     */
+    public Resource resource(String key) {
+        if (!isManifest(key)) {
+            return blobStore.localPath(key)
+                    .<Resource>map(FileSystemResource::new)
+                    .orElseGet(() -> new ContentResource(this, key));
+        }
+        return new ContentResource(this, key);
+    }
+
+    ChunkManifest readManifest(String key) throws IOException {
+        try (InputStream in = new BufferedInputStream(blobStore.get(key))) {
+            return ChunkManifest.read(in);
+        }
+    }
+
+    /**
+     * Ключи, записанные до адресации по содержимому, и ключи папок счётчиком ссылок не управляются.
+     */
+    public static boolean isContentAddressed(String key) {
+        return key != null && (key.startsWith(BLOB_PREFIX) || key.startsWith(MANIFEST_PREFIX));
+    }
+
+    public static boolean isManifest(String key) {
+        return key.startsWith(MANIFEST_PREFIX);
+    }
+
+    public static String keyOf(String hash) {
+        return keyOf(hash, ContentBlob.Kind.BLOB);
+    }
+
+    public static String keyOf(String hash, ContentBlob.Kind kind) {
+        String prefix = kind == ContentBlob.Kind.MANIFEST ? MANIFEST_PREFIX : BLOB_PREFIX;
+        return prefix + hash.substring(0, 2) + "/" + hash;
+    }
+
+    /**
+     * Ключ превью датасета с таким содержимым, см. {@link by.nexus.core.service.query.DatasetPreviewService}.
+     */
+    public static String previewKeyOf(String hash) {
+        return PREVIEW_PREFIX + hash.substring(0, 2) + "/" + hash;
+    }
+
+    public static String hashOf(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,168 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.service.security.CryptoService;
+import by.nexus.core.service.security.SegmentedGcm;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Шифрует содержимое любого {@link BlobStore} форматом {@link SegmentedGcm}: загрузки, импорт и превью
+ * записываются зашифрованными, чтение расшифровывает потоком, диапазоны читают из хранилища только
+ * нужные сегменты. Шифротекст привязан к ключу объекта.
+ * <p>
+ * Объект без заголовка шифрования отклоняется: иначе тот, кто может писать в бакет, подложил бы открытый
+ * текст в обход проверки целостности. Объекты, записанные до включения шифрования, читаются как есть только
+ * на время миграции, с {@code allowPlaintext}.
+ */
+@Slf4j
+public class EncryptingBlobStore implements BlobStore {
+
+    private final BlobStore delegate;
+    private final CryptoService cryptoService;
+    private final boolean allowPlaintext;
+
+    public EncryptingBlobStore(BlobStore delegate, CryptoService cryptoService) {
+        this(delegate, cryptoService, false);
+    }
+
+    public EncryptingBlobStore(BlobStore delegate, CryptoService cryptoService, boolean allowPlaintext) {
+        this.delegate = delegate;
+        this.cryptoService = cryptoService;
+        this.allowPlaintext = allowPlaintext;
+    }
+
+    @Override
+    public void putFile(String key, Path file) throws IOException {
+        Path staged = delegate.createStagingFile();
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(staged))) {
+                cryptoService.encrypt(in, out, aad(key));
+            }
+            delegate.putFile(key, staged);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(delegate.get(key), SegmentedGcm.HEADER_LENGTH);
+        try {
+            byte[] head = in.readNBytes(SegmentedGcm.HEADER_LENGTH);
+            SegmentedGcm.Header header = SegmentedGcm.Header.parse(head, head.length);
+            if (header == null) {
+                requirePlaintextAllowed(key);
+                in.unread(head);
+                return in;
+            }
+            return cryptoService.decrypt(in, header, aad(key));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        long size = delegate.size(key);
+        SegmentedGcm.Header header = header(key, size);
+        if (header == null) {
+            requirePlaintextAllowed(key);
+            return delegate.get(key, offset, length);
+        }
+
+        long end = Math.min(header.plaintextSize(size), offset + length);
+        if (offset >= end) {
+            return InputStream.nullInputStream();
+        }
+        int segmentSize = header.segmentSize();
+        long first = offset / segmentSize;
+        long last = (end - 1) / segmentSize;
+        long from = header.segmentOffset(first);
+        long to = Math.min(size, header.segmentOffset(last + 1));
+
+        InputStream plaintext = cryptoService.decrypt(delegate.get(key, from, to - from), header, first, last + 1,
+                header.segmentCount(size) - 1, aad(key));
+        try {
+            plaintext.skipNBytes(offset - first * segmentSize);
+        } catch (IOException e) {
+            plaintext.close();
+            throw e;
+        }
+        return new BoundedInputStream(plaintext, end - offset);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        long size = delegate.size(key);
+        SegmentedGcm.Header header = header(key, size);
+        if (header == null) {
+            requirePlaintextAllowed(key);
+            return size;
+        }
+        return header.plaintextSize(size);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+    }
+
+    @Override
+    public void deletePrefix(String prefix) throws IOException {
+        delegate.deletePrefix(prefix);
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        return delegate.createStagingFile();
+    }
+
+    /**
+     * Файлы на диске зашифрованы: содержимое отдаётся только через {@link #get}.
+     */
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * @return null для объекта без шифрования
+     */
+    private SegmentedGcm.Header header(String key, long size) throws IOException {
+        if (size < SegmentedGcm.HEADER_LENGTH + SegmentedGcm.TAG_LENGTH) {
+            return null;
+        }
+        try (InputStream in = delegate.get(key, 0, SegmentedGcm.HEADER_LENGTH)) {
+            byte[] head = in.readNBytes(SegmentedGcm.HEADER_LENGTH);
+            return SegmentedGcm.Header.parse(head, head.length);
+        }
+    }
+
+    private void requirePlaintextAllowed(String key) throws IOException {
+        if (!allowPlaintext) {
+            throw new IOException("Object " + key + " is not encrypted");
+        }
+        log.debug("Reading unencrypted object {}", key);
+    }
+
+    private static byte[] aad(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
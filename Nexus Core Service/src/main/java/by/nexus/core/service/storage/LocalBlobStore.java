@@ -0,0 +1,116 @@
+package by.nexus.core.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Объекты хранятся файлами под {@code nexus.storage.path}.
+ * Ключи, записанные до появления BlobStore (пути вида {@code ./nexus_storage/...}), продолжают читаться.
+ */
+@Component
+@ConditionalOnProperty(name = "nexus.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private static final String STAGING_DIR = ".staging";
+
+    private final Path root;
+
+    public LocalBlobStore(@Value("${nexus.storage.path}") String storagePath) {
+        this.root = Paths.get(storagePath).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void putFile(String key, Path file) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Источник на другом томе: копируем рядом с целью и публикуем переименованием
+            Path staged = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.copy(file, staged, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(offset);
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void deletePrefix(String prefix) throws IOException {
+        Path dir = resolve(prefix);
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        Path staging = Files.createDirectories(root.resolve(STAGING_DIR));
+        return Files.createTempFile(staging, "blob_", ".tmp");
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        Path legacy = Paths.get(key).toAbsolutePath().normalize();
+        if (legacy.startsWith(root)) {
+            return legacy;
+        }
+
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,281 @@
+package by.nexus.core.service.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Объекты хранятся в бакете S3-совместимого хранилища (AWS S3, MinIO, Ceph RGW).
+ * Содержимое доступно всем репликам Core, которые смотрят в один бакет.
+ * <ul>
+ *     <li>файлы больше {@code part-size} загружаются multipart upload'ом, незавершённая загрузка отменяется;</li>
+ *     <li>чтение диапазона байт — GET с заголовком Range, без скачивания объекта целиком.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "nexus.storage.backend", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    /**
+     * Минимальный размер части multipart upload'а, кроме последней.
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final long partSize;
+    private volatile boolean batchDeleteSupported = true;
+
+    public S3BlobStore(@Value("${nexus.storage.s3.endpoint:}") String endpoint,
+                       @Value("${nexus.storage.s3.region:us-east-1}") String region,
+                       @Value("${nexus.storage.s3.path-style-access:true}") boolean pathStyleAccess,
+                       @Value("${nexus.storage.s3.access-key:}") String accessKey,
+                       @Value("${nexus.storage.s3.secret-key:}") String secretKey,
+                       @Value("${nexus.storage.s3.bucket}") String bucket,
+                       @Value("${nexus.storage.s3.part-size:16MB}") DataSize partSize) {
+        this(buildClient(endpoint, region, pathStyleAccess, accessKey, secretKey), bucket, partSize);
+    }
+
+    S3BlobStore(S3Client s3, String bucket, DataSize partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize.toBytes());
+    }
+
+    /**
+     * Создаёт бакет, если его ещё нет (удобно для локального MinIO).
+     */
+    @PostConstruct
+    public void ensureBucket() {
+        try {
+            s3.headBucket(r -> r.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            log.info("Creating bucket {}", bucket);
+            s3.createBucket(r -> r.bucket(bucket));
+        }
+    }
+
+    private static S3Client buildClient(String endpoint, String region, boolean pathStyleAccess,
+                                        String accessKey, String secretKey) {
+        // Контрольные суммы CRC в trailer'ах поддерживают не все S3-совместимые хранилища
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess)
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED);
+
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        builder.credentialsProvider(accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+
+        return builder.build();
+    }
+
+    @Override
+    public void putFile(String key, Path file) throws IOException {
+        try {
+            long size = Files.size(file);
+            if (size <= partSize) {
+                s3.putObject(r -> r.bucket(bucket).key(key), RequestBody.fromFile(file));
+            } else {
+                multipartUpload(key, file, size);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key, e);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private void multipartUpload(String key, Path file, long size) throws IOException {
+        String uploadId = s3.createMultipartUpload(r -> r.bucket(bucket).key(key)).uploadId();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate((int) partSize);
+
+            for (long offset = 0; offset < size; offset += partSize) {
+                int partNumber = parts.size() + 1;
+                buffer.clear().limit((int) Math.min(partSize, size - offset));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of " + file);
+                    }
+                }
+                buffer.flip();
+
+                String eTag = s3.uploadPart(r -> r.bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber),
+                        RequestBody.fromByteBuffer(buffer)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+
+            s3.completeMultipartUpload(r -> r.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(u -> u.parts(parts)));
+        } catch (IOException | SdkException e) {
+            abortQuietly(key, uploadId);
+            throw e;
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(r -> r.bucket(bucket).key(key).uploadId(uploadId));
+        } catch (SdkException e) {
+            log.warn("Failed to abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return s3.getObject(r -> r.bucket(bucket).key(key));
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return s3.getObject(r -> r.bucket(bucket).key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1)));
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + " bytes " + offset + "+" + length, e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return s3.headObject(r -> r.bucket(bucket).key(key)).contentLength();
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(r -> r.bucket(bucket).key(key));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Failed to stat " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(r -> r.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key, e);
+        }
+    }
+
+    @Override
+    public void deletePrefix(String prefix) throws IOException {
+        try {
+            List<ObjectIdentifier> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+            ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).build();
+
+            for (S3Object object : s3.listObjectsV2Paginator(request).contents()) {
+                batch.add(ObjectIdentifier.builder().key(object.key()).build());
+                if (batch.size() == DELETE_BATCH_SIZE) {
+                    deleteBatch(batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleteBatch(batch);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete objects under " + prefix, e);
+        }
+    }
+
+    /**
+     * Часть S3-совместимых хранилищ не реализует DeleteObjects — тогда объекты удаляются по одному.
+     */
+    private void deleteBatch(List<ObjectIdentifier> batch) {
+        if (batchDeleteSupported) {
+            Delete delete = Delete.builder().objects(List.copyOf(batch)).quiet(true).build();
+            try {
+                s3.deleteObjects(r -> r.bucket(bucket).delete(delete));
+                batch.clear();
+                return;
+            } catch (S3Exception e) {
+                if (e.statusCode() != 501) {
+                    throw e;
+                }
+                log.warn("Multi-object delete is not supported by the storage, deleting objects one by one");
+                batchDeleteSupported = false;
+            }
+        }
+        for (ObjectIdentifier object : batch) {
+            s3.deleteObject(r -> r.bucket(bucket).key(object.key()));
+        }
+        batch.clear();
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        return Files.createTempFile("nexus_blob_", ".tmp");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        s3.close();
+    }
+}
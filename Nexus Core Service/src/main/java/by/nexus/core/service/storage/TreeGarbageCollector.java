@@ -0,0 +1,243 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.repository.FileNodeRepository;
+import by.nexus.core.repository.FileVersionRepository;
+import by.nexus.core.repository.ProjectPermissionRepository;
+import by.nexus.core.repository.ProjectRepository;
+import by.nexus.core.service.tree.FileTreeIndexer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Фоново удаляет то, что API только помечает: узлы, удалённые дольше retention, и проекты, ожидающие удаления.
+ * Работа идёт пачками по batch-size узлов, каждая пачка — отдельная транзакция, между пачками — пауза,
+ * за проход — не больше max-batches пачек. Пачка снимает ссылки версий на содержимое (сами объекты удалит
+ * {@link ContentGarbageCollector}), затем удаляет версии и узлы. Узлы берутся от самых глубоких,
+ * так что дети удаляются раньше родителей. Реплики, запустившие проход одновременно, не удаляют одну пачку
+ * дважды: узлы блокируются, занятые другой репликой пропускаются.
+ */
+@Slf4j
+@Component
+public class TreeGarbageCollector {
+
+    private final FileNodeRepository fileNodeRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectPermissionRepository projectPermissionRepository;
+    private final ContentStore contentStore;
+    private final BlobStore blobStore;
+    private final FileTreeIndexer treeIndexer;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration batchPause;
+
+    private final Counter reclaimedNodes;
+    private final Counter reclaimedBytes;
+    private final AtomicLong deletedNodesBacklog = new AtomicLong();
+    private final AtomicLong deletedProjectsBacklog = new AtomicLong();
+
+    public TreeGarbageCollector(FileNodeRepository fileNodeRepository,
+                                FileVersionRepository fileVersionRepository,
+                                ProjectRepository projectRepository,
+                                ProjectPermissionRepository projectPermissionRepository,
+                                ContentStore contentStore,
+                                BlobStore blobStore,
+                                FileTreeIndexer treeIndexer,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${nexus.storage.gc.retention:7d}") Duration retention,
+                                @Value("${nexus.storage.gc.batch-size:500}") int batchSize,
+                                @Value("${nexus.storage.gc.max-batches:20}") int maxBatches,
+                                @Value("${nexus.storage.gc.batch-pause:200ms}") Duration batchPause) {
+        this.fileNodeRepository = fileNodeRepository;
+        this.fileVersionRepository = fileVersionRepository;
+        this.projectRepository = projectRepository;
+        this.projectPermissionRepository = projectPermissionRepository;
+        this.contentStore = contentStore;
+        this.blobStore = blobStore;
+        this.treeIndexer = treeIndexer;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.batchPause = batchPause;
+
+        this.reclaimedNodes = Counter.builder("nexus.gc.reclaimed.nodes")
+                .description("Удалённые сборщиком узлы дерева")
+                .register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("nexus.gc.reclaimed.bytes")
+                .description("Освобождённые в хранилище байты")
+                .baseUnit("bytes")
+                .tag("source", "legacy")
+                .register(meterRegistry);
+        Gauge.builder("nexus.gc.backlog", deletedNodesBacklog, AtomicLong::get)
+                .description("Удалённые узлы, ожидающие сборщика")
+                .tag("type", "nodes")
+                .register(meterRegistry);
+        Gauge.builder("nexus.gc.backlog", deletedProjectsBacklog, AtomicLong::get)
+                .description("Удалённые проекты, ожидающие сборщика")
+                .tag("type", "projects")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${nexus.storage.gc.interval:10m}")
+    public void collect() {
+        transactionTemplate.executeWithoutResult(status -> fileNodeRepository.backfillDeletedAt(Instant.now()));
+
+        int budget = maxBatches;
+        for (UUID projectId : projectRepository.findPendingDeletion(Limit.of(maxBatches))) {
+            if (budget <= 0) {
+                break;
+            }
+            try {
+                budget = collectProject(projectId, budget);
+            } catch (RuntimeException e) {
+                log.error("Failed to collect deleted project {}", projectId, e);
+            }
+        }
+
+        Instant before = Instant.now().minus(retention);
+        while (budget > 0) {
+            List<UUID> ids = fileNodeRepository.findExpiredDeleted(before, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int purged = purge(ids);
+            budget--;
+            // Пачку целиком удаляет другая реплика: не крутимся на тех же узлах до конца бюджета
+            if (purged == 0 || ids.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        deletedNodesBacklog.set(fileNodeRepository.countDeleted());
+        deletedProjectsBacklog.set(projectRepository.countByDeletedAtIsNotNull());
+    }
+
+    /**
+     * Удаляет дерево проекта пачками, а когда узлов не осталось — сам проект.
+     *
+     * @return оставшийся бюджет пачек
+     */
+    private int collectProject(UUID projectId, int budget) {
+        // Проект недоступен, поэтому объекты под его префиксом можно удалять раньше метаданных
+        deletePrefixes(projectId);
+        if (fileNodeRepository.existsByProjectIdAndTreePathIsNull(projectId)) {
+            transactionTemplate.executeWithoutResult(status -> treeIndexer.indexProject(projectId));
+        }
+
+        while (budget > 0) {
+            List<UUID> ids = fileNodeRepository.findIdsByProjectDeepestFirst(projectId, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    projectPermissionRepository.deleteAllByProjectId(projectId);
+                    projectRepository.deletePending(projectId);
+                });
+                log.info("Deleted project {}", projectId);
+                return budget;
+            }
+            int purged = purge(ids);
+            budget--;
+            if (purged == 0 || !pause()) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Ключи папок, объекты, записанные до адресации по содержимому, и корневые папки старых проектов,
+     * хранящие абсолютный путь.
+     */
+    private void deletePrefixes(UUID projectId) {
+        List<String> prefixes = fileNodeRepository.findRootStorageKeys(projectId).stream()
+                .filter(key -> !ContentStore.isContentAddressed(key) && !key.startsWith(projectId + "/"))
+                .collect(Collectors.toCollection(ArrayList::new));
+        prefixes.add(projectId + "/");
+        for (String prefix : prefixes) {
+            try {
+                blobStore.deletePrefix(prefix);
+            } catch (IOException e) {
+                log.error("Failed to delete project content: {}", prefix, e);
+            }
+        }
+    }
+
+    /**
+     * Одна пачка узлов в одной транзакции. Ссылки снимаются только за версии заблокированных узлов:
+     * иначе две реплики, взявшие одну пачку, сняли бы их дважды и сборщик удалил бы общее содержимое
+     * живых версий. Объекты, записанные до адресации по содержимому, удаляются после фиксации,
+     * чтобы откат не оставил версии без данных.
+     *
+     * @return число удалённых этим вызовом узлов
+     */
+    private int purge(List<UUID> ids) {
+        List<UUID> locked = new ArrayList<>();
+        List<String> legacyKeys = transactionTemplate.execute(status -> {
+            fileNodeRepository.lockForPurge(ids).stream().map(FileNode::getId).forEach(locked::add);
+            if (locked.isEmpty()) {
+                return List.of();
+            }
+            List<String> keys = fileVersionRepository.lockContentVersionsByFileNodeIds(locked).stream()
+                    .map(FileVersion::getStorageKey)
+                    .toList();
+            keys.stream()
+                    .filter(ContentStore::isContentAddressed)
+                    .collect(Collectors.groupingBy(key -> key, Collectors.counting()))
+                    .forEach(contentStore::release);
+
+            fileNodeRepository.detach(locked);
+            fileVersionRepository.deleteAllByFileNodeIds(locked);
+            fileNodeRepository.deleteAllByIdIn(locked);
+            return keys.stream().filter(key -> !ContentStore.isContentAddressed(key)).toList();
+        });
+        reclaimedNodes.increment(locked.size());
+
+        for (String key : legacyKeys) {
+            try {
+                long size = blobStore.exists(key) ? blobStore.size(key) : 0L;
+                blobStore.delete(key);
+                reclaimedBytes.increment(size);
+            } catch (IOException e) {
+                log.error("Failed to delete content {}", key, e);
+            }
+        }
+        return locked.size();
+    }
+
+    /**
+     * @return false, если поток прерван и проход нужно закончить
+     */
+    private boolean pause() {
+        if (batchPause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
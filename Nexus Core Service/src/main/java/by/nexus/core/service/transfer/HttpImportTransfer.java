@@ -0,0 +1,190 @@
+package by.nexus.core.service.transfer;
+
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Скачивание результата импорта по HTTP частями через Range-запросы.
+ * <ul>
+ *     <li>данные пишутся в {@code import_<ключ>.part} в каталоге {@code target}, без временного файла в /tmp;
+ *     ключ — SHA-256 результата из события, без него — хеш jobId и пути, так что повторная доставка того же
+ *     события находит файл прошлой попытки;</li>
+ *     <li>упавшая часть перезапрашивается, уже скачанные части не повторяются;</li>
+ *     <li>если Core остановился посреди скачивания, повторная доставка продолжает с конца {@code .part};</li>
+ *     <li>перед публикацией сверяется SHA-256 из события; при любой ошибке {@code .part} удаляется.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "nexus.import.transfer.mode", havingValue = "http", matchIfMissing = true)
+public class HttpImportTransfer implements ImportTransfer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RestTemplate restTemplate;
+    private final long chunkSize;
+    private final int maxAttempts;
+
+    public HttpImportTransfer(RestTemplate restTemplate,
+                              @Value("${nexus.import.transfer.chunk-size:8MB}") DataSize chunkSize,
+                              @Value("${nexus.import.transfer.max-attempts:5}") int maxAttempts) {
+        this.restTemplate = restTemplate;
+        this.chunkSize = Math.max(BUFFER_SIZE, chunkSize.toBytes());
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    @Override
+    public void transfer(ImportCompletedEvent event, Path target) throws IOException {
+        Path partial = partialFile(event, target);
+        long size = event.fileSize();
+
+        if (Files.exists(partial) && Files.size(partial) > size) {
+            Files.delete(partial);
+        }
+
+        try {
+            MessageDigest digest = sha256();
+            try (FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.READ)) {
+                long offset = out.size();
+                if (offset > 0) {
+                    log.info("Resuming transfer of {} from byte {}", event.storagePath(), offset);
+                    hashPrefix(out, offset, digest);
+                }
+
+                while (offset < size) {
+                    long end = Math.min(offset + chunkSize, size) - 1;
+                    digest = fetchChunk(URI.create(event.storagePath()), out, offset, end, digest);
+                    offset = end + 1;
+                }
+                out.force(true);
+            }
+
+            String checksum = HexFormat.of().formatHex(digest.digest());
+            if (event.checksum() != null && !event.checksum().equalsIgnoreCase(checksum)) {
+                throw new IOException("Checksum mismatch for " + event.storagePath()
+                        + ": expected " + event.checksum() + ", got " + checksum);
+            }
+
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+    }
+
+    /**
+     * Файл докачки не зависит от имени {@code target}: оно случайное у каждой попытки.
+     */
+    static Path partialFile(ImportCompletedEvent event, Path target) {
+        String key = event.checksum() != null && event.checksum().matches("[0-9a-fA-F]+")
+                ? event.checksum().toLowerCase()
+                : HexFormat.of().formatHex(sha256().digest(
+                        (event.jobId() + "\n" + event.storagePath()).getBytes(StandardCharsets.UTF_8)));
+        return target.resolveSibling("import_" + key + ".part");
+    }
+
+    /**
+     * Скачивает байты [start, end] в {@code out}. При ошибке файл обрезается до {@code start},
+     * а дайджест откатывается к состоянию до части, после чего часть запрашивается заново.
+     */
+    private MessageDigest fetchChunk(URI uri, FileChannel out, long start, long end, MessageDigest digest)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            MessageDigest chunkDigest = cloneDigest(digest);
+            try {
+                restTemplate.execute(uri, HttpMethod.GET,
+                        request -> request.getHeaders().setRange(List.of(HttpRange.createByteRange(start, end))),
+                        response -> {
+                            if (response.getStatusCode() != HttpStatus.PARTIAL_CONTENT) {
+                                throw new IOException("Range requests are not supported by " + uri
+                                        + " (status " + response.getStatusCode() + ")");
+                            }
+                            write(response.getBody(), out, start, end - start + 1, chunkDigest);
+                            return null;
+                        });
+                return chunkDigest;
+            } catch (RestClientException e) {
+                out.truncate(start);
+                if (attempt >= maxAttempts) {
+                    throw new IOException("Failed to fetch bytes " + start + "-" + end + " of " + uri, e);
+                }
+                log.warn("Chunk {}-{} of {} failed (attempt {}/{}), retrying", start, end, uri, attempt, maxAttempts);
+            }
+        }
+    }
+
+    private void write(InputStream in, FileChannel out, long position, long length, MessageDigest digest)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = length;
+        long offset = position;
+
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Unexpected end of stream at byte " + offset);
+            }
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                offset += out.write(chunk, offset);
+            }
+            digest.update(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private void hashPrefix(FileChannel channel, long length, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        while (position < length) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            digest.update(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package by.nexus.core.service.transfer;
+
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Доставка результата импорта из Data Processor в хранилище Core.
+ * После успешного вызова файл лежит в {@code target} целиком; до этого {@code target} не меняется.
+ */
+public interface ImportTransfer {
+    void transfer(ImportCompletedEvent event, Path target) throws IOException;
+}
@@ -0,0 +1,76 @@
+package by.nexus.core.service.transfer;
+
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Core и Data Processor видят один том: результат забирается без копирования.
+ * Сначала пробуется жёсткая ссылка (файл остаётся и у процессора, повторная доставка задачи
+ * его переиспользует), затем атомарное перемещение. Оба способа работают только в пределах
+ * одной файловой системы.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "nexus.import.transfer.mode", havingValue = "shared")
+public class SharedVolumeImportTransfer implements ImportTransfer {
+
+    private final Path sharedPath;
+
+    public SharedVolumeImportTransfer(@Value("${nexus.import.transfer.shared-path}") String sharedPath) {
+        this.sharedPath = Paths.get(sharedPath);
+    }
+
+    @Override
+    public void transfer(ImportCompletedEvent event, Path target) throws IOException {
+        Path source = resolveSource(event);
+        if (Files.size(source) != event.fileSize()) {
+            throw new IOException("Import result " + source + " has unexpected size " + Files.size(source));
+        }
+
+        Path staged = target.resolveSibling(target.getFileName() + ".link");
+        Files.deleteIfExists(staged);
+
+        boolean linked;
+        try {
+            Files.createLink(staged, source);
+            linked = true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Hard link is not available for {}, moving instead", source, e);
+            Files.move(source, staged, StandardCopyOption.ATOMIC_MOVE);
+            linked = false;
+        }
+
+        try {
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // Перемещённый результат возвращается процессору, лишняя ссылка просто удаляется
+            if (linked) {
+                Files.deleteIfExists(staged);
+            } else {
+                Files.move(staged, source, StandardCopyOption.ATOMIC_MOVE);
+            }
+            throw e;
+        }
+    }
+
+    private Path resolveSource(ImportCompletedEvent event) throws IOException {
+        String path = URI.create(event.storagePath()).getPath();
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+
+        Path source = sharedPath.resolve(fileName).normalize();
+        if (!source.startsWith(sharedPath.normalize()) || !Files.isRegularFile(source)) {
+            throw new IOException("Import result " + fileName + " is not found in " + sharedPath);
+        }
+        return source;
+    }
+}
@@ -0,0 +1,38 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.model.entity.FileNode;
+
+import java.util.UUID;
+
+/**
+ * Одна операция пакета. {@code parentId} — папка для CREATE и новая папка для MOVE,
+ * {@code name} — имя для CREATE и новое имя для RENAME.
+ */
+public record BulkOperation(
+        Action action,
+        UUID nodeId,
+        UUID parentId,
+        String name,
+        FileNode.FileType type
+) {
+
+    public enum Action {
+        CREATE, MOVE, RENAME, DELETE
+    }
+
+    public static BulkOperation create(UUID parentId, String name, FileNode.FileType type) {
+        return new BulkOperation(Action.CREATE, null, parentId, name, type);
+    }
+
+    public static BulkOperation move(UUID nodeId, UUID targetParentId) {
+        return new BulkOperation(Action.MOVE, nodeId, targetParentId, null, null);
+    }
+
+    public static BulkOperation rename(UUID nodeId, String newName) {
+        return new BulkOperation(Action.RENAME, nodeId, null, newName, null);
+    }
+
+    public static BulkOperation delete(UUID nodeId) {
+        return new BulkOperation(Action.DELETE, nodeId, null, null, null);
+    }
+}
@@ -0,0 +1,340 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.exception.FileNodeNotExistsException;
+import by.nexus.core.model.dto.SubtreeExtent;
+import by.nexus.core.model.dto.TreeNodeRef;
+import by.nexus.core.model.entity.FileNode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * План пакета операций над деревом: операции применяются по порядку к модели дерева в памяти и проверяются
+ * на ней, а в БД уходят готовые {@link SubtreeRewrite} и список создаваемых узлов.
+ * В модели только узлы, на которые ссылается пакет, и имена детей затронутых папок — этого хватает,
+ * чтобы проверить конфликты имён, циклы и принадлежность проекту без запросов на каждую операцию.
+ * Для перемещаемых и переименовываемых узлов известны самые длинные пути их поддеревьев ({@link SubtreeExtent}):
+ * по ним проверяется, что пути поместятся в колонки. Поддеревья, перенесённые или созданные в пакете, удлиняют
+ * поддеревья предков в модели; укорочение не учитывается, так что проверка может быть только строже.
+ * Созданные в пакете узлы не могут быть целью следующих операций того же пакета.
+ */
+public class BulkTreePlan {
+
+    private final UUID projectId;
+    private final Map<UUID, PlanNode> nodes = new HashMap<>();
+    private final NavigableMap<String, PlanNode> byTreePath = new TreeMap<>();
+    private final Map<UUID, Set<String>> childNames = new HashMap<>();
+    private final List<SubtreeRewrite> rewrites = new ArrayList<>();
+    private final List<PendingCreate> creates = new ArrayList<>();
+    private final List<Step> steps = new ArrayList<>();
+
+    public BulkTreePlan(UUID projectId, Collection<TreeNodeRef> referenced, Collection<TreeNodeRef> children,
+                        Collection<SubtreeExtent> extents) {
+        this.projectId = projectId;
+        for (TreeNodeRef ref : referenced) {
+            PlanNode node = new PlanNode(ref);
+            nodes.put(node.id, node);
+            byTreePath.put(node.treePath, node);
+        }
+        for (TreeNodeRef child : children) {
+            childNames.computeIfAbsent(child.parentId(), id -> new HashSet<>()).add(child.name());
+        }
+        for (SubtreeExtent extent : extents) {
+            PlanNode node = nodes.get(extent.rootId());
+            if (node != null) {
+                node.treePathExtra = extent.treePathLength() - node.treePath.length();
+                node.namePathExtra = extent.namePathLength() - node.namePath.length();
+            }
+        }
+    }
+
+    /**
+     * Папки, имена детей которых нужны для проверки пакета: родители затронутых узлов, цели CREATE и MOVE.
+     */
+    public static Set<UUID> affectedParents(Collection<TreeNodeRef> referenced, Collection<BulkOperation> operations) {
+        Set<UUID> parents = new LinkedHashSet<>();
+        for (TreeNodeRef ref : referenced) {
+            if (ref.parentId() != null) {
+                parents.add(ref.parentId());
+            }
+        }
+        for (BulkOperation operation : operations) {
+            if (operation.parentId() != null) {
+                parents.add(operation.parentId());
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * id узлов, на которые ссылаются операции.
+     */
+    public static Set<UUID> referencedIds(Collection<BulkOperation> operations) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (BulkOperation operation : operations) {
+            if (operation.nodeId() != null) {
+                ids.add(operation.nodeId());
+            }
+            if (operation.parentId() != null) {
+                ids.add(operation.parentId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Узлы, пути поддеревьев которых меняет пакет: для них нужны {@link SubtreeExtent}.
+     */
+    public static Set<UUID> rewrittenIds(Collection<BulkOperation> operations) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (BulkOperation operation : operations) {
+            if (operation.action() == BulkOperation.Action.MOVE || operation.action() == BulkOperation.Action.RENAME) {
+                ids.add(operation.nodeId());
+            }
+        }
+        return ids;
+    }
+
+    public void apply(BulkOperation operation) {
+        switch (operation.action()) {
+            case CREATE -> create(operation);
+            case MOVE -> move(operation);
+            case RENAME -> rename(operation);
+            case DELETE -> delete(operation);
+        }
+    }
+
+    private void create(BulkOperation operation) {
+        PlanNode parent = requireFolder(operation.parentId());
+        TreePath.requireValidName(operation.name());
+        if (operation.type() == null) {
+            throw new IllegalArgumentException("Node type is required to create '" + operation.name() + "'");
+        }
+        int treePathLength = parent.treePath.length() + TreePath.SEGMENT_LENGTH;
+        int namePathLength = TreePath.childNamePath(parent.namePath, operation.name()).length();
+        TreePath.requireFits(treePathLength, namePathLength);
+        claimName(parent.id, operation.name());
+
+        List<UUID> ancestors = new ArrayList<>(TreePath.ancestors(parent.treePath));
+        ancestors.add(parent.id);
+        grow(ancestors, treePathLength, namePathLength);
+
+        PendingCreate create = new PendingCreate(parent, operation.name(), operation.type());
+        creates.add(create);
+        steps.add(new Step(null, create));
+    }
+
+    private void move(BulkOperation operation) {
+        PlanNode node = require(operation.nodeId());
+        PlanNode target = requireFolder(operation.parentId());
+        if (node.parentId == null) {
+            throw new IllegalArgumentException("Project root cannot be moved");
+        }
+        if (TreePath.isInSubtree(target.treePath, node.treePath)) {
+            throw new IllegalArgumentException("Cannot move a folder into itself");
+        }
+
+        steps.add(new Step(node.id, null));
+        if (target.id.equals(node.parentId)) {
+            return;
+        }
+        claimName(target.id, node.name);
+        childNames.computeIfAbsent(node.parentId, id -> new HashSet<>()).remove(node.name);
+
+        rewrite(node, target.id, node.name,
+                TreePath.child(target.treePath, node.id),
+                TreePath.childNamePath(target.namePath, node.name),
+                target.depth + 1 - node.depth,
+                false);
+        node.parentId = target.id;
+    }
+
+    private void rename(BulkOperation operation) {
+        PlanNode node = require(operation.nodeId());
+        TreePath.requireValidName(operation.name());
+        if (node.parentId == null) {
+            throw new IllegalArgumentException("Project root cannot be renamed");
+        }
+
+        steps.add(new Step(node.id, null));
+        if (node.name.equals(operation.name())) {
+            return;
+        }
+        claimName(node.parentId, operation.name());
+        childNames.get(node.parentId).remove(node.name);
+
+        String parentNamePath = node.namePath.substring(0, node.namePath.length() - node.name.length() - 1);
+        rewrite(node, node.parentId, operation.name(),
+                node.treePath,
+                TreePath.childNamePath(parentNamePath, operation.name()),
+                0,
+                false);
+        node.name = operation.name();
+    }
+
+    private void delete(BulkOperation operation) {
+        PlanNode node = require(operation.nodeId());
+
+        steps.add(new Step(node.id, null));
+        rewrite(node, node.parentId, node.name, node.treePath, node.namePath, 0, true);
+    }
+
+    /**
+     * Записывает изменение поддерева и переносит его на узлы модели внутри поддерева.
+     */
+    private void rewrite(PlanNode node, UUID parentId, String name, String newTreePath, String newNamePath,
+                         int depthDelta, boolean delete) {
+        int treePathLength = newTreePath.length() + node.treePathExtra;
+        int namePathLength = newNamePath.length() + node.namePathExtra;
+        TreePath.requireFits(treePathLength, namePathLength);
+
+        String from = node.treePath;
+        String to = TreePath.subtreeEnd(from);
+        int oldTreePathLength = from.length();
+        int oldNamePathLength = node.namePath.length();
+        rewrites.add(new SubtreeRewrite(
+                from, to, node.id, parentId, name,
+                oldTreePathLength, newTreePath, oldNamePathLength, newNamePath,
+                depthDelta, delete
+        ));
+
+        Map<String, PlanNode> subtree = byTreePath.subMap(from, true, to, false);
+        List<PlanNode> moved = new ArrayList<>(subtree.values());
+        subtree.clear();
+        for (PlanNode member : moved) {
+            member.treePath = newTreePath + member.treePath.substring(oldTreePathLength);
+            member.namePath = newNamePath + member.namePath.substring(oldNamePathLength);
+            member.depth += depthDelta;
+            member.deleted |= delete;
+            byTreePath.put(member.treePath, member);
+        }
+        grow(TreePath.ancestors(newTreePath), treePathLength, namePathLength);
+    }
+
+    /**
+     * Поддерево с самыми длинными путями заданной длины оказалось под узлами {@code ancestors}.
+     */
+    private void grow(List<UUID> ancestors, int treePathLength, int namePathLength) {
+        for (UUID id : ancestors) {
+            PlanNode ancestor = nodes.get(id);
+            if (ancestor != null) {
+                ancestor.treePathExtra = Math.max(ancestor.treePathExtra, treePathLength - ancestor.treePath.length());
+                ancestor.namePathExtra = Math.max(ancestor.namePathExtra, namePathLength - ancestor.namePath.length());
+            }
+        }
+    }
+
+    private PlanNode require(UUID id) {
+        PlanNode node = nodes.get(id);
+        if (node == null) {
+            throw new FileNodeNotExistsException("FileNode with id " + id + " not exists");
+        }
+        if (!node.projectId.equals(projectId)) {
+            throw new IllegalArgumentException("FileNode " + id + " does not belong to project " + projectId);
+        }
+        if (node.deleted) {
+            throw new IllegalArgumentException("FileNode " + id + " is deleted");
+        }
+        return node;
+    }
+
+    private PlanNode requireFolder(UUID id) {
+        PlanNode node = require(id);
+        if (node.type != FileNode.FileType.FOLDER) {
+            throw new IllegalArgumentException("Target " + id + " is not a folder");
+        }
+        return node;
+    }
+
+    private void claimName(UUID parentId, String name) {
+        if (!childNames.computeIfAbsent(parentId, id -> new HashSet<>()).add(name)) {
+            throw new IllegalArgumentException("File with name '" + name + "' already exists");
+        }
+    }
+
+    public List<SubtreeRewrite> rewrites() {
+        return rewrites;
+    }
+
+    public List<PendingCreate> creates() {
+        return creates;
+    }
+
+    /**
+     * id узлов по операциям; вызывается после того, как созданным узлам присвоены id.
+     */
+    public List<UUID> resultIds() {
+        return steps.stream()
+                .map(step -> step.create() != null ? step.create().getId() : step.nodeId())
+                .toList();
+    }
+
+    private record Step(UUID nodeId, PendingCreate create) {
+    }
+
+    /**
+     * Узел модели. Пути и глубина меняются вместе с поддеревом, в котором он находится.
+     */
+    @Getter
+    public static final class PlanNode {
+        private final UUID id;
+        private final UUID projectId;
+        private final FileNode.FileType type;
+        private UUID parentId;
+        private String name;
+        private String treePath;
+        private String namePath;
+        private int depth;
+        private boolean deleted;
+        /**
+         * На сколько самые длинные пути поддерева длиннее путей самого узла.
+         */
+        private int treePathExtra;
+        private int namePathExtra;
+
+        private PlanNode(TreeNodeRef ref) {
+            if (ref.treePath() == null) {
+                throw new IllegalStateException("FileNode " + ref.id() + " has no tree path");
+            }
+            this.id = ref.id();
+            this.projectId = ref.projectId();
+            this.type = ref.type();
+            this.parentId = ref.parentId();
+            this.name = ref.name();
+            this.treePath = ref.treePath();
+            this.namePath = ref.namePath();
+            this.depth = ref.depth();
+            this.deleted = ref.deleted();
+        }
+    }
+
+    /**
+     * Узел, который будет создан после применения изменений поддеревьев. Путь считается от итогового
+     * положения родителя: родителя могли переместить или удалить следующие операции пакета.
+     */
+    @Getter
+    public static final class PendingCreate {
+        private final PlanNode parent;
+        private final String name;
+        private final FileNode.FileType type;
+        @Setter
+        private UUID id;
+
+        private PendingCreate(PlanNode parent, String name, FileNode.FileType type) {
+            this.parent = parent;
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
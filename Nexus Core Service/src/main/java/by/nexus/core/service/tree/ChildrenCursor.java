@@ -0,0 +1,36 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.model.entity.FileNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция keyset-пагинации по содержимому папки: последний отданный узел в порядке {@code (type, name, id)},
+ * как в списке файлов проекта. Клиенту отдаётся как base64url от {@code <id><type>:<name>}: id фиксированной
+ * длины, тип до первого двоеточия, имя — остаток строки.
+ */
+public record ChildrenCursor(FileNode.FileType type, String name, UUID id) {
+
+    private static final int UUID_LENGTH = 36;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + type.name() + ":" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChildrenCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':', UUID_LENGTH);
+            return new ChildrenCursor(
+                    FileNode.FileType.valueOf(value.substring(UUID_LENGTH, separator)),
+                    value.substring(separator + 1),
+                    UUID.fromString(value.substring(0, UUID_LENGTH))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
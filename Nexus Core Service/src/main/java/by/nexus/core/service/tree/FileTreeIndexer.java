@@ -0,0 +1,86 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.repository.FileNodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Заполняет материализованные пути у узлов, созданных до их появления.
+ * Проект индексируется целиком за один проход в памяти, один раз.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileTreeIndexer {
+
+    private final FileNodeRepository fileNodeRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<UUID> projectIds = fileNodeRepository.findProjectIdsWithoutTreePath();
+        if (projectIds.isEmpty()) {
+            return;
+        }
+
+        log.info("Building tree paths for {} projects", projectIds.size());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (UUID projectId : projectIds) {
+            try {
+                transaction.executeWithoutResult(status -> indexProject(projectId));
+            } catch (RuntimeException e) {
+                log.error("Failed to build tree paths for project {}", projectId, e);
+            }
+        }
+    }
+
+    /**
+     * Вызывается в транзакции: из сервиса, если встретился узел без пути, и из {@link #backfill()}.
+     */
+    public void indexProject(UUID projectId) {
+        List<FileNode> nodes = fileNodeRepository.findAllByProjectSorted(projectId);
+
+        Map<UUID, List<FileNode>> children = new HashMap<>();
+        Deque<FileNode> queue = new ArrayDeque<>();
+        for (FileNode node : nodes) {
+            if (node.getParent() == null) {
+                node.setTreePath(TreePath.segment(node.getId()));
+                node.setNamePath("");
+                node.setDepth(0);
+                queue.add(node);
+            } else {
+                children.computeIfAbsent(node.getParent().getId(), id -> new ArrayList<>()).add(node);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            FileNode parent = queue.poll();
+            for (FileNode child : children.getOrDefault(parent.getId(), List.of())) {
+                assignChildPaths(parent, child);
+                queue.add(child);
+            }
+        }
+
+        fileNodeRepository.saveAll(nodes);
+    }
+
+    public static void assignChildPaths(FileNode parent, FileNode child) {
+        child.setTreePath(TreePath.child(parent.getTreePath(), child.getId()));
+        child.setNamePath(TreePath.childNamePath(parent.getNamePath(), child.getName()));
+        child.setDepth(parent.getDepth() + 1);
+    }
+}
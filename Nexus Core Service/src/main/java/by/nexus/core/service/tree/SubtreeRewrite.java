@@ -0,0 +1,22 @@
+package by.nexus.core.service.tree;
+
+import java.util.UUID;
+
+/**
+ * Изменение поддерева {@code [from, to)} одним UPDATE: у корня поддерева меняются родитель и имя,
+ * у всех узлов — префиксы путей и глубина; {@code delete} помечает поддерево удалённым.
+ */
+public record SubtreeRewrite(
+        String from,
+        String to,
+        UUID nodeId,
+        UUID parentId,
+        String name,
+        int oldTreePathLength,
+        String newTreePath,
+        int oldNamePathLength,
+        String newNamePath,
+        int depthDelta,
+        boolean delete
+) {
+}
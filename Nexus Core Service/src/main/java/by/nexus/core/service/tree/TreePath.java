@@ -0,0 +1,115 @@
+package by.nexus.core.service.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Материализованный путь узла: id всех предков от корня и самого узла, по 32 hex-символа без разделителей.
+ * Путь состоит только из {@code [0-9a-f]}, поэтому поддерево — непрерывный диапазон строк
+ * {@code [path, path + "g")} в индексе при любой collation базы.
+ */
+public final class TreePath {
+
+    public static final int SEGMENT_LENGTH = 32;
+
+    /**
+     * Длина колонок {@code tree_path} и {@code name_path}.
+     */
+    public static final int MAX_PATH_LENGTH = 2048;
+
+    public static final int MAX_DEPTH = MAX_PATH_LENGTH / SEGMENT_LENGTH - 1;
+
+    public static final int MAX_NAME_LENGTH = 255;
+
+    /**
+     * Символ сразу после {@code f}: верхняя граница диапазона поддерева.
+     */
+    private static final String UPPER_BOUND_SUFFIX = "g";
+
+    private TreePath() {
+    }
+
+    public static String segment(UUID id) {
+        return id.toString().replace("-", "");
+    }
+
+    public static String child(String parentPath, UUID id) {
+        return (parentPath == null ? "" : parentPath) + segment(id);
+    }
+
+    public static int depth(String path) {
+        return path.length() / SEGMENT_LENGTH - 1;
+    }
+
+    /**
+     * Исключающая верхняя граница поддерева с корнем {@code path}.
+     */
+    public static String subtreeEnd(String path) {
+        return path + UPPER_BOUND_SUFFIX;
+    }
+
+    /**
+     * id предков от корня, без самого узла.
+     */
+    public static List<UUID> ancestors(String path) {
+        List<UUID> ids = new ArrayList<>();
+        for (int start = 0; start + SEGMENT_LENGTH < path.length(); start += SEGMENT_LENGTH) {
+            ids.add(toUuid(path.substring(start, start + SEGMENT_LENGTH)));
+        }
+        return ids;
+    }
+
+    /**
+     * Имя узла — один сегмент пути по именам: без {@code /} и не пустое, иначе поиск по пути стал бы неоднозначным.
+     */
+    public static void requireValidName(String name) {
+        if (name == null || name.isBlank() || name.contains("/") || name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid node name: '" + name + "'");
+        }
+    }
+
+    /**
+     * Проверяет, что пути узла (или самые длинные пути поддерева) помещаются в колонки путей.
+     */
+    public static void requireFits(int treePathLength, int namePathLength) {
+        if (treePathLength > MAX_PATH_LENGTH) {
+            throw new IllegalArgumentException("Tree is too deep: at most " + MAX_DEPTH + " nested levels are allowed");
+        }
+        if (namePathLength > MAX_PATH_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Path is too long: at most " + MAX_PATH_LENGTH + " characters are allowed");
+        }
+    }
+
+    public static boolean isInSubtree(String path, String subtreeRoot) {
+        return path.startsWith(subtreeRoot);
+    }
+
+    /**
+     * Путь по именам: {@code /a/b} для узла b в папке a корня проекта. У корня — пустая строка.
+     */
+    public static String childNamePath(String parentNamePath, String name) {
+        return (parentNamePath == null ? "" : parentNamePath) + "/" + name;
+    }
+
+    /**
+     * Приводит путь из запроса к виду {@code /a/b}: без завершающего слэша и пустых сегментов.
+     */
+    public static String normalizeNamePath(String path) {
+        StringBuilder normalized = new StringBuilder();
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                normalized.append('/').append(part);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static UUID toUuid(String hex) {
+        return new UUID(
+                Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16), 16)
+        );
+    }
+}
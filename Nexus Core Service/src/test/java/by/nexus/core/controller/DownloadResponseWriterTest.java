@@ -0,0 +1,143 @@
+package by.nexus.core.controller;
+
+import by.nexus.core.service.storage.ContentResource;
+import by.nexus.core.service.storage.ContentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DownloadResponseWriterTest {
+
+    private static final String CONTENT = "0123456789";
+    private static final String ETAG = "abc123";
+    private static final Instant MODIFIED = Instant.parse("2024-05-01T10:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemResource file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = new FileSystemResource(Files.writeString(tempDir.resolve("data.nxdt"), CONTENT));
+        request = new MockHttpServletRequest("GET", "/api/v1/content/id");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void fullDownloadAdvertisesRangesAndValidators() throws Exception {
+        write();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("\"" + ETAG + "\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(MODIFIED.toEpochMilli(), response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void matchingEtagReturnsNotModified() throws Exception {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\"");
+
+        write();
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        write();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void multipleRangesAreSentAsByteranges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,-3");
+
+        write();
+
+        String body = response.getContentAsString();
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 7-9/10\r\n\r\n789"));
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-");
+
+        write();
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void staleIfRangeReturnsWholeContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        write();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void localFileIsHandedToSendfile() throws Exception {
+        request.setAttribute(DownloadResponseWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+
+        write();
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.getFile().getAbsolutePath(), request.getAttribute(DownloadResponseWriter.SENDFILE_FILENAME));
+        assertEquals(4L, request.getAttribute(DownloadResponseWriter.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(DownloadResponseWriter.SENDFILE_END));
+    }
+
+    @Test
+    void remoteContentIsReadOnlyForRequestedRange() throws Exception {
+        ContentStore contentStore = mock(ContentStore.class);
+        String key = "sha256/ab/abc";
+        when(contentStore.exists(key)).thenReturn(true);
+        when(contentStore.size(key)).thenReturn(10L);
+        when(contentStore.open(key, 6, 4)).thenReturn(new ByteArrayInputStream("6789".getBytes(StandardCharsets.UTF_8)));
+        request.addHeader(HttpHeaders.RANGE, "bytes=6-");
+
+        DownloadResponseWriter.write(request, response, new ContentResource(contentStore, key), ETAG, MODIFIED, "data");
+
+        assertEquals("6789", response.getContentAsString());
+        verify(contentStore).open(key, 6, 4);
+    }
+
+    private void write() throws Exception {
+        DownloadResponseWriter.write(request, response, file, ETAG, MODIFIED, "data.nxdt");
+    }
+}
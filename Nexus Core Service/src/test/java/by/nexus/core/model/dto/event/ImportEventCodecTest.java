@@ -0,0 +1,123 @@
+package by.nexus.core.model.dto.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportEventCodecTest {
+
+    private static final String REQUEST_V1_FINGERPRINT = "9dab5321de4d138a";
+    private static final String COMPLETED_V1_FINGERPRINT = "1dbaed72478df446";
+
+    private final ImportEventSerializer serializer = new ImportEventSerializer();
+    private final ImportEventDeserializer deserializer = new ImportEventDeserializer();
+
+    @Test
+    void importRequest_ShouldRoundTrip() {
+        ImportRequestEvent event = new ImportRequestEvent(
+                "user:project:folder:1", "project", "jdbc:postgresql://db:5432/app", "app", "secret",
+                "SELECT * FROM orders", "id", 8, "HIGH", "updated_at", "2026-01-01T00:00:00Z");
+
+        byte[] data = serializer.serialize("import-requests", event);
+
+        assertTrue(ImportEventCodec.isEncoded(data));
+        assertEquals(event, deserializer.deserialize("import-requests", data));
+    }
+
+    @Test
+    void importCompleted_ShouldRoundTripWithNullFields() {
+        ImportCompletedEvent event = new ImportCompletedEvent(
+                "user:project:folder:1", "FAILED", null, 0, null, "Connection refused", null, null);
+
+        Object decoded = deserializer.deserialize("import-completed", serializer.serialize("import-completed", event));
+
+        assertEquals(event, decoded);
+    }
+
+    @Test
+    void strings_ShouldPassThroughAsUtf8() {
+        String json = "{\"projectId\":\"4f1c\",\"userId\":\"пользователь\"}";
+
+        byte[] data = serializer.serialize("permission-invalidations", json);
+
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), data);
+        assertFalse(ImportEventCodec.isEncoded(data));
+        assertEquals(json, deserializer.deserialize("permission-invalidations", data));
+        assertNull(deserializer.deserialize("permission-invalidations", null));
+    }
+
+    @Test
+    void binaryEncoding_ShouldBeSmallerThanJson() {
+        ImportCompletedEvent event = new ImportCompletedEvent(
+                "user:project:folder:1", "SUCCESS", "lb://NEXUS-DATA-PROCESSOR:8082/api/internal/files/result.parquet",
+                123_456_789L, "ab".repeat(32), null, "updated_at", "2026-01-01T00:00:00Z");
+        String json = "{\"jobId\":\"user:project:folder:1\",\"status\":\"SUCCESS\",\"storagePath\":"
+                + "\"lb://NEXUS-DATA-PROCESSOR:8082/api/internal/files/result.parquet\",\"fileSize\":123456789,"
+                + "\"checksum\":\"" + "ab".repeat(32) + "\",\"errorMessage\":null,\"watermarkColumn\":\"updated_at\","
+                + "\"watermark\":\"2026-01-01T00:00:00Z\"}";
+
+        assertTrue(ImportEventCodec.encode(event).length < json.length() * 3 / 4);
+    }
+
+    @Test
+    void unknownSchema_ShouldBeRejected() {
+        // Следующая версия схемы, о которой этот потребитель ещё не знает
+        Schema next = SchemaBuilder.record("ImportCompleted").namespace("by.nexus.event").fields()
+                .requiredString("jobId")
+                .requiredString("status")
+                .name("rowCount").type().longType().longDefault(0)
+                .endRecord();
+        GenericRecord record = new GenericData.Record(next);
+        record.put("jobId", "1");
+        record.put("status", "SUCCESS");
+        record.put("rowCount", 10L);
+        byte[] data = toBytes(new BinaryMessageEncoder<GenericRecord>(GenericData.get(), next), record);
+
+        assertTrue(ImportEventCodec.isEncoded(data));
+        assertThrows(IllegalArgumentException.class, () -> ImportEventCodec.decode(data));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("import-completed", data));
+    }
+
+    @Test
+    void unsupportedType_ShouldFailToSerialize() {
+        assertThrows(SerializationException.class, () -> serializer.serialize("import-requests", 42));
+    }
+
+    /**
+     * Опубликованные версии схем не меняются: по ним читаются сообщения, уже лежащие в топиках,
+     * и те же fingerprint ждут Data Processor и Sync.
+     */
+    @Test
+    void publishedSchemas_ShouldKeepTheirFingerprints() {
+        assertEquals(REQUEST_V1_FINGERPRINT,
+                Long.toHexString(SchemaNormalization.parsingFingerprint64(ImportEventCodec.IMPORT_REQUEST)));
+        assertEquals(COMPLETED_V1_FINGERPRINT,
+                Long.toHexString(SchemaNormalization.parsingFingerprint64(ImportEventCodec.IMPORT_COMPLETED)));
+    }
+
+    private static byte[] toBytes(BinaryMessageEncoder<GenericRecord> encoder, GenericRecord record) {
+        try {
+            ByteBuffer buffer = encoder.encode(record);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package by.nexus.core.model.dto.event;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Поток событий {@link ImportCompletedEvent} через встроенный брокер с целевой скоростью 10k событий/с:
+ * JSON по одному сообщению без сжатия, как было раньше, и Avro single-object encoding с пакетами lz4.
+ * Печатает достигнутую скорость, байт на событие в запросах к брокеру, задержку подтверждения и скорость
+ * чтения с декодированием.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*ImportEventKafkaBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class ImportEventKafkaBenchmark {
+
+    private static final int TARGET_RATE = 10_000;
+    private static final int EVENTS = 50_000;
+    private static final int WARMUP_EVENTS = 5_000;
+
+    private static EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, "json-warmup", "json", "avro-warmup", "avro");
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void compareJsonAndBatchedBinary() {
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+        Map<String, Object> json = Map.of(
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 0);
+        Map<String, Object> avro = Map.of(
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ImportEventSerializer.class,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+                ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024,
+                ProducerConfig.LINGER_MS_CONFIG, 10);
+
+        run("json", json, jsonMapper::writeValueAsString);
+        run("avro+lz4", avro, event -> event);
+    }
+
+    private static <V> void run(String label, Map<String, Object> settings,
+                                Function<ImportCompletedEvent, V> value) {
+        String topic = label.startsWith("json") ? "json" : "avro";
+        Map<String, Object> props = new HashMap<>(settings);
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+
+        try (KafkaProducer<String, Object> producer = new KafkaProducer<>(props)) {
+            produce(producer, topic + "-warmup", WARMUP_EVENTS, value);
+            double outgoingBefore = metric(producer, "outgoing-byte-total");
+
+            long[] ackNanos = new long[EVENTS];
+            long start = System.nanoTime();
+            produceMeasured(producer, topic, value, ackNanos, start);
+            producer.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double outgoing = metric(producer, "outgoing-byte-total") - outgoingBefore;
+
+            Arrays.sort(ackNanos);
+            System.out.printf("%-9s produce %8.0f events/s  %6.1f B/event  ack p50 %6.2f ms  p99 %7.2f ms  batch %6.0f B%n",
+                    label, EVENTS / seconds, outgoing / EVENTS,
+                    ackNanos[EVENTS / 2] / 1e6, ackNanos[EVENTS * 99 / 100] / 1e6,
+                    metric(producer, "batch-size-avg"));
+        }
+        consume(label, topic);
+    }
+
+    /**
+     * Отправляет с шагом 1/{@link #TARGET_RATE}: если производитель не успевает, скорость окажется ниже цели.
+     */
+    private static <V> void produceMeasured(KafkaProducer<String, Object> producer, String topic,
+                                            Function<ImportCompletedEvent, V> value,
+                                            long[] ackNanos, long start) {
+        long interval = 1_000_000_000L / TARGET_RATE;
+        for (int i = 0; i < EVENTS; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int index = i;
+            long sent = System.nanoTime();
+            ImportCompletedEvent event = event(i);
+            producer.send(new ProducerRecord<>(topic, event.jobId(), value.apply(event)), (metadata, exception) -> {
+                if (exception != null) {
+                    throw new IllegalStateException(exception);
+                }
+                ackNanos[index] = System.nanoTime() - sent;
+            });
+        }
+    }
+
+    private static <V> void produce(KafkaProducer<String, Object> producer, String topic, int events,
+                                    Function<ImportCompletedEvent, V> value) {
+        for (int i = 0; i < events; i++) {
+            ImportCompletedEvent event = event(i);
+            producer.send(new ProducerRecord<>(topic, event.jobId(), value.apply(event)));
+        }
+        producer.flush();
+    }
+
+    private static void consume(String label, String topic) {
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "benchmark-" + topic,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+        ImportEventDeserializer deserializer = new ImportEventDeserializer();
+        int received = 0;
+
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props)) {
+            consumer.subscribe(List.of(topic));
+            long start = System.nanoTime();
+            long deadline = start + Duration.ofSeconds(60).toNanos();
+            while (received < EVENTS && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                    Object event = topic.equals("json")
+                            ? jsonMapper.readValue(record.value(), ImportCompletedEvent.class)
+                            : deserializer.deserialize(topic, record.value());
+                    if (!(event instanceof ImportCompletedEvent)) {
+                        throw new IllegalStateException("Unexpected value " + event);
+                    }
+                    received++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (received != EVENTS) {
+                throw new IllegalStateException(label + ": received " + received + " of " + EVENTS);
+            }
+            System.out.printf("%-9s consume %8.0f events/s%n", label, EVENTS / seconds);
+        }
+    }
+
+    private static double metric(KafkaProducer<String, Object> producer, String name) {
+        return producer.metrics().entrySet().stream()
+                .filter(entry -> entry.getKey().group().equals("producer-metrics") && entry.getKey().name().equals(name))
+                .map(Map.Entry::getValue)
+                .map(Metric::metricValue)
+                .mapToDouble(metric -> ((Number) metric).doubleValue())
+                .findFirst()
+                .orElse(Double.NaN);
+    }
+
+    private static ImportCompletedEvent event(int i) {
+        return new ImportCompletedEvent(
+                "user-" + (i % 100) + ":project-" + (i % 10) + ":folder:" + i,
+                i % 50 == 0 ? "FAILED" : "SUCCESS",
+                "lb://NEXUS-DATA-PROCESSOR:8082/api/internal/files/import-" + i + ".parquet",
+                1_048_576L + i,
+                Long.toHexString(i * 0x9E3779B97F4A7C15L).repeat(4),
+                i % 50 == 0 ? "Connection refused" : null,
+                "updated_at",
+                "2026-01-01T00:00:" + (i % 60) + "Z");
+    }
+}
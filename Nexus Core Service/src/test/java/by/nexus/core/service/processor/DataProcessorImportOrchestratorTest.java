@@ -0,0 +1,229 @@
+package by.nexus.core.service.processor;
+
+import by.nexus.core.exception.ImportInProgressException;
+import by.nexus.core.model.dto.DatabaseConnectionDetails;
+import by.nexus.core.model.dto.ImportOptions;
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.model.entity.ImportWatermark;
+import by.nexus.core.model.entity.Project;
+import by.nexus.core.repository.ImportWatermarkRepository;
+import by.nexus.core.service.FileSystemService;
+import by.nexus.core.service.transfer.ImportTransfer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class DataProcessorImportOrchestratorTest {
+
+    private static final String USER = "user@example.com";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final FileSystemService fileSystemService = mock(FileSystemService.class);
+    private final ImportTransfer importTransfer = mock(ImportTransfer.class);
+    private final ImportWatermarkRepository repository = mock(ImportWatermarkRepository.class);
+    private final NxdtDatasetAppender datasetAppender = mock(NxdtDatasetAppender.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @TempDir
+    Path tempDir;
+
+    private final UUID projectId = UUID.randomUUID();
+    private final UUID folderId = UUID.randomUUID();
+    private final UUID nodeId = UUID.randomUUID();
+    private ImportWatermark watermark;
+    private DataProcessorImportOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            return mock(TransactionStatus.class);
+        });
+        doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        when(kafkaTemplate.send(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(fileSystemService.createStagingFile()).thenAnswer(invocation -> Files.createTempFile(tempDir, "staged", ""));
+
+        Project project = Project.builder().id(projectId).build();
+        watermark = ImportWatermark.builder()
+                .fileNode(FileNode.builder().id(nodeId).project(project).build())
+                .watermarkColumn("updated_at")
+                .watermark("2026-01-01T00:00:00Z")
+                .build();
+        when(repository.findByFileNodeId(nodeId)).thenReturn(Optional.of(watermark));
+        when(repository.lockByFileNodeId(nodeId)).thenReturn(Optional.of(watermark));
+
+        orchestrator = new DataProcessorImportOrchestrator(kafkaTemplate, fileSystemService, importTransfer,
+                repository, datasetAppender, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(orchestrator, "importRequestTopic", "import-requests");
+        ReflectionTestUtils.setField(orchestrator, "lockTimeout", Duration.ofHours(6));
+    }
+
+    @Test
+    void startImportJob_WhileDatasetIsImported_ShouldBeRejected() {
+        when(repository.claim(eq(nodeId), anyString(), any(), any())).thenReturn(0);
+
+        assertThrows(ImportInProgressException.class, () -> startIncremental());
+        verify(kafkaTemplate, never()).send(anyString(), any());
+    }
+
+    @Test
+    void startImportJob_ShouldClaimDatasetForJob() {
+        when(repository.claim(eq(nodeId), anyString(), any(), any())).thenReturn(1);
+
+        String jobId = startIncremental();
+
+        assertEquals(nodeId.toString(), jobId.split(":")[4]);
+        verify(repository).claim(eq(nodeId), eq(jobId), any(), any());
+        verify(kafkaTemplate).send(eq("import-requests"), any());
+    }
+
+    @Test
+    void startImportJob_RequestNotSent_ShouldReleaseDataset() {
+        when(repository.claim(eq(nodeId), anyString(), any(), any())).thenReturn(1);
+        when(kafkaTemplate.send(anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("broker unavailable")));
+
+        String jobId = startIncremental();
+
+        verify(repository).release(nodeId, jobId);
+    }
+
+    @Test
+    void handleProgress_ShouldExtendClaim() {
+        String jobId = jobId("job");
+
+        orchestrator.handleProgress(new ImportCompletedEvent(jobId, "RUNNING", null, 0, null, null, "updated_at", null));
+
+        verify(repository).touch(eq(nodeId), eq(jobId), any());
+    }
+
+    @Test
+    void handleSuccess_FromJobNotHoldingDataset_ShouldDiscardDelta() throws Exception {
+        watermark.setPendingJobId(jobId("other"));
+        watermark.setPendingFrom(watermark.getWatermark());
+
+        orchestrator.handleSuccess(completed(jobId("stale")));
+
+        verify(importTransfer, never()).transfer(any(), any());
+        assertEquals(jobId("other"), watermark.getPendingJobId());
+        assertEquals("2026-01-01T00:00:00Z", watermark.getWatermark());
+    }
+
+    @Test
+    void handleSuccess_ExtractedFromOlderWatermark_ShouldDiscardDelta() throws Exception {
+        String jobId = jobId("job");
+        watermark.setPendingJobId(jobId);
+        watermark.setPendingFrom("2025-12-01T00:00:00Z");
+
+        orchestrator.handleSuccess(completed(jobId));
+
+        verify(importTransfer, never()).transfer(any(), any());
+        assertNull(watermark.getPendingJobId());
+        assertEquals("2026-01-01T00:00:00Z", watermark.getWatermark());
+    }
+
+    @Test
+    void handleSuccess_ShouldMergeDeltaWithoutHoldingDatasetLock() throws Exception {
+        String jobId = holdDataset("job");
+        doAnswer(invocation -> {
+            assertFalse(inTransaction.get(), "Delta must be transferred outside of the locking transaction");
+            return null;
+        }).when(importTransfer).transfer(any(), any());
+
+        orchestrator.handleSuccess(completed(jobId));
+
+        verify(datasetAppender).append(any(), any(), any());
+        verify(fileSystemService).writeContent(eq(nodeId), any(), eq(USER));
+        assertNull(watermark.getPendingJobId());
+        assertEquals("2026-02-01T00:00:00Z", watermark.getWatermark());
+    }
+
+    @Test
+    void handleSuccess_DatasetChangedWhileMerging_ShouldDiscardDelta() throws Exception {
+        String jobId = holdDataset("job");
+        doAnswer(invocation -> {
+            watermark.getFileNode().setCurrentVersion(FileVersion.builder().id(UUID.randomUUID()).build());
+            return null;
+        }).when(importTransfer).transfer(any(), any());
+
+        orchestrator.handleSuccess(completed(jobId));
+
+        verify(fileSystemService, never()).writeContent(any(), any(), anyString());
+        assertNull(watermark.getPendingJobId());
+        assertEquals("2026-01-01T00:00:00Z", watermark.getWatermark());
+    }
+
+    @Test
+    void handleFailure_ShouldReleaseDataset() {
+        String jobId = jobId("job");
+
+        orchestrator.handleFailure(new ImportCompletedEvent(jobId, "FAILED", null, 0, null, "boom", null, null));
+
+        verify(repository).release(nodeId, jobId);
+    }
+
+    private String startIncremental() {
+        return orchestrator.startImportJob(USER, projectId, folderId,
+                new DatabaseConnectionDetails("jdbc:postgresql://db/app", "app", "secret"),
+                "SELECT * FROM orders",
+                new ImportOptions(null, null, null, null, nodeId));
+    }
+
+    /**
+     * Датасет занят задачей и текущая версия читается из памяти.
+     */
+    private String holdDataset(String seed) {
+        String jobId = jobId(seed);
+        watermark.setPendingJobId(jobId);
+        watermark.setPendingFrom(watermark.getWatermark());
+        FileVersion version = FileVersion.builder().id(UUID.randomUUID()).storageKey("sha256/ab/ab").build();
+        watermark.getFileNode().setCurrentVersion(version);
+        when(fileSystemService.readContent(version)).thenReturn(new ByteArrayResource(new byte[]{1}));
+        return jobId;
+    }
+
+    private String jobId(String seed) {
+        return String.join(":", USER, projectId.toString(), folderId.toString(),
+                UUID.nameUUIDFromBytes(seed.getBytes()).toString(), nodeId.toString());
+    }
+
+    private static ImportCompletedEvent completed(String jobId) {
+        return new ImportCompletedEvent(jobId, "SUCCESS", "lb://processor/files/delta.parquet", 10, "ab",
+                null, "updated_at", "2026-02-01T00:00:00Z");
+    }
+}
@@ -0,0 +1,93 @@
+package by.nexus.core.service.processor;
+
+import com.github.baibeicha.nexus.io.parquet.ParquetIo;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.LocalOutputFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NxdtDatasetAppenderTest {
+
+    private static final Schema SCHEMA = SchemaBuilder.record("row").fields()
+            .requiredLong("id")
+            .optionalString("name")
+            .endRecord();
+
+    @TempDir
+    Path tempDir;
+
+    private final NxdtDatasetAppender appender = new NxdtDatasetAppender();
+
+    @Test
+    void append_ShouldAddDeltaRowsAfterExistingRows() throws Exception {
+        Path dataset = write("dataset.nxdt", SCHEMA, 1, 2);
+        Path delta = write("delta.nxdt", SCHEMA, 3);
+        Path merged = tempDir.resolve("merged.nxdt");
+
+        appender.append(dataset, delta, merged);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(merged));
+        assertEquals(List.of(1L, 2L), ids(dataset));
+    }
+
+    @Test
+    void append_WithDifferentSchema_ShouldLeaveDatasetUntouched() throws Exception {
+        Schema other = SchemaBuilder.record("row").fields().requiredLong("id").endRecord();
+        Path dataset = write("dataset.nxdt", SCHEMA, 1);
+        Path delta = write("delta.nxdt", other, 2);
+
+        Path merged = tempDir.resolve("merged.nxdt");
+
+        assertThrows(IllegalStateException.class, () -> appender.append(dataset, delta, merged));
+        assertEquals(List.of(1L), ids(dataset));
+        assertFalse(Files.exists(merged));
+    }
+
+    private Path write(String name, Schema schema, long... ids) throws Exception {
+        Path file = tempDir.resolve(name);
+        try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(file))
+                .withSchema(schema)
+                .build()) {
+            for (long id : ids) {
+                GenericRecord record = new GenericData.Record(schema);
+                record.put("id", id);
+                if (schema.getField("name") != null) {
+                    record.put("name", "row_" + id);
+                }
+                writer.write(record);
+            }
+        }
+        return file;
+    }
+
+    private List<Long> ids(Path file) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(new ParquetIo.NioInputFile(file))
+                .withDataModel(GenericData.get())
+                .withConf(new Configuration())
+                .build()) {
+            GenericRecord record;
+            while ((record = reader.read()) != null) {
+                ids.add((Long) record.get("id"));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,61 @@
+package by.nexus.core.service.query;
+
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DatasetFilterTest {
+
+    private static final MessageType SCHEMA = MessageTypeParser.parseMessageType("""
+            message row {
+              required int64 id;
+              optional binary region (STRING);
+              required double amount;
+              required boolean active;
+              optional binary raw;
+            }
+            """);
+
+    @Test
+    void parse_AndBindsTighterThanOr() {
+        DatasetFilter filter = DatasetFilter.parse("id = 1 or amount > 2.5 AND \"region\" <> 'it''s'", SCHEMA);
+
+        assertEquals(FilterApi.or(
+                FilterApi.eq(FilterApi.longColumn("id"), 1L),
+                FilterApi.and(
+                        FilterApi.gt(FilterApi.doubleColumn("amount"), 2.5),
+                        FilterApi.notEq(FilterApi.binaryColumn("region"), Binary.fromString("it's"))
+                )
+        ), filter.predicate());
+        assertEquals(Set.of("id", "amount", "region"), filter.columns());
+    }
+
+    @Test
+    void parse_NullAndBooleanSupportOnlyEquality() {
+        assertEquals(FilterApi.eq(FilterApi.binaryColumn("region"), null),
+                DatasetFilter.parse("region = null", SCHEMA).predicate());
+        assertEquals(FilterApi.notEq(FilterApi.booleanColumn("active"), true),
+                DatasetFilter.parse("active != TRUE", SCHEMA).predicate());
+
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("active > false", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("id < null", SCHEMA));
+    }
+
+    @Test
+    void parse_InvalidExpression_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("missing = 1", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("raw = 'x'", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("id = 'x'", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("id = 1.5", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("id = 1 AND", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("region = 'open", SCHEMA));
+        assertThrows(IllegalArgumentException.class, () -> DatasetFilter.parse("id = 1 id", SCHEMA));
+    }
+}
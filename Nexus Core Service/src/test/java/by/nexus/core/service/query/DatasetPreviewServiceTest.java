@@ -0,0 +1,134 @@
+package by.nexus.core.service.query;
+
+import by.nexus.core.model.dto.api.DatasetPreviewDto;
+import by.nexus.core.repository.ContentBlobRepository;
+import by.nexus.core.service.storage.ContentChunker;
+import by.nexus.core.service.storage.ContentStore;
+import by.nexus.core.service.storage.LocalBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.LocalOutputFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class DatasetPreviewServiceTest {
+
+    private static final int ROWS = 1000;
+    private static final Schema SCHEMA = SchemaBuilder.record("row").fields()
+            .requiredLong("id")
+            .optionalString("region")
+            .endRecord();
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore blobStore;
+    private ContentStore contentStore;
+    private DatasetPreviewService previewService;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalBlobStore(root.toString());
+        contentStore = new ContentStore(blobStore, mock(ContentBlobRepository.class),
+                new ContentChunker(DataSize.ofKilobytes(256), DataSize.ofMegabytes(1), DataSize.ofMegabytes(4)),
+                mock(PlatformTransactionManager.class));
+        previewService = new DatasetPreviewService(blobStore, contentStore, new SimpleMeterRegistry(), 3,
+                DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    void preview_ShouldHoldSchemaStatsAndFirstRows() throws Exception {
+        Path dataset = writeDataset();
+
+        byte[] artifact = previewService.build(dataset);
+        String key = contentStore.store(dataset);
+        previewService.save(key, artifact);
+        DatasetPreviewDto preview = previewService.get(key);
+
+        assertTrue(blobStore.exists(ContentStore.previewKeyOf(ContentStore.hashOf(key))));
+        assertEquals(ROWS, preview.rowCount());
+        assertEquals(new DatasetPreviewDto.Column("id", "INT64", false, 0L, "0", "999"),
+                preview.columns().get(0));
+        assertEquals(new DatasetPreviewDto.Column("region", "BINARY (STRING)", true, 100L, "EU", "US"),
+                preview.columns().get(1));
+        assertEquals(3, preview.rows().size());
+        assertEquals(row(0L, null), preview.rows().get(0));
+        assertEquals(row(1L, "US"), preview.rows().get(1));
+        // Артефакт — первые строки и метаданные, а не копия файла
+        assertTrue(artifact.length < Files.size(blobStore.localPath(key).orElseThrow()) / 4);
+    }
+
+    @Test
+    void get_ShouldServeRepeatedOpensFromCache() throws Exception {
+        String key = contentStore.store(writeDataset());
+
+        DatasetPreviewDto first = previewService.get(key);
+        Files.delete(blobStore.localPath(ContentStore.previewKeyOf(ContentStore.hashOf(key))).orElseThrow());
+
+        assertSame(first, previewService.get(key));
+    }
+
+    @Test
+    void get_WithoutStoredArtifact_ShouldBuildAndStoreIt() throws Exception {
+        String key = contentStore.store(writeDataset());
+        String previewKey = ContentStore.previewKeyOf(ContentStore.hashOf(key));
+        assertFalse(blobStore.exists(previewKey));
+
+        assertEquals(ROWS, previewService.get(key).rowCount());
+        assertTrue(blobStore.exists(previewKey));
+    }
+
+    @Test
+    void nonParquetContent_ShouldHaveNoPreview() throws Exception {
+        Path text = Files.writeString(blobStore.createStagingFile(), "not a dataset");
+
+        assertNull(previewService.build(text));
+        String key = contentStore.store(text);
+        assertThrows(IllegalArgumentException.class, () -> previewService.get(key));
+    }
+
+    private Path writeDataset() throws Exception {
+        Path file = blobStore.createStagingFile();
+        Files.delete(file);
+        try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(file))
+                .withSchema(SCHEMA)
+                .withRowGroupSize(4 * 1024L)
+                .build()) {
+            for (long id = 0; id < ROWS; id++) {
+                GenericRecord record = new GenericData.Record(SCHEMA);
+                record.put("id", id);
+                record.put("region", id % 10 == 0 ? null : id % 2 == 0 ? "EU" : "US");
+                writer.write(record);
+            }
+        }
+        return file;
+    }
+
+    private static Map<String, Object> row(long id, String region) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("region", region);
+        return row;
+    }
+}
@@ -0,0 +1,158 @@
+package by.nexus.core.service.query;
+
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.FileVersion;
+import by.nexus.core.service.FileSystemService;
+import by.nexus.core.service.storage.ContentResource;
+import by.nexus.core.service.storage.ContentStore;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.LocalOutputFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatasetQueryServiceTest {
+
+    private static final String USER = "user@example.com";
+    private static final String KEY = "sha256/ab/abc";
+    private static final int ROWS = 4000;
+    private static final Schema SCHEMA = SchemaBuilder.record("row").fields()
+            .requiredLong("id")
+            .optionalString("region")
+            .requiredDouble("amount")
+            .requiredString("payload")
+            .endRecord();
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemService fileSystemService;
+    private DatasetQueryService queryService;
+    private FileVersion version;
+    private UUID nodeId;
+    private Path dataset;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fileSystemService = mock(FileSystemService.class);
+        queryService = new DatasetQueryService(fileSystemService, mock(DatasetPreviewService.class));
+        dataset = writeDataset();
+
+        nodeId = UUID.randomUUID();
+        version = FileVersion.builder().id(UUID.randomUUID()).storageKey(KEY).build();
+        FileNode node = FileNode.builder()
+                .id(nodeId)
+                .name("sales")
+                .type(FileNode.FileType.DATASET)
+                .currentVersion(version)
+                .build();
+        when(fileSystemService.getNode(nodeId, USER)).thenReturn(node);
+        when(fileSystemService.readContent(version)).thenReturn(new FileSystemResource(dataset));
+    }
+
+    @Test
+    void query_ShouldReturnProjectedFilteredRowsUpToLimit() throws Exception {
+        DatasetQuery query = queryService.prepare(nodeId, USER, List.of("id", "region"),
+                "amount >= 500.5 AND region = 'EU' OR id = 3", 3);
+
+        assertEquals(List.of(
+                "{\"id\":3,\"region\":\"US\"}",
+                "{\"id\":502,\"region\":\"EU\"}",
+                "{\"id\":504,\"region\":\"EU\"}"
+        ), lines(query));
+    }
+
+    @Test
+    void query_WithoutColumns_ShouldReturnAllColumns() throws Exception {
+        DatasetQuery query = queryService.prepare(nodeId, USER, List.of(), "id = 1", null);
+
+        assertEquals(List.of("{\"id\":1,\"region\":\"US\",\"amount\":1.0,\"payload\":\"" + payload(1) + "\"}"),
+                lines(query));
+    }
+
+    @Test
+    void query_RemoteContent_ShouldReadOnlyMatchingRowGroupsAndColumns() throws Exception {
+        byte[] bytes = Files.readAllBytes(dataset);
+        AtomicLong read = new AtomicLong();
+        ContentStore contentStore = mock(ContentStore.class);
+        when(contentStore.size(KEY)).thenReturn((long) bytes.length);
+        when(contentStore.open(eq(KEY), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long offset = invocation.getArgument(1);
+            long length = invocation.getArgument(2);
+            read.addAndGet(length);
+            return new ByteArrayInputStream(bytes, (int) offset, (int) length);
+        });
+        when(fileSystemService.readContent(version)).thenReturn(new ContentResource(contentStore, KEY));
+
+        DatasetQuery query = queryService.prepare(nodeId, USER, List.of("id"), "id >= 3990", 100);
+        List<String> rows = lines(query);
+
+        assertEquals(10, rows.size());
+        assertEquals("{\"id\":3990}", rows.getFirst());
+        // Кроме footer'а и индексов страниц читается только колонка id последнего row group'а
+        assertTrue(read.get() < bytes.length / 10, "read " + read.get() + " of " + bytes.length + " bytes");
+    }
+
+    @Test
+    void prepare_WithUnknownColumnOrBadFilter_ShouldFailBeforeReadingRows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.prepare(nodeId, USER, List.of("missing"), null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.prepare(nodeId, USER, List.of(), "region > 5", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.prepare(nodeId, USER, List.of(), "id = 1", 0));
+    }
+
+    private Path writeDataset() throws Exception {
+        Path file = tempDir.resolve("sales.nxdt");
+        // Маленькие row group'ы, чтобы было что отсекать по статистике
+        try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(file))
+                .withSchema(SCHEMA)
+                .withRowGroupSize(32 * 1024L)
+                .withDictionaryEncoding(false)
+                .build()) {
+            for (long id = 0; id < ROWS; id++) {
+                GenericRecord record = new GenericData.Record(SCHEMA);
+                record.put("id", id);
+                record.put("region", id % 2 == 0 ? "EU" : "US");
+                record.put("amount", (double) id);
+                record.put("payload", payload(id));
+                writer.write(record);
+            }
+        }
+        return file;
+    }
+
+    private static String payload(long id) {
+        return ("row-" + id + "-").repeat(8);
+    }
+
+    private static List<String> lines(DatasetQuery query) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        query.writeNdjson(out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
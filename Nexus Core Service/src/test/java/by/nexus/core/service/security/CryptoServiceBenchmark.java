@@ -0,0 +1,58 @@
+package by.nexus.core.service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Операций шифрования и расшифровки в секунду для объектов 1 KB и 1 MB: с выводом ключа PBKDF2
+ * на каждом вызове (кэш ключей размером 0, как было раньше) и с кэшем выведенных ключей.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*CryptoServiceBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class CryptoServiceBenchmark {
+
+    private static final Duration WARMUP = Duration.ofSeconds(2);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(5);
+
+    @Test
+    void compareKeyDerivationPerCallAndCached() throws Exception {
+        for (int size : new int[]{1024, 1024 * 1024}) {
+            byte[] data = new byte[size];
+            new Random(42).nextBytes(data);
+
+            run("per-call", new CryptoService(0, Duration.ofMinutes(10), 1), data);
+            run("cached", new CryptoService(), data);
+        }
+    }
+
+    private static void run(String label, CryptoService cryptoService, byte[] data) throws Exception {
+        String key = cryptoService.generateFileKey();
+        measure(cryptoService, key, data, WARMUP);
+        long start = System.nanoTime();
+        long ops = measure(cryptoService, key, data, MEASUREMENT);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-8s %7d B  %10.1f ops/s  %8.1f MB/s%n",
+                label, data.length, ops / seconds, ops * (double) data.length / 1e6 / seconds);
+    }
+
+    /**
+     * Пара encrypt + decrypt — одна операция.
+     */
+    private static long measure(CryptoService cryptoService, String key, byte[] data, Duration duration)
+            throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        long ops = 0;
+        while (System.nanoTime() < deadline) {
+            byte[] encrypted = cryptoService.encrypt(data, key);
+            if (cryptoService.decrypt(encrypted, key).length != data.length) {
+                throw new IllegalStateException("Round trip mismatch");
+            }
+            ops++;
+        }
+        return ops;
+    }
+}
@@ -6,6 +6,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -137,4 +143,26 @@ class CryptoServiceTest {
         
         assertArrayEquals(largeData, decrypted);
     }
+
+    @Test
+    void segmentedDecrypt_ShouldWipeObjectKeyOnClose() throws Exception {
+        byte[] plaintext = "segmented content".getBytes(StandardCharsets.UTF_8);
+        byte[] aad = "object".getBytes(StandardCharsets.UTF_8);
+        SegmentedGcm.Header header = SegmentedGcm.Header.random(8);
+        SecretKeySpec storageKey = new SecretKeySpec(new byte[32], "AES");
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OffHeapSecureMemoryContainer key = SegmentedGcm.objectKey(storageKey, header.salt())) {
+            SegmentedGcm.encrypt(new ByteArrayInputStream(plaintext), encrypted, header, key, aad, null, 1);
+        }
+
+        byte[] bytes = encrypted.toByteArray();
+        OffHeapSecureMemoryContainer key = SegmentedGcm.objectKey(storageKey, header.salt());
+        InputStream decrypted = SegmentedGcm.decrypt(new ByteArrayInputStream(bytes, SegmentedGcm.HEADER_LENGTH,
+                bytes.length), header, key, 0, -1, -1, aad, null, 1);
+
+        assertArrayEquals(plaintext, decrypted.readAllBytes());
+        assertFalse(key.isClosed());
+        decrypted.close();
+        assertTrue(key.isClosed());
+    }
 }
@@ -0,0 +1,63 @@
+package by.nexus.core.service.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DerivedKeyCacheTest {
+
+    private final AtomicInteger derivations = new AtomicInteger();
+
+    @Test
+    void get_ShouldDeriveKeyOncePerPassword() {
+        DerivedKeyCache cache = new DerivedKeyCache(10, Duration.ofMinutes(1), this::derive);
+
+        byte[] first = cache.withKey("password-a", SecretKey::getEncoded);
+        byte[] second = cache.withKey("password-a", SecretKey::getEncoded);
+        byte[] other = cache.withKey("password-b", SecretKey::getEncoded);
+
+        assertEquals(2, derivations.get());
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    @Test
+    void evictedKeys_ShouldBeZeroedAndDerivedAgain() {
+        DerivedKeyCache cache = new DerivedKeyCache(10, Duration.ofMinutes(1), this::derive);
+        OffHeapSecureMemoryContainer container = cache.container("password-a");
+
+        cache.invalidateAll();
+
+        assertTrue(container.isClosed());
+        assertArrayEquals(derive("password-a"), cache.withKey("password-a", SecretKey::getEncoded));
+        assertEquals(3, derivations.get());
+    }
+
+    @Test
+    void cache_ShouldBeBoundedBySize() {
+        DerivedKeyCache cache = new DerivedKeyCache(1, Duration.ofMinutes(1), this::derive);
+        OffHeapSecureMemoryContainer first = cache.container("password-a");
+
+        cache.container("password-b");
+        cache.cleanUp();
+
+        assertTrue(first.isClosed());
+    }
+
+    private byte[] derive(String password) {
+        derivations.incrementAndGet();
+        byte[] key = new byte[32];
+        byte[] bytes = password.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, key, 0, Math.min(bytes.length, key.length));
+        return key;
+    }
+}
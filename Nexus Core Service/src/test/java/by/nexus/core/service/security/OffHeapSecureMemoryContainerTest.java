@@ -0,0 +1,113 @@
+package by.nexus.core.service.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapSecureMemoryContainerTest {
+
+    @Test
+    void read_ShouldLendReadOnlyViewOfOffHeapData() {
+        byte[] data = "test data".getBytes();
+
+        try (OffHeapSecureMemoryContainer container = new OffHeapSecureMemoryContainer(data)) {
+            byte[] read = container.read(view -> {
+                assertTrue(view.isDirect());
+                assertTrue(view.isReadOnly());
+                assertThrows(ReadOnlyBufferException.class, () -> view.put(0, (byte) 1));
+                byte[] copy = new byte[view.remaining()];
+                view.get(copy);
+                return copy;
+            });
+
+            assertArrayEquals(data, read);
+            assertEquals(data.length, container.size());
+        }
+    }
+
+    @Test
+    void close_ShouldZeroDataAndRejectReads() {
+        OffHeapSecureMemoryContainer container = new OffHeapSecureMemoryContainer("test data".getBytes());
+        ByteBuffer leaked = container.read(view -> view);
+
+        container.close();
+        container.close(); // Should not throw
+
+        assertTrue(container.isClosed());
+        assertArrayEquals(new byte[9], bytes(leaked));
+        assertThrows(IllegalStateException.class, () -> container.read(view -> view));
+    }
+
+    @Test
+    void withKey_ShouldWorkAsCipherKey() throws Exception {
+        byte[] key = new byte[32];
+        key[0] = 42;
+        byte[] iv = new byte[12];
+
+        try (OffHeapSecureMemoryContainer container = new OffHeapSecureMemoryContainer(key)) {
+            byte[] encrypted = container.withKey("AES", secretKey -> {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+                return cipher.doFinal("payload".getBytes());
+            });
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+            assertArrayEquals("payload".getBytes(), cipher.doFinal(encrypted));
+        }
+    }
+
+    @Test
+    void close_ShouldWaitForRunningReaders() throws Exception {
+        OffHeapSecureMemoryContainer container = new OffHeapSecureMemoryContainer(new byte[]{1, 2, 3});
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<byte[]> seen = new AtomicReference<>();
+
+        Thread reader = Thread.ofPlatform().start(() -> container.read(view -> {
+            reading.countDown();
+            await(release);
+            seen.set(bytes(view));
+            return null;
+        }));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        Thread closer = Thread.ofPlatform().start(container::close);
+
+        closer.join(200);
+        assertTrue(closer.isAlive());
+        assertFalse(container.isClosed());
+        release.countDown();
+        reader.join();
+        closer.join();
+
+        assertArrayEquals(new byte[]{1, 2, 3}, seen.get());
+        assertTrue(container.isClosed());
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.capacity()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
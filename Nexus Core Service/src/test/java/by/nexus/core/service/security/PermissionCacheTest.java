@@ -0,0 +1,87 @@
+package by.nexus.core.service.security;
+
+import by.nexus.core.model.dto.event.PermissionInvalidatedEvent;
+import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.repository.ProjectPermissionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PermissionCacheTest {
+
+    private static final String USER = "user@example.com";
+    private static final String TOPIC = "permission-invalidations";
+
+    private final UUID projectId = UUID.randomUUID();
+
+    private ProjectPermissionRepository repository;
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private PermissionCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ProjectPermissionRepository.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PermissionCache(repository, kafkaTemplate, meterRegistry, 1000, Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cache, "invalidationTopic", TOPIC);
+
+        when(repository.findAccessLevel(projectId, USER))
+                .thenReturn(Optional.of(ProjectPermission.AccessLevel.EDITOR));
+    }
+
+    @Test
+    void getAccessLevel_ShouldHitRepositoryOnceAndReportHitRatio() {
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Optional.of(ProjectPermission.AccessLevel.EDITOR), cache.getAccessLevel(projectId, USER));
+        }
+
+        verify(repository, times(1)).findAccessLevel(projectId, USER);
+        assertEquals(0.75, meterRegistry.get(PermissionCache.CACHE_NAME + ".hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void evict_ShouldReloadAndNotifyOtherReplicas() {
+        cache.getAccessLevel(projectId, USER);
+        when(repository.findAccessLevel(projectId, USER))
+                .thenReturn(Optional.of(ProjectPermission.AccessLevel.ADMIN));
+
+        cache.evict(projectId, USER);
+
+        assertEquals(Optional.of(ProjectPermission.AccessLevel.ADMIN), cache.getAccessLevel(projectId, USER));
+        verify(kafkaTemplate).send(eq(TOPIC), eq(projectId.toString()), anyString());
+    }
+
+    @Test
+    void apply_ProjectWideEvent_ShouldDropAllUsersOfProject() {
+        String other = "other@example.com";
+        when(repository.findAccessLevel(projectId, other)).thenReturn(Optional.empty());
+        cache.getAccessLevel(projectId, USER);
+        cache.getAccessLevel(projectId, other);
+
+        String message = "{\"projectId\":\"" + projectId + "\",\"userId\":null}";
+        cache.apply(cache.parse(message));
+        cache.getAccessLevel(projectId, USER);
+        cache.getAccessLevel(projectId, other);
+
+        verify(repository, times(2)).findAccessLevel(projectId, USER);
+        verify(repository, times(2)).findAccessLevel(projectId, other);
+        assertEquals(new PermissionInvalidatedEvent(projectId, null), cache.parse(message));
+    }
+}
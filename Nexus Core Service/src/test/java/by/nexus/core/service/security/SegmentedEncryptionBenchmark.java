@@ -0,0 +1,91 @@
+package by.nexus.core.service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Пропускная способность потокового шифрования и расшифровки {@link SegmentedGcm} для файла 512 MB
+ * на пуле из 1, 4 и 8 потоков. Чтение и запись идут через диск, как при загрузке и скачивании.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*SegmentedEncryptionBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class SegmentedEncryptionBenchmark {
+
+    private static final int SIZE = 512 * 1024 * 1024;
+    private static final int ROUNDS = 3;
+    private static final byte[] AAD = "sha256/00/benchmark".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareThreadCounts() throws Exception {
+        Path plaintext = tempDir.resolve("plaintext");
+        Path encrypted = tempDir.resolve("encrypted");
+        Random random = new Random(42);
+        byte[] chunk = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(plaintext)) {
+            for (int written = 0; written < SIZE; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+
+        System.out.printf("%d cores%n", Runtime.getRuntime().availableProcessors());
+        for (int threads : new int[]{1, 4, 8}) {
+            CryptoService cryptoService = new CryptoService(10, Duration.ofMinutes(10), threads);
+            ReflectionTestUtils.setField(cryptoService, "masterKey", "benchmark-master-key");
+            try {
+                run(cryptoService, threads, plaintext, encrypted);
+            } finally {
+                cryptoService.shutdown();
+            }
+        }
+    }
+
+    private static void run(CryptoService cryptoService, int threads, Path plaintext, Path encrypted) throws Exception {
+        long encryptNanos = Long.MAX_VALUE;
+        long decryptNanos = Long.MAX_VALUE;
+        byte[] buffer = new byte[1024 * 1024];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            try (InputStream in = Files.newInputStream(plaintext);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(encrypted), 1024 * 1024)) {
+                cryptoService.encrypt(in, out, AAD);
+            }
+            encryptNanos = Math.min(encryptNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            long read = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(encrypted), 1024 * 1024)) {
+                byte[] head = in.readNBytes(SegmentedGcm.HEADER_LENGTH);
+                try (InputStream decrypted = cryptoService.decrypt(in, SegmentedGcm.Header.parse(head, head.length),
+                        AAD)) {
+                    int n;
+                    while ((n = decrypted.read(buffer)) > 0) {
+                        read += n;
+                    }
+                }
+            }
+            decryptNanos = Math.min(decryptNanos, System.nanoTime() - start);
+            if (read != SIZE) {
+                throw new IllegalStateException("Round trip mismatch");
+            }
+        }
+
+        System.out.printf("%d threads: encrypt %7.1f MB/s, decrypt %7.1f MB/s%n",
+                threads, SIZE / 1e6 / (encryptNanos / 1e9), SIZE / 1e6 / (decryptNanos / 1e9));
+    }
+}
@@ -0,0 +1,123 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.repository.ContentBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Место на диске и скорость сборки файла для истории из 50 версий датасета, где каждая версия
+ * меняет несколько участков и иногда дописывает хвост — как инкрементальный импорт.
+ * Сравнивается хранение целыми объектами и чанками.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*ChunkedStorageBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class ChunkedStorageBenchmark {
+
+    private static final int VERSIONS = 50;
+    private static final int BASE_SIZE = 64 * 1024 * 1024;
+    private static final int EDITS_PER_VERSION = 3;
+    private static final int EDIT_SIZE = 64 * 1024;
+    private static final int APPEND_SIZE = 512 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareWholeAndChunkedStorage() throws Exception {
+        run("whole", false);
+        run("chunked", true);
+    }
+
+    private void run(String label, boolean chunked) throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve(label));
+        LocalBlobStore blobStore = new LocalBlobStore(root.toString());
+        ContentStore contentStore = new ContentStore(blobStore, mock(ContentBlobRepository.class), new ContentChunker(
+                DataSize.ofKilobytes(256), DataSize.ofMegabytes(1), DataSize.ofMegabytes(4)
+        ), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(contentStore, "chunkingEnabled", chunked);
+
+        Random random = new Random(42);
+        byte[] data = new byte[BASE_SIZE];
+        random.nextBytes(data);
+
+        List<String> keys = new ArrayList<>();
+        long logical = 0;
+        long storeNanos = 0;
+        for (int v = 0; v < VERSIONS; v++) {
+            data = nextVersion(data, random, v);
+            logical += data.length;
+
+            Path staged = Files.write(blobStore.createStagingFile(), data);
+            long start = System.nanoTime();
+            keys.add(contentStore.store(staged));
+            storeNanos += System.nanoTime() - start;
+        }
+
+        long physical = storedBytes(root);
+
+        byte[] buffer = new byte[1024 * 1024];
+        long read = 0;
+        long start = System.nanoTime();
+        for (String key : keys) {
+            try (InputStream in = contentStore.open(key)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    read += n;
+                }
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+
+        System.out.printf("%-8s logical %6d MB, stored %6d MB (saved %5.1f%%), store %7.1f MB/s, reassembly %7.1f MB/s%n",
+                label,
+                logical >> 20,
+                physical >> 20,
+                100.0 * (logical - physical) / logical,
+                logical / 1e6 / (storeNanos / 1e9),
+                read / 1e6 / (readNanos / 1e9));
+    }
+
+    private static byte[] nextVersion(byte[] data, Random random, int version) {
+        if (version == 0) {
+            return data;
+        }
+        byte[] next = data.clone();
+        for (int i = 0; i < EDITS_PER_VERSION; i++) {
+            byte[] edit = new byte[EDIT_SIZE];
+            random.nextBytes(edit);
+            System.arraycopy(edit, 0, next, random.nextInt(next.length - EDIT_SIZE), EDIT_SIZE);
+        }
+        if (version % 5 == 0) {
+            byte[] appended = new byte[next.length + APPEND_SIZE];
+            System.arraycopy(next, 0, appended, 0, next.length);
+            byte[] tail = new byte[APPEND_SIZE];
+            random.nextBytes(tail);
+            System.arraycopy(tail, 0, appended, next.length, APPEND_SIZE);
+            next = appended;
+        }
+        return next;
+    }
+
+    private static long storedBytes(Path root) throws Exception {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(root.resolve(".staging")))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package by.nexus.core.service.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentChunkerTest {
+
+    private static final int MIN = 2 * 1024;
+    private static final int AVG = 8 * 1024;
+    private static final int MAX = 32 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final ContentChunker chunker = new ContentChunker(MIN, AVG, MAX);
+
+    @Test
+    void chunk_ShouldCoverFileWithBoundedChunks() throws Exception {
+        byte[] data = random(1024 * 1024, 1);
+        ContentChunker.ChunkedFile file = chunker.chunk(write("data.bin", data));
+
+        assertEquals(data.length, file.size());
+        assertEquals(ContentStore.sha256(tempDir.resolve("data.bin")), file.hash());
+
+        long offset = 0;
+        List<ContentChunker.Chunk> chunks = file.chunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            ContentChunker.Chunk chunk = chunks.get(i);
+            assertEquals(offset, chunk.offset());
+            assertTrue(chunk.length() <= MAX);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.length() >= MIN);
+            }
+            offset += chunk.length();
+        }
+        assertEquals(data.length, offset);
+    }
+
+    @Test
+    void chunk_AfterInsertion_ShouldKeepMostChunks() throws Exception {
+        byte[] original = random(1024 * 1024, 2);
+        byte[] inserted = new byte[original.length + 100];
+        System.arraycopy(original, 0, inserted, 0, 300_000);
+        System.arraycopy(random(100, 3), 0, inserted, 300_000, 100);
+        System.arraycopy(original, 300_000, inserted, 300_100, original.length - 300_000);
+
+        List<ContentChunker.Chunk> before = chunker.chunk(write("v1.bin", original)).chunks();
+        List<ContentChunker.Chunk> after = chunker.chunk(write("v2.bin", inserted)).chunks();
+
+        Set<String> known = new HashSet<>();
+        before.forEach(chunk -> known.add(chunk.hash()));
+        long changed = after.stream().filter(chunk -> !known.contains(chunk.hash())).count();
+
+        // Сдвиг на 100 байт не должен перекраивать хвост файла
+        assertTrue(changed <= 2, "changed chunks: " + changed + " of " + after.size());
+    }
+
+    private Path write(String name, byte[] data) throws Exception {
+        return Files.write(tempDir.resolve(name), data);
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
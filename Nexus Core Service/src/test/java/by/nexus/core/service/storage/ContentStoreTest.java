@@ -0,0 +1,191 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.repository.ContentBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentStoreTest {
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore blobStore;
+    private ContentBlobRepository repository;
+    private ContentStore contentStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalBlobStore(root.toString());
+        repository = mock(ContentBlobRepository.class);
+        contentStore = new ContentStore(blobStore, repository, new ContentChunker(4 * 1024, 16 * 1024, 64 * 1024),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(contentStore, "chunkingThreshold", DataSize.ofKilobytes(256));
+    }
+
+    @Test
+    void store_SameContentTwice_ShouldKeepOneObjectAndTwoReferences() throws Exception {
+        Path first = Files.writeString(blobStore.createStagingFile(), "dataset v1");
+        Path second = Files.writeString(blobStore.createStagingFile(), "dataset v1");
+
+        String firstKey = contentStore.store(first);
+        String secondKey = contentStore.store(second);
+
+        assertEquals(firstKey, secondKey);
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertEquals(1, countObjects());
+        verify(repository, times(2)).acquire(eq(ContentStore.hashOf(firstKey)), eq(10L), eq("BLOB"), eq(1L),
+                any(Instant.class));
+    }
+
+    @Test
+    void store_DifferentContent_ShouldUseDifferentKeys() throws Exception {
+        String v1 = contentStore.store(Files.writeString(blobStore.createStagingFile(), "v1"));
+        String v2 = contentStore.store(Files.writeString(blobStore.createStagingFile(), "v2"));
+
+        assertNotEquals(v1, v2);
+        assertTrue(blobStore.exists(v1));
+        assertTrue(blobStore.exists(v2));
+        assertEquals(2, countObjects());
+    }
+
+    @Test
+    void store_LargeFile_ShouldBeChunkedAndReassembled() throws Exception {
+        byte[] data = random(1024 * 1024, 1);
+        String key = contentStore.store(Files.write(blobStore.createStagingFile(), data));
+
+        assertTrue(ContentStore.isManifest(key));
+        assertEquals(data.length, contentStore.size(key));
+        try (InputStream in = contentStore.open(key)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        try (InputStream in = contentStore.open(key, 100_000, 50_000)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 100_000, 150_000), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void store_NewVersionWithLocalEdit_ShouldWriteOnlyChangedChunks() throws Exception {
+        byte[] v1 = random(1024 * 1024, 2);
+        byte[] v2 = v1.clone();
+        System.arraycopy(random(1000, 3), 0, v2, 500_000, 1000);
+
+        contentStore.store(Files.write(blobStore.createStagingFile(), v1));
+        long afterFirst = countObjects();
+        String key = contentStore.store(Files.write(blobStore.createStagingFile(), v2));
+
+        // Изменённый чанк, возможно соседний, и манифест
+        assertTrue(countObjects() - afterFirst <= 3, "new objects: " + (countObjects() - afterFirst));
+        try (InputStream in = contentStore.open(key)) {
+            assertArrayEquals(v2, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void store_RolledBack_ShouldHandWrittenObjectsOverToCollector() throws Exception {
+        when(repository.create(any(), anyLong(), any(), anyLong(), any())).thenReturn(1);
+        when(repository.reserve(any(), anyLong(), any(), any())).thenReturn(1);
+        byte[] data = random(1024 * 1024, 4);
+
+        String small;
+        String large;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            small = contentStore.store(Files.writeString(blobStore.createStagingFile(), "v1"));
+            large = contentStore.store(Files.write(blobStore.createStagingFile(), data));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(repository).reserve(eq(ContentStore.hashOf(small)), eq(2L), eq("BLOB"), any(Instant.class));
+        verify(repository).reserve(eq(ContentStore.hashOf(large)), eq((long) data.length), eq("MANIFEST"),
+                any(Instant.class));
+        // Ссылки на чанки: при записи и снова за манифестом, оставленным сборщику
+        long chunks = contentStore.readManifest(large).chunks().stream().map(ChunkManifest.Entry::hash).distinct().count();
+        verify(repository, times((int) (2 * chunks))).acquire(any(), anyLong(), eq("BLOB"), anyLong(), any());
+    }
+
+    @Test
+    void store_Committed_ShouldNotReserveAnything() throws Exception {
+        when(repository.create(any(), anyLong(), any(), anyLong(), any())).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contentStore.store(Files.writeString(blobStore.createStagingFile(), "v1"));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(repository, never()).reserve(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void store_ObjectWithoutRecord_ShouldBeWrittenAgain() throws Exception {
+        byte[] data = random(1024 * 1024, 5);
+        String key = contentStore.store(Files.write(blobStore.createStagingFile(), data));
+        // Манифест остался от откаченной записи: строки content_blobs нет, и ссылки на чанки берутся заново
+        when(repository.create(any(), anyLong(), eq("MANIFEST"), anyLong(), any())).thenReturn(1);
+
+        Path again = Files.write(blobStore.createStagingFile(), data);
+        assertEquals(key, contentStore.store(again));
+
+        long chunks = contentStore.readManifest(key).chunks().stream().map(ChunkManifest.Entry::hash).distinct().count();
+        verify(repository, times((int) (2 * chunks))).acquire(any(), anyLong(), eq("BLOB"), anyLong(), any());
+        assertFalse(Files.exists(again));
+    }
+
+    @Test
+    void retainAndRelease_NotContentAddressedKey_ShouldBeIgnored() {
+        contentStore.retain("project/node/");
+        contentStore.release("./nexus_storage/user/project/file.nxdt", 1);
+
+        verify(repository, never()).retain(any());
+        verify(repository, never()).release(any(), anyLong(), any());
+    }
+
+    private long countObjects() throws Exception {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(root.resolve(".staging")))
+                    .count();
+        }
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,220 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.service.security.CryptoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncryptingBlobStoreTest {
+
+    private static final int SEGMENT = 1024;
+    private static final String KEY = "sha256/ab/abcdef";
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore local;
+    private EncryptingBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        CryptoService cryptoService = new CryptoService();
+        ReflectionTestUtils.setField(cryptoService, "masterKey", "test-master-key-for-encryption");
+        ReflectionTestUtils.setField(cryptoService, "segmentSize", DataSize.ofBytes(SEGMENT));
+        local = new LocalBlobStore(root.toString());
+        blobStore = new EncryptingBlobStore(local, cryptoService);
+    }
+
+    @Test
+    void putAndGet_ShouldStoreCiphertextAndReturnPlaintext() throws Exception {
+        byte[] content = randomBytes(10 * SEGMENT + 123);
+        put(KEY, content);
+
+        byte[] stored = Files.readAllBytes(local.localPath(KEY).orElseThrow());
+        assertFalse(Arrays.equals(content, 0, 64, stored, 32, 96));
+        assertEquals(content.length, blobStore.size(KEY));
+        assertTrue(blobStore.localPath(KEY).isEmpty());
+        try (InputStream in = blobStore.get(KEY)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void putAndGet_ShouldHandleEmptyAndSegmentAlignedContent() throws Exception {
+        for (int length : new int[]{0, 1, SEGMENT, 3 * SEGMENT}) {
+            byte[] content = randomBytes(length);
+            String key = "sha256/00/" + length;
+            put(key, content);
+
+            assertEquals(length, blobStore.size(key));
+            try (InputStream in = blobStore.get(key)) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void rangedGet_ShouldDecryptOnlyRequestedSegments() throws Exception {
+        byte[] content = randomBytes(10 * SEGMENT + 123);
+        put(KEY, content);
+
+        long[][] ranges = {{0, 10}, {SEGMENT - 5, 10}, {3 * SEGMENT, SEGMENT}, {5000, 4000},
+                {content.length - 7, 100}, {content.length, 10}};
+        for (long[] range : ranges) {
+            int from = (int) Math.min(range[0], content.length);
+            int to = (int) Math.min(range[0] + range[1], content.length);
+            try (InputStream in = blobStore.get(KEY, range[0], range[1])) {
+                assertArrayEquals(Arrays.copyOfRange(content, from, to), in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void tamperedSegment_ShouldFailAuthentication() throws Exception {
+        put(KEY, randomBytes(4 * SEGMENT));
+        Path file = local.localPath(KEY).orElseThrow();
+        byte[] stored = Files.readAllBytes(file);
+        stored[32 + 2 * (SEGMENT + 16) + 10] ^= 1;
+        Files.write(file, stored);
+
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = blobStore.get(KEY)) {
+                in.readAllBytes();
+            }
+        });
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = blobStore.get(KEY, 2L * SEGMENT, 10)) {
+                in.readAllBytes();
+            }
+        });
+        // Сегменты до повреждённого читаются
+        try (InputStream in = blobStore.get(KEY, 0, SEGMENT)) {
+            assertEquals(SEGMENT, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void truncatedAtSegmentBoundary_ShouldBeDetected() throws Exception {
+        put(KEY, randomBytes(4 * SEGMENT));
+        Path file = local.localPath(KEY).orElseThrow();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(32 + 3 * (SEGMENT + 16));
+        }
+
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = blobStore.get(KEY)) {
+                in.readAllBytes();
+            }
+        });
+    }
+
+    @Test
+    void objectMovedToAnotherKey_ShouldNotDecrypt() throws Exception {
+        put(KEY, randomBytes(100));
+        Path moved = local.createStagingFile();
+        Files.copy(local.localPath(KEY).orElseThrow(), moved, StandardCopyOption.REPLACE_EXISTING);
+        local.putFile("sha256/cd/cdef", moved);
+
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = blobStore.get("sha256/cd/cdef")) {
+                in.readAllBytes();
+            }
+        });
+    }
+
+    @Test
+    void parallelAndSequentialEncryption_ShouldProduceTheSameFormat() throws Exception {
+        CryptoService sequential = new CryptoService(10, Duration.ofMinutes(1), 1);
+        CryptoService parallel = new CryptoService(10, Duration.ofMinutes(1), 4);
+        for (CryptoService service : new CryptoService[]{sequential, parallel}) {
+            ReflectionTestUtils.setField(service, "masterKey", "test-master-key-for-encryption");
+            ReflectionTestUtils.setField(service, "segmentSize", DataSize.ofBytes(SEGMENT));
+        }
+        EncryptingBlobStore sequentialStore = new EncryptingBlobStore(local, sequential);
+        EncryptingBlobStore parallelStore = new EncryptingBlobStore(local, parallel);
+        byte[] content = randomBytes(50 * SEGMENT + 7);
+
+        try {
+            Path file = Files.write(local.createStagingFile(), content);
+            parallelStore.putFile(KEY, file);
+            try (InputStream in = sequentialStore.get(KEY)) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+            try (InputStream in = parallelStore.get(KEY, 10L * SEGMENT + 3, 20L * SEGMENT)) {
+                assertArrayEquals(Arrays.copyOfRange(content, 10 * SEGMENT + 3, 30 * SEGMENT + 3), in.readAllBytes());
+            }
+
+            file = Files.write(local.createStagingFile(), content);
+            sequentialStore.putFile(KEY, file);
+            try (InputStream in = parallelStore.get(KEY)) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void unencryptedObjects_ShouldBeRejected() throws Exception {
+        putUnencrypted(KEY, randomBytes(5000));
+
+        assertThrows(IOException.class, () -> blobStore.get(KEY));
+        assertThrows(IOException.class, () -> blobStore.get(KEY, 100, 50));
+        assertThrows(IOException.class, () -> blobStore.size(KEY));
+    }
+
+    @Test
+    void unencryptedObjects_WithPlaintextAllowed_ShouldBeReadAsIs() throws Exception {
+        byte[] content = randomBytes(5000);
+        putUnencrypted(KEY, content);
+        CryptoService cryptoService = new CryptoService();
+        ReflectionTestUtils.setField(cryptoService, "masterKey", "test-master-key-for-encryption");
+        blobStore = new EncryptingBlobStore(local, cryptoService, true);
+
+        assertEquals(content.length, blobStore.size(KEY));
+        try (InputStream in = blobStore.get(KEY)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        try (InputStream in = blobStore.get(KEY, 100, 50)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 100, 150), in.readAllBytes());
+        }
+    }
+
+    private void putUnencrypted(String key, byte[] content) throws IOException {
+        Path file = local.createStagingFile();
+        Files.write(file, content);
+        local.putFile(key, file);
+    }
+
+    private void put(String key, byte[] content) throws IOException {
+        Path file = blobStore.createStagingFile();
+        Files.write(file, content);
+        blobStore.putFile(key, file);
+        assertFalse(Files.exists(file));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
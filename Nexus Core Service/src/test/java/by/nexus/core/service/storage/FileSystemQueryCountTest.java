@@ -0,0 +1,330 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.config.JpaConfig;
+import by.nexus.core.model.dto.api.FileNodeDto;
+import by.nexus.core.model.dto.api.FileNodePage;
+import by.nexus.core.model.dto.event.PermissionInvalidatedEvent;
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.Project;
+import by.nexus.core.model.entity.ProjectPermission;
+import by.nexus.core.repository.FileNodeBatchRepository;
+import by.nexus.core.repository.FileNodeRepository;
+import by.nexus.core.service.query.DatasetPreviewService;
+import by.nexus.core.service.security.PermissionCache;
+import by.nexus.core.service.tree.BulkOperation;
+import by.nexus.core.service.tree.FileTreeIndexer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Бюджет SQL-запросов на вызовы API файловой системы: число подготовленных statement'ов по статистике Hibernate.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({
+        JpaConfig.class, BlobStorageFileSystemService.class, FileNodeBatchRepository.class, FileTreeIndexer.class,
+        PermissionCache.class, DatasetPreviewService.class, FileSystemQueryCountTest.Metrics.class
+})
+class FileSystemQueryCountTest {
+
+    private static final String OWNER = "owner@example.com";
+
+    @TempDir
+    Path tempDir;
+
+    @MockitoBean
+    private BlobStore blobStore;
+
+    @MockitoBean
+    private ContentStore contentStore;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private PermissionCache permissionCache;
+
+    @Autowired
+    private BlobStorageFileSystemService fileSystemService;
+
+    @Autowired
+    private FileNodeRepository fileNodeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UUID projectId;
+    private UUID rootId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        when(contentStore.store(any())).thenReturn("sha256/ab/abc");
+
+        Project project = fileSystemService.createProject(OWNER, "Project", null);
+        projectId = project.getId();
+        rootId = fileNodeRepository.findAllByProjectSorted(projectId).getFirst().getId();
+        for (int i = 0; i < 20; i++) {
+            fileSystemService.createNode(projectId, rootId, "folder-" + i, FileNode.FileType.FOLDER, OWNER);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void checkPermission_ShouldQueryOncePerProjectAndUser() {
+        permissionCache.apply(new PermissionInvalidatedEvent(projectId, null));
+        Supplier<?> check = () -> {
+            fileSystemService.checkPermission(OWNER, projectId, ProjectPermission.AccessLevel.EDITOR);
+            return null;
+        };
+
+        assertEquals(1, countQueries(check));
+        assertEquals(0, countQueries(check));
+    }
+
+    @Test
+    void createNode_ShouldNotLoadProjectOrParentChain() {
+        // родитель, проверка имени; insert узла, insert версии, update текущей версии узла
+        assertEquals(5, countQueries(
+                () -> fileSystemService.createNode(projectId, rootId, "new", FileNode.FileType.FOLDER, OWNER)
+        ));
+    }
+
+    @Test
+    void writeContent_ShouldLoadNodeWithCurrentVersionInOneQuery() throws Exception {
+        UUID nodeId = fileSystemService.createNode(
+                projectId, rootId, "data.nxdt", FileNode.FileType.DATASET, OWNER
+        ).getId();
+        entityManager.flush();
+        entityManager.clear();
+        Path content = Files.writeString(tempDir.resolve("content"), "v2");
+
+        // узел с текущей версией; insert версии, update узла
+        assertEquals(3, countQueries(() -> fileSystemService.writeContent(nodeId, content, OWNER)));
+    }
+
+    @Test
+    void listFiles_ShouldIssueOneQueryRegardlessOfProjectSize() {
+        List<FileNodeDto> files = fileSystemService.listFiles(projectId);
+
+        assertEquals(21, files.size());
+        assertEquals(1, countQueries(() -> fileSystemService.listFiles(projectId)));
+    }
+
+    @Test
+    void listChildren_ShouldIssueOneQueryPerPage() {
+        assertEquals(1, countQueries(() -> fileSystemService.listChildren(rootId, null, 5, Sort.Direction.ASC, OWNER)));
+    }
+
+    @Test
+    void listChildren_ShouldPageInProjectListingOrder() {
+        for (String name : List.of("b.nxdt", "a.nxdt", "zz")) {
+            fileSystemService.createNode(projectId, rootId, name, FileNode.FileType.DATASET, OWNER);
+        }
+        fileSystemService.createNode(projectId, rootId, "folder-1a", FileNode.FileType.FOLDER, OWNER);
+        entityManager.flush();
+        entityManager.clear();
+        List<UUID> expected = fileSystemService.listFiles(projectId).stream()
+                .filter(file -> rootId.equals(file.parentId()))
+                .map(FileNodeDto::id)
+                .toList();
+
+        assertEquals(expected, pageThrough(Sort.Direction.ASC));
+        assertEquals(expected.reversed(), pageThrough(Sort.Direction.DESC));
+    }
+
+    @Test
+    void treeReads_ShouldRequireProjectAccess() {
+        String stranger = "stranger@example.com";
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileSystemService.listChildren(rootId, null, 5, Sort.Direction.ASC, stranger));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileSystemService.listChildren(folderId, null, 5, Sort.Direction.ASC, stranger));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.listSubtree(rootId, null, stranger));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.getAncestors(folderId, stranger));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileSystemService.findByPath(projectId, "/folder-0", stranger));
+    }
+
+    @Test
+    void getHistory_ShouldIssueOneQuery() {
+        assertEquals(1, countQueries(() -> fileSystemService.getHistory(rootId)));
+    }
+
+    @Test
+    void moveNode_ShouldRewriteSubtreeWithOneUpdate() {
+        FileNode folder = fileSystemService.createNode(projectId, rootId, "reports", FileNode.FileType.FOLDER, OWNER);
+        fileSystemService.createNode(projectId, folder.getId(), "q1", FileNode.FileType.FOLDER, OWNER);
+        UUID targetId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        // узел, цель, проверка имени, длины путей поддерева; update родителя узла, update поддерева
+        assertEquals(6, countQueries(() -> {
+            fileSystemService.moveNode(folder.getId(), targetId, OWNER);
+            return null;
+        }));
+
+        FileNode moved = fileSystemService.findByPath(projectId, "/folder-0/reports/q1", OWNER);
+        assertEquals(3, moved.getDepth());
+        assertEquals(List.of(rootId, targetId, folder.getId()),
+                fileSystemService.getAncestors(moved.getId(), OWNER).stream().map(FileNode::getId).toList());
+    }
+
+    @Test
+    void createAndRename_ShouldRejectNamesThatAreNotOnePathSegment() {
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.createNode(
+                projectId, rootId, "reports/q1", FileNode.FileType.FOLDER, OWNER));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.createNode(
+                projectId, rootId, " ", FileNode.FileType.FOLDER, OWNER));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.renameNode(folderId, "a/b", OWNER));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.renameNode(folderId, "", OWNER));
+        assertEquals("/folder-0", fileSystemService.getNode(folderId, OWNER).getNamePath());
+    }
+
+    @Test
+    void renameNode_ShouldRejectSubtreePathLongerThanColumn() {
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+        UUID parentId = folderId;
+        for (int level = 0; level < 8; level++) {
+            parentId = fileSystemService.createNode(
+                    projectId, parentId, String.valueOf(level).repeat(250), FileNode.FileType.FOLDER, OWNER).getId();
+        }
+        UUID deepestId = parentId;
+
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.createNode(
+                projectId, deepestId, "x".repeat(250), FileNode.FileType.FOLDER, OWNER));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileSystemService.renameNode(folderId, "f".repeat(50), OWNER));
+        assertEquals("/folder-0", fileSystemService.getNode(folderId, OWNER).getNamePath());
+    }
+
+    @Test
+    void moveNode_ShouldRejectTargetInAnotherProject() {
+        Project other = fileSystemService.createProject(OWNER, "Other", null);
+        UUID otherRootId = fileNodeRepository.findAllByProjectSorted(other.getId()).getFirst().getId();
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.moveNode(folderId, otherRootId, OWNER));
+        assertEquals("/folder-0", fileSystemService.getNode(folderId, OWNER).getNamePath());
+    }
+
+    @Test
+    void moveNode_ShouldRejectDeletedNode() {
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+        UUID targetId = fileSystemService.findByPath(projectId, "/folder-1", OWNER).getId();
+        fileSystemService.deleteNode(folderId, OWNER);
+        entityManager.clear();
+
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.moveNode(folderId, targetId, OWNER));
+    }
+
+    @Test
+    void moveNode_ShouldRejectDeletedTarget() {
+        UUID folderId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+        UUID targetId = fileSystemService.findByPath(projectId, "/folder-1", OWNER).getId();
+        fileSystemService.deleteNode(targetId, OWNER);
+        entityManager.clear();
+
+        assertThrows(IllegalArgumentException.class, () -> fileSystemService.moveNode(folderId, targetId, OWNER));
+    }
+
+    @Test
+    void applyBulk_ShouldNotQueryPerOperation() {
+        FileNode folder = fileSystemService.createNode(projectId, rootId, "reports", FileNode.FileType.FOLDER, OWNER);
+        UUID q1 = fileSystemService.createNode(projectId, folder.getId(), "q1", FileNode.FileType.FOLDER, OWNER).getId();
+        UUID targetId = fileSystemService.findByPath(projectId, "/folder-0", OWNER).getId();
+        UUID deletedId = fileSystemService.findByPath(projectId, "/folder-1", OWNER).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BulkOperation> operations = new ArrayList<>(List.of(
+                BulkOperation.move(folder.getId(), targetId),
+                BulkOperation.rename(q1, "q1-final"),
+                BulkOperation.delete(deletedId)
+        ));
+        for (int i = 0; i < 30; i++) {
+            operations.add(BulkOperation.create(folder.getId(), "new-" + i, FileNode.FileType.FOLDER));
+        }
+
+        // узлы пакета, длины путей изменяемых поддеревьев, имена детей затронутых папок; вставки узлов и версий,
+        // обновления узлов — пачками; изменения поддеревьев идут JDBC-пакетом мимо статистики Hibernate
+        assertEquals(6, countQueries(() -> fileSystemService.applyBulk(projectId, OWNER, operations)));
+        entityManager.clear();
+
+        FileNode renamed = fileSystemService.findByPath(projectId, "/folder-0/reports/q1-final", OWNER);
+        assertEquals(q1, renamed.getId());
+        assertEquals(3, renamed.getDepth());
+        assertEquals(3, fileSystemService.findByPath(projectId, "/folder-0/reports/new-29", OWNER).getDepth());
+        assertEquals(32, fileSystemService.listSubtree(folder.getId(), 1, OWNER).size());
+        assertEquals(List.of(rootId, targetId, folder.getId()),
+                fileSystemService.getAncestors(q1, OWNER).stream().map(FileNode::getId).toList());
+        assertTrue(fileNodeRepository.findById(deletedId).orElseThrow().isDeleted());
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private List<UUID> pageThrough(Sort.Direction direction) {
+        List<UUID> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            FileNodePage page = fileSystemService.listChildren(rootId, cursor, 3, direction, OWNER);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+        private long countQueries(Supplier<?> call) {
+        statistics.clear();
+        call.get();
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,75 @@
+package by.nexus.core.service.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalBlobStore(root.toString());
+    }
+
+    @Test
+    void putFile_FromStaging_ShouldMoveFileUnderKey() throws Exception {
+        Path staged = Files.writeString(store.createStagingFile(), "content");
+
+        store.putFile("p/n/v1", staged);
+
+        assertFalse(Files.exists(staged));
+        assertEquals(root.resolve("p/n/v1"), store.localPath("p/n/v1").orElseThrow());
+        assertEquals(7, store.size("p/n/v1"));
+    }
+
+    @Test
+    void get_WithRange_ShouldReturnOnlyRequestedBytes() throws Exception {
+        store.putFile("p/n/v1", Files.writeString(store.createStagingFile(), "0123456789"));
+
+        try (InputStream in = store.get("p/n/v1", 3, 4)) {
+            assertArrayEquals("3456".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_LegacyAbsolutePath_ShouldResolveAsIs() throws Exception {
+        Path legacy = Files.writeString(
+                Files.createDirectories(root.resolve("user/project")).resolve("data.nxdt"), "legacy");
+
+        assertTrue(store.exists(legacy.toString()));
+        try (InputStream in = store.get(legacy.toString())) {
+            assertArrayEquals("legacy".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void deletePrefix_ShouldRemoveOnlyObjectsUnderPrefix() throws Exception {
+        store.putFile("p1/a/1", store.createStagingFile());
+        store.putFile("p2/a/1", store.createStagingFile());
+
+        store.deletePrefix("p1/");
+
+        assertFalse(store.exists("p1/a/1"));
+        assertTrue(store.exists("p2/a/1"));
+    }
+
+    @Test
+    void resolve_KeyOutsideRoot_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> store.exists("../outside"));
+    }
+}
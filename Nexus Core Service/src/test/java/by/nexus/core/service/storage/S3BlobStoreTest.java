@@ -0,0 +1,150 @@
+package by.nexus.core.service.storage;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.gaul.s3proxy.AuthenticationType;
+import org.gaul.s3proxy.S3Proxy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * S3BlobStore против S3Proxy в памяти процесса — локального S3-совместимого сервера.
+ */
+class S3BlobStoreTest {
+
+    private static final String ACCESS_KEY = "nexus";
+    private static final String SECRET_KEY = "nexus_password";
+
+    private static S3Proxy proxy;
+    private static S3Client client;
+
+    @TempDir
+    Path tempDir;
+
+    private S3BlobStore store;
+
+    @BeforeAll
+    static void startProxy() throws Exception {
+        proxy = S3Proxy.builder()
+                .blobStore(ContextBuilder.newBuilder("transient")
+                        .build(BlobStoreContext.class)
+                        .getBlobStore())
+                .awsAuthentication(AuthenticationType.AWS_V2_OR_V4, ACCESS_KEY, SECRET_KEY)
+                .endpoint(URI.create("http://127.0.0.1:0"))
+                .build();
+        proxy.start();
+        while (!proxy.getState().equals("STARTED")) {
+            Thread.sleep(10);
+        }
+
+        client = S3Client.builder()
+                .endpointOverride(URI.create("http://127.0.0.1:" + proxy.getPort()))
+                .region(Region.US_EAST_1)
+                .forcePathStyle(true)
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(ACCESS_KEY, SECRET_KEY)))
+                .build();
+    }
+
+    @AfterAll
+    static void stopProxy() throws Exception {
+        client.close();
+        proxy.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new S3BlobStore(client, "content-" + System.nanoTime(), DataSize.ofMegabytes(5));
+        store.ensureBucket();
+    }
+
+    @Test
+    void putFile_ShouldUploadSmallFileInOneRequest() throws Exception {
+        byte[] data = bytes(1024);
+        Path file = write(data);
+
+        store.putFile("p/n/small", file);
+
+        assertFalse(Files.exists(file));
+        assertEquals(data.length, store.size("p/n/small"));
+        try (InputStream in = store.get("p/n/small")) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void putFile_LargerThanPartSize_ShouldUseMultipartUpload() throws Exception {
+        byte[] data = bytes(12 * 1024 * 1024 + 17);
+
+        store.putFile("p/n/large", write(data));
+
+        assertEquals(data.length, store.size("p/n/large"));
+        try (InputStream in = store.get("p/n/large")) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_WithRange_ShouldReturnOnlyRequestedBytes() throws Exception {
+        byte[] data = bytes(4096);
+        store.putFile("p/n/ranged", write(data));
+
+        try (InputStream in = store.get("p/n/ranged", 1000, 24)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, 1024), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void deletePrefix_ShouldRemoveOnlyObjectsUnderPrefix() throws Exception {
+        store.putFile("p1/a/1", write(bytes(10)));
+        store.putFile("p1/b/2", write(bytes(10)));
+        store.putFile("p2/a/1", write(bytes(10)));
+
+        store.deletePrefix("p1/");
+
+        assertFalse(store.exists("p1/a/1"));
+        assertFalse(store.exists("p1/b/2"));
+        assertTrue(store.exists("p2/a/1"));
+    }
+
+    @Test
+    void get_MissingKey_ShouldThrowFileNotFound() {
+        assertThrows(FileNotFoundException.class, () -> store.get("p/n/missing"));
+    }
+
+    private Path write(byte[] data) throws Exception {
+        return Files.write(Files.createTempFile(tempDir, "blob", ".bin"), data);
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,197 @@
+package by.nexus.core.service.storage;
+
+import by.nexus.core.config.JpaConfig;
+import by.nexus.core.model.entity.FileNode;
+import by.nexus.core.model.entity.Project;
+import by.nexus.core.repository.FileNodeBatchRepository;
+import by.nexus.core.repository.FileNodeRepository;
+import by.nexus.core.repository.FileVersionRepository;
+import by.nexus.core.repository.ProjectPermissionRepository;
+import by.nexus.core.repository.ProjectRepository;
+import by.nexus.core.service.query.DatasetPreviewService;
+import by.nexus.core.service.security.PermissionCache;
+import by.nexus.core.service.tree.FileTreeIndexer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "nexus.storage.gc.retention=-1m",
+        "nexus.storage.gc.batch-size=2",
+        "nexus.storage.gc.batch-pause=0ms"
+})
+@Import({
+        JpaConfig.class, BlobStorageFileSystemService.class, FileNodeBatchRepository.class, FileTreeIndexer.class,
+        PermissionCache.class, DatasetPreviewService.class, TreeGarbageCollector.class, TreeGarbageCollectorTest.Config.class
+})
+class TreeGarbageCollectorTest {
+
+    private static final String OWNER = "owner@example.com";
+    private static final String CONTENT_KEY = "sha256/ab/abc";
+
+    @MockitoBean
+    private BlobStore blobStore;
+
+    @MockitoBean
+    private ContentStore contentStore;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private BlobStorageFileSystemService fileSystemService;
+
+    @Autowired
+    private TreeGarbageCollector collector;
+
+    @Autowired
+    private FileNodeRepository fileNodeRepository;
+
+    @Autowired
+    private FileVersionRepository fileVersionRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectPermissionRepository projectPermissionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private UUID projectId;
+    private UUID rootId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(contentStore.store(any())).thenReturn(CONTENT_KEY);
+
+        Project project = fileSystemService.createProject(OWNER, "Project", null);
+        projectId = project.getId();
+        rootId = fileNodeRepository.findAllByProjectSorted(projectId).getFirst().getId();
+    }
+
+    @Test
+    void collect_ShouldPurgeDeletedSubtreeAndReleaseContent() {
+        FileNode reports = fileSystemService.createNode(projectId, rootId, "reports", FileNode.FileType.FOLDER, OWNER);
+        FileNode q1 = fileSystemService.createNode(projectId, reports.getId(), "q1", FileNode.FileType.FOLDER, OWNER);
+        FileNode data = fileSystemService.createNode(projectId, q1.getId(), "data", FileNode.FileType.DATASET, OWNER);
+        FileNode kept = fileSystemService.createNode(projectId, rootId, "kept", FileNode.FileType.DATASET, OWNER);
+        fileSystemService.deleteNode(reports.getId(), OWNER);
+        entityManager.flush();
+        entityManager.clear();
+        double reclaimed = meterRegistry.get("nexus.gc.reclaimed.nodes").counter().count();
+
+        collector.collect();
+
+        assertFalse(fileNodeRepository.existsById(reports.getId()));
+        assertFalse(fileNodeRepository.existsById(q1.getId()));
+        assertTrue(fileVersionRepository.findAllByFileNodeId(data.getId()).isEmpty());
+        assertTrue(fileNodeRepository.existsById(kept.getId()));
+        verify(contentStore).release(CONTENT_KEY, 1L);
+        assertEquals(reclaimed + 3, meterRegistry.get("nexus.gc.reclaimed.nodes").counter().count());
+        assertEquals(0.0, meterRegistry.get("nexus.gc.backlog").tag("type", "nodes").gauge().value());
+    }
+
+    @Test
+    void deleteProject_ShouldReturnBeforeTreeIsCollected() throws Exception {
+        fileSystemService.createNode(projectId, rootId, "data", FileNode.FileType.DATASET, OWNER);
+        entityManager.flush();
+
+        fileSystemService.deleteProject(OWNER, projectId);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(projectRepository.findAllByOwnerIdAndDeletedAtIsNull(OWNER).isEmpty());
+        assertTrue(projectPermissionRepository.findAccessLevel(projectId, OWNER).isEmpty());
+        assertEquals(2, fileNodeRepository.findAllByProjectSorted(projectId).size());
+        verify(blobStore, never()).deletePrefix(any());
+
+        collector.collect();
+
+        assertFalse(projectRepository.existsById(projectId));
+        assertEquals(List.of(), fileNodeRepository.findAllByProjectSorted(projectId));
+        verify(blobStore).deletePrefix(projectId + "/");
+        verify(contentStore).release(CONTENT_KEY, 1L);
+    }
+
+    /**
+     * Две реплики запускают проход одновременно и берут одну пачку: ссылки на содержимое снимаются один раз.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void collect_ConcurrentPassesOverSameBatch_ShouldReleaseContentOnce() throws Exception {
+        FileNode data = fileSystemService.createNode(projectId, rootId, "data", FileNode.FileType.DATASET, OWNER);
+        fileSystemService.deleteNode(data.getId(), OWNER);
+
+        CountDownLatch releasing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releasing.countDown();
+            assertTrue(proceed.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(contentStore).release(anyString(), anyLong());
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(collector::collect);
+        assertTrue(releasing.await(10, TimeUnit.SECONDS));
+        // Первая реплика держит пачку, вторая видит те же незафиксированно удаляемые узлы и пропускает их
+        CompletableFuture.runAsync(collector::collect).get(10, TimeUnit.SECONDS);
+        proceed.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        verify(contentStore, times(1)).release(CONTENT_KEY, 1L);
+        assertFalse(fileNodeRepository.existsById(data.getId()));
+
+        fileSystemService.deleteProject(OWNER, projectId);
+        collector.collect();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+}
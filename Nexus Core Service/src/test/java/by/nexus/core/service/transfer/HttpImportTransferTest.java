@@ -0,0 +1,153 @@
+package by.nexus.core.service.transfer;
+
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpImportTransferTest {
+
+    private static final int CHUNK = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[CHUNK * 3 + 1234];
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private HttpServer server;
+    private HttpImportTransfer transfer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ThreadLocalRandom.current().nextBytes(content);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/files/", this::serveRange);
+        server.start();
+
+        transfer = new HttpImportTransfer(new RestTemplate(), DataSize.ofBytes(CHUNK), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void transfer_ShouldDownloadInChunksAndVerifyChecksum() throws Exception {
+        Path target = tempDir.resolve("dataset.nxdt");
+
+        transfer.transfer(event(sha256(content)), target);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(4, ranges.size());
+        assertEquals(List.of(target), files());
+    }
+
+    @Test
+    void transfer_WhenChunkFails_ShouldRetryOnlyThatChunk() throws Exception {
+        failuresLeft.set(1);
+        Path target = tempDir.resolve("dataset.nxdt");
+
+        transfer.transfer(event(sha256(content)), target);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(5, ranges.size());
+    }
+
+    @Test
+    void transfer_RedeliveredAfterCrash_ShouldResumeIntoNewTarget() throws Exception {
+        ImportCompletedEvent event = event(sha256(content));
+        // Прошлая попытка скачивала в другой staging-файл и оборвалась вместе с процессом
+        Path previous = tempDir.resolve("blob_1.tmp");
+        Files.write(HttpImportTransfer.partialFile(event, previous), Arrays.copyOf(content, CHUNK + 10));
+        Path target = tempDir.resolve("blob_2.tmp");
+
+        transfer.transfer(event, target);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals("bytes=" + (CHUNK + 10) + "-" + (2 * CHUNK + 9), ranges.getFirst());
+        assertEquals(List.of(target), files());
+    }
+
+    @Test
+    void transfer_WhenChunkKeepsFailing_ShouldRemovePartialFile() throws Exception {
+        server.stop(0);
+        Path target = tempDir.resolve("dataset.nxdt");
+
+        assertThrows(IOException.class, () -> transfer.transfer(event(sha256(content)), target));
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void transfer_WithChecksumMismatch_ShouldNotPublish() throws Exception {
+        Path target = tempDir.resolve("dataset.nxdt");
+
+        assertThrows(IOException.class, () -> transfer.transfer(event("00"), target));
+        assertEquals(List.of(), files());
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.toList();
+        }
+    }
+
+    private ImportCompletedEvent event(String checksum) {
+        return new ImportCompletedEvent(
+                "job", "SUCCESS",
+                "http://localhost:" + server.getAddress().getPort() + "/files/job.nxdt",
+                content.length, checksum, null, null, null
+        );
+    }
+
+    private void serveRange(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range);
+
+        if (ranges.size() == 2 && failuresLeft.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = Integer.parseInt(bounds[1]);
+
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, start, end - start + 1);
+        }
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,63 @@
+package by.nexus.core.service.transfer;
+
+import by.nexus.core.model.dto.event.ImportCompletedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedVolumeImportTransferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void transfer_ShouldAdoptProcessorFileWithoutCopy() throws Exception {
+        Path shared = Files.createDirectories(tempDir.resolve("imports"));
+        Path source = Files.write(shared.resolve("job_1.nxdt"), new byte[]{1, 2, 3});
+        Path target = Files.write(tempDir.resolve("dataset.nxdt"), new byte[0]);
+
+        new SharedVolumeImportTransfer(shared.toString()).transfer(event("job_1.nxdt", 3), target);
+
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+        assertTrue(Files.isSameFile(source, target) || !Files.exists(source));
+    }
+
+    @Test
+    void transfer_WhenTargetCannotBeReplaced_ShouldLeaveNoLinkAndKeepSource() throws Exception {
+        Path shared = Files.createDirectories(tempDir.resolve("imports"));
+        Path source = Files.write(shared.resolve("job_1.nxdt"), new byte[]{1, 2, 3});
+        // Непустой каталог на месте target не заменяется
+        Path target = Files.createDirectories(tempDir.resolve("dataset.nxdt"));
+        Files.write(target.resolve("busy"), new byte[0]);
+
+        SharedVolumeImportTransfer transfer = new SharedVolumeImportTransfer(shared.toString());
+
+        assertThrows(IOException.class, () -> transfer.transfer(event("job_1.nxdt", 3), target));
+        assertFalse(Files.exists(tempDir.resolve("dataset.nxdt.link")));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(source));
+    }
+
+    @Test
+    void transfer_ShouldRejectPathsOutsideSharedVolume() throws Exception {
+        Path shared = Files.createDirectories(tempDir.resolve("imports"));
+        Files.write(tempDir.resolve("secret.nxdt"), new byte[]{1});
+
+        SharedVolumeImportTransfer transfer = new SharedVolumeImportTransfer(shared.toString());
+
+        assertThrows(IOException.class,
+                () -> transfer.transfer(event("..%2Fsecret.nxdt", 1), tempDir.resolve("dataset.nxdt")));
+    }
+
+    private static ImportCompletedEvent event(String fileName, long size) {
+        return new ImportCompletedEvent("job", "SUCCESS", "http://processor/api/internal/files/" + fileName,
+                size, null, null, null, null);
+    }
+}
@@ -0,0 +1,142 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.model.dto.SubtreeExtent;
+import by.nexus.core.model.dto.TreeNodeRef;
+import by.nexus.core.model.entity.FileNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkTreePlanTest {
+
+    private final UUID projectId = UUID.randomUUID();
+    private final List<TreeNodeRef> refs = new ArrayList<>();
+    private final List<SubtreeExtent> extents = new ArrayList<>();
+
+    private TreeNodeRef root;
+    private TreeNodeRef reports;
+    private TreeNodeRef q1;
+    private TreeNodeRef archive;
+
+    @BeforeEach
+    void setUp() {
+        root = ref(null, "", FileNode.FileType.FOLDER);
+        reports = ref(root, "reports", FileNode.FileType.FOLDER);
+        q1 = ref(reports, "q1", FileNode.FileType.DATASET);
+        archive = ref(root, "archive", FileNode.FileType.FOLDER);
+    }
+
+    @Test
+    void moveIntoOwnSubtreeIsRejected() {
+        UUID sub = ref(reports, "sub", FileNode.FileType.FOLDER).id();
+        BulkTreePlan plan = plan();
+
+        assertThrows(IllegalArgumentException.class, () -> plan.apply(BulkOperation.move(reports.id(), sub)));
+    }
+
+    @Test
+    void nameConflictWithinBatchIsRejected() {
+        BulkTreePlan plan = plan();
+        plan.apply(BulkOperation.create(archive.id(), "q1", FileNode.FileType.FOLDER));
+
+        assertThrows(IllegalArgumentException.class, () -> plan.apply(BulkOperation.move(q1.id(), archive.id())));
+    }
+
+    @Test
+    void renameFreesOldNameForNextOperation() {
+        BulkTreePlan plan = plan();
+        plan.apply(BulkOperation.rename(reports.id(), "old-reports"));
+        plan.apply(BulkOperation.create(root.id(), "reports", FileNode.FileType.FOLDER));
+
+        assertEquals(1, plan.rewrites().size());
+        assertEquals("/old-reports", plan.rewrites().getFirst().newNamePath());
+    }
+
+    @Test
+    void moveIsSeenByLaterOperationsOnDescendants() {
+        BulkTreePlan plan = plan();
+        plan.apply(BulkOperation.move(reports.id(), archive.id()));
+        plan.apply(BulkOperation.rename(q1.id(), "q1-final"));
+
+        SubtreeRewrite rename = plan.rewrites().get(1);
+        String movedReports = TreePath.child(archive.treePath(), reports.id());
+        assertEquals(TreePath.child(movedReports, q1.id()), rename.from());
+        assertEquals("/archive/reports/q1-final", rename.newNamePath());
+    }
+
+    @Test
+    void createUsesFinalPositionOfParent() {
+        BulkTreePlan plan = plan();
+        plan.apply(BulkOperation.create(reports.id(), "q2", FileNode.FileType.DATASET));
+        plan.apply(BulkOperation.move(reports.id(), archive.id()));
+        plan.apply(BulkOperation.delete(archive.id()));
+
+        BulkTreePlan.PlanNode parent = plan.creates().getFirst().getParent();
+        assertEquals("/archive/reports", parent.getNamePath());
+        assertEquals(2, parent.getDepth());
+        assertTrue(parent.isDeleted());
+    }
+
+    @Test
+    void deletedNodeCannotBeTargeted() {
+        BulkTreePlan plan = plan();
+        plan.apply(BulkOperation.delete(archive.id()));
+
+        assertThrows(IllegalArgumentException.class, () -> plan.apply(BulkOperation.move(q1.id(), archive.id())));
+    }
+
+    @Test
+    void moveThatOverflowsTreePathIsRejected() {
+        // Самый глубокий узел поддерева reports уже на пределе колонки
+        extents.add(new SubtreeExtent(reports.id(), TreePath.MAX_PATH_LENGTH, reports.namePath().length()));
+        BulkTreePlan plan = plan();
+
+        assertThrows(IllegalArgumentException.class, () -> plan.apply(BulkOperation.move(reports.id(), archive.id())));
+        assertTrue(plan.rewrites().isEmpty());
+    }
+
+    @Test
+    void subtreeMovedInBatchCountsForLaterMoveOfItsNewParent() {
+        TreeNodeRef deep = ref(root, "deep", FileNode.FileType.FOLDER);
+        extents.add(new SubtreeExtent(reports.id(), TreePath.MAX_PATH_LENGTH - TreePath.SEGMENT_LENGTH,
+                reports.namePath().length()));
+        extents.add(new SubtreeExtent(archive.id(), archive.treePath().length(), archive.namePath().length()));
+        BulkTreePlan plan = plan();
+
+        plan.apply(BulkOperation.move(reports.id(), archive.id()));
+
+        assertThrows(IllegalArgumentException.class, () -> plan.apply(BulkOperation.move(archive.id(), deep.id())));
+    }
+
+    @Test
+    void renameThatOverflowsNamePathIsRejected() {
+        extents.add(new SubtreeExtent(reports.id(), q1.treePath().length(), TreePath.MAX_PATH_LENGTH));
+        BulkTreePlan plan = plan();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> plan.apply(BulkOperation.rename(reports.id(), "reports-2024")));
+    }
+
+    private BulkTreePlan plan() {
+        List<TreeNodeRef> children = refs.stream().filter(ref -> ref.parentId() != null).toList();
+        return new BulkTreePlan(projectId, refs, children, extents);
+    }
+
+    private TreeNodeRef ref(TreeNodeRef parent, String name, FileNode.FileType type) {
+        UUID id = UUID.randomUUID();
+        TreeNodeRef ref = parent == null
+                ? new TreeNodeRef(id, projectId, null, name, type, TreePath.segment(id), "", 0, false)
+                : new TreeNodeRef(id, projectId, parent.id(), name, type,
+                TreePath.child(parent.treePath(), id), TreePath.childNamePath(parent.namePath(), name),
+                parent.depth() + 1, false);
+        refs.add(ref);
+        return ref;
+    }
+}
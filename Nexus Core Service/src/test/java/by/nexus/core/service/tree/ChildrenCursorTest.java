@@ -0,0 +1,25 @@
+package by.nexus.core.service.tree;
+
+import by.nexus.core.model.entity.FileNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChildrenCursorTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedPosition() {
+        ChildrenCursor cursor = new ChildrenCursor(FileNode.FileType.DATASET, "Отчёт:2024 q1.nxdt", UUID.randomUUID());
+
+        assertEquals(cursor, ChildrenCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void decode_ShouldRejectGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> ChildrenCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ChildrenCursor.decode("YWJj"));
+    }
+}
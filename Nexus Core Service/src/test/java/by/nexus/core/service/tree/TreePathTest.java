@@ -0,0 +1,45 @@
+package by.nexus.core.service.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreePathTest {
+
+    @Test
+    void childPathKeepsAncestorsInOrder() {
+        UUID root = UUID.randomUUID();
+        UUID folder = UUID.randomUUID();
+        UUID file = UUID.randomUUID();
+
+        String path = TreePath.child(TreePath.child(TreePath.segment(root), folder), file);
+
+        assertEquals(2, TreePath.depth(path));
+        assertEquals(List.of(root, folder), TreePath.ancestors(path));
+        assertTrue(path.matches("[0-9a-f]+"));
+    }
+
+    @Test
+    void subtreeRangeContainsOnlyDescendants() {
+        String folder = TreePath.child(TreePath.segment(UUID.randomUUID()), UUID.randomUUID());
+        String end = TreePath.subtreeEnd(folder);
+        String descendant = TreePath.child(TreePath.child(folder, UUID.randomUUID()), UUID.randomUUID());
+        String sibling = TreePath.child(folder.substring(0, TreePath.SEGMENT_LENGTH), UUID.randomUUID());
+
+        assertTrue(folder.compareTo(end) < 0);
+        assertTrue(descendant.compareTo(folder) >= 0 && descendant.compareTo(end) < 0);
+        assertFalse(sibling.compareTo(folder) >= 0 && sibling.compareTo(end) < 0);
+    }
+
+    @Test
+    void namePathIsNormalized() {
+        assertEquals("/reports/q1", TreePath.normalizeNamePath("reports//q1/"));
+        assertEquals("/reports/q1", TreePath.childNamePath(TreePath.childNamePath("", "reports"), "q1"));
+        assertEquals("", TreePath.normalizeNamePath("/"));
+    }
+}
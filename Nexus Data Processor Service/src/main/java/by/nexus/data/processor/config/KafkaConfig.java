@@ -13,7 +13,7 @@ public class KafkaConfig {
 
     @Bean
     public CommonErrorHandler kafkaErrorHandler() {
-        return new DefaultErrorHandler(
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
                 (record, exception) -> log.error(
         "Не удалось обработать сообщение после всех попыток. Topic: {}, Partition: {}, Offset: {}, Value: {}",
                         record.topic(),
@@ -24,5 +24,8 @@ public class KafkaConfig {
                 ),
                 new FixedBackOff(1000L, 2)
         );
+        // Коммит пропущенного сообщения сдвинул бы offset за ещё идущие импорты; его покроет следующий коммит
+        errorHandler.setAckAfterHandle(false);
+        return errorHandler;
     }
 }
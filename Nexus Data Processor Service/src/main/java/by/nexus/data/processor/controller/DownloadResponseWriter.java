@@ -0,0 +1,185 @@
+package by.nexus.data.processor.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Отдача файлов по HTTP — та же логика, что у отдачи содержимого в Core:
+ * <ul>
+ *     <li>условные запросы — {@code If-None-Match}/{@code If-Modified-Since} отвечают 304 без тела;</li>
+ *     <li>{@code Range} — 206 с одним диапазоном или {@code multipart/byteranges} с несколькими: так клиенты
+ *     дочитывают прерванную загрузку и читают footer и column chunk'и Parquet без скачивания файла;</li>
+ *     <li>файл на локальном диске целиком или одним диапазоном отдаёт Tomcat через sendfile, не копируя байты
+ *     в heap. Без sendfile файл пишется через {@link FileChannel}.</li>
+ * </ul>
+ */
+final class DownloadResponseWriter {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private DownloadResponseWriter() {
+    }
+
+    /**
+     * @param etag         строгий ETag файла без кавычек
+     * @param lastModified момент записи содержимого, может быть null
+     */
+    static void write(HttpServletRequest request, HttpServletResponse response, Resource resource,
+                             String etag, Instant lastModified, String filename) throws IOException {
+        long lastModifiedMillis = lastModified != null ? lastModified.toEpochMilli() : -1L;
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModifiedMillis)) {
+            return;
+        }
+
+        long length = resource.contentLength();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString());
+
+        List<ResourceRegion> regions;
+        try {
+            regions = regions(request, resource, etag, lastModified);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (regions.isEmpty()) {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(request, response, resource, 0, length);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.getFirst();
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, length));
+            response.setContentLengthLong(region.getCount());
+            if (!head) {
+                send(request, response, resource, region.getPosition(), region.getCount());
+            }
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        for (ResourceRegion region : regions) {
+            out.write(("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            copy(resource, out, region.getPosition(), region.getCount());
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Диапазоны запроса; пустой список — отдать всё. {@code If-Range}, не совпавший с текущей версией,
+     * тоже означает всё содержимое: клиент докачивает другую версию файла.
+     */
+    private static List<ResourceRegion> regions(HttpServletRequest request, Resource resource, String etag,
+                                                Instant lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            return List.of();
+        }
+        List<HttpRange> ranges = HttpRange.parseRanges(range);
+        return HttpRange.toResourceRegions(ranges, resource);
+    }
+
+    private static boolean rangeApplies(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals("\"" + etag + "\"");
+        }
+        try {
+            Instant date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return lastModified != null && date.getEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static String contentRange(ResourceRegion region, long length) {
+        long start = region.getPosition();
+        return "bytes " + start + "-" + (start + region.getCount() - 1) + "/" + length;
+    }
+
+    /**
+     * Один непрерывный участок ответа. Файл на локальном диске отдаёт Tomcat через sendfile после возврата
+     * из контроллера.
+     */
+    private static void send(HttpServletRequest request, HttpServletResponse response, Resource resource,
+                             long position, long count) throws IOException {
+        if (resource.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, resource.getFile().getAbsolutePath());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+        copy(resource, response.getOutputStream(), position, count);
+    }
+
+    private static void copy(Resource resource, OutputStream out, long position, long count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (resource.isFile()) {
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long written = 0;
+                while (written < count) {
+                    long n = channel.transferTo(position + written, count - written, target);
+                    if (n <= 0) {
+                        throw new EOFException("Unexpected end of " + resource.getDescription());
+                    }
+                    written += n;
+                }
+            }
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            StreamUtils.copyRange(in, out, position, position + count - 1);
+        }
+    }
+}
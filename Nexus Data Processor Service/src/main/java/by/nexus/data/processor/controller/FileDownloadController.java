@@ -1,20 +1,25 @@
 package by.nexus.data.processor.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 
+/**
+ * Результаты импорта для Core. Core скачивает их Range-запросами частями и докачивает после обрыва,
+ * файл с диска отдаётся через sendfile.
+ */
 @RestController
 @RequestMapping("/api/internal/files")
 public class FileDownloadController {
@@ -23,24 +28,26 @@ public class FileDownloadController {
     private String storagePath;
 
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename) {
-        try {
-            Path file = Paths.get(storagePath).resolve(filename).normalize();
-            Resource resource = new UrlResource(file.toUri());
-
-            if (resource.exists() || resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                        .header(
-                                HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + resource.getFilename() + "\""
-                        )
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+    public void downloadFile(@PathVariable String filename,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        Path root = Paths.get(storagePath).toAbsolutePath().normalize();
+        Path file = root.resolve(filename).normalize();
+        if (!file.startsWith(root)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        // Результат импорта после записи не меняется: размер и время изменения однозначно задают его версию
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+        String etag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified.toEpochMilli());
+
+        DownloadResponseWriter.write(request, response, new FileSystemResource(file), etag, lastModified,
+                file.getFileName().toString());
     }
 }
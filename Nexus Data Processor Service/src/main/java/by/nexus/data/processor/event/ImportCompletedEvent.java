@@ -2,9 +2,11 @@ package by.nexus.data.processor.event;
 
 public record ImportCompletedEvent(
         String jobId,
-        String status,          // SUCCESS|FAILED
+        String status,          // SUCCESS|FAILED|RUNNING
         String storagePath,
         long fileSize,
-        String errorMessage
+        String checksum,        // SHA-256 (hex) файла результата
+        String errorMessage,
+        String watermarkColumn, // только для инкрементального импорта
+        String watermark
 ) {}
-
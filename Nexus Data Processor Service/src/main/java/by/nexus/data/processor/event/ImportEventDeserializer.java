@@ -0,0 +1,28 @@
+package by.nexus.data.processor.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Пара к {@link ImportEventSerializer}: сообщения в {@link ImportEventCodec} читаются в события,
+ * остальные — строкой, как раньше через {@code StringDeserializer}.
+ */
+public class ImportEventDeserializer implements Deserializer<Object> {
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!ImportEventCodec.isEncoded(data)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        try {
+            return ImportEventCodec.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decode event from topic " + topic, e);
+        }
+    }
+}
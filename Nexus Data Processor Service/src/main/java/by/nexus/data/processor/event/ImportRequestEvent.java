@@ -6,6 +6,29 @@ public record ImportRequestEvent (
         String connectionUrl,
         String username,
         String password,
-        String sqlQuery
-) {}
+        String sqlQuery,
+        String partitionColumn,
+        Integer partitionCount,
+        String priority,
+        String watermarkColumn,
+        String watermark
+) {
+    public ImportRequestEvent(String jobId, String projectId, String connectionUrl,
+                              String username, String password, String sqlQuery) {
+        this(jobId, projectId, connectionUrl, username, password, sqlQuery, null, null, null, null, null);
+    }
 
+    public ImportRequestEvent withPartitionCount(Integer partitionCount) {
+        return new ImportRequestEvent(
+                jobId, projectId, connectionUrl, username, password, sqlQuery,
+                partitionColumn, partitionCount, priority, watermarkColumn, watermark
+        );
+    }
+
+    public ImportRequestEvent withSqlQuery(String sqlQuery) {
+        return new ImportRequestEvent(
+                jobId, projectId, connectionUrl, username, password, sqlQuery,
+                partitionColumn, partitionCount, priority, watermarkColumn, watermark
+        );
+    }
+}
@@ -1,22 +1,33 @@
 package by.nexus.data.processor.scheduler;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.stream.Stream;
 
+/**
+ * Удаляет результаты и рабочие директории импортов старше суток. Возраст считается по последнему
+ * изменению: рабочая директория живёт, пока в неё пишутся part-файлы и checkpoint. Файлы задач,
+ * которые стоят в очереди или выполняются, не трогаются независимо от возраста.
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class FileCleanupTask {
 
+    private static final String JOB_PREFIX = "job_";
+
+    private final ImportJobScheduler jobScheduler;
+
     @Value("${nexus.storage.path}")
     private String storagePath;
 
@@ -30,12 +41,16 @@ public class FileCleanupTask {
             files.forEach(path -> {
                 try {
                     File file = path.toFile();
-                    Instant fileCreationTime = Files.readAttributes(path, BasicFileAttributes.class)
-                            .creationTime()
-                            .toInstant();
+                    if (isActiveJob(file.getName())) {
+                        return;
+                    }
 
-                    if (fileCreationTime.isBefore(retentionLimit)) {
-                        if (file.delete()) {
+                    if (lastModified(path).isBefore(retentionLimit)) {
+                        if (file.isDirectory()) {
+                            // Рабочая директория импорта, который так и не был доведён до конца
+                            deleteDirectory(path);
+                            log.info("Deleted abandoned import work dir: {}", file.getName());
+                        } else if (file.delete()) {
                             log.info("Deleted old file: {}", file.getName());
                         }
                     }
@@ -47,4 +62,40 @@ public class FileCleanupTask {
             log.error("Storage cleanup failed", e);
         }
     }
+
+    /**
+     * Имена файлов задачи: {@code job_<jobId>.nxdt}, {@code job_<jobId>.work}, {@code job_<jobId>.watermark}.
+     */
+    private boolean isActiveJob(String fileName) {
+        int suffix = fileName.lastIndexOf('.');
+        return fileName.startsWith(JOB_PREFIX) && suffix > JOB_PREFIX.length()
+                && jobScheduler.isActive(fileName.substring(JOB_PREFIX.length(), suffix));
+    }
+
+    /**
+     * Для директории — самое позднее изменение её самой и файлов в ней.
+     */
+    private Instant lastModified(java.nio.file.Path path) throws IOException {
+        Instant modified = Files.getLastModifiedTime(path).toInstant();
+        if (Files.isDirectory(path)) {
+            try (Stream<java.nio.file.Path> files = Files.list(path)) {
+                for (java.nio.file.Path file : files.toList()) {
+                    Instant fileModified = Files.getLastModifiedTime(file).toInstant();
+                    if (fileModified.isAfter(modified)) {
+                        modified = fileModified;
+                    }
+                }
+            }
+        }
+        return modified;
+    }
+
+    private void deleteDirectory(java.nio.file.Path dir) throws IOException {
+        try (Stream<java.nio.file.Path> files = Files.list(dir)) {
+            for (java.nio.file.Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
 }
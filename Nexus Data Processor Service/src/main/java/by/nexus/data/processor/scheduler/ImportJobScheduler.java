@@ -0,0 +1,198 @@
+package by.nexus.data.processor.scheduler;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Планировщик импортов внутри Data Processor.
+ * <ul>
+ *     <li>ограничивает число одновременно выполняемых импортов;</li>
+ *     <li>ограничивает число соединений к одному источнику (connectionUrl);</li>
+ *     <li>держит для интерактивной полосы слоты, которые не может занять BULK-полоса.</li>
+ * </ul>
+ * Задачи, упёршиеся в лимит своего источника, не блокируют задачи других источников.
+ */
+@Slf4j
+@Component
+public class ImportJobScheduler {
+
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(10);
+
+    private final int maxConcurrentJobs;
+    private final int maxBulkJobs;
+    private final int maxConnectionsPerSource;
+    private final int maxQueuedJobs;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final TreeSet<Job> pending = new TreeSet<>(
+            Comparator.comparing(Job::lane).thenComparingLong(Job::sequence)
+    );
+    private final Map<String, Integer> connectionsBySource = new HashMap<>();
+    private final Set<String> runningJobIds = new HashSet<>();
+    private int running;
+    private int runningBulk;
+    private long sequence;
+    private boolean shutdown;
+
+    public ImportJobScheduler(MeterRegistry meterRegistry,
+                              @Value("${nexus.import.scheduler.max-concurrent-jobs:8}") int maxConcurrentJobs,
+                              @Value("${nexus.import.scheduler.reserved-interactive-slots:2}") int reservedSlots,
+                              @Value("${nexus.import.scheduler.max-connections-per-source:4}") int maxConnectionsPerSource,
+                              @Value("${nexus.import.scheduler.max-queued-jobs:100}") int maxQueuedJobs) {
+        this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+        this.maxBulkJobs = Math.max(1, this.maxConcurrentJobs - reservedSlots);
+        this.maxConnectionsPerSource = Math.max(1, maxConnectionsPerSource);
+        this.maxQueuedJobs = Math.max(1, maxQueuedJobs);
+
+        Gauge.builder("nexus.import.jobs.running", this, s -> s.running()).register(meterRegistry);
+        Gauge.builder("nexus.import.jobs.queued", this, s -> s.queued()).register(meterRegistry);
+    }
+
+    /**
+     * Ставит импорт в очередь. {@code task} получает событие с числом партиций,
+     * урезанным до лимита соединений источника, и вызывается в отдельном виртуальном потоке.
+     */
+    public synchronized void submit(ImportRequestEvent event, Consumer<ImportRequestEvent> task) {
+        if (shutdown) {
+            throw new IllegalStateException("Import scheduler is shut down");
+        }
+
+        int connections = 1;
+        if (event.partitionCount() != null && event.partitionCount() > 1) {
+            connections = Math.min(event.partitionCount(), maxConnectionsPerSource);
+            event = event.withPartitionCount(connections);
+        }
+
+        pending.add(new Job(event, ImportLane.of(event), sequence++, connections, task));
+        dispatch();
+    }
+
+    /**
+     * Очередь заполнена — потребителю Kafka стоит приостановиться.
+     */
+    public synchronized boolean isSaturated() {
+        return pending.size() >= maxQueuedJobs;
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int queued() {
+        return pending.size();
+    }
+
+    /**
+     * Задача стоит в очереди или выполняется: её рабочие файлы трогать нельзя.
+     */
+    public synchronized boolean isActive(String jobId) {
+        return runningJobIds.contains(jobId) || pending.stream().anyMatch(job -> job.event().jobId().equals(jobId));
+    }
+
+    private void dispatch() {
+        Iterator<Job> iterator = pending.iterator();
+        while (iterator.hasNext() && running < maxConcurrentJobs) {
+            Job job = iterator.next();
+
+            if (job.lane() == ImportLane.BULK && runningBulk >= maxBulkJobs) {
+                continue;
+            }
+
+            int inUse = connectionsBySource.getOrDefault(job.source(), 0);
+            if (inUse > 0 && inUse + job.connections() > maxConnectionsPerSource) {
+                continue;
+            }
+
+            iterator.remove();
+            start(job);
+        }
+    }
+
+    private void start(Job job) {
+        running++;
+        if (job.lane() == ImportLane.BULK) {
+            runningBulk++;
+        }
+        connectionsBySource.merge(job.source(), job.connections(), Integer::sum);
+        runningJobIds.add(job.event().jobId());
+
+        executor.execute(() -> {
+            try {
+                job.task().accept(job.event());
+            } catch (Exception e) {
+                log.error("[JobId: {}] Import job crashed", job.event().jobId(), e);
+            } finally {
+                finish(job);
+            }
+        });
+    }
+
+    private synchronized void finish(Job job) {
+        running--;
+        if (job.lane() == ImportLane.BULK) {
+            runningBulk--;
+        }
+        connectionsBySource.computeIfPresent(
+                job.source(), (source, inUse) -> inUse == job.connections() ? null : inUse - job.connections()
+        );
+        runningJobIds.remove(job.event().jobId());
+
+        if (!shutdown) {
+            dispatch();
+        }
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Выполняющиеся импорты прерываются, а не дожидаются: импорт может идти часами. Их offset'ы
+     * не подтверждены, после рестарта Kafka доставит задачи повторно, и они продолжатся с контрольных точек.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            pending.clear();
+        }
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_GRACE.toSeconds(), TimeUnit.SECONDS)) {
+                log.warn("Import jobs did not stop within {}", SHUTDOWN_GRACE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Job(
+            ImportRequestEvent event,
+            ImportLane lane,
+            long sequence,
+            int connections,
+            Consumer<ImportRequestEvent> task
+    ) {
+        String source() {
+            return event.connectionUrl();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package by.nexus.data.processor.scheduler;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+
+/**
+ * Полоса приоритета импорта. Интерактивные (небольшие) импорты всегда выбираются раньше
+ * и не ждут за крупными выгрузками.
+ */
+@Slf4j
+public enum ImportLane {
+    INTERACTIVE, BULK;
+
+    /**
+     * Неизвестный приоритет (Core новее процессора или событие собрано вручную) не валит задачу:
+     * она идёт в полосу по умолчанию.
+     */
+    public static ImportLane of(ImportRequestEvent event) {
+        if (event.priority() != null && !event.priority().isBlank()) {
+            try {
+                return ImportLane.valueOf(event.priority().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown priority {} of job {}, using default lane", event.priority(), event.jobId());
+            }
+        }
+        return event.partitionCount() != null && event.partitionCount() > 1 ? BULK : INTERACTIVE;
+    }
+}
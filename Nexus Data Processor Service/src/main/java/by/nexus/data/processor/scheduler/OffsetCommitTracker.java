@@ -0,0 +1,70 @@
+package by.nexus.data.processor.scheduler;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Подтверждает offset'ы импортов по порядку. Импорты одного раздела выполняются параллельно и завершаются
+ * в любом порядке, а коммитится только непрерывный префикс завершённых: долгий импорт задерживает коммит,
+ * но не чтение следующих сообщений. После падения незакоммиченные задачи придут снова и продолжатся
+ * с контрольных точек.
+ */
+public class OffsetCommitTracker {
+
+    private final Map<TopicPartition, TreeMap<Long, Entry>> inFlight = new HashMap<>();
+
+    /**
+     * Запоминает полученное сообщение. Повторно доставленное сообщение заменяет прежнюю запись:
+     * подтверждать его нужно через новое {@link Acknowledgment}.
+     */
+    public synchronized void track(TopicPartition partition, long offset, Acknowledgment acknowledgment) {
+        inFlight.computeIfAbsent(partition, p -> new TreeMap<>()).put(offset, new Entry(acknowledgment));
+    }
+
+    /**
+     * Отмечает задачу завершённой и подтверждает последнее сообщение непрерывного префикса, если он сдвинулся.
+     * Коммит offset'а N + 1 покрывает и все сообщения до N.
+     */
+    public void complete(TopicPartition partition, long offset) {
+        Acknowledgment acknowledgment = null;
+        synchronized (this) {
+            TreeMap<Long, Entry> offsets = inFlight.get(partition);
+            Entry entry = offsets != null ? offsets.get(offset) : null;
+            if (entry == null) {
+                return;
+            }
+            entry.done = true;
+            while (!offsets.isEmpty() && offsets.firstEntry().getValue().done) {
+                acknowledgment = offsets.pollFirstEntry().getValue().acknowledgment;
+            }
+            if (offsets.isEmpty()) {
+                inFlight.remove(partition);
+            }
+        }
+        if (acknowledgment != null) {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    /**
+     * Сообщения раздела, offset которых ещё не закоммичен.
+     */
+    public synchronized int pending(TopicPartition partition) {
+        TreeMap<Long, Entry> offsets = inFlight.get(partition);
+        return offsets != null ? offsets.size() : 0;
+    }
+
+    private static final class Entry {
+
+        private final Acknowledgment acknowledgment;
+        private boolean done;
+
+        Entry(Acknowledgment acknowledgment) {
+            this.acknowledgment = acknowledgment;
+        }
+    }
+}
@@ -3,7 +3,16 @@ package by.nexus.data.processor.service;
 import by.nexus.data.processor.event.ImportRequestEvent;
 
 import java.io.File;
+import java.util.List;
 
 public interface DataExtractionService {
-    File extractAndConvert(ImportRequestEvent event) throws Exception;
+
+    default File extractAndConvert(ImportRequestEvent event) throws Exception {
+        return extractAndConvert(event, List.of());
+    }
+
+    /**
+     * @param parameters значения для {@code ?} в запросе события, по порядку
+     */
+    File extractAndConvert(ImportRequestEvent event, List<Object> parameters) throws Exception;
 }
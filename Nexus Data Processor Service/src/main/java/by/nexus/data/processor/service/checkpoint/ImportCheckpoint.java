@@ -0,0 +1,70 @@
+package by.nexus.data.processor.service.checkpoint;
+
+import by.nexus.data.processor.service.partition.PartitionRange;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние прерванного импорта: для какого плана партиций оно записано, какие партиции
+ * уже выгружены целиком и сколько сегментов недовыгруженных партиций уже запечатано.
+ */
+public record ImportCheckpoint(
+        String planFingerprint,
+        Set<Integer> completedPartitions,
+        Map<Integer, Segments> segments
+) {
+
+    /**
+     * Запечатанные сегменты партиции: part-файлы {@code 0..count-1} и ключ последней записанной в них строки.
+     * Сегмент закрывается только на смене ключа, так что продолжение с {@code key > lastKey} ничего
+     * не теряет и не повторяет.
+     *
+     * @param lastKey     значение в формате {@link ImportPlan} ({@code TYPE:value}) или {@code null}
+     * @param nullsSealed строки с NULL в ключе уже попали в запечатанные сегменты
+     */
+    public record Segments(int count, String lastKey, boolean nullsSealed) {
+
+        public static Segments sealed(int count, Object lastKey, boolean nullsSealed) {
+            return new Segments(count, ImportPlan.format(lastKey), nullsSealed);
+        }
+
+        public Object lastKeyValue() {
+            return ImportPlan.parse(lastKey);
+        }
+
+        /**
+         * Ключ, после которого можно продолжить выгрузку: его значение сохраняется в checkpoint.
+         */
+        public static boolean isResumableKey(Object key) {
+            return ImportPlan.isSupported(key);
+        }
+    }
+
+    /**
+     * Отпечаток плана: запрос, колонка и границы диапазонов. Границы берутся из {@link ImportPlan}
+     * первой попытки, так что рост данных в источнике между попытками checkpoint не сбрасывает.
+     */
+    public static String fingerprint(String sqlQuery, String partitionColumn, List<PartitionRange> ranges) {
+        StringBuilder plan = new StringBuilder(sqlQuery).append('\n').append(partitionColumn);
+        for (PartitionRange range : ranges) {
+            plan.append('\n')
+                    .append(range.index()).append(';')
+                    .append(range.lowerBound()).append(';')
+                    .append(range.upperBound()).append(';')
+                    .append(range.last());
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(plan.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
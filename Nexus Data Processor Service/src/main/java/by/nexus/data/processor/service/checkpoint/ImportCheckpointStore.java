@@ -0,0 +1,98 @@
+package by.nexus.data.processor.service.checkpoint;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+
+/**
+ * Хранит checkpoint и план партиций импорта в рабочей директории задачи рядом с part-файлами.
+ * Запись атомарна: новый файл пишется во временный, сбрасывается на диск и подменяет старый
+ * переименованием.
+ */
+@Slf4j
+@Component
+public class ImportCheckpointStore {
+
+    private static final String CHECKPOINT_FILE = "checkpoint.json";
+    private static final String PLAN_FILE = "plan.json";
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    /**
+     * Возвращает checkpoint для плана с заданным отпечатком или пустой, если его нет
+     * либо он записан для другого плана.
+     */
+    public ImportCheckpoint load(Path workDir, String planFingerprint) {
+        Path file = workDir.resolve(CHECKPOINT_FILE);
+        Optional<ImportCheckpoint> stored = Optional.empty();
+
+        if (Files.exists(file)) {
+            try {
+                stored = Optional.of(jsonMapper.readValue(file.toFile(), ImportCheckpoint.class));
+            } catch (JacksonException e) {
+                log.warn("Unreadable checkpoint {}, starting over", file, e);
+            }
+        }
+
+        return stored
+                .filter(checkpoint -> planFingerprint.equals(checkpoint.planFingerprint()))
+                .map(checkpoint -> new ImportCheckpoint(
+                        planFingerprint,
+                        new HashSet<>(checkpoint.completedPartitions()),
+                        checkpoint.segments() != null ? new HashMap<>(checkpoint.segments()) : new HashMap<>()
+                ))
+                .orElseGet(() -> new ImportCheckpoint(planFingerprint, new HashSet<>(), new HashMap<>()));
+    }
+
+    public void save(Path workDir, ImportCheckpoint checkpoint) throws IOException {
+        write(workDir, CHECKPOINT_FILE, checkpoint);
+    }
+
+    /**
+     * Возвращает план, сохранённый прошлой попыткой для того же запроса.
+     */
+    public Optional<ImportPlan> loadPlan(Path workDir, String requestFingerprint) {
+        Path file = workDir.resolve(PLAN_FILE);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(jsonMapper.readValue(file.toFile(), ImportPlan.class))
+                    .filter(plan -> requestFingerprint.equals(plan.requestFingerprint()));
+        } catch (JacksonException | IllegalArgumentException e) {
+            log.warn("Unreadable partition plan {}, planning again", file, e);
+            return Optional.empty();
+        }
+    }
+
+    public void savePlan(Path workDir, ImportPlan plan) throws IOException {
+        write(workDir, PLAN_FILE, plan);
+    }
+
+    private void write(Path workDir, String fileName, Object value) throws IOException {
+        Path tmp = workDir.resolve(fileName + ".tmp");
+        Files.write(tmp, jsonMapper.writeValueAsBytes(value));
+        sync(tmp);
+        Files.move(tmp, workDir.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Сбрасывает содержимое файла на диск, чтобы checkpoint не ссылался на недописанный part-файл.
+     */
+    public static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package by.nexus.data.processor.service.checkpoint;
+
+import by.nexus.data.processor.service.partition.PartitionRange;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Диапазоны партиций, спланированные при первой попытке импорта. Повторная доставка задачи берёт их
+ * отсюда, а не считает MIN/MAX заново: иначе новые строки в источнике сдвинули бы границы и checkpoint
+ * перестал бы подходить. Границы хранятся с типом ({@code TYPE:value}), чтобы запрос получил те же значения.
+ */
+public record ImportPlan(
+        String requestFingerprint,
+        List<Range> ranges
+) {
+
+    public record Range(int index, String lowerBound, String upperBound, boolean last) {
+    }
+
+    public static ImportPlan of(String requestFingerprint, List<PartitionRange> ranges) {
+        return new ImportPlan(requestFingerprint, ranges.stream()
+                .map(range -> new Range(
+                        range.index(), format(range.lowerBound()), format(range.upperBound()), range.last()))
+                .toList());
+    }
+
+    public List<PartitionRange> toRanges() {
+        return ranges.stream()
+                .map(range -> new PartitionRange(
+                        range.index(), parse(range.lowerBound()), parse(range.upperBound()), range.last()))
+                .toList();
+    }
+
+    /**
+     * Отпечаток запроса, для которого строится план: при другом запросе, колонке или числе партиций
+     * сохранённый план не используется.
+     */
+    public static String fingerprint(String sqlQuery, String partitionColumn, int partitionCount) {
+        String request = sqlQuery + '\n' + partitionColumn + '\n' + partitionCount;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Значения, которые можно сохранить токеном: границы партиций и ключи сегментов {@link ImportCheckpoint}.
+     */
+    static boolean isSupported(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigDecimal || value instanceof Date || value instanceof Timestamp
+                || value instanceof String;
+    }
+
+    static String format(Object value) {
+        return switch (value) {
+            case null -> null;
+            case Long number -> "LONG:" + number;
+            case Integer number -> "LONG:" + number;
+            case Short number -> "LONG:" + number;
+            case Byte number -> "LONG:" + number;
+            case BigDecimal number -> "DECIMAL:" + number;
+            case Date date -> "DATE:" + date;
+            case Timestamp timestamp -> "TIMESTAMP:" + timestamp.toInstant();
+            case String text -> "STRING:" + text;
+            default -> throw new IllegalArgumentException("Unsupported partition bound " + value.getClass());
+        };
+    }
+
+    static Object parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int separator = token.indexOf(':');
+        String value = token.substring(separator + 1);
+        return switch (token.substring(0, Math.max(separator, 0))) {
+            case "LONG" -> Long.valueOf(value);
+            case "DECIMAL" -> new BigDecimal(value);
+            case "DATE" -> Date.valueOf(value);
+            case "TIMESTAMP" -> Timestamp.from(Instant.parse(value));
+            case "STRING" -> value;
+            default -> throw new IllegalArgumentException("Invalid partition bound " + token);
+        };
+    }
+}
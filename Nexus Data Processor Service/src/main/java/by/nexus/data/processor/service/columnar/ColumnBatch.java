@@ -0,0 +1,106 @@
+package by.nexus.data.processor.service.columnar;
+
+import org.apache.avro.Schema;
+import org.apache.parquet.io.api.RecordConsumer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Батч из N строк результата запроса, разложенный по примитивным векторам колонок.
+ */
+public final class ColumnBatch {
+
+    private final Schema schema;
+    private final ColumnVector[] vectors;
+    private final int capacity;
+    private int size;
+    private int cursor;
+
+    private ColumnBatch(Schema schema, ColumnVector[] vectors, int capacity) {
+        this.schema = schema;
+        this.vectors = vectors;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Возвращает батч под схему, если все её поля плоские, иначе пустой Optional.
+     */
+    public static Optional<ColumnBatch> forSchema(Schema schema, int capacity) {
+        List<Schema.Field> fields = schema.getFields();
+        ColumnVector[] vectors = new ColumnVector[fields.size()];
+
+        for (Schema.Field field : fields) {
+            ColumnVector vector = ColumnVector.forField(field, capacity);
+            if (vector == null) {
+                return Optional.empty();
+            }
+            vectors[field.pos()] = vector;
+        }
+
+        return Optional.of(new ColumnBatch(schema, vectors, capacity));
+    }
+
+    /**
+     * Читает текущую строку ResultSet в батч.
+     *
+     * @return {@code true}, если батч заполнен
+     */
+    public boolean readRow(ResultSet rs) throws SQLException {
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i].read(rs, i + 1, size);
+        }
+        size++;
+        return size == capacity;
+    }
+
+    /**
+     * Стадия конвертации: готовит значения к записи (словарное кодирование строк и т.п.).
+     */
+    public void encode() {
+        for (ColumnVector vector : vectors) {
+            vector.encode(size);
+        }
+    }
+
+    /**
+     * Новый пустой батч с теми же колонками.
+     */
+    public ColumnBatch copy() {
+        return forSchema(schema, capacity).orElseThrow();
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void reset() {
+        for (ColumnVector vector : vectors) {
+            vector.reset();
+        }
+        size = 0;
+        cursor = 0;
+    }
+
+    void seek(int row) {
+        cursor = row;
+    }
+
+    void writeCurrentRow(RecordConsumer consumer) {
+        consumer.startMessage();
+        for (ColumnVector vector : vectors) {
+            vector.write(consumer, cursor);
+        }
+        consumer.endMessage();
+    }
+}
@@ -0,0 +1,58 @@
+package by.nexus.data.processor.service.columnar;
+
+import org.apache.avro.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.conf.HadoopParquetConfiguration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+
+import java.util.Map;
+
+/**
+ * Пишет строки батча напрямую в {@link RecordConsumer}, минуя GenericRecord.
+ * В footer кладётся та же Avro-схема, что и при записи через AvroParquetWriter,
+ * поэтому файл читается Avro-ридером без изменений.
+ */
+class ColumnBatchWriteSupport extends WriteSupport<ColumnBatch> {
+
+    private static final String AVRO_SCHEMA_KEY = "parquet.avro.schema";
+    private static final String WRITER_MODEL_KEY = "writer.model.name";
+
+    private final Schema avroSchema;
+    private RecordConsumer consumer;
+
+    ColumnBatchWriteSupport(Schema avroSchema) {
+        this.avroSchema = avroSchema;
+    }
+
+    @Override
+    public WriteContext init(ParquetConfiguration configuration) {
+        MessageType parquetSchema = new AvroSchemaConverter(configuration).convert(avroSchema);
+        return new WriteContext(parquetSchema, Map.of(
+                AVRO_SCHEMA_KEY, avroSchema.toString(),
+                WRITER_MODEL_KEY, "avro"
+        ));
+    }
+
+    /**
+     * ParquetWriter вызывает {@link #init(ParquetConfiguration)}; метод остаётся только потому, что он abstract.
+     */
+    @Deprecated
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return init(new HadoopParquetConfiguration(configuration));
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    @Override
+    public void write(ColumnBatch batch) {
+        batch.writeCurrentRow(consumer);
+    }
+}
@@ -0,0 +1,348 @@
+package by.nexus.data.processor.service.columnar;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Примитивный вектор значений одной колонки в пределах батча.
+ * Способ чтения из JDBC выбирается один раз по Avro-типу поля, а не для каждой ячейки.
+ */
+abstract class ColumnVector {
+
+    protected final String name;
+    protected final int fieldIndex;
+    protected final boolean[] nulls;
+
+    protected ColumnVector(String name, int fieldIndex, int capacity) {
+        this.name = name;
+        this.fieldIndex = fieldIndex;
+        this.nulls = new boolean[capacity];
+    }
+
+    /**
+     * Создаёт вектор под поле схемы или возвращает {@code null}, если тип не плоский
+     * (массивы, вложенные записи и т.п. пишутся построчным путём).
+     */
+    static ColumnVector forField(Schema.Field field, int capacity) {
+        Schema schema = unwrapNullable(field.schema());
+        if (schema == null) {
+            return null;
+        }
+
+        LogicalType logicalType = schema.getLogicalType();
+        String name = field.name();
+        int index = field.pos();
+
+        return switch (schema.getType()) {
+            case INT -> logicalType == null
+                    ? new IntVector(name, index, capacity)
+                    : logicalType instanceof LogicalTypes.Date ? new DateVector(name, index, capacity) : null;
+            case LONG -> {
+                if (logicalType == null) {
+                    yield new LongVector(name, index, capacity);
+                }
+                if (logicalType instanceof LogicalTypes.TimestampMillis) {
+                    yield new TimestampVector(name, index, capacity, false);
+                }
+                if (logicalType instanceof LogicalTypes.TimestampMicros) {
+                    yield new TimestampVector(name, index, capacity, true);
+                }
+                yield null;
+            }
+            case DOUBLE -> logicalType == null ? new DoubleVector(name, index, capacity) : null;
+            case FLOAT -> logicalType == null ? new FloatVector(name, index, capacity) : null;
+            case BOOLEAN -> new BooleanVector(name, index, capacity);
+            case STRING -> logicalType == null ? new StringVector(name, index, capacity) : null;
+            case BYTES -> logicalType == null ? new BytesVector(name, index, capacity) : null;
+            default -> null;
+        };
+    }
+
+    private static Schema unwrapNullable(Schema schema) {
+        if (schema.getType() != Schema.Type.UNION) {
+            return schema;
+        }
+
+        Schema result = null;
+        for (Schema type : schema.getTypes()) {
+            if (type.getType() == Schema.Type.NULL) {
+                continue;
+            }
+            if (result != null) {
+                return null;
+            }
+            result = type;
+        }
+        return result;
+    }
+
+    abstract void read(ResultSet rs, int column, int row) throws SQLException;
+
+    protected abstract void writeValue(RecordConsumer consumer, int row);
+
+    void write(RecordConsumer consumer, int row) {
+        if (nulls[row]) {
+            return;
+        }
+        consumer.startField(name, fieldIndex);
+        writeValue(consumer, row);
+        consumer.endField(name, fieldIndex);
+    }
+
+    /**
+     * Дорогие преобразования значений, вынесенные из стадии чтения (выполняются пулом конвертеров).
+     */
+    void encode(int size) {
+    }
+
+    void reset() {
+    }
+
+    static final class IntVector extends ColumnVector {
+        private final int[] values;
+
+        IntVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getInt(column);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addInteger(values[row]);
+        }
+    }
+
+    static final class DateVector extends ColumnVector {
+        private final int[] epochDays;
+
+        DateVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.epochDays = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            Date date = rs.getDate(column);
+            nulls[row] = date == null;
+            if (date != null) {
+                epochDays[row] = (int) date.toLocalDate().toEpochDay();
+            }
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addInteger(epochDays[row]);
+        }
+    }
+
+    static final class LongVector extends ColumnVector {
+        private final long[] values;
+
+        LongVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getLong(column);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addLong(values[row]);
+        }
+    }
+
+    static final class TimestampVector extends ColumnVector {
+        private final long[] values;
+        private final boolean micros;
+
+        TimestampVector(String name, int fieldIndex, int capacity, boolean micros) {
+            super(name, fieldIndex, capacity);
+            this.values = new long[capacity];
+            this.micros = micros;
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            Timestamp timestamp = rs.getTimestamp(column);
+            nulls[row] = timestamp == null;
+            if (timestamp != null) {
+                values[row] = micros
+                        ? Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000L + timestamp.getNanos() / 1000
+                        : timestamp.getTime();
+            }
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addLong(values[row]);
+        }
+    }
+
+    static final class DoubleVector extends ColumnVector {
+        private final double[] values;
+
+        DoubleVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getDouble(column);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addDouble(values[row]);
+        }
+    }
+
+    static final class FloatVector extends ColumnVector {
+        private final float[] values;
+
+        FloatVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new float[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getFloat(column);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addFloat(values[row]);
+        }
+    }
+
+    static final class BooleanVector extends ColumnVector {
+        private final boolean[] values;
+
+        BooleanVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new boolean[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getBoolean(column);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addBoolean(values[row]);
+        }
+    }
+
+    /**
+     * Строки кодируются словарём: повторяющиеся значения превращаются в {@link Binary} один раз.
+     * Словарь живёт между батчами и сбрасывается, когда разрастается сверх лимита.
+     */
+    static final class StringVector extends ColumnVector {
+        private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+        private final String[] values;
+        private final int[] codes;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<Binary> dictionaryValues = new ArrayList<>();
+
+        StringVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new String[capacity];
+            this.codes = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            String value = rs.getString(column);
+            nulls[row] = value == null;
+            values[row] = value;
+        }
+
+        @Override
+        void encode(int size) {
+            if (dictionaryValues.size() > MAX_DICTIONARY_SIZE) {
+                dictionary.clear();
+                dictionaryValues.clear();
+            }
+
+            for (int row = 0; row < size; row++) {
+                String value = values[row];
+                if (value == null) {
+                    continue;
+                }
+
+                Integer code = dictionary.get(value);
+                if (code == null) {
+                    code = dictionaryValues.size();
+                    dictionary.put(value, code);
+                    dictionaryValues.add(Binary.fromString(value));
+                }
+                codes[row] = code;
+            }
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addBinary(dictionaryValues.get(codes[row]));
+        }
+
+        @Override
+        void reset() {
+            Arrays.fill(values, null);
+        }
+    }
+
+    static final class BytesVector extends ColumnVector {
+        private final Binary[] values;
+
+        BytesVector(String name, int fieldIndex, int capacity) {
+            super(name, fieldIndex, capacity);
+            this.values = new Binary[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            byte[] value = rs.getBytes(column);
+            nulls[row] = value == null;
+            values[row] = value != null ? Binary.fromConstantByteArray(value) : null;
+        }
+
+        @Override
+        protected void writeValue(RecordConsumer consumer, int row) {
+            consumer.addBinary(values[row]);
+        }
+
+        @Override
+        void reset() {
+            Arrays.fill(values, null);
+        }
+    }
+}
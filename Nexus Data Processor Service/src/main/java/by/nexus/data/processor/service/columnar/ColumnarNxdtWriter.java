@@ -0,0 +1,73 @@
+package by.nexus.data.processor.service.columnar;
+
+import org.apache.avro.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.conf.HadoopParquetConfiguration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.OutputFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * NXDT-писатель, принимающий данные целыми {@link ColumnBatch}.
+ */
+public class ColumnarNxdtWriter implements AutoCloseable {
+
+    private final ParquetWriter<ColumnBatch> writer;
+
+    public ColumnarNxdtWriter(Path target, Schema schema, CompressionCodecName codec) throws IOException {
+        this.writer = new Builder(new LocalOutputFile(target), schema)
+                .withConf(new Configuration())
+                .withCompressionCodec(codec)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build();
+    }
+
+    public void write(ColumnBatch batch) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            batch.seek(row);
+            writer.write(batch);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static class Builder extends ParquetWriter.Builder<ColumnBatch, Builder> {
+
+        private final Schema schema;
+
+        Builder(OutputFile file, Schema schema) {
+            super(file);
+            this.schema = schema;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<ColumnBatch> getWriteSupport(ParquetConfiguration conf) {
+            return new ColumnBatchWriteSupport(schema);
+        }
+
+        /**
+         * ParquetWriter вызывает {@link #getWriteSupport(ParquetConfiguration)}; метод остаётся только потому,
+         * что он abstract.
+         */
+        @Deprecated
+        @Override
+        protected WriteSupport<ColumnBatch> getWriteSupport(Configuration conf) {
+            return getWriteSupport(new HadoopParquetConfiguration(conf));
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package by.nexus.data.processor.service.connection;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Реестр пулов соединений к источникам импорта, по одному пулу на пару (url, user).
+ * <ul>
+ *     <li>пул создаётся при первом импорте из источника и проверяет учётные данные сразу;</li>
+ *     <li>размер пула равен лимиту соединений на источник из планировщика импортов;</li>
+ *     <li>простаивающие пулы закрываются, число пулов ограничено;</li>
+ *     <li>при смене пароля старый пул выводится из работы и закрывается, когда освободится.</li>
+ * </ul>
+ * Пул создаётся вне {@link ConcurrentHashMap#compute}: открытие первого соединения может идти до
+ * connection-timeout и не должно держать блокировку корзины. Взятие пула в аренду и его закрытие
+ * при вытеснении выполняются под блокировкой ключа, поэтому арендованный пул не закрывается
+ * до выдачи соединения.
+ * Время ожидания соединения публикует сам Hikari ({@code hikaricp.connections.acquire}).
+ */
+@Slf4j
+@Component
+public class SourceConnectionPools {
+
+    private final Map<SourceKey, SourcePool> pools = new ConcurrentHashMap<>();
+    private final List<SourcePool> retired = new CopyOnWriteArrayList<>();
+    private final AtomicInteger poolSequence = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+    private final int maxPoolSize;
+    private final int maxPools;
+    private final Duration idleTimeout;
+    private final Duration connectionTimeout;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter credentialChanges;
+
+    public SourceConnectionPools(MeterRegistry meterRegistry,
+                                 @Value("${nexus.import.scheduler.max-connections-per-source:4}") int maxPoolSize,
+                                 @Value("${nexus.extraction.connection-pool.max-pools:32}") int maxPools,
+                                 @Value("${nexus.extraction.connection-pool.idle-timeout:10m}") Duration idleTimeout,
+                                 @Value("${nexus.extraction.connection-pool.connection-timeout:30s}") Duration connectionTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.maxPoolSize = Math.max(1, maxPoolSize);
+        this.maxPools = Math.max(1, maxPools);
+        this.idleTimeout = idleTimeout;
+        this.connectionTimeout = connectionTimeout;
+
+        this.hits = requests("hit");
+        this.misses = requests("miss");
+        this.credentialChanges = requests("credentials_changed");
+        Gauge.builder("nexus.import.connection.pools", pools, Map::size).register(meterRegistry);
+    }
+
+    public Connection getConnection(String url, String username, String password) throws SQLException {
+        SourceKey key = new SourceKey(url, username);
+        String fingerprint = fingerprint(password);
+
+        for (int attempt = 1; ; attempt++) {
+            SourcePool pool = lease(key, password, fingerprint);
+            try {
+                return pool.dataSource().getConnection();
+            } catch (SQLException e) {
+                // Пул закрыли между арендой и выдачей соединения: один раз берём актуальный
+                if (attempt == 1 && pool.dataSource().isClosed()) {
+                    log.debug("Connection pool {} was closed, retrying", pool.dataSource().getPoolName());
+                    continue;
+                }
+                throw e;
+            } finally {
+                pool.release();
+            }
+        }
+    }
+
+    /**
+     * Возвращает пул источника, уже взятый в аренду: пока аренда не снята, пул не вытесняется.
+     */
+    private SourcePool lease(SourceKey key, String password, String fingerprint) throws SQLException {
+        SourcePool existing = pools.computeIfPresent(key,
+                (k, current) -> current.fingerprint().equals(fingerprint) ? current.lease() : current);
+        if (existing != null && existing.fingerprint().equals(fingerprint)) {
+            hits.increment();
+            return existing;
+        }
+
+        SourcePool created;
+        try {
+            created = createPool(key, password, fingerprint);
+        } catch (HikariPool.PoolInitializationException e) {
+            throw e.getCause() instanceof SQLException cause ? cause : new SQLException(e.getMessage(), e);
+        }
+
+        SourcePool[] replaced = {null};
+        SourcePool pool = pools.compute(key, (k, current) -> {
+            if (current != null && current.fingerprint().equals(fingerprint)) {
+                return current.lease();
+            }
+            replaced[0] = current;
+            return created.lease();
+        });
+
+        if (pool != created) {
+            // Параллельный запрос успел создать пул раньше
+            created.dataSource().close();
+            hits.increment();
+            return pool;
+        }
+        if (replaced[0] != null) {
+            credentialChanges.increment();
+            log.info("Credentials changed for source {} (user {}), retiring pool {}",
+                    key.url(), key.username(), replaced[0].dataSource().getPoolName());
+            retire(replaced[0]);
+        } else {
+            misses.increment();
+            if (pools.size() > maxPools) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Закрывает простаивающие пулы и дожидается освобождения выведенных из работы.
+     */
+    @Scheduled(fixedDelayString = "${nexus.extraction.connection-pool.sweep-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        pools.forEach((key, pool) -> {
+            if (now - pool.lastUsedNanos() > idleTimeout.toNanos() && evict(key, pool)) {
+                log.debug("Closed idle connection pool {}", pool.dataSource().getPoolName());
+            }
+        });
+
+        for (SourcePool pool : retired) {
+            if (pool.unused()) {
+                retired.remove(pool);
+                pool.dataSource().close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.dataSource().close());
+        pools.clear();
+        retired.forEach(pool -> pool.dataSource().close());
+        retired.clear();
+    }
+
+    private SourcePool createPool(SourceKey key, String password, String fingerprint) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("nexus-import-" + poolSequence.incrementAndGet());
+        config.setJdbcUrl(key.url());
+        config.setUsername(key.username());
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(0);
+        config.setIdleTimeout(Math.max(idleTimeout.toMillis(), 10_000));
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // Первое соединение открывается сразу: неверные учётные данные видны до старта выгрузки
+        config.setInitializationFailTimeout(1);
+        config.setMetricRegistry(meterRegistry);
+
+        return new SourcePool(new HikariDataSource(config), fingerprint);
+    }
+
+    private void retire(SourcePool pool) {
+        pool.dataSource().getHikariPoolMXBean().softEvictConnections();
+        retired.add(pool);
+    }
+
+    private void evictLeastRecentlyUsed() {
+        pools.entrySet().stream()
+                .filter(entry -> entry.getValue().unused())
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastUsedNanos()))
+                .ifPresent(entry -> evict(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Убирает пул из реестра и закрывает его, если он всё ещё зарегистрирован и не используется.
+     * Проверка идёт под блокировкой ключа, как и аренда, так что пул не закроется сразу после выдачи.
+     */
+    private boolean evict(SourceKey key, SourcePool pool) {
+        boolean[] removed = {false};
+        pools.computeIfPresent(key, (k, current) -> {
+            if (current != pool || !current.unused()) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            pool.dataSource().close();
+        }
+        return removed[0];
+    }
+
+    private Counter requests(String result) {
+        return Counter.builder("nexus.import.connection.pool.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String fingerprint(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((password == null ? "" : password).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record SourceKey(String url, String username) {
+    }
+
+    private static final class SourcePool {
+        private final HikariDataSource dataSource;
+        private final String fingerprint;
+        private final AtomicInteger leases = new AtomicInteger();
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        SourcePool(HikariDataSource dataSource, String fingerprint) {
+            this.dataSource = dataSource;
+            this.fingerprint = fingerprint;
+        }
+
+        HikariDataSource dataSource() {
+            return dataSource;
+        }
+
+        String fingerprint() {
+            return fingerprint;
+        }
+
+        long lastUsedNanos() {
+            return lastUsedNanos;
+        }
+
+        SourcePool lease() {
+            leases.incrementAndGet();
+            lastUsedNanos = System.nanoTime();
+            return this;
+        }
+
+        void release() {
+            lastUsedNanos = System.nanoTime();
+            leases.decrementAndGet();
+        }
+
+        /**
+         * Нет ни аренды, ни выданных соединений. Соединение выдаётся до снятия аренды, так что
+         * между ними пул не выглядит свободным.
+         */
+        boolean unused() {
+            return leases.get() == 0 && dataSource.getHikariPoolMXBean().getActiveConnections() == 0;
+        }
+    }
+}
@@ -2,24 +2,54 @@ package by.nexus.data.processor.service.impl;
 
 import by.nexus.data.processor.event.ImportCompletedEvent;
 import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.scheduler.ImportJobScheduler;
+import by.nexus.data.processor.scheduler.OffsetCommitTracker;
 import by.nexus.data.processor.service.DataExtractionService;
 import by.nexus.data.processor.service.ImportProcessorService;
+import by.nexus.data.processor.service.watermark.IncrementalQuery;
+import by.nexus.data.processor.service.watermark.WatermarkResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class KafkaImportProcessorService implements ImportProcessorService {
 
+    private static final String LISTENER_ID = "import-requests";
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final DataExtractionService extractionService;
+    private final ImportJobScheduler jobScheduler;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final WatermarkResolver watermarkResolver;
+    private final OffsetCommitTracker offsets = new OffsetCommitTracker();
+    private final Map<String, ImportRequestEvent> activeJobs = new ConcurrentHashMap<>();
 
     @Value("${spring.kafka.topics.import-completed}")
     private String importCompletedTopic;
@@ -27,14 +57,94 @@ public class KafkaImportProcessorService implements ImportProcessorService {
     @Value("${nexus.storage.download-base-url}")
     private String baseUrl;
 
+    /**
+     * Отдаёт задачу планировщику и сразу возвращается, следующие сообщения читаются, пока импорт идёт.
+     * Offset коммитится через {@link OffsetCommitTracker}, когда завершены все импорты раздела до него
+     * включительно, так что упавший посреди импорта сервис получит задачу повторно.
+     * Если очередь планировщика заполнена, потребитель ставится на паузу.
+     */
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${spring.kafka.topics.import-request}",
             groupId = "${spring.kafka.consumer.group-id}"
     )
+    public void onImportRequest(ImportRequestEvent command,
+                                @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                @Header(KafkaHeaders.OFFSET) long offset,
+                                Acknowledgment acknowledgment) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        offsets.track(topicPartition, offset, acknowledgment);
+        activeJobs.put(command.jobId(), command);
+        jobScheduler.submit(command, event -> {
+            try {
+                handleImportRequest(event);
+            } finally {
+                activeJobs.remove(event.jobId());
+                // Прерванный остановкой импорт не подтверждается: после рестарта он продолжится с контрольной точки
+                if (!jobScheduler.isShutdown()) {
+                    offsets.complete(topicPartition, offset);
+                    resumeIfDrained();
+                }
+            }
+        });
+
+        if (jobScheduler.isSaturated()) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+            if (container != null && !container.isPauseRequested()) {
+                log.info("Import queue is full ({} jobs), pausing consumption", jobScheduler.queued());
+                container.pause();
+            }
+        }
+    }
+
+    /**
+     * Сообщает Core, что принятые инкрементальные задачи, в том числе ждущие в очереди, ещё живы:
+     * пока приходят события {@code RUNNING}, датасет остаётся занятым за задачей. Задачу, от которой события
+     * перестали приходить, Core через {@code nexus.import.incremental.lock-timeout} считает потерянной.
+     */
+    @Scheduled(fixedDelayString = "${nexus.import.heartbeat-interval:60000}")
+    public void sendHeartbeats() {
+        for (ImportRequestEvent job : activeJobs.values()) {
+            if (job.watermarkColumn() == null || job.watermarkColumn().isBlank()) {
+                continue;
+            }
+            ImportCompletedEvent heartbeat = new ImportCompletedEvent(
+                    job.jobId(),
+                    "RUNNING",
+                    null,
+                    0,
+                    null,
+                    null,
+                    job.watermarkColumn(),
+                    null
+            );
+            kafkaTemplate.send(importCompletedTopic, job.jobId(), heartbeat);
+        }
+    }
+
+    private void resumeIfDrained() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container != null && container.isPauseRequested() && !jobScheduler.isSaturated()) {
+            log.info("Import queue drained, resuming consumption");
+            container.resume();
+        }
+    }
+
     @Override
     public void handleImportRequest(ImportRequestEvent command) {
         try {
-            File resultFile = extractionService.extractAndConvert(command);
+            ImportRequestEvent job = command;
+            List<Object> parameters = List.of();
+            String watermark = null;
+            if (command.watermarkColumn() != null && !command.watermarkColumn().isBlank()) {
+                IncrementalQuery incremental = watermarkResolver.resolve(command);
+                job = command.withSqlQuery(incremental.sqlQuery());
+                parameters = incremental.parameters();
+                watermark = incremental.watermark();
+            }
+
+            File resultFile = extractionService.extractAndConvert(job, parameters);
 
             String downloadUrl = baseUrl + "/" + resultFile.getName();
             long fileSize = resultFile.length();
@@ -44,22 +154,48 @@ public class KafkaImportProcessorService implements ImportProcessorService {
                     "SUCCESS",
                     downloadUrl,
                     fileSize,
-                    null
+                    sha256(resultFile.toPath()),
+                    null,
+                    command.watermarkColumn(),
+                    watermark
             );
 
             kafkaTemplate.send(importCompletedTopic, command.jobId(), successEvent);
 
         } catch (Exception e) {
+            if (jobScheduler.isShutdown()) {
+                log.info("[JobId: {}] Interrupted by shutdown, will resume after restart", command.jobId());
+                return;
+            }
             log.error("[JobId: {}] Failed.", command.jobId(), e);
             ImportCompletedEvent errorEvent = new ImportCompletedEvent(
                     command.jobId(),
                     "FAILED",
                     null,
                     0,
-                    e.getMessage()
+                    null,
+                    e.getMessage(),
+                    command.watermarkColumn(),
+                    null
             );
             kafkaTemplate.send(importCompletedTopic, command.jobId(), errorEvent);
         }
     }
-}
 
+    /**
+     * Контрольная сумма, по которой Core проверяет скачанный результат.
+     */
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
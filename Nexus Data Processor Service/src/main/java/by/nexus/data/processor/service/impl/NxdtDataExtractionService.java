@@ -2,89 +2,513 @@ package by.nexus.data.processor.service.impl;
 
 import by.nexus.data.processor.service.DataExtractionService;
 import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.service.checkpoint.ImportCheckpoint;
+import by.nexus.data.processor.service.checkpoint.ImportCheckpoint.Segments;
+import by.nexus.data.processor.service.checkpoint.ImportCheckpointStore;
+import by.nexus.data.processor.service.checkpoint.ImportPlan;
+import by.nexus.data.processor.service.columnar.ColumnBatch;
+import by.nexus.data.processor.service.columnar.ColumnarNxdtWriter;
+import by.nexus.data.processor.service.connection.SourceConnectionPools;
+import by.nexus.data.processor.service.partition.NxdtPartMerger;
+import by.nexus.data.processor.service.partition.PartitionPlanner;
+import by.nexus.data.processor.service.partition.PartitionRange;
+import by.nexus.data.processor.service.pipeline.ImportPipeline;
+import by.nexus.data.processor.service.pipeline.ImportPipelineFactory;
+import by.nexus.data.processor.service.pipeline.PipelineStats;
 import com.github.baibeicha.nexus.io.format.nxdt.NxdtWriter;
 import com.github.baibeicha.nexus.io.sql.DynamicAvroSchemaGenerator;
 import com.github.baibeicha.nexus.io.sql.JdbcToAvroConverter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.hadoop.conf.Configuration;
-import org.apache.parquet.avro.AvroParquetWriter;
-import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class NxdtDataExtractionService implements DataExtractionService {
 
+    private static final int FETCH_SIZE = 1000;
+
     @Value("${nexus.storage.path}")
     private String storagePath;
 
+    @Value("${nexus.extraction.max-partitions:64}")
+    private int maxPartitions = 64;
+
+    @Value("${nexus.extraction.columnar.enabled:true}")
+    private boolean columnarEnabled = true;
+
+    @Value("${nexus.extraction.columnar.batch-size:4096}")
+    private int batchSize = 4096;
+
+    @Value("${nexus.extraction.checkpoint-rows:1000000}")
+    private long checkpointRows = 1_000_000;
+
+    @Value("${nexus.extraction.compression:SNAPPY}")
+    private CompressionCodecName compressionCodec = CompressionCodecName.SNAPPY;
+
     private final DynamicAvroSchemaGenerator schemaGenerator;
     private final JdbcToAvroConverter jdbcToAvroConverter;
+    private final PartitionPlanner partitionPlanner;
+    private final NxdtPartMerger partMerger;
+    private final ImportPipelineFactory pipelineFactory;
+    private final SourceConnectionPools connectionPools;
+    private final ImportCheckpointStore checkpointStore;
 
     /**
      * Connect -> Extract -> Write Parquet -> Return File Path
+     * <p>
+     * Каждая партиция (или весь запрос, если партиционирования нет) выгружается в свои part-файлы
+     * в рабочей директории задачи. План партиций и запечатанные part-файлы фиксируются там же, так что
+     * повторная доставка той же задачи после падения сервиса выгружает только недостающее
+     * по тем же границам, даже если в источнике появились новые строки. Продолжить с середины партиции
+     * можно только при заданной колонке партиционирования (хватает и одной партиции): без неё
+     * прерванная выгрузка начинается заново.
+     * Итоговый файл появляется только атомарным переименованием.
      */
-    public File extractAndConvert(ImportRequestEvent event) throws Exception {
+    @Override
+    public File extractAndConvert(ImportRequestEvent event, List<Object> parameters) throws Exception {
         Path storageDir = Paths.get(storagePath);
         if (!Files.exists(storageDir)) {
             Files.createDirectories(storageDir);
         }
 
-        String filename = "job_" + event.jobId() + ".nxdt";
-        File targetFile = storageDir.resolve(filename).toFile();
+        Path targetFile = storageDir.resolve("job_" + event.jobId() + ".nxdt");
+        if (Files.exists(targetFile)) {
+            // Файл публикуется только целиком, значит предыдущая попытка успела завершиться
+            log.info("[JobId: {}] Result is already published, skipping extraction", event.jobId());
+            return targetFile.toFile();
+        }
+
+        Path workDir = storageDir.resolve("job_" + event.jobId() + ".work");
+        Files.createDirectories(workDir);
+
+        List<PartitionRange> ranges = planRanges(event, parameters, workDir);
+        ImportCheckpoint checkpoint = checkpointStore.load(
+                workDir, ImportCheckpoint.fingerprint(planQuery(event, parameters), event.partitionColumn(), ranges)
+        );
+
+        String keyColumn = segmentKey(event);
+        if (keyColumn == null) {
+            log.info("[JobId: {}] No partition column, interrupted extraction will restart from the beginning",
+                    event.jobId());
+        }
+
+        List<PartitionRange> pending = new ArrayList<>();
+        for (PartitionRange range : ranges) {
+            if (!checkpoint.completedPartitions().contains(range.index()) || !isSealed(range, workDir, checkpoint)) {
+                pending.add(range);
+            }
+        }
+
+        if (pending.size() < ranges.size()) {
+            log.info("[JobId: {}] Resuming from checkpoint: {} of {} partitions already extracted",
+                    event.jobId(), ranges.size() - pending.size(), ranges.size());
+        }
+
+        extractPartitions(event, parameters, pending, keyColumn, workDir, checkpoint);
+
+        List<Path> parts = new ArrayList<>();
+        for (PartitionRange range : ranges) {
+            for (int segment = 0; segment < checkpoint.segments().get(range.index()).count(); segment++) {
+                parts.add(segmentFile(workDir, range.index(), segment));
+            }
+        }
+
+        Path staged = parts.getFirst();
+        if (parts.size() > 1) {
+            staged = workDir.resolve("result.nxdt");
+            partMerger.merge(parts, staged);
+        }
+        ImportCheckpointStore.sync(staged);
+        Files.move(staged, targetFile, StandardCopyOption.ATOMIC_MOVE);
+
+        deleteWorkDir(workDir);
+        return targetFile.toFile();
+    }
+
+    private boolean isPartitioned(ImportRequestEvent event) {
+        return event.partitionColumn() != null && !event.partitionColumn().isBlank()
+                && event.partitionCount() != null && event.partitionCount() > 1;
+    }
+
+    /**
+     * Колонка, в порядке которой партиция делится на запечатываемые сегменты, или {@code null},
+     * если сегменты не запечатываются.
+     */
+    private String segmentKey(ImportRequestEvent event) {
+        boolean hasColumn = event.partitionColumn() != null && !event.partitionColumn().isBlank();
+        return hasColumn && checkpointRows > 0 ? event.partitionColumn() : null;
+    }
+
+    private static Path segmentFile(Path workDir, int partition, int segment) {
+        return workDir.resolve("part-" + partition + "-" + segment + ".nxdt");
+    }
+
+    /**
+     * Все сегменты, записанные в checkpoint для партиции, лежат на диске.
+     */
+    private static boolean isSealed(PartitionRange range, Path workDir, ImportCheckpoint checkpoint) {
+        Segments segments = checkpoint.segments().get(range.index());
+        if (segments == null) {
+            return false;
+        }
+        for (int segment = 0; segment < segments.count(); segment++) {
+            if (!Files.exists(segmentFile(workDir, range.index(), segment))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Запрос вместе со значениями параметров: от них зависят и план, и checkpoint.
+     */
+    private static String planQuery(ImportRequestEvent event, List<Object> parameters) {
+        return parameters.isEmpty() ? event.sqlQuery() : event.sqlQuery() + '\n' + parameters;
+    }
+
+    private List<PartitionRange> planRanges(ImportRequestEvent event, List<Object> parameters, Path workDir)
+            throws SQLException, IOException {
+        if (!isPartitioned(event)) {
+            return List.of(PartitionRange.unbounded());
+        }
 
-        if (targetFile.exists()) {
-            targetFile.delete();
+        int partitionCount = Math.min(event.partitionCount(), maxPartitions);
+        String request = ImportPlan.fingerprint(planQuery(event, parameters), event.partitionColumn(), partitionCount);
+        Optional<ImportPlan> planned = checkpointStore.loadPlan(workDir, request);
+        if (planned.isPresent()) {
+            List<PartitionRange> ranges = planned.get().toRanges();
+            log.info("[JobId: {}] Reusing plan of {} partitions by column '{}'",
+                    event.jobId(), ranges.size(), event.partitionColumn());
+            return ranges;
         }
 
-        try (Connection conn = DriverManager.getConnection(
+        try (Connection conn = openConnection(event)) {
+            List<PartitionRange> ranges =
+                    partitionPlanner.plan(conn, event.sqlQuery(), parameters, event.partitionColumn(), partitionCount);
+            checkpointStore.savePlan(workDir, ImportPlan.of(request, ranges));
+            log.info("[JobId: {}] Extracting in {} partitions by column '{}'",
+                    event.jobId(), ranges.size(), event.partitionColumn());
+            return ranges;
+        }
+    }
+
+    /**
+     * Каждая партиция выгружается своим range-запросом на своём соединении и своём виртуальном потоке.
+     */
+    private void extractPartitions(ImportRequestEvent event, List<Object> parameters, List<PartitionRange> ranges,
+                                   String keyColumn, Path workDir, ImportCheckpoint checkpoint) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Void>> futures = new ArrayList<>(ranges.size());
+            for (PartitionRange range : ranges) {
+                futures.add(executor.submit(() -> {
+                    extractPartition(event, parameters, range, keyColumn, workDir, checkpoint);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Выгружает партицию сегментами. С ключом строки идут в его порядке, и примерно каждые
+     * {@code checkpointRows} строк сегмент запечатывается на ближайшей смене ключа и фиксируется в checkpoint:
+     * следующая попытка продолжит после последнего запечатанного ключа. Без ключа партиция пишется
+     * одним сегментом.
+     */
+    private void extractPartition(ImportRequestEvent event, List<Object> parameters, PartitionRange range,
+                                  String keyColumn, Path workDir, ImportCheckpoint checkpoint) throws Exception {
+        Segments sealed;
+        synchronized (checkpoint) {
+            // Выгруженная партиция попала сюда, только если её сегменты потеряны
+            boolean lost = checkpoint.completedPartitions().remove(range.index());
+            sealed = checkpoint.segments().get(range.index());
+            if (sealed != null && (keyColumn == null || lost || !isSealed(range, workDir, checkpoint))) {
+                checkpoint.segments().remove(range.index());
+                checkpointStore.save(workDir, checkpoint);
+                sealed = null;
+            }
+        }
+        if (sealed != null) {
+            log.info("[JobId: {}] Partition {} resumes after {} sealed segments",
+                    event.jobId(), range.index(), sealed.count());
+        }
+
+        String sql = keyColumn != null
+                ? range.toOrderedSql(event.sqlQuery(), keyColumn, sealed != null, sealed != null && sealed.nullsSealed())
+                : range.toSql(event.sqlQuery(), event.partitionColumn());
+
+        try (Connection conn = openConnection(event);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            int next = range.bind(stmt, parameters.size() + 1);
+            if (sealed != null) {
+                stmt.setObject(next, sealed.lastKeyValue());
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                SegmentCursor cursor = new SegmentCursor(
+                        rs, keyIndex(rs, keyColumn), checkpointRows, sealed != null && sealed.nullsSealed()
+                );
+                int segment = sealed != null ? sealed.count() : 0;
+                do {
+                    Path part = segmentFile(workDir, range.index(), segment);
+                    // Недописанный сегмент прошлой попытки
+                    Files.deleteIfExists(part);
+
+                    PipelineStats stats = writeResultSet(cursor, part);
+                    ImportCheckpointStore.sync(part);
+                    segment++;
+
+                    synchronized (checkpoint) {
+                        if (cursor.isExhausted()) {
+                            checkpoint.segments().put(range.index(), Segments.sealed(segment, null, true));
+                            checkpoint.completedPartitions().add(range.index());
+                        } else {
+                            checkpoint.segments().put(range.index(),
+                                    Segments.sealed(segment, cursor.lastKey(), cursor.nullsSealed()));
+                        }
+                        checkpointStore.save(workDir, checkpoint);
+                    }
+                    log.info("[JobId: {}] Partition {} segment {} sealed: {}",
+                            event.jobId(), range.index(), segment - 1, stats);
+                } while (!cursor.isExhausted());
+            }
+        }
+    }
+
+    private static int keyIndex(ResultSet rs, String keyColumn) {
+        if (keyColumn == null) {
+            return 0;
+        }
+        try {
+            return rs.findColumn(keyColumn);
+        } catch (SQLException e) {
+            log.warn("Column '{}' is not in the result set, partition is written as one segment", keyColumn);
+            return 0;
+        }
+    }
+
+    private void deleteWorkDir(Path workDir) throws IOException {
+        try (Stream<Path> files = Files.list(workDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(workDir);
+    }
+
+    private Connection openConnection(ImportRequestEvent event) throws SQLException {
+        return connectionPools.getConnection(
                 event.connectionUrl(),
                 event.username(),
                 event.password());
-             Statement stmt = conn.createStatement()) {
+    }
 
-            stmt.setFetchSize(1000);
+    private PipelineStats writeResultSet(SegmentCursor cursor, Path target) throws Exception {
+        ResultSetMetaData metaData = cursor.resultSet().getMetaData();
+        Schema schema = schemaGenerator.generate(metaData);
 
-            try (ResultSet rs = stmt.executeQuery(event.sqlQuery())) {
-                ResultSetMetaData metaData = rs.getMetaData();
-                Schema schema = schemaGenerator.generate(metaData);
+        Optional<ColumnBatch> batch = columnarEnabled
+                ? ColumnBatch.forSchema(schema, batchSize)
+                : Optional.empty();
 
-                try (NxdtWriter writer = new NxdtWriter(targetFile.toPath(), schema)) {
-                    int columnCount = metaData.getColumnCount();
+        if (batch.isPresent()) {
+            return writeColumnar(cursor, target, batch.get());
+        }
+        return writeRecords(cursor, target, schema, metaData);
+    }
 
-                    while (rs.next()) {
-                        GenericRecord record = writer.createRecord();
+    /**
+     * Векторный путь: reader раскладывает значения по примитивным векторам батча,
+     * конвертеры кодируют строки, writer пишет батчи в Parquet.
+     */
+    private PipelineStats writeColumnar(SegmentCursor cursor, Path target, ColumnBatch prototype) throws Exception {
+        ResultSet rs = cursor.resultSet();
+        ImportPipeline<ColumnBatch> pipeline = pipelineFactory.create();
 
-                        for (int i = 1; i <= columnCount; i++) {
-                            record.put(
-                                    DynamicAvroSchemaGenerator.normalizeName(metaData.getColumnName(i)),
-                                    jdbcToAvroConverter.convert(rs, i, metaData.getColumnType(i))
-                            );
+        List<ColumnBatch> batches = new ArrayList<>(pipeline.batchCount());
+        batches.add(prototype);
+        while (batches.size() < pipeline.batchCount()) {
+            batches.add(prototype.copy());
+        }
+
+        try (ColumnarNxdtWriter writer = new ColumnarNxdtWriter(target, prototype.getSchema(), compressionCodec)) {
+            return pipeline.run(
+                    batches,
+                    ColumnBatch::isEmpty,
+                    ColumnBatch::reset,
+                    batch -> {
+                        while (cursor.next()) {
+                            if (batch.readRow(rs)) {
+                                return true;
+                            }
                         }
+                        return false;
+                    },
+                    ColumnBatch::encode,
+                    writer::write
+            );
+        }
+    }
 
-                        writer.writeRecord(record);
+    /**
+     * Построчный путь для схем с вложенными типами (массивы и т.п.).
+     * Конвертация здесь неотделима от чтения ResultSet, поэтому стадия конвертеров пустая.
+     */
+    private PipelineStats writeRecords(SegmentCursor cursor, Path target, Schema schema, ResultSetMetaData metaData)
+            throws Exception {
+        ResultSet rs = cursor.resultSet();
+        int columnCount = metaData.getColumnCount();
+        String[] fieldNames = new String[columnCount];
+        int[] columnTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            fieldNames[i] = DynamicAvroSchemaGenerator.normalizeName(metaData.getColumnName(i + 1));
+            columnTypes[i] = metaData.getColumnType(i + 1);
+        }
+
+        ImportPipeline<List<GenericRecord>> pipeline = pipelineFactory.create();
+
+        List<List<GenericRecord>> batches = new ArrayList<>(pipeline.batchCount());
+        for (int i = 0; i < pipeline.batchCount(); i++) {
+            batches.add(new ArrayList<>(batchSize));
+        }
+
+        try (NxdtWriter writer = new NxdtWriter(target, schema)) {
+            return pipeline.run(
+                    batches,
+                    List::isEmpty,
+                    List::clear,
+                    batch -> {
+                        while (cursor.next()) {
+                            GenericRecord record = writer.createRecord();
+
+                            for (int i = 0; i < columnCount; i++) {
+                                record.put(fieldNames[i], jdbcToAvroConverter.convert(rs, i + 1, columnTypes[i]));
+                            }
+
+                            batch.add(record);
+                            if (batch.size() == batchSize) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    },
+                    batch -> {
+                    },
+                    batch -> {
+                        for (GenericRecord record : batch) {
+                            writer.writeRecord(record);
+                        }
                     }
+            );
+        }
+    }
+
+    /**
+     * ResultSet партиции, поделённый на сегменты. Сегмент заканчивается, когда в нём набралось
+     * {@code segmentRows} строк и ключ сменился: строки с одинаковым ключом всегда попадают в один сегмент.
+     * Первая строка следующего сегмента к этому моменту уже прочитана из ResultSet и ждёт своего writer'а.
+     */
+    private static final class SegmentCursor {
+
+        private final ResultSet rs;
+        private final int keyIndex;
+        private final long segmentRows;
+
+        private long rows;
+        private Object lastKey;
+        private boolean nullsSealed;
+        private boolean pending;
+        private boolean exhausted;
+
+        SegmentCursor(ResultSet rs, int keyIndex, long segmentRows, boolean nullsSealed) {
+            this.rs = rs;
+            this.keyIndex = keyIndex;
+            this.segmentRows = segmentRows;
+            this.nullsSealed = nullsSealed;
+        }
+
+        /**
+         * Переходит к следующей строке текущего сегмента.
+         *
+         * @return {@code false}, если сегмент или весь ResultSet закончились
+         */
+        boolean next() throws SQLException {
+            if (!pending && !rs.next()) {
+                exhausted = true;
+                return false;
+            }
+            pending = false;
+
+            if (keyIndex > 0) {
+                Object key = rs.getObject(keyIndex);
+                if (rows >= segmentRows && Segments.isResumableKey(lastKey) && !lastKey.equals(key)) {
+                    pending = true;
+                    rows = 0;
+                    return false;
                 }
+                lastKey = key;
+                nullsSealed |= key == null;
             }
+            rows++;
+            return true;
         }
 
-        return targetFile;
+        ResultSet resultSet() {
+            return rs;
+        }
+
+        Object lastKey() {
+            return lastKey;
+        }
+
+        /**
+         * Строки с NULL в ключе уже записаны в текущий или предыдущие сегменты.
+         */
+        boolean nullsSealed() {
+            return nullsSealed;
+        }
+
+        boolean isExhausted() {
+            return exhausted;
+        }
     }
 }
@@ -0,0 +1,55 @@
+package by.nexus.data.processor.service.partition;
+
+import com.github.baibeicha.nexus.io.parquet.ParquetIo;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.io.LocalOutputFile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Склеивает part-файлы партиций в один NXDT-датасет.
+ * Row group'ы копируются байт-в-байт, без повторного декодирования и сжатия.
+ * Если склейка не удалась, {@code target} удаляется.
+ */
+@Component
+public class NxdtPartMerger {
+
+    public void merge(List<Path> parts, Path target) throws IOException {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to merge into " + target);
+        }
+
+        FileMetaData metaData;
+        try (ParquetFileReader reader = ParquetFileReader.open(new ParquetIo.NioInputFile(parts.getFirst()))) {
+            metaData = reader.getFooter().getFileMetaData();
+        }
+
+        try (ParquetFileWriter writer = new ParquetFileWriter(
+                new LocalOutputFile(target),
+                metaData.getSchema(),
+                ParquetFileWriter.Mode.OVERWRITE,
+                ParquetWriter.DEFAULT_BLOCK_SIZE,
+                ParquetWriter.MAX_PADDING_SIZE_DEFAULT,
+                null,
+                ParquetProperties.builder().build()
+        )) {
+            writer.start();
+            for (Path part : parts) {
+                writer.appendFile(new ParquetIo.NioInputFile(part));
+            }
+            writer.end(metaData.getKeyValueMetaData());
+        } catch (IOException | RuntimeException e) {
+            // Недописанный файл без footer'а не читается, оставлять его нельзя
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+}
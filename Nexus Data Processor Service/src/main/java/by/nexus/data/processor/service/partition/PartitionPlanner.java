@@ -0,0 +1,118 @@
+package by.nexus.data.processor.service.partition;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Делит результат запроса на диапазоны по числовой колонке или колонке даты/времени,
+ * чтобы каждую партицию можно было выгружать отдельным запросом.
+ */
+@Component
+public class PartitionPlanner {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    public List<PartitionRange> plan(Connection conn, String sqlQuery, List<Object> parameters, String column,
+                                     int partitionCount) throws SQLException {
+        validateColumn(column);
+
+        String boundsSql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + sqlQuery + ") nexus_src";
+
+        try (PreparedStatement stmt = conn.prepareStatement(boundsSql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return List.of(PartitionRange.unbounded());
+                }
+
+                int columnType = rs.getMetaData().getColumnType(1);
+
+                return switch (columnType) {
+                    case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> splitLongRange(
+                            rs.getLong(1), rs.getLong(2), rs.getObject(2), partitionCount, Long::valueOf
+                    );
+                    case Types.DATE -> splitLongRange(
+                            rs.getDate(1).toLocalDate().toEpochDay(),
+                            rs.getDate(2).toLocalDate().toEpochDay(),
+                            rs.getDate(2),
+                            partitionCount,
+                            day -> Date.valueOf(LocalDate.ofEpochDay(day))
+                    );
+                    case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> splitLongRange(
+                            rs.getTimestamp(1).getTime(),
+                            rs.getTimestamp(2).getTime(),
+                            rs.getTimestamp(2),
+                            partitionCount,
+                            Timestamp::new
+                    );
+                    case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL -> splitDecimalRange(
+                            rs.getBigDecimal(1), rs.getBigDecimal(2), partitionCount
+                    );
+                    default -> throw new IllegalArgumentException(
+                            "Partition column '" + column + "' must be numeric, date or timestamp"
+                    );
+                };
+            }
+        }
+    }
+
+    private void validateColumn(String column) {
+        if (column == null || !IDENTIFIER.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid partition column: " + column);
+        }
+    }
+
+    private List<PartitionRange> splitLongRange(long min, long max, Object maxValue, int partitionCount,
+                                                LongFunction<Object> toSqlValue) {
+        // Ширина диапазона может не поместиться в long, поэтому считаем в BigDecimal
+        BigDecimal span = BigDecimal.valueOf(max).subtract(BigDecimal.valueOf(min)).add(BigDecimal.ONE);
+        int count = span.min(BigDecimal.valueOf(partitionCount)).intValue();
+        long step = span.divide(BigDecimal.valueOf(count), 0, RoundingMode.CEILING).longValueExact();
+
+        List<PartitionRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean last = i == count - 1;
+            long lower = min + i * step;
+            ranges.add(new PartitionRange(
+                    i,
+                    toSqlValue.apply(lower),
+                    last ? maxValue : toSqlValue.apply(lower + step),
+                    last
+            ));
+        }
+        return ranges;
+    }
+
+    private List<PartitionRange> splitDecimalRange(BigDecimal min, BigDecimal max, int partitionCount) {
+        if (min.compareTo(max) == 0) {
+            return List.of(new PartitionRange(0, min, max, true));
+        }
+
+        BigDecimal step = max.subtract(min)
+                .divide(BigDecimal.valueOf(partitionCount), Math.max(min.scale(), max.scale()) + 6, RoundingMode.CEILING);
+
+        List<PartitionRange> ranges = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            boolean last = i == partitionCount - 1;
+            BigDecimal lower = min.add(step.multiply(BigDecimal.valueOf(i)));
+            ranges.add(new PartitionRange(i, lower, last ? max : lower.add(step), last));
+        }
+        return ranges;
+    }
+}
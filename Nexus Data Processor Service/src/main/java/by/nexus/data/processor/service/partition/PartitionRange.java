@@ -0,0 +1,80 @@
+package by.nexus.data.processor.service.partition;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Диапазон значений колонки партиционирования: [lowerBound, upperBound),
+ * для последней партиции верхняя граница включается.
+ * Первая партиция дополнительно забирает строки с NULL в колонке.
+ */
+public record PartitionRange(
+        int index,
+        Object lowerBound,
+        Object upperBound,
+        boolean last
+) {
+
+    private static final String SOURCE_ALIAS = "nexus_src";
+
+    public static PartitionRange unbounded() {
+        return new PartitionRange(0, null, null, true);
+    }
+
+    public boolean isUnbounded() {
+        return lowerBound == null && upperBound == null;
+    }
+
+    public String toSql(String sqlQuery, String column) {
+        if (isUnbounded()) {
+            return sqlQuery;
+        }
+
+        return "SELECT * FROM (" + sqlQuery + ") " + SOURCE_ALIAS + " WHERE " + predicate(column);
+    }
+
+    /**
+     * Запрос диапазона в порядке колонки, продолжающий выгрузку после запечатанного сегмента:
+     * с {@code resume} добавляется условие {@code column > ?}. Строки с NULL в колонке остаются в выборке,
+     * пока не попали в запечатанный сегмент ({@code nullsSealed}), поэтому место NULL в сортировке
+     * конкретной СУБД неважно.
+     */
+    public String toOrderedSql(String sqlQuery, String column, boolean resume, boolean nullsSealed) {
+        List<String> predicates = new ArrayList<>(2);
+        if (!isUnbounded()) {
+            predicates.add("(" + predicate(column) + ")");
+        }
+        if (resume) {
+            predicates.add(nullsSealed ? column + " > ?" : "(" + column + " > ? OR " + column + " IS NULL)");
+        }
+
+        String sql = "SELECT * FROM (" + sqlQuery + ") " + SOURCE_ALIAS;
+        if (!predicates.isEmpty()) {
+            sql += " WHERE " + String.join(" AND ", predicates);
+        }
+        return sql + " ORDER BY " + column;
+    }
+
+    private String predicate(String column) {
+        String predicate = column + " >= ? AND " + column + (last ? " <= ?" : " < ?");
+        if (index == 0) {
+            predicate = "(" + predicate + ") OR " + column + " IS NULL";
+        }
+        return predicate;
+    }
+
+    /**
+     * @param index номер первого параметра диапазона: параметры исходного запроса идут раньше
+     * @return номер следующего после диапазона параметра
+     */
+    public int bind(PreparedStatement statement, int index) throws SQLException {
+        if (isUnbounded()) {
+            return index;
+        }
+        statement.setObject(index, lowerBound);
+        statement.setObject(index + 1, upperBound);
+        return index + 2;
+    }
+}
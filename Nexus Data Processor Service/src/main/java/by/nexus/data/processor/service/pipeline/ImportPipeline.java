@@ -0,0 +1,170 @@
+package by.nexus.data.processor.service.pipeline;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Трёхстадийный конвейер импорта: JDBC reader → пул конвертеров → один упорядоченный writer.
+ * <p>
+ * Reader работает в вызывающем потоке (JDBC-соединение его не покидает), writer — в отдельном
+ * виртуальном потоке. Стадии связаны ограниченной очередью, батчи переиспользуются через пул,
+ * поэтому медленное сжатие перекрывается с выборкой из источника, а память остаётся ограниченной.
+ */
+public class ImportPipeline<B> {
+
+    private static final long POLL_MILLIS = 100;
+
+    @FunctionalInterface
+    public interface Reader<B> {
+        /**
+         * Заполняет батч строками источника.
+         *
+         * @return {@code true}, если в источнике ещё остались строки
+         */
+        boolean fill(B batch) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Stage<B> {
+        void accept(B batch) throws Exception;
+    }
+
+    private final ExecutorService converterPool;
+    private final PipelineMetrics metrics;
+    private final int queueCapacity;
+
+    ImportPipeline(ExecutorService converterPool, PipelineMetrics metrics, int queueCapacity) {
+        this.converterPool = converterPool;
+        this.metrics = metrics;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Сколько батчей нужно конвейеру: по одному на каждое место в очереди, у reader'а и у writer'а.
+     */
+    public int batchCount() {
+        return queueCapacity + 2;
+    }
+
+    public PipelineStats run(List<B> batches,
+                             Predicate<B> isEmpty,
+                             Consumer<B> reset,
+                             Reader<B> reader,
+                             Stage<B> converter,
+                             Stage<B> writer) throws Exception {
+        BlockingQueue<B> free = new ArrayBlockingQueue<>(batches.size(), false, batches);
+        BlockingQueue<Future<B>> converted = new ArrayBlockingQueue<>(queueCapacity);
+        Future<B> end = CompletableFuture.completedFuture(null);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] writerStats = new long[2]; // stall nanos, batches
+
+        Thread writerThread = Thread.ofVirtual().name("import-writer").start(() -> {
+            try {
+                while (true) {
+                    long waitStart = System.nanoTime();
+                    Future<B> next = take(converted, failure);
+                    writerStats[0] += System.nanoTime() - waitStart;
+
+                    if (next == end) {
+                        return;
+                    }
+
+                    B batch = next.get();
+                    writer.accept(batch);
+                    writerStats[1]++;
+                    reset.accept(batch);
+                    free.put(batch);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e instanceof ExecutionException ? e.getCause() : e);
+            }
+        });
+
+        long readerStall = 0;
+        int maxQueueDepth = 0;
+
+        try (PipelineMetrics.Registration ignored = metrics.track(converted)) {
+            try {
+                boolean more = true;
+                while (more) {
+                    long waitStart = System.nanoTime();
+                    B batch = take(free, failure);
+                    readerStall += System.nanoTime() - waitStart;
+
+                    more = reader.fill(batch);
+                    if (isEmpty.test(batch)) {
+                        break;
+                    }
+
+                    Future<B> task = converterPool.submit(() -> {
+                        converter.accept(batch);
+                        return batch;
+                    });
+
+                    waitStart = System.nanoTime();
+                    put(converted, task, failure);
+                    readerStall += System.nanoTime() - waitStart;
+                    maxQueueDepth = Math.max(maxQueueDepth, converted.size());
+                }
+                put(converted, end, failure);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+
+            writerThread.join();
+        } finally {
+            converted.forEach(task -> task.cancel(true));
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw error instanceof Exception exception ? exception : new ExecutionException(error);
+        }
+
+        metrics.recordStall("reader", readerStall);
+        metrics.recordStall("writer", writerStats[0]);
+        return new PipelineStats(writerStats[1], readerStall, writerStats[0], maxQueueDepth);
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure)
+            throws InterruptedException, PipelineAbortedException {
+        while (true) {
+            T value = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (value != null) {
+                return value;
+            }
+            if (failure.get() != null) {
+                throw new PipelineAbortedException();
+            }
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T value, AtomicReference<Throwable> failure)
+            throws InterruptedException, PipelineAbortedException {
+        while (!queue.offer(value, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new PipelineAbortedException();
+            }
+        }
+    }
+
+    /**
+     * Сигнал стадии, что соседняя стадия уже упала и ждать больше нечего.
+     * Исходная ошибка к этому моменту уже сохранена.
+     */
+    private static class PipelineAbortedException extends Exception {
+        PipelineAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package by.nexus.data.processor.service.pipeline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Создаёт конвейеры импорта поверх общего пула конвертеров.
+ */
+@Component
+public class ImportPipelineFactory {
+
+    private final ExecutorService converterPool;
+    private final PipelineMetrics metrics;
+    private final int queueCapacity;
+
+    public ImportPipelineFactory(MeterRegistry meterRegistry,
+                                 @Value("${nexus.extraction.pipeline.converter-threads:0}") int converterThreads,
+                                 @Value("${nexus.extraction.pipeline.queue-capacity:4}") int queueCapacity) {
+        int threads = converterThreads > 0 ? converterThreads : Runtime.getRuntime().availableProcessors();
+        this.converterPool = Executors.newFixedThreadPool(
+                threads,
+                Thread.ofPlatform().name("import-converter-", 0).daemon().factory()
+        );
+        this.metrics = new PipelineMetrics(meterRegistry);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public <B> ImportPipeline<B> create() {
+        return new ImportPipeline<>(converterPool, metrics, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        converterPool.shutdownNow();
+    }
+}
@@ -0,0 +1,50 @@
+package by.nexus.data.processor.service.pipeline;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики конвейеров импорта: суммарная глубина очередей активных конвейеров и время простоя стадий.
+ */
+class PipelineMetrics {
+
+    private final Set<Collection<?>> queues = ConcurrentHashMap.newKeySet();
+    private final Timer readerStall;
+    private final Timer writerStall;
+
+    PipelineMetrics(MeterRegistry registry) {
+        Gauge.builder("nexus.import.pipeline.queue.depth", queues,
+                        q -> q.stream().mapToInt(Collection::size).sum())
+                .description("Batches converted or being converted and waiting for the writer")
+                .register(registry);
+
+        readerStall = Timer.builder("nexus.import.pipeline.stall")
+                .description("Time a stage spent blocked on its neighbour")
+                .tag("stage", "reader")
+                .register(registry);
+        writerStall = Timer.builder("nexus.import.pipeline.stall")
+                .description("Time a stage spent blocked on its neighbour")
+                .tag("stage", "writer")
+                .register(registry);
+    }
+
+    Registration track(Collection<?> queue) {
+        queues.add(queue);
+        return () -> queues.remove(queue);
+    }
+
+    void recordStall(String stage, long nanos) {
+        ("reader".equals(stage) ? readerStall : writerStall).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,27 @@
+package by.nexus.data.processor.service.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Итоги прогона конвейера импорта.
+ * Если дольше простаивал reader — узкое место в энкодере, если writer — в источнике.
+ */
+public record PipelineStats(
+        long batches,
+        long readerStallNanos,
+        long writerStallNanos,
+        int maxQueueDepth
+) {
+    public String bottleneck() {
+        return readerStallNanos > writerStallNanos ? "writer" : "source";
+    }
+
+    @Override
+    public String toString() {
+        return "batches=" + batches
+                + ", readerStall=" + TimeUnit.NANOSECONDS.toMillis(readerStallNanos) + "ms"
+                + ", writerStall=" + TimeUnit.NANOSECONDS.toMillis(writerStallNanos) + "ms"
+                + ", maxQueueDepth=" + maxQueueDepth
+                + ", bottleneck=" + bottleneck();
+    }
+}
@@ -0,0 +1,14 @@
+package by.nexus.data.processor.service.watermark;
+
+import java.util.List;
+
+/**
+ * Запрос, ограниченный диапазоном (предыдущая отметка, новая отметка], и новая отметка.
+ * Границы диапазона передаются параметрами {@code parameters} в порядке их {@code ?} в запросе.
+ */
+public record IncrementalQuery(
+        String sqlQuery,
+        List<Object> parameters,
+        String watermark
+) {
+}
@@ -0,0 +1,80 @@
+package by.nexus.data.processor.service.watermark;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Верхняя отметка инкрементального импорта. Core хранит её как непрозрачную строку
+ * вида {@code TYPE:value} и возвращает при следующем запуске.
+ * <p>
+ * Время с часовым поясом хранится как момент в UTC ({@code TIMESTAMPTZ:2024-01-02T10:00:00Z}) и не зависит
+ * от поясов процессора и сессии источника; время без пояса — как есть.
+ */
+public record Watermark(Type type, String value) {
+
+    public enum Type {
+        LONG, DECIMAL, DATE, TIMESTAMP, TIMESTAMPTZ
+    }
+
+    public static Watermark parse(String token) {
+        int separator = token.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid watermark: " + token);
+        }
+        Watermark watermark = new Watermark(
+                Type.valueOf(token.substring(0, separator)),
+                token.substring(separator + 1)
+        );
+        // Проверяем формат сразу, а не при первом запросе к источнику
+        watermark.toParameter();
+        return watermark;
+    }
+
+    /**
+     * Читает значение колонки как отметку или возвращает null, если значение NULL.
+     */
+    public static Watermark read(ResultSet rs, int column, String columnName) throws SQLException {
+        if (rs.getObject(column) == null) {
+            return null;
+        }
+
+        return switch (rs.getMetaData().getColumnType(column)) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT ->
+                    new Watermark(Type.LONG, Long.toString(rs.getLong(column)));
+            case Types.DECIMAL, Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL ->
+                    new Watermark(Type.DECIMAL, rs.getBigDecimal(column).toPlainString());
+            case Types.DATE -> new Watermark(Type.DATE, rs.getDate(column).toString());
+            case Types.TIMESTAMP -> new Watermark(Type.TIMESTAMP, rs.getTimestamp(column).toString());
+            case Types.TIMESTAMP_WITH_TIMEZONE -> new Watermark(Type.TIMESTAMPTZ,
+                    rs.getObject(column, OffsetDateTime.class).toInstant().toString());
+            default -> throw new IllegalArgumentException(
+                    "Watermark column '" + columnName + "' must be numeric, date or timestamp"
+            );
+        };
+    }
+
+    public String token() {
+        return type + ":" + value;
+    }
+
+    /**
+     * Значение для {@link PreparedStatement#setObject}: в текст запроса отметка не подставляется.
+     */
+    public Object toParameter() {
+        return switch (type) {
+            case LONG -> Long.parseLong(value);
+            case DECIMAL -> new BigDecimal(value);
+            case DATE -> Date.valueOf(value);
+            case TIMESTAMP -> Timestamp.valueOf(value);
+            case TIMESTAMPTZ -> OffsetDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC);
+        };
+    }
+}
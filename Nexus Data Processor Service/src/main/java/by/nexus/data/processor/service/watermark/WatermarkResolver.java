@@ -0,0 +1,100 @@
+package by.nexus.data.processor.service.watermark;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.service.connection.SourceConnectionPools;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Строит запрос инкрементального импорта: только строки выше сохранённой отметки
+ * и не выше текущего MAX колонки. Новая отметка фиксируется в файле рядом с результатом задачи,
+ * чтобы повторная доставка той же задачи выгружала тот же диапазон.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WatermarkResolver {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final String SOURCE_ALIAS = "nexus_src";
+
+    @Value("${nexus.storage.path}")
+    private String storagePath;
+
+    private final SourceConnectionPools connectionPools;
+
+    public IncrementalQuery resolve(ImportRequestEvent event) throws SQLException, IOException {
+        String column = event.watermarkColumn();
+        if (!IDENTIFIER.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid watermark column: " + column);
+        }
+
+        Watermark lower = event.watermark() != null ? Watermark.parse(event.watermark()) : null;
+        String newRows = lower == null
+                ? event.sqlQuery()
+                : wrap(event.sqlQuery(), column + " > ?");
+        List<Object> newRowsParameters = lower == null ? List.of() : List.of(lower.toParameter());
+
+        Path pinned = Paths.get(storagePath).resolve("job_" + event.jobId() + ".watermark");
+        Watermark upper;
+        if (Files.exists(pinned)) {
+            upper = Watermark.parse(Files.readString(pinned, StandardCharsets.UTF_8));
+        } else {
+            upper = queryMax(event, newRows, newRowsParameters, column);
+            if (upper == null) {
+                log.info("[JobId: {}] No rows above watermark {}", event.jobId(), event.watermark());
+                return new IncrementalQuery(wrap(event.sqlQuery(), "1 = 0"), List.of(), event.watermark());
+            }
+            pin(pinned, upper);
+        }
+
+        log.info("[JobId: {}] Incremental import by '{}': ({}, {}]",
+                event.jobId(), column, event.watermark(), upper.token());
+        if (lower == null) {
+            return new IncrementalQuery(wrap(event.sqlQuery(), column + " <= ?"),
+                    List.of(upper.toParameter()), upper.token());
+        }
+        return new IncrementalQuery(wrap(event.sqlQuery(), column + " > ? AND " + column + " <= ?"),
+                List.of(lower.toParameter(), upper.toParameter()), upper.token());
+    }
+
+    private Watermark queryMax(ImportRequestEvent event, String sqlQuery, List<Object> parameters, String column)
+            throws SQLException {
+        try (Connection conn = connectionPools.getConnection(event.connectionUrl(), event.username(), event.password());
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT MAX(" + column + ") FROM (" + sqlQuery + ") " + SOURCE_ALIAS)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Watermark.read(rs, 1, column) : null;
+            }
+        }
+    }
+
+    private void pin(Path file, Watermark watermark) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, watermark.token(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String wrap(String sqlQuery, String predicate) {
+        return "SELECT * FROM (" + sqlQuery + ") " + SOURCE_ALIAS + " WHERE " + predicate;
+    }
+}
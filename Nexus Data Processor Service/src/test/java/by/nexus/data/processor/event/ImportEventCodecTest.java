@@ -0,0 +1,42 @@
+package by.nexus.data.processor.event;
+
+import org.apache.avro.SchemaNormalization;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImportEventCodecTest {
+
+    // Те же значения проверяет Core: схемы в сервисах должны совпадать
+    private static final String REQUEST_V1_FINGERPRINT = "9dab5321de4d138a";
+    private static final String COMPLETED_V1_FINGERPRINT = "1dbaed72478df446";
+
+    private final ImportEventSerializer serializer = new ImportEventSerializer();
+    private final ImportEventDeserializer deserializer = new ImportEventDeserializer();
+
+    @Test
+    void importRequest_ShouldRoundTrip() {
+        ImportRequestEvent event = new ImportRequestEvent(
+                "user:project:folder:1", "project", "jdbc:postgresql://db:5432/app", "app", null,
+                "SELECT * FROM orders").withPartitionCount(4);
+
+        assertEquals(event, deserializer.deserialize("import-requests", serializer.serialize("import-requests", event)));
+    }
+
+    @Test
+    void importCompleted_ShouldRoundTrip() {
+        ImportCompletedEvent event = new ImportCompletedEvent(
+                "user:project:folder:1", "SUCCESS", "lb://NEXUS-DATA-PROCESSOR:8082/api/internal/files/1.parquet",
+                1024, "ab".repeat(32), null, "updated_at", "42");
+
+        assertEquals(event, deserializer.deserialize("import-completed", serializer.serialize("import-completed", event)));
+    }
+
+    @Test
+    void publishedSchemas_ShouldMatchCore() {
+        assertEquals(REQUEST_V1_FINGERPRINT,
+                Long.toHexString(SchemaNormalization.parsingFingerprint64(ImportEventCodec.IMPORT_REQUEST)));
+        assertEquals(COMPLETED_V1_FINGERPRINT,
+                Long.toHexString(SchemaNormalization.parsingFingerprint64(ImportEventCodec.IMPORT_COMPLETED)));
+    }
+}
@@ -0,0 +1,73 @@
+package by.nexus.data.processor.scheduler;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCleanupTaskTest {
+
+    private static final FileTime TWO_DAYS_AGO = FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS));
+
+    @TempDir
+    Path storage;
+
+    private final ImportJobScheduler scheduler = new ImportJobScheduler(new SimpleMeterRegistry(), 2, 0, 2, 10);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void cleanOldFiles_ShouldKeepWorkDirsOfActiveAndRecentlyUpdatedJobs() throws Exception {
+        String runningJob = "user@example.com:p:f:running";
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(new ImportRequestEvent(runningJob, "p", "jdbc:h2:mem:a", "sa", "", "SELECT 1",
+                null, null, null, null, null), event -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Path running = workDir(runningJob, TWO_DAYS_AGO);
+        Path checkpointed = workDir("checkpointed", TWO_DAYS_AGO);
+        Files.setLastModifiedTime(Files.writeString(checkpointed.resolve("checkpoint.json"), "{}"),
+                FileTime.from(Instant.now()));
+        Path abandoned = workDir("abandoned", TWO_DAYS_AGO);
+
+        FileCleanupTask task = new FileCleanupTask(scheduler);
+        ReflectionTestUtils.setField(task, "storagePath", storage.toString());
+        task.cleanOldFiles();
+
+        assertTrue(Files.exists(running));
+        assertTrue(Files.exists(checkpointed));
+        assertFalse(Files.exists(abandoned));
+    }
+
+    private Path workDir(String jobId, FileTime modified) throws Exception {
+        Path dir = Files.createDirectories(storage.resolve("job_" + jobId + ".work"));
+        Files.setLastModifiedTime(Files.writeString(dir.resolve("part-0.nxdt"), "data"), modified);
+        Files.setLastModifiedTime(dir, modified);
+        return dir;
+    }
+}
@@ -0,0 +1,132 @@
+package by.nexus.data.processor.scheduler;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportJobSchedulerTest {
+
+    private final ImportJobScheduler scheduler = new ImportJobScheduler(new SimpleMeterRegistry(), 3, 1, 2, 100);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void submit_ShouldNotExceedConnectionsPerSource() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit(event("job-" + i, "jdbc:h2:mem:a", null), e -> await(started, release));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.running());
+        assertEquals(1, scheduler.queued());
+
+        release.countDown();
+    }
+
+    @Test
+    void submit_WhenSourceIsBusy_ShouldRunJobsOfOtherSources() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherSourceStarted = new CountDownLatch(1);
+
+        scheduler.submit(event("big", "jdbc:h2:mem:a", 8), e -> await(new CountDownLatch(0), release));
+        scheduler.submit(event("small-a", "jdbc:h2:mem:a", null), e -> await(new CountDownLatch(0), release));
+        scheduler.submit(event("small-b", "jdbc:h2:mem:b", null), e -> otherSourceStarted.countDown());
+
+        assertTrue(otherSourceStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.queued());
+
+        release.countDown();
+    }
+
+    @Test
+    void submit_ShouldClampPartitionsToSourceLimit() throws Exception {
+        List<Integer> partitions = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        scheduler.submit(event("big", "jdbc:h2:mem:a", 16), e -> {
+            partitions.add(e.partitionCount());
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(2), partitions);
+    }
+
+    @Test
+    void submit_ShouldKeepReservedSlotsForInteractiveLane() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch interactiveStarted = new CountDownLatch(1);
+
+        // 3 слота, 1 зарезервирован: BULK-импорты займут не больше двух
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit(event("bulk-" + i, "jdbc:h2:mem:bulk" + i, 2), e -> await(new CountDownLatch(0), release));
+        }
+        scheduler.submit(event("interactive", "jdbc:h2:mem:c", null), e -> interactiveStarted.countDown());
+
+        assertTrue(interactiveStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.queued());
+
+        release.countDown();
+    }
+
+    @Test
+    void shutdown_ShouldInterruptRunningJobs() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        scheduler.submit(event("long", "jdbc:h2:mem:a", null), e -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        scheduler.shutdown();
+
+        assertTrue(interrupted.await(0, TimeUnit.SECONDS));
+        assertTrue(scheduler.isShutdown());
+    }
+
+    @Test
+    void lane_WithUnknownPriority_ShouldFallBackToDefault() {
+        ImportRequestEvent bulk = new ImportRequestEvent("job", "project", "jdbc:h2:mem:a", "sa", "", "SELECT 1",
+                "id", 4, "urgent", null, null);
+        ImportRequestEvent interactive = new ImportRequestEvent("job", "project", "jdbc:h2:mem:a", "sa", "",
+                "SELECT 1", null, null, "urgent", null, null);
+
+        assertEquals(ImportLane.BULK, ImportLane.of(bulk));
+        assertEquals(ImportLane.INTERACTIVE, ImportLane.of(interactive));
+    }
+
+    private static ImportRequestEvent event(String jobId, String url, Integer partitions) {
+        return new ImportRequestEvent(jobId, "project", url, "sa", "", "SELECT 1",
+                partitions != null ? "id" : null, partitions, null, null, null);
+    }
+
+    private static void await(CountDownLatch started, CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,37 +1,54 @@
 package by.nexus.data.processor.service;
 
 import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.service.connection.SourceConnectionPools;
+import by.nexus.data.processor.service.checkpoint.ImportCheckpointStore;
 import by.nexus.data.processor.service.impl.NxdtDataExtractionService;
+import by.nexus.data.processor.service.partition.NxdtPartMerger;
+import by.nexus.data.processor.service.partition.PartitionPlanner;
+import by.nexus.data.processor.service.pipeline.ImportPipelineFactory;
 import com.github.baibeicha.nexus.io.parquet.ParquetIo;
 import com.github.baibeicha.nexus.io.sql.DynamicAvroSchemaGenerator;
 import com.github.baibeicha.nexus.io.sql.JdbcToAvroConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.io.InputFile;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DataExtractionServiceTest {
 
     private DataExtractionService service;
 
+    private final SourceConnectionPools connectionPools = new SourceConnectionPools(
+            new SimpleMeterRegistry(), 4, 8, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
     @TempDir
     java.nio.file.Path tempStorageDir;
 
@@ -43,7 +60,12 @@ class DataExtractionServiceTest {
     void setUp() throws Exception {
         service = new NxdtDataExtractionService(
                 new DynamicAvroSchemaGenerator(),
-                new JdbcToAvroConverter()
+                new JdbcToAvroConverter(),
+                new PartitionPlanner(),
+                new NxdtPartMerger(),
+                new ImportPipelineFactory(new SimpleMeterRegistry(), 2, 4),
+                connectionPools,
+                new ImportCheckpointStore()
         );
 
         ReflectionTestUtils.setField(service, "storagePath", tempStorageDir.toString());
@@ -67,6 +89,11 @@ class DataExtractionServiceTest {
         }
     }
 
+    @AfterEach
+    void tearDown() {
+        connectionPools.shutdown();
+    }
+
     @Test
     void testExtractAndConvert_ShouldCreateParquetFile() throws Exception {
         String jobId = UUID.randomUUID().toString();
@@ -105,6 +132,252 @@ class DataExtractionServiceTest {
         assertEquals(false, record2.get("is_active"));
     }
 
+    @Test
+    void testExtractAndConvert_Partitioned_ShouldMergePartsIntoSingleFile() throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO test_users VALUES " +
+                    "(3, 'Carol', 4100.00, true, ARRAY['staff'], '2024-01-03 09:00:00'), " +
+                    "(4, 'Dave', 2500.00, true, ARRAY['guest'], '2024-01-04 18:45:00'), " +
+                    "(5, 'Eve', 7000.00, false, ARRAY['admin'], '2024-01-05 08:15:00')");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        ImportRequestEvent event = new ImportRequestEvent(
+                jobId,
+                "1",
+                DB_URL,
+                DB_USER,
+                DB_PASS,
+                "SELECT * FROM test_users",
+                "id",
+                3,
+                null,
+                null,
+                null
+        );
+
+        File resultFile = service.extractAndConvert(event);
+
+        List<GenericRecord> records = readParquetFile(resultFile);
+
+        assertEquals(5, records.size());
+        assertEquals(
+                List.of(1, 2, 3, 4, 5),
+                records.stream().map(r -> (Integer) r.get("id")).sorted().toList()
+        );
+        try (var files = java.nio.file.Files.list(tempStorageDir)) {
+            assertEquals(1, files.count(), "Part-файлы должны быть удалены после склейки");
+        }
+    }
+
+    @Test
+    void testExtractAndConvert_AfterFailure_ShouldResumeFromCheckpoint() throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO test_users VALUES " +
+                    "(3, 'Carol', 4100.00, true, ARRAY['staff'], '2024-01-03 09:00:00'), " +
+                    "(4, 'Dave', 2500.00, true, ARRAY['guest'], '2024-01-04 18:45:00'), " +
+                    "(5, 'Eve', 7000.00, false, ARRAY['admin'], '2024-01-05 08:15:00')");
+        }
+
+        ImportRequestEvent event = new ImportRequestEvent(
+                UUID.randomUUID().toString(),
+                "1",
+                DB_URL,
+                DB_USER,
+                DB_PASS,
+                "SELECT id, username FROM test_users",
+                "id",
+                3,
+                null,
+                null,
+                null
+        );
+
+        NxdtDataExtractionService crashingService = crashingService();
+
+        assertThrows(IOException.class, () -> crashingService.extractAndConvert(event));
+        java.nio.file.Path workDir = tempStorageDir.resolve("job_" + event.jobId() + ".work");
+        assertTrue(java.nio.file.Files.exists(workDir.resolve("checkpoint.json")));
+        assertFalse(java.nio.file.Files.exists(tempStorageDir.resolve("job_" + event.jobId() + ".nxdt")));
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE test_users SET username = 'Changed' WHERE id = 1");
+        }
+
+        List<GenericRecord> records = readParquetFile(service.extractAndConvert(event));
+
+        assertEquals(5, records.size());
+        GenericRecord first = records.stream().filter(r -> (Integer) r.get("id") == 1).findFirst().orElseThrow();
+        assertEquals("Alice", first.get("username").toString(), "Запечатанная партиция не должна перечитываться");
+        assertFalse(java.nio.file.Files.exists(workDir));
+    }
+
+    @Test
+    void testExtractAndConvert_AfterSourceGrew_ShouldKeepPlannedRanges() throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO test_users VALUES " +
+                    "(3, 'Carol', 4100.00, true, ARRAY['staff'], '2024-01-03 09:00:00'), " +
+                    "(4, 'Dave', 2500.00, true, ARRAY['guest'], '2024-01-04 18:45:00')");
+        }
+        ImportRequestEvent event = new ImportRequestEvent(
+                UUID.randomUUID().toString(), "1", DB_URL, DB_USER, DB_PASS,
+                "SELECT id, username FROM test_users", "id", 2, null, null, null
+        );
+
+        NxdtDataExtractionService crashingService = crashingService();
+        assertThrows(IOException.class, () -> crashingService.extractAndConvert(event));
+
+        // MAX(id) вырос: новый план дал бы другие границы и сбросил бы checkpoint
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO test_users VALUES (10, 'Frank', 1000.00, true, ARRAY['guest'], NULL)");
+            stmt.execute("UPDATE test_users SET username = 'Changed' WHERE id IN (1, 4)");
+        }
+
+        List<GenericRecord> records = readParquetFile(service.extractAndConvert(event));
+
+        assertEquals(List.of("Alice", "Bob", "Carol", "Dave"),
+                records.stream().map(r -> r.get("username").toString()).sorted().toList());
+    }
+
+    @Test
+    void testExtractAndConvert_NotPartitioned_ShouldResumeAfterLastSealedSegment() throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO test_users VALUES " +
+                    "(3, 'Carol', 4100.00, true, ARRAY['staff'], '2024-01-03 09:00:00'), " +
+                    "(4, 'Dave', 2500.00, true, ARRAY['guest'], '2024-01-04 18:45:00'), " +
+                    "(5, 'Eve', 7000.00, false, ARRAY['admin'], '2024-01-05 08:15:00'), " +
+                    "(6, 'Frank', NULL, true, ARRAY['guest'], NULL)");
+        }
+
+        // Одна партиция: колонка задана только как ключ сегментов, NULL в ней тоже нельзя потерять
+        ImportRequestEvent event = new ImportRequestEvent(
+                UUID.randomUUID().toString(), "1", DB_URL, DB_USER, DB_PASS,
+                "SELECT id, username, salary FROM test_users", "salary", null, null, null, null
+        );
+
+        // Сервис "падает" на третьем сегменте, когда два уже запечатаны
+        NxdtDataExtractionService crashingService = new NxdtDataExtractionService(
+                new DynamicAvroSchemaGenerator() {
+                    private int segments;
+
+                    @Override
+                    public Schema generate(ResultSetMetaData metaData) throws SQLException {
+                        if (++segments == 3) {
+                            throw new SQLException("Simulated crash");
+                        }
+                        return super.generate(metaData);
+                    }
+                },
+                new JdbcToAvroConverter(),
+                new PartitionPlanner(),
+                new NxdtPartMerger(),
+                new ImportPipelineFactory(new SimpleMeterRegistry(), 2, 4),
+                connectionPools,
+                new ImportCheckpointStore()
+        );
+        ReflectionTestUtils.setField(crashingService, "storagePath", tempStorageDir.toString());
+        ReflectionTestUtils.setField(crashingService, "checkpointRows", 2L);
+        ReflectionTestUtils.setField(service, "checkpointRows", 2L);
+
+        assertThrows(SQLException.class, () -> crashingService.extractAndConvert(event));
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE test_users SET username = 'Changed'");
+        }
+
+        List<GenericRecord> records = readParquetFile(service.extractAndConvert(event));
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6),
+                records.stream().map(r -> (Integer) r.get("id")).sorted().toList());
+        assertEquals(4, records.stream().filter(r -> !r.get("username").toString().equals("Changed")).count(),
+                "Строки запечатанных сегментов не должны перечитываться");
+    }
+
+    @Test
+    void testExtractAndConvert_WhenAlreadyPublished_ShouldReuseResult() throws Exception {
+        ImportRequestEvent event = new ImportRequestEvent(
+                UUID.randomUUID().toString(), "1", DB_URL, DB_USER, DB_PASS, "SELECT * FROM test_users"
+        );
+
+        File first = service.extractAndConvert(event);
+        long modified = first.lastModified();
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE test_users");
+        }
+
+        File second = service.extractAndConvert(event);
+
+        assertEquals(first, second);
+        assertEquals(modified, second.lastModified());
+        assertEquals(2, readParquetFile(second).size());
+    }
+
+    @Test
+    void testExtractAndConvert_FlatSchema_ColumnarPathShouldMatchRecordPath() throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS test_metrics (" +
+                    "id BIGINT PRIMARY KEY, " +
+                    "name VARCHAR(255), " +
+                    "score DOUBLE PRECISION, " +
+                    "is_active BOOLEAN, " +
+                    "created_at TIMESTAMP, " +
+                    "created_on DATE)");
+            stmt.execute("TRUNCATE TABLE test_metrics");
+            stmt.execute("INSERT INTO test_metrics VALUES " +
+                    "(1, 'cpu', 0.75, true, '2024-01-01 10:00:00', '2024-01-01'), " +
+                    "(2, 'cpu', NULL, false, NULL, '2024-01-02'), " +
+                    "(3, NULL, 1.5, NULL, '2024-01-03 23:59:59', NULL)");
+        }
+
+        String query = "SELECT * FROM test_metrics ORDER BY id";
+
+        ReflectionTestUtils.setField(service, "columnarEnabled", false);
+        List<GenericRecord> expected = readParquetFile(service.extractAndConvert(
+                new ImportRequestEvent("records", "1", DB_URL, DB_USER, DB_PASS, query)
+        ));
+
+        ReflectionTestUtils.setField(service, "columnarEnabled", true);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        List<GenericRecord> actual = readParquetFile(service.extractAndConvert(
+                new ImportRequestEvent("columnar", "1", DB_URL, DB_USER, DB_PASS, query)
+        ));
+
+        assertEquals(3, actual.size());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * Сервис "падает" после того, как все партиции запечатаны, но до публикации результата.
+     */
+    private NxdtDataExtractionService crashingService() {
+        NxdtDataExtractionService crashingService = new NxdtDataExtractionService(
+                new DynamicAvroSchemaGenerator(),
+                new JdbcToAvroConverter(),
+                new PartitionPlanner(),
+                new NxdtPartMerger() {
+                    @Override
+                    public void merge(List<java.nio.file.Path> parts, java.nio.file.Path target) throws IOException {
+                        throw new IOException("Simulated crash");
+                    }
+                },
+                new ImportPipelineFactory(new SimpleMeterRegistry(), 2, 4),
+                connectionPools,
+                new ImportCheckpointStore()
+        );
+        ReflectionTestUtils.setField(crashingService, "storagePath", tempStorageDir.toString());
+        return crashingService;
+    }
+
     private List<GenericRecord> readParquetFile(File file) throws Exception {
         List<GenericRecord> records = new ArrayList<>();
 
@@ -0,0 +1,107 @@
+package by.nexus.data.processor.service.columnar;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.service.connection.SourceConnectionPools;
+import by.nexus.data.processor.service.checkpoint.ImportCheckpointStore;
+import by.nexus.data.processor.service.impl.NxdtDataExtractionService;
+import by.nexus.data.processor.service.partition.NxdtPartMerger;
+import by.nexus.data.processor.service.partition.PartitionPlanner;
+import by.nexus.data.processor.service.pipeline.ImportPipelineFactory;
+import com.github.baibeicha.nexus.io.sql.DynamicAvroSchemaGenerator;
+import com.github.baibeicha.nexus.io.sql.JdbcToAvroConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Сравнивает построчный и векторный путь выгрузки: строки/сек и байты аллокаций на строку.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*ColumnarExtractionBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class ColumnarExtractionBenchmark {
+
+    private static final String DB_URL = "jdbc:h2:mem:benchdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+    private static final int ROWS = 200_000;
+    private static final int ITERATIONS = 3;
+
+    @TempDir
+    Path tempStorageDir;
+
+    private NxdtDataExtractionService service;
+
+    private final SourceConnectionPools connectionPools = new SourceConnectionPools(
+            new SimpleMeterRegistry(), 4, 8, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new NxdtDataExtractionService(
+                new DynamicAvroSchemaGenerator(),
+                new JdbcToAvroConverter(),
+                new PartitionPlanner(),
+                new NxdtPartMerger(),
+                new ImportPipelineFactory(new SimpleMeterRegistry(), 2, 4),
+                connectionPools,
+                new ImportCheckpointStore()
+        );
+        ReflectionTestUtils.setField(service, "storagePath", tempStorageDir.toString());
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS bench_users");
+            stmt.execute("CREATE TABLE bench_users (" +
+                    "id INT PRIMARY KEY, " +
+                    "username VARCHAR(255), " +
+                    "salary DECIMAL(10, 2), " +
+                    "is_active BOOLEAN, " +
+                    "created_at TIMESTAMP)");
+            stmt.execute("INSERT INTO bench_users " +
+                    "SELECT X, 'user_' || MOD(X, 1000), X * 1.5, MOD(X, 2) = 0, " +
+                    "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') " +
+                    "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionPools.shutdown();
+    }
+
+    @Test
+    void compareRecordAndColumnarPaths() throws Exception {
+        run("record", false);
+        run("columnar", true);
+    }
+
+    private void run(String label, boolean columnar) throws Exception {
+        ReflectionTestUtils.setField(service, "columnarEnabled", columnar);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+
+            service.extractAndConvert(new ImportRequestEvent(
+                    UUID.randomUUID().toString(), "1", DB_URL, "sa", "", "SELECT * FROM bench_users"
+            ));
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            System.out.printf("%-8s run %d: %,.0f rows/sec, %,.1f MB/sec allocated, %,d bytes/row%n",
+                    label, i + 1, ROWS / seconds, allocated / seconds / (1024 * 1024), allocated / ROWS);
+        }
+    }
+}
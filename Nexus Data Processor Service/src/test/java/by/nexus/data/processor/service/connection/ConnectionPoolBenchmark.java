@@ -0,0 +1,77 @@
+package by.nexus.data.processor.service.connection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Задержка короткого импорта (соединение + короткий запрос) с DriverManager и с пулом.
+ * H2 поднимается как TCP-сервер, чтобы в замер попадало установление сетевого соединения.
+ * Запуск: {@code NEXUS_BENCHMARK=true ./gradlew test --tests '*ConnectionPoolBenchmark'}
+ */
+@EnabledIfEnvironmentVariable(named = "NEXUS_BENCHMARK", matches = "true")
+class ConnectionPoolBenchmark {
+
+    private static final int JOBS = 2_000;
+    private static final String QUERY = "SELECT id, name FROM small_table";
+
+    private Server server;
+    private String url;
+    private SourceConnectionPools pools;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:benchpool;DB_CLOSE_DELAY=-1";
+        pools = new SourceConnectionPools(new SimpleMeterRegistry(), 4, 8, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS small_table AS " +
+                    "SELECT X AS id, 'name_' || X AS name FROM SYSTEM_RANGE(1, 20)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.shutdown();
+        server.stop();
+    }
+
+    @Test
+    void compareDriverManagerAndPool() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            report("driver-manager", measure(false));
+            report("pooled", measure(true));
+        }
+    }
+
+    private long measure(boolean pooled) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < JOBS; i++) {
+            try (Connection conn = pooled
+                    ? pools.getConnection(url, "sa", "")
+                    : DriverManager.getConnection(url, "sa", "");
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(QUERY)) {
+                while (rs.next()) {
+                    rs.getString(2);
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long nanos) {
+        System.out.printf("%-15s %8.1f us/job%n", label, nanos / 1_000.0 / JOBS);
+    }
+}
@@ -0,0 +1,116 @@
+package by.nexus.data.processor.service.connection;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SourceConnectionPoolsTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:pooldb;DB_CLOSE_DELAY=-1";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SourceConnectionPools pools = new SourceConnectionPools(
+            meterRegistry, 2, 4, Duration.ZERO, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        pools.shutdown();
+    }
+
+    @Test
+    void getConnection_ShouldReusePoolForSameSource() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pools.getConnection(DB_URL, "sa", "")) {
+                conn.createStatement().execute("SELECT 1");
+            }
+        }
+
+        assertEquals(1, requests("miss"));
+        assertEquals(2, requests("hit"));
+    }
+
+    @Test
+    void getConnection_WhenPasswordChanged_ShouldRecreatePool() throws Exception {
+        String url = "jdbc:h2:mem:rotated;DB_CLOSE_DELAY=-1";
+        try (Connection conn = pools.getConnection(url, "sa", "old");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER USER SA SET PASSWORD 'new'");
+        }
+
+        try (Connection conn = pools.getConnection(url, "sa", "new")) {
+            conn.createStatement().execute("SELECT 1");
+        }
+
+        assertEquals(1, requests("credentials_changed"));
+    }
+
+    @Test
+    void getConnection_WithWrongPassword_ShouldFailFast() throws Exception {
+        String url = "jdbc:h2:mem:secured;DB_CLOSE_DELAY=-1";
+        pools.getConnection(url, "sa", "secret").close();
+
+        assertThrows(SQLException.class, () -> pools.getConnection(url, "sa", "wrong"));
+    }
+
+    @Test
+    void evictIdle_ShouldCloseUnusedPools() throws Exception {
+        pools.getConnection(DB_URL, "sa", "").close();
+
+        pools.evictIdle();
+        pools.getConnection(DB_URL, "sa", "").close();
+
+        assertEquals(2, requests("miss"));
+    }
+
+    @Test
+    void getConnection_WhileIdlePoolsAreEvicted_ShouldNotFail() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<?> evictor = executor.submit(() -> {
+                while (running.get()) {
+                    pools.evictIdle();
+                }
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        try (Connection conn = pools.getConnection(DB_URL, "sa", "")) {
+                            conn.createStatement().execute("SELECT 1");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            evictor.get(10, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("nexus.import.connection.pool.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,151 @@
+package by.nexus.data.processor.service.impl;
+
+import by.nexus.data.processor.event.ImportCompletedEvent;
+import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.scheduler.ImportJobScheduler;
+import by.nexus.data.processor.service.DataExtractionService;
+import by.nexus.data.processor.service.watermark.IncrementalQuery;
+import by.nexus.data.processor.service.watermark.WatermarkResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class KafkaImportProcessorServiceTest {
+
+    private static final String TOPIC = "import-requests";
+
+    @TempDir
+    Path tempDir;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final DataExtractionService extractionService = mock(DataExtractionService.class);
+    private final WatermarkResolver watermarkResolver = mock(WatermarkResolver.class);
+    private final ImportJobScheduler scheduler = new ImportJobScheduler(new SimpleMeterRegistry(), 4, 1, 4, 100);
+    private KafkaImportProcessorService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KafkaImportProcessorService(kafkaTemplate, extractionService, scheduler,
+                mock(KafkaListenerEndpointRegistry.class), watermarkResolver);
+        ReflectionTestUtils.setField(service, "importCompletedTopic", "import-completed");
+        ReflectionTestUtils.setField(service, "baseUrl", "lb://processor/files");
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void onImportRequest_LongJob_ShouldNotHoldBackNextJobOrCommitPastIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        File result = Files.writeString(tempDir.resolve("result.nxdt"), "data").toFile();
+        when(extractionService.extractAndConvert(any(), eq(List.of()))).thenAnswer(invocation -> {
+            ImportRequestEvent event = invocation.getArgument(0);
+            if (event.jobId().equals("slow")) {
+                release.await();
+            }
+            return result;
+        });
+        Acknowledgment slowAck = mock(Acknowledgment.class);
+        Acknowledgment fastAck = mock(Acknowledgment.class);
+
+        service.onImportRequest(event("slow", "jdbc:h2:mem:a"), TOPIC, 0, 10, slowAck);
+        service.onImportRequest(event("fast", "jdbc:h2:mem:b"), TOPIC, 0, 11, fastAck);
+
+        // Следующая задача раздела выполнилась, пока первая ещё идёт, но её offset не коммитится раньше первой
+        verify(kafkaTemplate, timeout(5000)).send(eq("import-completed"), eq("fast"), any());
+        verify(fastAck, never()).acknowledge();
+        verify(slowAck, never()).acknowledge();
+
+        release.countDown();
+
+        verify(fastAck, timeout(5000)).acknowledge();
+        verify(slowAck, never()).acknowledge();
+    }
+
+    @Test
+    void onImportRequest_InterruptedByShutdown_ShouldNotReportFailureOrCommit() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(extractionService.extractAndConvert(any(), eq(List.of()))).thenAnswer(invocation -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        });
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        service.onImportRequest(event("long", "jdbc:h2:mem:a"), TOPIC, 0, 10, acknowledgment);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        verify(acknowledgment, never()).acknowledge();
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void sendHeartbeats_ShouldReportIncrementalJobsUntilTheyFinish() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        File result = Files.writeString(tempDir.resolve("result.nxdt"), "data").toFile();
+        when(watermarkResolver.resolve(any())).thenReturn(new IncrementalQuery("SELECT 1", List.of(), "10"));
+        when(extractionService.extractAndConvert(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return result;
+        });
+        ImportRequestEvent incremental = new ImportRequestEvent(
+                "incremental", "project", "jdbc:h2:mem:a", "sa", "", "SELECT 1", null, null, null, "id", "5"
+        );
+        Acknowledgment lastAck = mock(Acknowledgment.class);
+
+        service.onImportRequest(incremental, TOPIC, 0, 10, mock(Acknowledgment.class));
+        service.onImportRequest(event("full", "jdbc:h2:mem:b"), TOPIC, 0, 11, lastAck);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.sendHeartbeats();
+
+        // Полный импорт датасет не занимает, событие RUNNING шлётся только для инкрементального
+        verify(kafkaTemplate).send(eq("import-completed"), eq("incremental"),
+                argThat(event -> "RUNNING".equals(((ImportCompletedEvent) event).status())));
+        verify(kafkaTemplate, never()).send(anyString(), eq("full"), any());
+
+        release.countDown();
+        verify(kafkaTemplate, timeout(5000)).send(eq("import-completed"), eq("incremental"),
+                argThat(event -> "SUCCESS".equals(((ImportCompletedEvent) event).status())));
+        // Offset последней задачи подтверждается, только когда завершены обе
+        verify(lastAck, timeout(5000)).acknowledge();
+        clearInvocations(kafkaTemplate);
+        service.sendHeartbeats();
+
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    private static ImportRequestEvent event(String jobId, String url) {
+        return new ImportRequestEvent(jobId, "project", url, "sa", "", "SELECT 1");
+    }
+}
@@ -0,0 +1,81 @@
+package by.nexus.data.processor.service.pipeline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ImportPipelineTest {
+
+    private final ImportPipelineFactory factory = new ImportPipelineFactory(new SimpleMeterRegistry(), 4, 2);
+
+    @AfterEach
+    void tearDown() {
+        factory.shutdown();
+    }
+
+    @Test
+    void run_ShouldWriteBatchesInReadOrder() throws Exception {
+        ImportPipeline<List<Integer>> pipeline = factory.create();
+        List<Integer> written = new ArrayList<>();
+        int[] next = {0};
+
+        PipelineStats stats = pipeline.run(
+                batches(pipeline.batchCount()),
+                List::isEmpty,
+                List::clear,
+                batch -> {
+                    for (int i = 0; i < 10 && next[0] < 1000; i++) {
+                        batch.add(next[0]++);
+                    }
+                    return next[0] < 1000;
+                },
+                batch -> Thread.sleep(ThreadLocalRandom.current().nextInt(3)),
+                written::addAll
+        );
+
+        assertEquals(100, stats.batches());
+        assertEquals(1000, written.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(i, written.get(i));
+        }
+    }
+
+    @Test
+    void run_WhenWriterFails_ShouldRethrowWithoutHanging() {
+        ImportPipeline<List<Integer>> pipeline = factory.create();
+
+        IOException error = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(IOException.class, () -> pipeline.run(
+                        batches(pipeline.batchCount()),
+                        List::isEmpty,
+                        List::clear,
+                        batch -> batch.add(1),
+                        batch -> {
+                        },
+                        batch -> {
+                            throw new IOException("disk full");
+                        }
+                ))
+        );
+
+        assertEquals("disk full", error.getMessage());
+    }
+
+    private static List<List<Integer>> batches(int count) {
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batches.add(new ArrayList<>());
+        }
+        return batches;
+    }
+}
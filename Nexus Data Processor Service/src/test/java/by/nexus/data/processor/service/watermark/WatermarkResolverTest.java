@@ -0,0 +1,143 @@
+package by.nexus.data.processor.service.watermark;
+
+import by.nexus.data.processor.event.ImportRequestEvent;
+import by.nexus.data.processor.service.connection.SourceConnectionPools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WatermarkResolverTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:watermarkdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+    @TempDir
+    Path tempStorageDir;
+
+    private final SourceConnectionPools connectionPools = new SourceConnectionPools(
+            new SimpleMeterRegistry(), 2, 4, Duration.ofMinutes(10), Duration.ofSeconds(5));
+    private WatermarkResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        resolver = new WatermarkResolver(connectionPools);
+        ReflectionTestUtils.setField(resolver, "storagePath", tempStorageDir.toString());
+
+        execute("DROP TABLE IF EXISTS events",
+                "CREATE TABLE events (id INT PRIMARY KEY, created_at TIMESTAMP)",
+                "INSERT INTO events VALUES (1, '2024-01-01 10:00:00'), (2, '2024-01-02 10:00:00')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionPools.shutdown();
+    }
+
+    @Test
+    void resolve_ShouldExtractOnlyRowsAboveWatermark() throws Exception {
+        IncrementalQuery first = resolver.resolve(event("job-1", "created_at", null));
+        assertEquals("TIMESTAMP:2024-01-02 10:00:00.0", first.watermark());
+        assertEquals(List.of(1, 2), ids(first));
+
+        execute("INSERT INTO events VALUES (3, '2024-01-03 10:00:00')");
+
+        IncrementalQuery second = resolver.resolve(event("job-2", "created_at", first.watermark()));
+        assertEquals(List.of(3), ids(second));
+        assertEquals("TIMESTAMP:2024-01-03 10:00:00.0", second.watermark());
+    }
+
+    @Test
+    void resolve_WhenRedelivered_ShouldKeepPinnedUpperBound() throws Exception {
+        IncrementalQuery first = resolver.resolve(event("job-1", "id", null));
+
+        execute("INSERT INTO events VALUES (3, '2024-01-03 10:00:00')");
+        IncrementalQuery redelivered = resolver.resolve(event("job-1", "id", null));
+
+        assertEquals("LONG:2", redelivered.watermark());
+        assertEquals(first.sqlQuery(), redelivered.sqlQuery());
+        assertEquals(first.parameters(), redelivered.parameters());
+    }
+
+    @Test
+    void resolve_WithoutNewRows_ShouldKeepWatermark() throws Exception {
+        IncrementalQuery result = resolver.resolve(event("job-1", "id", "LONG:2"));
+
+        assertEquals("LONG:2", result.watermark());
+        assertEquals(List.of(), ids(result));
+    }
+
+    @Test
+    void resolve_TimestampWithTimeZone_ShouldKeepInstantInUtc() throws Exception {
+        execute("DROP TABLE IF EXISTS zoned",
+                "CREATE TABLE zoned (id INT PRIMARY KEY, updated_at TIMESTAMP WITH TIME ZONE)",
+                "INSERT INTO zoned VALUES (1, '2024-01-01 10:00:00+03'), (2, '2024-01-02 10:00:00+03')");
+
+        IncrementalQuery first = resolver.resolve(zonedEvent("job-1", null));
+        assertEquals("TIMESTAMPTZ:2024-01-02T07:00:00Z", first.watermark());
+        assertEquals(List.of(1, 2), ids(first));
+
+        // Та же отметка в другом поясе: строка ровно на ней не выгружается повторно
+        execute("INSERT INTO zoned VALUES (3, '2024-01-02 08:00:00+01'), (4, '2024-01-02 09:00:00+01')");
+
+        IncrementalQuery second = resolver.resolve(zonedEvent("job-2", first.watermark()));
+        assertEquals(List.of(4), ids(second));
+        assertEquals("TIMESTAMPTZ:2024-01-02T08:00:00Z", second.watermark());
+    }
+
+    @Test
+    void parse_ShouldRejectMalformedValues() {
+        assertThrows(IllegalArgumentException.class, () -> Watermark.parse("LONG:1 OR 1=1"));
+        assertThrows(IllegalArgumentException.class, () -> Watermark.parse("TIMESTAMP:2024-01-01'; DROP TABLE x"));
+        assertThrows(RuntimeException.class, () -> Watermark.parse("TIMESTAMPTZ:2024-01-01 10:00"));
+    }
+
+    private static ImportRequestEvent event(String jobId, String column, String watermark) {
+        return new ImportRequestEvent(jobId, "1", DB_URL, "sa", "", "SELECT * FROM events",
+                null, null, null, column, watermark);
+    }
+
+    private static ImportRequestEvent zonedEvent(String jobId, String watermark) {
+        return new ImportRequestEvent(jobId, "1", DB_URL, "sa", "", "SELECT * FROM zoned",
+                null, null, null, "updated_at", watermark);
+    }
+
+    private static List<Integer> ids(IncrementalQuery query) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(DB_URL, "sa", "");
+             PreparedStatement stmt = conn.prepareStatement(query.sqlQuery() + " ORDER BY id")) {
+            for (int i = 0; i < query.parameters().size(); i++) {
+                stmt.setObject(i + 1, query.parameters().get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void execute(String... statements) throws Exception {
+        try (Connection conn = DriverManager.getConnection(DB_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
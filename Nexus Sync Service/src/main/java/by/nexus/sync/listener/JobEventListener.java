@@ -1,14 +1,13 @@
 package by.nexus.sync.listener;
 
 import by.nexus.sync.controller.WebSocketController;
+import by.nexus.sync.model.ImportCompletedEvent;
 import by.nexus.sync.model.SyncEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -20,13 +19,15 @@ public class JobEventListener {
             topics = "${spring.kafka.topics.import-completed}",
             groupId = "${spring.kafka.consumer.group-id}"
     )
-    public void handleImportCompleted(Map<String, Object> event) {
+    public void handleImportCompleted(ImportCompletedEvent event) {
+        String jobId = event.jobId();
+        String status = event.status();
+        if ("RUNNING".equals(status)) {
+            // Подтверждение, что задача ещё выполняется, нужно только Core
+            return;
+        }
         log.info("Received import completed event: {}", event);
         
-        String jobId = (String) event.get("jobId");
-        String status = (String) event.get("status");
-        String storagePath = (String) event.get("storagePath");
-        
         // Extract projectId from jobId (format: userId:projectId:folderId:uuid)
         if (jobId != null) {
             String[] parts = jobId.split(":");
@@ -37,8 +38,7 @@ public class JobEventListener {
                 if ("SUCCESS".equals(status)) {
                     syncEvent = SyncEvent.jobCompleted(jobId, status);
                 } else {
-                    String errorMessage = (String) event.get("errorMessage");
-                    syncEvent = SyncEvent.jobFailed(jobId, errorMessage);
+                    syncEvent = SyncEvent.jobFailed(jobId, event.errorMessage());
                 }
                 
                 webSocketController.broadcastJobCompletion(projectId, syncEvent);
@@ -0,0 +1,13 @@
+package by.nexus.sync.model;
+
+public record ImportCompletedEvent(
+        String jobId,
+        String status,          // SUCCESS|FAILED|RUNNING
+        String storagePath,
+        long fileSize,
+        String checksum,
+        String errorMessage,
+        String watermarkColumn,
+        String watermark
+) {
+}
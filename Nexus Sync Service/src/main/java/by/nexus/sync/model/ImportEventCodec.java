@@ -0,0 +1,97 @@
+package by.nexus.sync.model;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение событий импорта в Avro single-object encoding: {@code C3 01}, 8 байт fingerprint схемы писателя
+ * и тело в бинарном Avro. Схемы совпадают с Core и Data Processor; Sync только читает {@code import-completed}.
+ * Новая версия схемы кладётся в {@code resources/avro} и добавляется в историю до того, как на неё перейдут
+ * производители.
+ */
+public final class ImportEventCodec {
+
+    private static final byte[] MAGIC = {(byte) 0xC3, 0x01};
+    private static final int HEADER_SIZE = MAGIC.length + Long.BYTES;
+
+    static final Schema IMPORT_COMPLETED = schema("avro/import-completed-v1.avsc");
+
+    // Все версии, которыми могли быть записаны сообщения в топике; последняя — текущая
+    private static final List<Schema> IMPORT_COMPLETED_HISTORY = List.of(IMPORT_COMPLETED);
+
+    private static final Set<Long> fingerprints = IMPORT_COMPLETED_HISTORY.stream()
+            .map(SchemaNormalization::parsingFingerprint64)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private static final BinaryMessageDecoder<GenericRecord> completedDecoder =
+            new BinaryMessageDecoder<>(GenericData.get(), IMPORT_COMPLETED);
+
+    static {
+        IMPORT_COMPLETED_HISTORY.forEach(completedDecoder::addSchema);
+    }
+
+    private ImportEventCodec() {
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC[0] && data[1] == MAGIC[1];
+    }
+
+    /**
+     * @throws IllegalArgumentException если это не {@link ImportCompletedEvent} известной версии схемы
+     */
+    public static ImportCompletedEvent decodeCompleted(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an Avro single-object encoded message");
+        }
+        long fingerprint = ByteBuffer.wrap(data, MAGIC.length, Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        if (!fingerprints.contains(fingerprint)) {
+            throw new IllegalArgumentException("Unknown event schema fingerprint " + Long.toHexString(fingerprint));
+        }
+        GenericRecord record;
+        try {
+            record = completedDecoder.decode(data);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed ImportCompleted event", e);
+        }
+        return new ImportCompletedEvent(
+                string(record, "jobId"),
+                string(record, "status"),
+                string(record, "storagePath"),
+                (Long) record.get("fileSize"),
+                string(record, "checksum"),
+                string(record, "errorMessage"),
+                string(record, "watermarkColumn"),
+                string(record, "watermark")
+        );
+    }
+
+    // Avro отдаёт строки как Utf8
+    private static String string(GenericRecord record, String field) {
+        return Objects.toString(record.get(field), null);
+    }
+
+    private static Schema schema(String resource) {
+        try (InputStream in = ImportEventCodec.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema " + resource + " not found on classpath");
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package by.nexus.sync.model;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сообщения в {@link ImportEventCodec} читаются в {@link ImportCompletedEvent}, остальные — строкой,
+ * как раньше через {@code StringDeserializer}.
+ */
+public class ImportEventDeserializer implements Deserializer<Object> {
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!ImportEventCodec.isEncoded(data)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        try {
+            return ImportEventCodec.decodeCompleted(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decode event from topic " + topic, e);
+        }
+    }
+}